@@ -1,3 +1,4 @@
+import tests.BenchmarkTests;
 import tests.EfficientListTests;
 import tests.SystemTests;
 import tests.WorldTests;
@@ -6,12 +7,24 @@ import util.Log.LogInterface;
 
 public class DesktopTestRunner {
 
+	/**
+	 * pass this argument to run the {@link BenchmarkTests} instead of the
+	 * tests, they take several seconds
+	 */
+	private static final String BENCHMARK_ARG = "--benchmarks";
+
 	/**
 	 * @param args
+	 *            {@value #BENCHMARK_ARG} to only run the benchmarks
 	 */
 	public static void main(String[] args) {
 		try {
 			initLogging();
+			if (args.length > 0 && BENCHMARK_ARG.equals(args[0])) {
+				new BenchmarkTests().run();
+				System.out.println("Benchmarks done");
+				return;
+			}
 			new SystemTests().run();
 			new EfficientListTests().run();
 			new WorldTests().run();
@@ -1,6 +1,6 @@
 package actions;
 
-import geo.GeoCalcer;
+import geo.FloatingOrigin;
 import gl.GLCamera;
 import logger.ARLogger;
 import system.EventManager;
@@ -11,7 +11,8 @@ import android.location.Location;
  * This action is the basic action for virtual camera movement in relation to
  * the physical device movement. The GPS input is used to calculate the virtual
  * position. If the distance to the center of the virtual world gets to big, the
- * virtual zero position is reseted and the virtual positions are recalculated
+ * virtual zero position is reseted. The {@link World} then re-bases all of
+ * its objects in the same update step, see {@link FloatingOrigin}
  * 
  * <br>
  * latutude is north(+)/south(-)<br>
@@ -54,17 +55,15 @@ public class ActionCalcRelativePos extends Action {
 	private double mNullLatitude;
 	private double mNullAltitude;
 
-	private World mWorld;
 	private GLCamera mCamera;
-	private GeoCalcer mGeoCalcer;
 
 	/**
 	 * Constructor.
-	 * @param world - {@link worlddata.World}
+	 * @param world - {@link worlddata.World}, it re-bases its objects itself
+	 *            when the zero position is reseted
 	 * @param camera - {@link gl.GLCamera}
 	 */
 	public ActionCalcRelativePos(World world, GLCamera camera) {
-		mWorld = world;
 		mCamera = camera;
 	}
 
@@ -135,14 +134,19 @@ public class ActionCalcRelativePos extends Action {
 	}
 
 	/**
-	 * Reset the world to (0,0,0) position.
+	 * Reset the world to (0,0,0) position. This moves the
+	 * {@link FloatingOrigin} and the camera while holding the camera lock, the
+	 * {@link World} moves all of its objects in the next update before the
+	 * camera is handed to the renderer, so no frame shows the new camera
+	 * position with the old object positions.
 	 * @param location {@link Location}
 	 */
 	public void resetWorldZeroPositions(Location location) {
 		ARLogger.debug(LOG_TAG, "Reseting virtual world positions");
-		setNewNullValues(location);
-		resetCameraTomNullPosition();
-		calcNewWorldPositions();
+		synchronized (mCamera) {
+			setNewNullValues(location);
+			resetCameraTomNullPosition();
+		}
 	}
 
 	private void setNewNullValues(Location location) {
@@ -152,12 +156,4 @@ public class ActionCalcRelativePos extends Action {
 		EventManager.getInstance().setZeroLocation(location);
 	}
 
-	private void calcNewWorldPositions() {
-		if (mGeoCalcer == null) {
-			mGeoCalcer = new GeoCalcer();
-		}
-		mGeoCalcer.setNullPos(mNullLatitude, mNullLongitude, mNullAltitude);
-		mWorld.accept(mGeoCalcer);
-	}
-
 }
@@ -5,27 +5,101 @@ import util.Log;
 import util.Vec;
 import worlddata.Entity;
 import worlddata.Obj;
+import worlddata.PhysicsWorld;
+import worlddata.PhysicsWorld.CollisionListener;
 import worlddata.Updateable;
 import worlddata.Visitor;
 
 /**
- * currently only for testing! not functional jet
- * 
+ * Connects an {@link Obj} to a body of the {@link PhysicsWorld}. The body is
+ * created at the position of the graphics component in the first update, after
+ * that the simulated position is copied to the graphics component in each
+ * update, so the position should be changed via
+ * {@link #setPosition(Vec)}. If the obj is not updated anymore (e.g. because
+ * it was removed from the world) the body is removed automatically.
+ *
  * @author Spobo
- * 
+ *
  */
 public class PhysicsComponent implements Entity {
 
-	public static final float FRICTION = 1; // TODO make world dependant
-	public static final Vec GRAVITY = new Vec(0, 0, 0);
 	private static final String LOG_TAG = "PhysicsComponent";
 
-	Boolean physicsActive = true;
+	/**
+	 * add forces here, they are applied during the next update of the
+	 * {@link PhysicsWorld}
+	 */
 	public Vec force = new Vec();
-	private Vec velocity = new Vec();
-	private Vec accel = new Vec();
-	private float mass = 1;
-	private Updateable myParent;
+	private final int myShape;
+	private final Vec mySize;
+	private final float myMass;
+	private CollisionListener myListener;
+	private int myHandle = -1;
+	private Vec myNewPosition;
+	private Vec myNewVelocity;
+
+	/**
+	 * A sphere with radius 1 and mass 1
+	 */
+	public PhysicsComponent() {
+		this(1, 1);
+	}
+
+	/**
+	 * @param radius
+	 * @param mass
+	 *            0 for static objects
+	 */
+	public PhysicsComponent(float radius, float mass) {
+		myShape = PhysicsWorld.SPHERE;
+		mySize = new Vec(radius, radius, radius);
+		myMass = mass;
+	}
+
+	/**
+	 * @param halfSize
+	 *            the half width, depth and height of the box
+	 * @param mass
+	 *            0 for static objects
+	 */
+	public PhysicsComponent(Vec halfSize, float mass) {
+		myShape = PhysicsWorld.BOX;
+		mySize = halfSize.copy();
+		myMass = mass;
+	}
+
+	/**
+	 * @param listener
+	 *            is informed when the obj touches another body
+	 */
+	public void setCollisionListener(CollisionListener listener) {
+		myListener = listener;
+		if (myHandle != -1) {
+			PhysicsWorld.getInstance().setCollisionListener(myHandle, listener);
+		}
+	}
+
+	/**
+	 * moves the body with the next update
+	 */
+	public void setPosition(Vec position) {
+		myNewPosition = position.copy();
+	}
+
+	/**
+	 * changes the velocity of the body with the next update
+	 */
+	public void setVelocity(Vec velocity) {
+		myNewVelocity = velocity.copy();
+	}
+
+	/**
+	 * @return the handle of the body in the {@link PhysicsWorld} or -1 if the
+	 *         body was not created yet
+	 */
+	public int getHandle() {
+		return myHandle;
+	}
 
 	@Override
 	public boolean accept(Visitor visitor) {
@@ -48,56 +122,42 @@ public class PhysicsComponent implements Entity {
 
 	@Override
 	public boolean update(float timeDelta, Updateable parent) {
-		if (physicsActive) {
-			Obj obj = (Obj) parent;
-			final MeshComponent v = obj.getGraphicsComponent();
-
-			updateAccel(timeDelta);
-			velocityVerletIntegration(timeDelta, v.getPosition());
-			updateSpeed(timeDelta);
-			iterateCollisions(timeDelta, obj);
+		if (!(parent instanceof Obj)) {
+			return true;
+		}
+		Obj obj = (Obj) parent;
+		final MeshComponent v = obj.getGraphicsComponent();
+		if (v == null) {
+			return true;
+		}
+		PhysicsWorld world = PhysicsWorld.getInstance();
+		if (!world.keepAlive(myHandle, this)) {
+			addBody(world, v.getPosition());
+		}
+		if (myNewPosition != null) {
+			world.setPosition(myHandle, myNewPosition);
+			myNewPosition = null;
+		}
+		if (myNewVelocity != null) {
+			world.setVelocity(myHandle, myNewVelocity);
+			myNewVelocity = null;
 		}
-		return true;
-	}
-
-	private void updateSpeed(float td) {
-		velocity.mult(1 / FRICTION); // TODO correct with dt this way?
-	}
-
-	private void updateAccel(float timeDelta) {
-		accel.setToZero();
-		accel.add(GRAVITY);
-	}
-
-	/**
-	 * velocity verlet integration, should be by rigid body simulation.. <a
-	 * href="http://en.wikipedia.org/wiki/Verlet_integration">Wiki text
-	 * 
-	 * @param dt
-	 * 
-	 * @param x
-	 */
-	private void velocityVerletIntegration(float dt, Vec x) {
-		// step 1:
-		x.add(Vec.mult(dt, velocity).add(Vec.mult(0.5f * dt * dt, accel)));
-		// step 2:
-		Vec velocHalf = Vec.add(velocity, Vec.mult(0.5f * dt, accel));
-		// step 3:
-		addForceToAcceleration(dt);
-		// step 4:
-		velocity.setToVec(Vec.add(velocHalf, Vec.mult(0.5f * dt, accel)));
-	}
-
-	private void addForceToAcceleration(float dt) {
 		if (!force.isNullVector()) {
-			accel.add(Vec.mult(1 / mass, force));
+			world.applyForce(myHandle, force);
+			force.setToZero();
 		}
-		force.setToZero();
+		world.getPosition(myHandle, v.getPosition());
+		return true;
 	}
 
-	private void iterateCollisions(float timeDelta, Obj obj) {
-		// check for collisions and solve them. do this several times to avoid
-		// clipping bugs etc
+	private void addBody(PhysicsWorld world, Vec position) {
+		if (myShape == PhysicsWorld.SPHERE) {
+			myHandle = world.addSphere(position, mySize.x, myMass);
+		} else {
+			myHandle = world.addBox(position, mySize, myMass);
+		}
+		world.setOwner(myHandle, this);
+		world.setCollisionListener(myHandle, myListener);
 	}
 
 }
@@ -7,22 +7,41 @@ import util.Log;
 import util.Vec;
 import worlddata.Entity;
 import worlddata.Obj;
-import worlddata.UpdateTimer;
 import worlddata.Updateable;
 import worlddata.Visitor;
+import worlddata.WheelUpdateTimer;
+import worlddata.WheelUpdateTimer.ParentTimerListener;
 
+/**
+ * Checks the distance of its parent to the camera once per second. For a
+ * large number of objects or for areas which are not circles use the
+ * {@link worlddata.GeofenceEngine} instead.
+ *
+ * The sensor can be added to several objs, each parent is checked with its
+ * own {@link WheelUpdateTimer}.
+ */
 public abstract class ProximitySensor implements Entity {
 
 	private static final float DEFAULT_UPDATE_TIME = 1;
 	private static final String LOG_TAG = "ProximitySensor";
 	private GLCamera myCamera;
 	private float myDistance;
-	private UpdateTimer myTimer;
+	/**
+	 * one timer per parent, so the component can be added to several objs
+	 */
+	private WheelUpdateTimer.PerParent myTimers;
 
 	public ProximitySensor(GLCamera camera, float distance) {
 		myCamera = camera;
 		myDistance = distance;
-		myTimer = new UpdateTimer(DEFAULT_UPDATE_TIME, null);
+		myTimers = new WheelUpdateTimer.PerParent(DEFAULT_UPDATE_TIME,
+				new ParentTimerListener() {
+					@Override
+					public boolean onTimer(Updateable parent, float passedTime) {
+						checkDistance(parent);
+						return true;
+					}
+				});
 	}
 
 	public void setMyCamera(GLCamera myCamera) {
@@ -40,32 +59,36 @@ public abstract class ProximitySensor implements Entity {
 
 	@Override
 	public boolean update(float timeDelta, Updateable parent) {
+		/*
+		 * the distance is checked by the timer wheel when it is due, or here
+		 * if no SystemUpdater advances the wheel:
+		 */
+		myTimers.keepAlive(parent, timeDelta);
+		return true;
+	}
 
-		if (myTimer.update(timeDelta, this)) {
-			if (parent instanceof Obj) {
-				Obj obj = (Obj) parent;
-				Vec position = obj.getPosition();
-				if (position != null) {
-					float currentDistance = Vec.distance(position,
-							myCamera.getPosition());
-					checkCurrentDistance(obj, obj.getMeshComp(),
-							currentDistance);
-					return true;
-				} else {
-					Log.w(LOG_TAG, "MeshComp of target Obj was null!");
-				}
-			}
-			if (parent instanceof GeoObj) {
-				GeoObj obj = (GeoObj) parent;
-				float currentDistance = obj.getVirtualPosition(
-						myCamera.getGPSPositionAsGeoObj()).getLength();
-				checkCurrentDistance(obj, null, currentDistance);
+	private void checkDistance(Updateable parent) {
+		if (parent instanceof Obj) {
+			Obj obj = (Obj) parent;
+			Vec position = obj.getPosition();
+			if (position != null) {
+				float currentDistance = Vec.distance(position,
+						myCamera.getPosition());
+				checkCurrentDistance(obj, obj.getMeshComp(), currentDistance);
+				return;
 			} else {
-				Log.w(LOG_TAG, "Sensor parent " + parent
-						+ " has no position, cant be used!");
+				Log.w(LOG_TAG, "MeshComp of target Obj was null!");
 			}
 		}
-		return true;
+		if (parent instanceof GeoObj) {
+			GeoObj obj = (GeoObj) parent;
+			float currentDistance = obj.getVirtualPosition(
+					myCamera.getGPSPositionAsGeoObj()).getLength();
+			checkCurrentDistance(obj, null, currentDistance);
+		} else {
+			Log.w(LOG_TAG, "Sensor parent " + parent
+					+ " has no position, cant be used!");
+		}
 	}
 
 	@Override
@@ -9,9 +9,10 @@ import worlddata.Entity;
 import worlddata.LargeWorld;
 import worlddata.Obj;
 import worlddata.RenderableEntity;
-import worlddata.UpdateTimer;
 import worlddata.Updateable;
 import worlddata.Visitor;
+import worlddata.WheelUpdateTimer;
+import worlddata.WheelUpdateTimer.ParentTimerListener;
 import worlddata.World;
 import commands.Command;
 
@@ -21,14 +22,24 @@ public class ProximitySensorForOtherObjects implements Entity {
 	private World myWorld;
 	private float myMaxDistance;
 	private Command myCommand;
-	private UpdateTimer myTimer;
+	/**
+	 * one timer per parent, so the component can be added to several objs
+	 */
+	private WheelUpdateTimer.PerParent myTimers;
 
 	public ProximitySensorForOtherObjects(World world, float distance,
 			Command commandToExecuteWhenProximityReached) {
 		myWorld = world;
 		myMaxDistance = distance;
 		myCommand = commandToExecuteWhenProximityReached;
-		myTimer = new UpdateTimer(DEFAULT_UPDATE_TIME, null);
+		myTimers = new WheelUpdateTimer.PerParent(DEFAULT_UPDATE_TIME,
+				new ParentTimerListener() {
+					@Override
+					public boolean onTimer(Updateable parent, float passedTime) {
+						findObjectsCloseTo(parent);
+						return true;
+					}
+				});
 	}
 
 	@Override
@@ -47,23 +58,28 @@ public class ProximitySensorForOtherObjects implements Entity {
 
 	@Override
 	public boolean update(float timeDelta, Updateable parent) {
+		/*
+		 * the other objects are searched by the timer wheel when it is due,
+		 * or here if no SystemUpdater advances the wheel:
+		 */
+		myTimers.keepAlive(parent, timeDelta);
+		return true;
+	}
 
-		if (myTimer.update(timeDelta, this)) {
-			if (parent instanceof Obj) {
-				Obj obj = (Obj) parent;
-				MeshComponent myMesh = obj.getGraphicsComponent();
-				if (myMesh != null) {
-					if (myWorld instanceof LargeWorld)
-						findObjectsCloseTo(obj, myMesh, (LargeWorld) myWorld);
-					else
-						findObjectsCloseTo(obj, myMesh, myWorld.getAllItems());
-				}
-			} else {
-				Log.w(LOG_TAG,
-						"Sensor is not child of a Obj and therefor cant run!");
+	private void findObjectsCloseTo(Updateable parent) {
+		if (parent instanceof Obj) {
+			Obj obj = (Obj) parent;
+			MeshComponent myMesh = obj.getGraphicsComponent();
+			if (myMesh != null) {
+				if (myWorld instanceof LargeWorld)
+					findObjectsCloseTo(obj, myMesh, (LargeWorld) myWorld);
+				else
+					findObjectsCloseTo(obj, myMesh, myWorld.getAllItems());
 			}
+		} else {
+			Log.w(LOG_TAG,
+					"Sensor is not child of a Obj and therefor cant run!");
 		}
-		return true;
 	}
 
 	/**
@@ -2,30 +2,47 @@ package components;
 
 import commands.Command;
 import worlddata.Entity;
-import worlddata.UpdateTimer;
+import worlddata.TimerWheel.TimerListener;
 import worlddata.Updateable;
 import worlddata.Visitor;
+import worlddata.WheelUpdateTimer;
 
 public class TimerComp implements Entity {
 
-	private UpdateTimer timer;
+	private static final float RETRY_TIME = 0.2f;
+	private WheelUpdateTimer timer;
 	private Updateable myParent;
+	private volatile boolean done;
 
-	public TimerComp(float countdownTimeInSeconds, Command commandToExecute) {
-		timer = new UpdateTimer(countdownTimeInSeconds, commandToExecute);
+	public TimerComp(float countdownTimeInSeconds,
+			final Command commandToExecute) {
+		timer = new WheelUpdateTimer(countdownTimeInSeconds,
+				new TimerListener() {
+					@Override
+					public boolean onTimer(float passedTime) {
+						if (commandToExecute == null
+								|| commandToExecute.execute()) {
+							done = true;
+							return false;
+						}
+						// try again a little bit later:
+						timer.setInterval(RETRY_TIME);
+						return true;
+					}
+				});
 	}
 
 	@Override
 	public boolean update(float timeDelta, Updateable parent) {
 		setMyParent(parent);
-		if (timer.update(timeDelta, this)) {
+		if (done) {
 			/*
-			 * if the timer returns true that means its time was up and it was
-			 * executed correctly so the TImerComp can be removed from its
-			 * parent -> return false
+			 * the time was up and the command was executed correctly so the
+			 * TimerComp can be removed from its parent -> return false
 			 */
 			return false;
 		}
+		timer.keepAlive();
 		return true;
 	}
 
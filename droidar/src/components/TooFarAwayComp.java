@@ -4,13 +4,26 @@ import gl.GLCamera;
 import gl.HasPosition;
 import gl.scenegraph.MeshComponent;
 import util.Vec;
+import worlddata.DistanceCuller;
+import worlddata.DistanceCuller.BucketListener;
 import worlddata.Entity;
 import worlddata.Obj;
-import worlddata.UpdateTimer;
+import worlddata.TimerWheel.TimerListener;
 import worlddata.Updateable;
 import worlddata.Visitor;
+import worlddata.WheelUpdateTimer;
 import android.util.Log;
 
+/**
+ * The distance to the camera is calculated by the {@link DistanceCuller}
+ * together with the distances of all other {@link TooFarAwayComp}s. The
+ * component is only informed when its parent changes between close, gray zone
+ * and far away.
+ *
+ * There is only one {@link DistanceCuller}, so all {@link TooFarAwayComp}s
+ * have to use the same camera. A component with another camera is removed
+ * from its parent.
+ */
 public abstract class TooFarAwayComp implements Entity {
 
 	private static final float DEFAULT_GRAYZONE_SIZE = 30; // TODO
@@ -23,7 +36,10 @@ public abstract class TooFarAwayComp implements Entity {
 
 	private float myMaxDistance;
 	private GLCamera myCamera;
-	private UpdateTimer timer;
+	private WheelUpdateTimer timer;
+	private Updateable myTimerParent;
+	private BucketListener myBucketListener;
+	private int myHandle = -1;
 
 	private float myGrayZoneDist;
 	private int currentState;
@@ -43,7 +59,23 @@ public abstract class TooFarAwayComp implements Entity {
 		myMaxDistance = maxDistance;
 		myCamera = camera;
 		myGrayZoneDist = grayZoneDist;
-		timer = new UpdateTimer(updateSpeed, null);
+		myBucketListener = new BucketListener() {
+			@Override
+			public void onBucketChanged(int handle, int oldBucket,
+					int newBucket, float distance) {
+				onStateChange(newBucket);
+			}
+		};
+		// the frequent events are only needed while the object is far away:
+		timer = new WheelUpdateTimer(updateSpeed, new TimerListener() {
+			@Override
+			public boolean onTimer(float passedTime) {
+				if (currentState == IS_TO_FAR_AWAY) {
+					sendFarAwayEvents(myTimerParent);
+				}
+				return true;
+			}
+		});
 	}
 
 	public TooFarAwayComp(float maxDistance, GLCamera camera) {
@@ -69,15 +101,26 @@ public abstract class TooFarAwayComp implements Entity {
 	public boolean update(float timeDelta, Updateable parent) {
 		/*
 		 * as long as the parent is not a HasPosition subclass object the timer
-		 * wont be updated
+		 * wont be started. The distance is checked by the timer wheel when it
+		 * is due
 		 */
 		if (parent instanceof HasPosition) {
-			if (timer.update(timeDelta, parent)) {
-				Vec pos = ((HasPosition) parent).getPosition();
-				if (pos != null) {
-					return usePosition(parent, pos);
+			myTimerParent = parent;
+			DistanceCuller c = DistanceCuller.getInstance();
+			if (!c.keepAlive(myHandle, myBucketListener)) {
+				HasPosition camera = c.getCamera();
+				if (camera == null) {
+					c.setCamera(myCamera);
+				} else if (camera != myCamera) {
+					Log.e(LOG_TAG, "The DistanceCuller already measures the "
+							+ "distances to another camera (" + camera
+							+ "), the comp cant be used with " + myCamera);
+					return false;
 				}
+				myHandle = c.register((HasPosition) parent, myMaxDistance,
+						myGrayZoneDist, myBucketListener);
 			}
+			timer.keepAlive();
 			return true;
 		}
 		Log.e(LOG_TAG, "Could not extract position from parent! " + parent
@@ -86,41 +129,61 @@ public abstract class TooFarAwayComp implements Entity {
 		return false;
 	}
 
-	private boolean usePosition(Updateable parent, Vec pos) {
+	private void onStateChange(int bucket) {
+		Updateable parent = myTimerParent;
+		Vec pos = ((HasPosition) parent).getPosition();
+		if (pos == null) {
+			return;
+		}
+		if (bucket == DistanceCuller.NEAR) {
+			if (currentState != IS_CLOSE) {
+				currentState = IS_CLOSE;
+				isNowCloseEnough(parent, tryToGetTheParentsMesh(parent),
+						getDirection(pos));
+			}
+		} else if (currentState != IS_TO_FAR_AWAY) {
+			currentState = IS_TO_FAR_AWAY;
+			isNowToFarAway(parent, tryToGetTheParentsMesh(parent),
+					getDirection(pos));
+			sendFarAwayEvents(parent);
+		}
+	}
 
+	private void sendFarAwayEvents(Updateable parent) {
+		Vec pos = ((HasPosition) parent).getPosition();
+		if (pos == null) {
+			return;
+		}
 		MeshComponent parentsMesh = tryToGetTheParentsMesh(parent);
+		onFarAwayEvent(parent, parentsMesh, getDirection(pos));
+		/*
+		 * if the distance is in the grayzone additionially fire the
+		 * onGrayZoneEvent event
+		 */
+		DistanceCuller c = DistanceCuller.getInstance();
+		if (c.getBucket(myHandle, myBucketListener) == DistanceCuller.GRAY) {
+			float grayZonePercent = (c.getDistance(myHandle, myBucketListener)
+					/ (myGrayZoneDist - myMaxDistance) - 1) * 100;
+			onGrayZoneEvent(parent, parentsMesh, getDirection(pos),
+					grayZonePercent);
+		}
+	}
 
-		Vec direction = pos.copy().sub(myCamera.getPosition());
-		float length = direction.getLength();
-		direction.mult(-1);
-
-		if (length > myMaxDistance) {
-
-			/*
-			 * the object is too faar away so inform the component
-			 */
-			if (currentState != IS_TO_FAR_AWAY) {
-				currentState = IS_TO_FAR_AWAY;
-				isNowToFarAway(parent, parentsMesh, direction);
-			}
-			onFarAwayEvent(parent, parentsMesh, direction);
-
-			/*
-			 * if the distance is in the grayzone additionially fire the
-			 * onGrayZoneEvent event
-			 */
-			if (length < myGrayZoneDist) {
-				float grayZonePercent = (length
-						/ (myGrayZoneDist - myMaxDistance) - 1) * 100;
-				onGrayZoneEvent(parent, parentsMesh, direction, grayZonePercent);
-			}
-
-		} else if (currentState != IS_CLOSE) {
-			currentState = IS_CLOSE;
-			isNowCloseEnough(parent, parentsMesh, direction);
+	/**
+	 * @param pos
+	 * @return the direction from the object to the camera
+	 */
+	private Vec getDirection(Vec pos) {
+		return myCamera.getPosition().copy().sub(pos);
+	}
 
-		}
-		return true;
+	/**
+	 * @return the distance to the camera which was calculated by the
+	 *         {@link DistanceCuller} or -1 if it is not known (anymore)
+	 */
+	public float getCameraDistance() {
+		return DistanceCuller.getInstance().getDistance(myHandle,
+				myBucketListener);
 	}
 
 	private MeshComponent tryToGetTheParentsMesh(Updateable parent) {
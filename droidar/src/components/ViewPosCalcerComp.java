@@ -3,9 +3,10 @@ package components;
 import gl.GLCamera;
 import util.Vec;
 import worlddata.Entity;
-import worlddata.UpdateTimer;
+import worlddata.TimerWheel.TimerListener;
 import worlddata.Updateable;
 import worlddata.Visitor;
+import worlddata.WheelUpdateTimer;
 import android.util.Log;
 
 public abstract class ViewPosCalcerComp implements Entity {
@@ -13,7 +14,8 @@ public abstract class ViewPosCalcerComp implements Entity {
 	private static final String LOG_TAG = "ViewPosCalcerComp";
 	private GLCamera myCamera;
 	private int myMaxDistance;
-	private UpdateTimer timer;
+	private WheelUpdateTimer timer;
+	private Updateable myTimerParent;
 
 	/**
 	 * @param camera
@@ -25,23 +27,27 @@ public abstract class ViewPosCalcerComp implements Entity {
 	public ViewPosCalcerComp(GLCamera camera, int maxDistance, float updateSpeed) {
 		myCamera = camera;
 		myMaxDistance = maxDistance;
-		timer = new UpdateTimer(updateSpeed, null);
-	}
-
-	@Override
-	public boolean update(float timeDelta, Updateable parent) {
+		timer = new WheelUpdateTimer(updateSpeed, new TimerListener() {
+			@Override
+			public boolean onTimer(float passedTime) {
+				Vec targetVec = myCamera
+						.getPositionOnGroundWhereTheCameraIsLookingAt();
 
-		if (timer.update(timeDelta, this)) {
+				if (targetVec.getLength() > myMaxDistance) {
+					targetVec.setLength(myMaxDistance);
+				}
 
-			Vec targetVec = myCamera
-					.getPositionOnGroundWhereTheCameraIsLookingAt();
-
-			if (targetVec.getLength() > myMaxDistance) {
-				targetVec.setLength(myMaxDistance);
+				onPositionUpdate(myTimerParent, targetVec);
+				return true;
 			}
+		});
+	}
 
-			onPositionUpdate(parent, targetVec);
-		}
+	@Override
+	public boolean update(float timeDelta, Updateable parent) {
+		// onPositionUpdate is called by the timer wheel when it is due:
+		myTimerParent = parent;
+		timer.keepAlive();
 		return true;
 	}
 
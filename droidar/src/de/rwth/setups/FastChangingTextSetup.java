@@ -4,11 +4,8 @@ import entry.ISetupEntry;
 import gl.GL1Renderer;
 import gl.GLFactory;
 import gl.GLText;
-import gl.scenegraph.MeshComponent;
+import gl.textures.GlyphFont;
 import gui.GuiSetup;
-
-import java.util.HashMap;
-
 import setup.DefaultArSetup;
 import worlddata.Obj;
 import worlddata.World;
@@ -17,14 +14,13 @@ import commands.Command;
 
 public class FastChangingTextSetup extends DefaultArSetup {
 
-	HashMap<String, MeshComponent> textMap = new HashMap<String, MeshComponent>();
 	private GLText text;
 
 	@Override
 	public void addObjectsTo(GL1Renderer renderer, World world,
 			GLFactory objectFactory) {
 
-		text = new GLText("11223344swrvgweln@@@@", getActivity(), textMap,
+		text = new GLText("11223344swrvgweln@@@@", GlyphFont.getDefault(),
 				getCamera());
 
 		Obj o = new Obj();
@@ -0,0 +1,792 @@
+package geo;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import util.Log;
+
+/**
+ * A preprocessed version of a {@link RoutingGraph} for many shortest path
+ * searches on the same graph (e.g. re-routing whenever the user leaves the
+ * path). The nodes are contracted one after another, from the least important
+ * to the most important one, and shortcut edges are added so that the shortest
+ * paths between the remaining nodes do not change. A query then only has to
+ * follow edges to more important nodes, from the start and from the target at
+ * the same time, which visits only a few hundred nodes even in large graphs.
+ *
+ * Creating the hierarchy with {@link #build(RoutingGraph)} takes a while, so
+ * it should be saved with {@link #writeTo(OutputStream)} and loaded with
+ * {@link #readFrom(InputStream)} as long as the graph does not change, see
+ * {@link #getFingerprint()}.
+ *
+ * @author Spobo
+ *
+ */
+public class ContractionHierarchy {
+
+	private static final String LOG_TAG = "ContractionHierarchy";
+
+	private static final int FILE_MAGIC = 0x44434831; // "DCH1"
+	private static final int FILE_VERSION = 1;
+	/**
+	 * the witness searches stop after this many nodes, a missed witness only
+	 * adds an unnecessary shortcut. The priority of a node is only estimated,
+	 * so a smaller limit is used there
+	 */
+	private static final int WITNESS_SETTLE_LIMIT = 100;
+	private static final int PRIORITY_SETTLE_LIMIT = 10;
+	private static final int NO_MIDDLE = -1;
+
+	private final int myNodeCount;
+	private final long myFingerprint;
+	/*
+	 * the upward edges (to a more important node) in the same layout as in
+	 * the RoutingGraph, the middle node is the contracted node of a shortcut:
+	 */
+	private final int[] myUpStart;
+	private final int[] myUpTargets;
+	private final float[] myUpWeights;
+	private final int[] myUpMiddles;
+	/*
+	 * the downward edges, stored at their end node and pointing back to the
+	 * more important start node, so they can be used by the backward search:
+	 */
+	private final int[] myDownStart;
+	private final int[] myDownSources;
+	private final float[] myDownWeights;
+	private final int[] myDownMiddles;
+
+	// the working arrays of the queries:
+	private final float[] myForwardDist;
+	private final float[] myBackwardDist;
+	private final int[] myForwardEdge;
+	private final int[] myBackwardEdge;
+	private final int[] myForwardStamp;
+	private final int[] myBackwardStamp;
+	private final NodeHeap myForwardHeap;
+	private final NodeHeap myBackwardHeap;
+	private int myStamp;
+	private int[] myUnpackStack = new int[48];
+	private int[] myPathBuffer = new int[64];
+	private int mySettledCount;
+	private float myLastPathLength;
+
+	private ContractionHierarchy(int nodeCount, long fingerprint,
+			int[] upStart, int[] upTargets, float[] upWeights,
+			int[] upMiddles, int[] downStart, int[] downSources,
+			float[] downWeights, int[] downMiddles) {
+		myNodeCount = nodeCount;
+		myFingerprint = fingerprint;
+		myUpStart = upStart;
+		myUpTargets = upTargets;
+		myUpWeights = upWeights;
+		myUpMiddles = upMiddles;
+		myDownStart = downStart;
+		myDownSources = downSources;
+		myDownWeights = downWeights;
+		myDownMiddles = downMiddles;
+		myForwardDist = new float[nodeCount];
+		myBackwardDist = new float[nodeCount];
+		myForwardEdge = new int[nodeCount];
+		myBackwardEdge = new int[nodeCount];
+		myForwardStamp = new int[nodeCount];
+		myBackwardStamp = new int[nodeCount];
+		myForwardHeap = new NodeHeap(nodeCount);
+		myBackwardHeap = new NodeHeap(nodeCount);
+	}
+
+	/**
+	 * @param graph
+	 * @return the hierarchy for the graph, this can take some seconds for
+	 *         large graphs
+	 */
+	public static ContractionHierarchy build(RoutingGraph graph) {
+		long start = System.currentTimeMillis();
+		Builder b = new Builder(graph);
+		b.contractAll();
+		ContractionHierarchy ch = b.createHierarchy(graph.getFingerprint());
+		Log.d(LOG_TAG, "Contracted " + graph.getNodeCount() + " nodes in "
+				+ (System.currentTimeMillis() - start) + "ms, "
+				+ b.myShortcutCount + " shortcuts added");
+		return ch;
+	}
+
+	/**
+	 * Contracts the nodes of a copy of the graph, the edges of each node are
+	 * stored in growing arrays because shortcuts are added all the time. When
+	 * a node is contracted its edges are moved to the final edge lists, so
+	 * the remaining graph only contains the edges between uncontracted nodes
+	 */
+	private static class Builder {
+
+		private final int n;
+		private int[][] myOutTargets, myInTargets;
+		private float[][] myOutWeights, myInWeights;
+		private int[][] myOutMiddles, myInMiddles;
+		private final int[] myOutCount, myInCount;
+		private final boolean[] isContracted;
+		private final int[] myContractedNeighbours;
+		private final int[] myRanks;
+		private int myShortcutCount;
+
+		// the final edges, collected when their lower node is contracted:
+		private final int[] myUpOffset, myUpCount, myDownOffset, myDownCount;
+		private int[] myUpTargets = new int[64];
+		private float[] myUpWeights = new float[64];
+		private int[] myUpMiddles = new int[64];
+		private int myUpLength;
+		private int[] myDownSources = new int[64];
+		private float[] myDownWeights = new float[64];
+		private int[] myDownMiddles = new int[64];
+		private int myDownLength;
+
+		// the witness search:
+		private final float[] myWitnessDist;
+		private final int[] myWitnessStamp;
+		private final NodeHeap myWitnessHeap;
+		private int myStamp;
+
+		// the shortcuts of the simulated or real contraction:
+		private int[] myNewFrom = new int[16];
+		private int[] myNewTo = new int[16];
+		private float[] myNewWeights = new float[16];
+		private int myNewCount;
+
+		Builder(RoutingGraph g) {
+			n = g.myNodeCount;
+			myOutTargets = new int[n][];
+			myOutWeights = new float[n][];
+			myOutMiddles = new int[n][];
+			myInTargets = new int[n][];
+			myInWeights = new float[n][];
+			myInMiddles = new int[n][];
+			myOutCount = new int[n];
+			myInCount = new int[n];
+			for (int i = 0; i < n; i++) {
+				int degree = g.myEdgeStart[i + 1] - g.myEdgeStart[i];
+				myOutTargets[i] = new int[degree + 2];
+				myOutWeights[i] = new float[degree + 2];
+				myOutMiddles[i] = new int[degree + 2];
+				myInTargets[i] = new int[4];
+				myInWeights[i] = new float[4];
+				myInMiddles[i] = new int[4];
+			}
+			for (int i = 0; i < n; i++) {
+				for (int a = g.myEdgeStart[i]; a < g.myEdgeStart[i + 1]; a++) {
+					if (g.myTargets[a] != i) {
+						addOrImproveEdge(i, g.myTargets[a], g.myWeights[a],
+								NO_MIDDLE);
+					}
+				}
+			}
+			isContracted = new boolean[n];
+			myContractedNeighbours = new int[n];
+			myRanks = new int[n];
+			myUpOffset = new int[n];
+			myUpCount = new int[n];
+			myDownOffset = new int[n];
+			myDownCount = new int[n];
+			myWitnessDist = new float[n];
+			myWitnessStamp = new int[n];
+			myWitnessHeap = new NodeHeap(n);
+		}
+
+		private void addOrImproveEdge(int from, int to, float weight,
+				int middle) {
+			int[] t = myOutTargets[from];
+			for (int i = 0; i < myOutCount[from]; i++) {
+				if (t[i] == to) {
+					if (weight < myOutWeights[from][i]) {
+						myOutWeights[from][i] = weight;
+						myOutMiddles[from][i] = middle;
+						int[] s = myInTargets[to];
+						for (int k = 0; k < myInCount[to]; k++) {
+							if (s[k] == from) {
+								myInWeights[to][k] = weight;
+								myInMiddles[to][k] = middle;
+							}
+						}
+					}
+					return;
+				}
+			}
+			int i = myOutCount[from]++;
+			if (i == t.length) {
+				myOutTargets[from] = Arrays.copyOf(t, i * 2);
+				myOutWeights[from] = Arrays.copyOf(myOutWeights[from], i * 2);
+				myOutMiddles[from] = Arrays.copyOf(myOutMiddles[from], i * 2);
+			}
+			myOutTargets[from][i] = to;
+			myOutWeights[from][i] = weight;
+			myOutMiddles[from][i] = middle;
+			i = myInCount[to]++;
+			if (i == myInTargets[to].length) {
+				myInTargets[to] = Arrays.copyOf(myInTargets[to], i * 2);
+				myInWeights[to] = Arrays.copyOf(myInWeights[to], i * 2);
+				myInMiddles[to] = Arrays.copyOf(myInMiddles[to], i * 2);
+			}
+			myInTargets[to][i] = from;
+			myInWeights[to][i] = weight;
+			myInMiddles[to][i] = middle;
+		}
+
+		void contractAll() {
+			NodeHeap queue = new NodeHeap(n);
+			for (int i = 0; i < n; i++) {
+				queue.put(i, calcPriority(i));
+			}
+			int rank = 0;
+			while (!queue.isEmpty()) {
+				int v = queue.pop();
+				// lazy update, the priority could be outdated:
+				float p = calcPriority(v);
+				if (!queue.isEmpty() && p > queue.peekKey()) {
+					queue.put(v, p);
+					continue;
+				}
+				findShortcuts(v, WITNESS_SETTLE_LIMIT);
+				for (int i = 0; i < myNewCount; i++) {
+					addOrImproveEdge(myNewFrom[i], myNewTo[i],
+							myNewWeights[i], v);
+				}
+				myShortcutCount += myNewCount;
+				isContracted[v] = true;
+				myRanks[v] = rank++;
+				moveToFinalEdges(v);
+				// the neighbours are more likely to be contracted now:
+				for (int i = 0; i < myOutCount[v]; i++) {
+					updateNeighbour(queue, myOutTargets[v][i]);
+				}
+				for (int i = 0; i < myInCount[v]; i++) {
+					updateNeighbour(queue, myInTargets[v][i]);
+				}
+			}
+		}
+
+		/**
+		 * all remaining edges of v lead to more important nodes, they are
+		 * copied to the final lists and removed from the neighbours
+		 */
+		private void moveToFinalEdges(int v) {
+			final int out = myOutCount[v];
+			final int in = myInCount[v];
+			if (myUpLength + out > myUpTargets.length) {
+				int c = (myUpLength + out) * 2;
+				myUpTargets = Arrays.copyOf(myUpTargets, c);
+				myUpWeights = Arrays.copyOf(myUpWeights, c);
+				myUpMiddles = Arrays.copyOf(myUpMiddles, c);
+			}
+			if (myDownLength + in > myDownSources.length) {
+				int c = (myDownLength + in) * 2;
+				myDownSources = Arrays.copyOf(myDownSources, c);
+				myDownWeights = Arrays.copyOf(myDownWeights, c);
+				myDownMiddles = Arrays.copyOf(myDownMiddles, c);
+			}
+			myUpOffset[v] = myUpLength;
+			myUpCount[v] = out;
+			System.arraycopy(myOutTargets[v], 0, myUpTargets, myUpLength, out);
+			System.arraycopy(myOutWeights[v], 0, myUpWeights, myUpLength, out);
+			System.arraycopy(myOutMiddles[v], 0, myUpMiddles, myUpLength, out);
+			myUpLength += out;
+			myDownOffset[v] = myDownLength;
+			myDownCount[v] = in;
+			System.arraycopy(myInTargets[v], 0, myDownSources, myDownLength,
+					in);
+			System.arraycopy(myInWeights[v], 0, myDownWeights, myDownLength,
+					in);
+			System.arraycopy(myInMiddles[v], 0, myDownMiddles, myDownLength,
+					in);
+			myDownLength += in;
+			for (int i = 0; i < out; i++) {
+				final int x = myOutTargets[v][i];
+				myInCount[x] = removeEntry(myInTargets[x], myInWeights[x],
+						myInMiddles[x], myInCount[x], v);
+			}
+			for (int i = 0; i < in; i++) {
+				final int u = myInTargets[v][i];
+				myOutCount[u] = removeEntry(myOutTargets[u], myOutWeights[u],
+						myOutMiddles[u], myOutCount[u], v);
+			}
+		}
+
+		/**
+		 * @return the new length of the list
+		 */
+		private static int removeEntry(int[] nodes, float[] weights,
+				int[] middles, int length, int node) {
+			for (int i = 0; i < length; i++) {
+				if (nodes[i] == node) {
+					final int last = length - 1;
+					nodes[i] = nodes[last];
+					weights[i] = weights[last];
+					middles[i] = middles[last];
+					return last;
+				}
+			}
+			return length;
+		}
+
+		private void updateNeighbour(NodeHeap queue, int u) {
+			if (!isContracted[u]) {
+				myContractedNeighbours[u]++;
+				queue.put(u, calcPriority(u));
+			}
+		}
+
+		/**
+		 * the edge difference (added shortcuts minus removed edges) plus the
+		 * number of contracted neighbours, so that the contracted nodes are
+		 * spread evenly over the graph
+		 */
+		private float calcPriority(int v) {
+			findShortcuts(v, PRIORITY_SETTLE_LIMIT);
+			final int removed = myOutCount[v] + myInCount[v];
+			return myNewCount - removed + myContractedNeighbours[v];
+		}
+
+		/**
+		 * collects the shortcuts which would be needed if v is contracted
+		 */
+		private void findShortcuts(int v, int settleLimit) {
+			myNewCount = 0;
+			float maxOut = 0;
+			for (int i = 0; i < myOutCount[v]; i++) {
+				maxOut = Math.max(maxOut, myOutWeights[v][i]);
+			}
+			for (int i = 0; i < myInCount[v]; i++) {
+				final int u = myInTargets[v][i];
+				final float toV = myInWeights[v][i];
+				witnessSearch(u, v, toV + maxOut, settleLimit);
+				for (int k = 0; k < myOutCount[v]; k++) {
+					final int w = myOutTargets[v][k];
+					if (w == u) {
+						continue;
+					}
+					final float viaV = toV + myOutWeights[v][k];
+					if (myWitnessStamp[w] == myStamp
+							&& myWitnessDist[w] <= viaV) {
+						continue; // there is a path which is as short
+					}
+					addNewShortcut(u, w, viaV);
+				}
+			}
+		}
+
+		private void addNewShortcut(int from, int to, float weight) {
+			if (myNewCount == myNewFrom.length) {
+				myNewFrom = Arrays.copyOf(myNewFrom, myNewCount * 2);
+				myNewTo = Arrays.copyOf(myNewTo, myNewCount * 2);
+				myNewWeights = Arrays.copyOf(myNewWeights, myNewCount * 2);
+			}
+			myNewFrom[myNewCount] = from;
+			myNewTo[myNewCount] = to;
+			myNewWeights[myNewCount] = weight;
+			myNewCount++;
+		}
+
+		/**
+		 * a limited dijkstra from u which does not use v and the contracted
+		 * nodes
+		 */
+		private void witnessSearch(int u, int v, float maxDistance,
+				int settleLimit) {
+			myStamp++;
+			final NodeHeap heap = myWitnessHeap;
+			heap.clear();
+			myWitnessStamp[u] = myStamp;
+			myWitnessDist[u] = 0;
+			heap.put(u, 0);
+			int settled = 0;
+			while (!heap.isEmpty() && settled < settleLimit) {
+				if (heap.peekKey() > maxDistance) {
+					break;
+				}
+				final int x = heap.pop();
+				settled++;
+				final float d = myWitnessDist[x];
+				final int[] targets = myOutTargets[x];
+				for (int i = 0; i < myOutCount[x]; i++) {
+					final int y = targets[i];
+					if (y == v) {
+						continue;
+					}
+					final float newDist = d + myOutWeights[x][i];
+					if (myWitnessStamp[y] != myStamp
+							|| newDist < myWitnessDist[y]) {
+						myWitnessStamp[y] = myStamp;
+						myWitnessDist[y] = newDist;
+						heap.put(y, newDist);
+					}
+				}
+			}
+		}
+
+		ContractionHierarchy createHierarchy(long fingerprint) {
+			int[] upStart = new int[n + 1];
+			int[] downStart = new int[n + 1];
+			for (int i = 0; i < n; i++) {
+				upStart[i + 1] = upStart[i] + myUpCount[i];
+				downStart[i + 1] = downStart[i] + myDownCount[i];
+			}
+			int[] upTargets = new int[myUpLength];
+			float[] upWeights = new float[myUpLength];
+			int[] upMiddles = new int[myUpLength];
+			int[] downSources = new int[myDownLength];
+			float[] downWeights = new float[myDownLength];
+			int[] downMiddles = new int[myDownLength];
+			for (int i = 0; i < n; i++) {
+				System.arraycopy(myUpTargets, myUpOffset[i], upTargets,
+						upStart[i], myUpCount[i]);
+				System.arraycopy(myUpWeights, myUpOffset[i], upWeights,
+						upStart[i], myUpCount[i]);
+				System.arraycopy(myUpMiddles, myUpOffset[i], upMiddles,
+						upStart[i], myUpCount[i]);
+				System.arraycopy(myDownSources, myDownOffset[i], downSources,
+						downStart[i], myDownCount[i]);
+				System.arraycopy(myDownWeights, myDownOffset[i], downWeights,
+						downStart[i], myDownCount[i]);
+				System.arraycopy(myDownMiddles, myDownOffset[i], downMiddles,
+						downStart[i], myDownCount[i]);
+			}
+			return new ContractionHierarchy(n, fingerprint, upStart,
+					upTargets, upWeights, upMiddles, downStart, downSources,
+					downWeights, downMiddles);
+		}
+	}
+
+	public int getNodeCount() {
+		return myNodeCount;
+	}
+
+	/**
+	 * @return the number of edges including the shortcuts
+	 */
+	public int getEdgeCount() {
+		return myUpTargets.length + myDownSources.length;
+	}
+
+	/**
+	 * @return the {@link RoutingGraph#getFingerprint()} of the graph this
+	 *         hierarchy was created for
+	 */
+	public long getFingerprint() {
+		return myFingerprint;
+	}
+
+	/**
+	 * @param start
+	 * @param target
+	 * @return the node indices of the shortest path from start to target
+	 *         (including both) or null if there is no path
+	 */
+	public synchronized int[] findPath(int start, int target) {
+		myLastPathLength = -1;
+		mySettledCount = 0;
+		if (start < 0 || start >= myNodeCount || target < 0
+				|| target >= myNodeCount) {
+			Log.e(LOG_TAG, "Node index out of range: start=" + start
+					+ ", target=" + target);
+			return null;
+		}
+		myStamp++;
+		if (myStamp == Integer.MAX_VALUE) {
+			Arrays.fill(myForwardStamp, 0);
+			Arrays.fill(myBackwardStamp, 0);
+			myStamp = 1;
+		}
+		final int stamp = myStamp;
+		final NodeHeap forward = myForwardHeap;
+		final NodeHeap backward = myBackwardHeap;
+		forward.clear();
+		backward.clear();
+		reach(myForwardDist, myForwardStamp, myForwardEdge, forward, start,
+				0, -1);
+		reach(myBackwardDist, myBackwardStamp, myBackwardEdge, backward,
+				target, 0, -1);
+
+		float best = Float.MAX_VALUE;
+		int meeting = -1;
+		while (!forward.isEmpty() || !backward.isEmpty()) {
+			final float f = forward.isEmpty() ? Float.MAX_VALUE : forward
+					.peekKey();
+			final float b = backward.isEmpty() ? Float.MAX_VALUE : backward
+					.peekKey();
+			if (Math.min(f, b) >= best) {
+				break;
+			}
+			final boolean isForward = f <= b;
+			final int node = isForward ? forward.pop() : backward.pop();
+			mySettledCount++;
+			final float d;
+			if (isForward) {
+				d = myForwardDist[node];
+				if (myBackwardStamp[node] == stamp
+						&& d + myBackwardDist[node] < best) {
+					best = d + myBackwardDist[node];
+					meeting = node;
+				}
+				for (int a = myUpStart[node]; a < myUpStart[node + 1]; a++) {
+					reach(myForwardDist, myForwardStamp, myForwardEdge,
+							forward, myUpTargets[a], d + myUpWeights[a], a);
+				}
+			} else {
+				d = myBackwardDist[node];
+				if (myForwardStamp[node] == stamp
+						&& d + myForwardDist[node] < best) {
+					best = d + myForwardDist[node];
+					meeting = node;
+				}
+				for (int a = myDownStart[node]; a < myDownStart[node + 1]; a++) {
+					reach(myBackwardDist, myBackwardStamp, myBackwardEdge,
+							backward, myDownSources[a], d + myDownWeights[a], a);
+				}
+			}
+		}
+		if (meeting == -1) {
+			return null;
+		}
+		myLastPathLength = best;
+		return buildPath(start, target, meeting);
+	}
+
+	private void reach(float[] dist, int[] stamps, int[] edges, NodeHeap heap,
+			int node, float distance, int edge) {
+		if (stamps[node] == myStamp && dist[node] <= distance) {
+			return;
+		}
+		stamps[node] = myStamp;
+		dist[node] = distance;
+		edges[node] = edge;
+		heap.put(node, distance);
+	}
+
+	private int[] buildPath(int start, int target, int meeting) {
+		int length = 0;
+		// the forward part is collected backwards and reversed later:
+		for (int node = meeting; node != start;) {
+			final int a = myForwardEdge[node];
+			final int from = findOwner(myUpStart, a);
+			length = unpack(from, node, myUpMiddles[a], length, true);
+			node = from;
+		}
+		length = append(start, length);
+		reverse(myPathBuffer, length);
+		for (int node = meeting; node != target;) {
+			final int a = myBackwardEdge[node];
+			// the downward edge is stored at its end node:
+			final int to = findOwner(myDownStart, a);
+			length = unpack(node, to, myDownMiddles[a], length, false);
+			node = to;
+		}
+		return Arrays.copyOf(myPathBuffer, length);
+	}
+
+	/**
+	 * @return the node which stores the edge a
+	 */
+	private int findOwner(int[] edgeStart, int a) {
+		// binary search in the edge start array:
+		int low = 0, high = myNodeCount - 1;
+		while (low < high) {
+			final int mid = (low + high + 1) >>> 1;
+			if (edgeStart[mid] <= a) {
+				low = mid;
+			} else {
+				high = mid - 1;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Appends the original nodes of the edge from -> to (without from) to the
+	 * path buffer. If reversed is true the nodes are appended in reversed
+	 * order (starting with to), which is needed for the forward part of the
+	 * path
+	 */
+	private int unpack(int from, int to, int middle, int length,
+			boolean reversed) {
+		int top = 0;
+		top = pushEdge(top, from, to, middle);
+		while (top > 0) {
+			top -= 3;
+			final int a = myUnpackStack[top];
+			final int b = myUnpackStack[top + 1];
+			final int m = myUnpackStack[top + 2];
+			if (m == NO_MIDDLE) {
+				length = append(b, length);
+				continue;
+			}
+			// a -> m is a downward edge at m, m -> b an upward edge at m:
+			final int first = findDownEdge(m, a);
+			final int second = findUpEdge(m, b);
+			if (reversed) {
+				top = pushEdge(top, a, m, myDownMiddles[first]);
+				top = pushEdge(top, m, b, myUpMiddles[second]);
+			} else {
+				top = pushEdge(top, m, b, myUpMiddles[second]);
+				top = pushEdge(top, a, m, myDownMiddles[first]);
+			}
+		}
+		return length;
+	}
+
+	private int pushEdge(int top, int from, int to, int middle) {
+		if (top + 3 > myUnpackStack.length) {
+			myUnpackStack = Arrays.copyOf(myUnpackStack,
+					myUnpackStack.length * 2);
+		}
+		myUnpackStack[top] = from;
+		myUnpackStack[top + 1] = to;
+		myUnpackStack[top + 2] = middle;
+		return top + 3;
+	}
+
+	private int findUpEdge(int from, int to) {
+		int result = -1;
+		for (int a = myUpStart[from]; a < myUpStart[from + 1]; a++) {
+			if (myUpTargets[a] == to
+					&& (result == -1 || myUpWeights[a] < myUpWeights[result])) {
+				result = a;
+			}
+		}
+		return result;
+	}
+
+	private int findDownEdge(int to, int from) {
+		int result = -1;
+		for (int a = myDownStart[to]; a < myDownStart[to + 1]; a++) {
+			if (myDownSources[a] == from
+					&& (result == -1 || myDownWeights[a] < myDownWeights[result])) {
+				result = a;
+			}
+		}
+		return result;
+	}
+
+	private int append(int node, int length) {
+		if (length == myPathBuffer.length) {
+			myPathBuffer = Arrays.copyOf(myPathBuffer, length * 2);
+		}
+		myPathBuffer[length] = node;
+		return length + 1;
+	}
+
+	private static void reverse(int[] a, int length) {
+		for (int i = 0, j = length - 1; i < j; i++, j--) {
+			int t = a[i];
+			a[i] = a[j];
+			a[j] = t;
+		}
+	}
+
+	/**
+	 * @return the number of nodes which were settled in the last query
+	 */
+	public synchronized int getSettledCountOfLastSearch() {
+		return mySettledCount;
+	}
+
+	/**
+	 * @return the length of the last found path in meters or -1 if no path
+	 *         was found
+	 */
+	public synchronized float getLastPathLength() {
+		return myLastPathLength;
+	}
+
+	/**
+	 * Writes the hierarchy in a compact binary format, see
+	 * {@link #readFrom(InputStream)}
+	 *
+	 * @param stream
+	 *            is not closed
+	 * @throws IOException
+	 */
+	public void writeTo(OutputStream stream) throws IOException {
+		DataOutputStream out = new DataOutputStream(stream);
+		out.writeInt(FILE_MAGIC);
+		out.writeInt(FILE_VERSION);
+		out.writeLong(myFingerprint);
+		out.writeInt(myNodeCount);
+		out.writeInt(myUpTargets.length);
+		out.writeInt(myDownSources.length);
+		writeInts(out, myUpStart);
+		writeInts(out, myUpTargets);
+		writeFloats(out, myUpWeights);
+		writeInts(out, myUpMiddles);
+		writeInts(out, myDownStart);
+		writeInts(out, myDownSources);
+		writeFloats(out, myDownWeights);
+		writeInts(out, myDownMiddles);
+		out.flush();
+	}
+
+	/**
+	 * @param stream
+	 *            is not closed, should be buffered
+	 * @return the hierarchy which was written with
+	 *         {@link #writeTo(OutputStream)}
+	 * @throws IOException
+	 *             if the stream does not contain a hierarchy
+	 */
+	public static ContractionHierarchy readFrom(InputStream stream)
+			throws IOException {
+		DataInputStream in = new DataInputStream(stream);
+		if (in.readInt() != FILE_MAGIC) {
+			throw new IOException("Not a contraction hierarchy file");
+		}
+		int version = in.readInt();
+		if (version != FILE_VERSION) {
+			throw new IOException("Unsupported file version " + version);
+		}
+		long fingerprint = in.readLong();
+		int n = in.readInt();
+		int up = in.readInt();
+		int down = in.readInt();
+		if (n < 0 || up < 0 || down < 0) {
+			throw new IOException("Corrupt contraction hierarchy file");
+		}
+		return new ContractionHierarchy(n, fingerprint, readInts(in, n + 1),
+				readInts(in, up), readFloats(in, up), readInts(in, up),
+				readInts(in, n + 1), readInts(in, down), readFloats(in, down),
+				readInts(in, down));
+	}
+
+	private static void writeInts(DataOutputStream out, int[] a)
+			throws IOException {
+		for (int i = 0; i < a.length; i++) {
+			out.writeInt(a[i]);
+		}
+	}
+
+	private static void writeFloats(DataOutputStream out, float[] a)
+			throws IOException {
+		for (int i = 0; i < a.length; i++) {
+			out.writeFloat(a[i]);
+		}
+	}
+
+	private static int[] readInts(DataInputStream in, int length)
+			throws IOException {
+		int[] a = new int[length];
+		for (int i = 0; i < length; i++) {
+			a[i] = in.readInt();
+		}
+		return a;
+	}
+
+	private static float[] readFloats(DataInputStream in, int length)
+			throws IOException {
+		float[] a = new float[length];
+		for (int i = 0; i < length; i++) {
+			a[i] = in.readFloat();
+		}
+		return a;
+	}
+
+}
@@ -7,7 +7,15 @@ import gl.scenegraph.MeshComponent;
 public class Edge extends GeoObj implements Comparable<Edge> {
 
 	final GeoObj from, to;
-	final int weight;
+	/**
+	 * the length in meters
+	 */
+	final float weight;
+	/**
+	 * the position in the edge list of the {@link GeoGraph}, used to remove
+	 * the edge without searching it
+	 */
+	int myPosition = -1;
 
 	// private Color myColor;
 
@@ -15,13 +23,13 @@ public class Edge extends GeoObj implements Comparable<Edge> {
 		super(from, null);
 		this.from = from;
 		this.to = to;
-		weight = (int) from.getDistance(to);
+		weight = (float) from.getDistance(to);
 		this.setComp(edgeMesh);
 	}
 
 	@Override
 	public int compareTo(final Edge argEdge) {
-		return weight - argEdge.weight;
+		return Float.compare(weight, argEdge.weight);
 	}
 
 	public static MeshComponent getDefaultMesh(GeoGraph geoGraph, GeoObj from,
@@ -0,0 +1,176 @@
+package geo;
+
+import java.util.HashMap;
+
+import util.EfficientList;
+
+/**
+ * Finds the edges of a {@link GeoGraph} without scanning all of them: each
+ * node has a list of its outgoing and incoming edges and a hash table maps
+ * each (from,to) pair to its edge. The nodes are compared by identity like in
+ * the rest of the {@link GeoGraph}.
+ *
+ * @author Spobo
+ *
+ */
+class EdgeIndex {
+
+	private static final int INITIAL_CAPACITY = 64;
+	/**
+	 * marks a removed entry of the hash table so that the search for entries
+	 * behind it does not stop there
+	 */
+	private static final Object REMOVED = new Object();
+	private static final EfficientList<Edge> NO_EDGES = new EfficientList<Edge>();
+
+	private final HashMap<GeoObj, EfficientList<Edge>> myOutgoing = new HashMap<GeoObj, EfficientList<Edge>>();
+	private final HashMap<GeoObj, EfficientList<Edge>> myIncoming = new HashMap<GeoObj, EfficientList<Edge>>();
+	/**
+	 * open addressing with linear probing, contains {@link Edge}s, null or
+	 * {@link #REMOVED}
+	 */
+	private Object[] myTable = new Object[INITIAL_CAPACITY];
+	private int myCount;
+	private int myRemovedCount;
+	/**
+	 * the length of the longest edge which was added since the last clear
+	 */
+	private float myMaxWeight;
+
+	void add(Edge e) {
+		if ((myCount + myRemovedCount + 1) * 2 > myTable.length) {
+			rehash(myCount * 2 + 2 > myTable.length ? myTable.length * 2
+					: myTable.length);
+		}
+		insert(myTable, e);
+		myCount++;
+		myMaxWeight = Math.max(myMaxWeight, e.weight);
+		listOf(myOutgoing, e.from).add(e);
+		listOf(myIncoming, e.to).add(e);
+	}
+
+	private static EfficientList<Edge> listOf(
+			HashMap<GeoObj, EfficientList<Edge>> map, GeoObj node) {
+		EfficientList<Edge> l = map.get(node);
+		if (l == null) {
+			l = new EfficientList<Edge>();
+			map.put(node, l);
+		}
+		return l;
+	}
+
+	private static void insert(Object[] table, Edge e) {
+		final int mask = table.length - 1;
+		int i = hash(e.from, e.to) & mask;
+		while (table[i] != null && table[i] != REMOVED) {
+			i = (i + 1) & mask;
+		}
+		table[i] = e;
+	}
+
+	private void rehash(int capacity) {
+		Object[] t = new Object[capacity];
+		for (int i = 0; i < myTable.length; i++) {
+			Object o = myTable[i];
+			if (o != null && o != REMOVED) {
+				insert(t, (Edge) o);
+			}
+		}
+		myTable = t;
+		myRemovedCount = 0;
+	}
+
+	private static int hash(GeoObj from, GeoObj to) {
+		int h = System.identityHashCode(from) * 31
+				+ System.identityHashCode(to);
+		// spread the bits, the identity hashes are often similar:
+		h *= 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	/**
+	 * @return the edge which starts at from and ends at to or null
+	 */
+	Edge get(GeoObj from, GeoObj to) {
+		final Object[] table = myTable;
+		final int mask = table.length - 1;
+		int i = hash(from, to) & mask;
+		Object o;
+		while ((o = table[i]) != null) {
+			if (o != REMOVED) {
+				Edge e = (Edge) o;
+				if (e.from == from && e.to == to) {
+					return e;
+				}
+			}
+			i = (i + 1) & mask;
+		}
+		return null;
+	}
+
+	/**
+	 * @return false if the edge was not in the index
+	 */
+	boolean remove(Edge e) {
+		final Object[] table = myTable;
+		final int mask = table.length - 1;
+		int i = hash(e.from, e.to) & mask;
+		Object o;
+		while ((o = table[i]) != null) {
+			if (o == e) {
+				table[i] = REMOVED;
+				myCount--;
+				myRemovedCount++;
+				removeFromList(myOutgoing, e.from, e);
+				removeFromList(myIncoming, e.to, e);
+				return true;
+			}
+			i = (i + 1) & mask;
+		}
+		return false;
+	}
+
+	private static void removeFromList(
+			HashMap<GeoObj, EfficientList<Edge>> map, GeoObj node, Edge e) {
+		EfficientList<Edge> l = map.get(node);
+		if (l != null) {
+			l.remove(e);
+			if (l.myLength == 0) {
+				map.remove(node);
+			}
+		}
+	}
+
+	/**
+	 * @return the edges which start at the node, do not change the list
+	 */
+	EfficientList<Edge> getOutgoing(GeoObj node) {
+		EfficientList<Edge> l = myOutgoing.get(node);
+		return l != null ? l : NO_EDGES;
+	}
+
+	/**
+	 * @return the edges which end at the node, do not change the list
+	 */
+	EfficientList<Edge> getIncoming(GeoObj node) {
+		EfficientList<Edge> l = myIncoming.get(node);
+		return l != null ? l : NO_EDGES;
+	}
+
+	/**
+	 * @return an upper bound for the length of all edges in meters
+	 */
+	float getMaxWeight() {
+		return myMaxWeight;
+	}
+
+	void clear() {
+		myOutgoing.clear();
+		myIncoming.clear();
+		myTable = new Object[INITIAL_CAPACITY];
+		myCount = 0;
+		myRemovedCount = 0;
+		myMaxWeight = 0;
+	}
+
+}
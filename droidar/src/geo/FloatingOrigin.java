@@ -0,0 +1,80 @@
+package geo;
+
+/**
+ * The GPS position of the virtual (0,0,0) point. The virtual positions are
+ * float values, so they lose precision the further the camera moves away from
+ * the zero point. Because of this the {@link actions.ActionCalcRelativePos}
+ * moves the zero point to the device position from time to time.
+ *
+ * Moving the zero point only sets the new {@link GeoProjection} and
+ * increases the {@link #getVersion()}, the objects keep their double GPS
+ * coordinates. The camera is moved back to (0,0,0) and each
+ * {@link worlddata.World} re-bases all of its objects in its next update,
+ * before the camera position of this update is handed to the renderer (see
+ * {@link GeoCalcer}). Objects outside of a world recalculate their virtual
+ * position the next time they are updated (see
+ * {@link GeoObj#refreshVirtualPositionIfOriginMoved()}).
+ *
+ * @author Spobo
+ *
+ */
+public class FloatingOrigin {
+
+	/**
+	 * the version numbers are unique over all instances so that objects which
+	 * were calculated for an old instance are never up to date
+	 */
+	private static int lastVersion;
+
+	private static FloatingOrigin instance = new FloatingOrigin();
+
+	private volatile GeoProjection myProjection;
+	private volatile int myVersion;
+
+	public static FloatingOrigin getInstance() {
+		return instance;
+	}
+
+	public static void resetInstance() {
+		instance = new FloatingOrigin();
+	}
+
+	/**
+	 * Moves the zero point. This does not change any object
+	 *
+	 * @return the projection for the new zero point
+	 */
+	public GeoProjection rebase(double zeroLatitude, double zeroLongitude,
+			double zeroAltitude) {
+		GeoProjection p = GeoProjection.get(zeroLatitude, zeroLongitude,
+				zeroAltitude);
+		synchronized (FloatingOrigin.class) {
+			// the projection has to be set before the version changes:
+			myProjection = p;
+			myVersion = ++lastVersion;
+		}
+		return p;
+	}
+
+	public GeoProjection rebase(GeoObj newZeroPos) {
+		return rebase(newZeroPos.getLatitude(), newZeroPos.getLongitude(),
+				newZeroPos.getAltitude());
+	}
+
+	/**
+	 * @return the projection for the current zero point or null if there was
+	 *         no zero point set yet
+	 */
+	public GeoProjection getProjection() {
+		return myProjection;
+	}
+
+	/**
+	 * @return a number which changes each time the zero point is moved, 0 if
+	 *         there was no zero point set yet
+	 */
+	public int getVersion() {
+		return myVersion;
+	}
+
+}
@@ -1,20 +1,27 @@
 package geo;
 
 import system.Container;
-import util.Log;
 import worlddata.LargeWorld;
 import worlddata.Visitor;
 
+/**
+ * Moves the virtual positions of all visited {@link GeoObj}s to the current
+ * {@link FloatingOrigin} (or to the zero position set with
+ * {@link #setNullPos(double, double, double)}). A {@link worlddata.World}
+ * uses it to re-base all of its objects in the same step the camera is moved
+ * 
+ * @author Spobo
+ * 
+ */
 public class GeoCalcer extends Visitor {
 
-	private double nullLatitude;
-	private double nullLongitude;
-	private double nullAltitude;
+	/**
+	 * null to use the {@link FloatingOrigin}
+	 */
+	private GeoProjection myProjection;
 
 	public void setNullPos(double latitude, double longitude, double altitude) {
-		nullLatitude = latitude;
-		nullLongitude = longitude;
-		nullAltitude = altitude;
+		myProjection = GeoProjection.get(latitude, longitude, altitude);
 	}
 
 	@Override
@@ -27,10 +34,11 @@ public class GeoCalcer extends Visitor {
 
 	@Override
 	public boolean visit(GeoObj geoObj) {
-		Log.d("visitor.visit()", "Calcing pos for geoObj");
-		geoObj.getMySurroundGroup().setPosition(
-				geoObj.getVirtualPosition(nullLatitude, nullLongitude,
-						nullAltitude));
+		if (myProjection == null) {
+			return geoObj.refreshVirtualPosition();
+		}
+		// the position is changed directly instead of creating a new Vec:
+		myProjection.project(geoObj, geoObj.getMySurroundGroup().getPosition());
 		return true;
 	}
 
@@ -0,0 +1,279 @@
+package geo;
+
+/**
+ * Distance functions for GPS positions (in degrees), all results are in
+ * meters on a sphere with the average earth radius. There are three variants
+ * which trade accuracy for speed:
+ *
+ * <ul>
+ * <li>{@link #haversine(double, double, double, double)} is the exact great
+ * circle distance (the sphere itself differs up to 0.5% from the real earth)</li>
+ * <li>{@link #equirectangular(double, double, double, double)} projects both
+ * positions onto a plane with the scale of their mean latitude, it needs one
+ * cosine and one square root. The relative error is below 0.001% up to 10km
+ * and below 0.01% up to 100km for latitudes between -70 and 70 degrees</li>
+ * <li>{@link #squaredProjected(double, double, double, double, double)} uses
+ * the scale of the first latitude which can be calculated once for many
+ * positions, so it needs no trigonometric function and no square root. The
+ * relative error of its square root is below 0.1% up to 10km and below 1% up
+ * to 100km for latitudes between -70 and 70 degrees,
+ * {@link #getProjectionError(double, double)} is a safe upper bound</li>
+ * </ul>
+ *
+ * The batch versions calculate the distances from one position to many
+ * positions which are stored in arrays like the ones of the
+ * {@link GeoProjection}.
+ *
+ * {@link #findNearest(double, double, double[], double[], int)} and
+ * {@link #findWithinRadius(double, double, double[], double[], int, double, int[])}
+ * compare the squared projected distances and calculate the exact distance
+ * only for the positions where the error of the cheap distance could change
+ * the result, so they return the same results as the exact distance would.
+ *
+ * @author Spobo
+ *
+ */
+public class GeoDistance {
+
+	public static final double EARTH_RADIUS = 6371000;
+	private static final double DEGREE_TO_RADIANS = Math.PI / 180;
+	private static final double METERS_PER_DEGREE = EARTH_RADIUS
+			* DEGREE_TO_RADIANS;
+	/**
+	 * if the possible error of the squared projected distances gets bigger
+	 * than this, the exact distance is used for all positions
+	 */
+	private static final double MAX_PROJECTION_ERROR = 0.1;
+
+	private GeoDistance() {
+	}
+
+	/**
+	 * @return the exact great circle distance in meters
+	 */
+	public static double haversine(double lat1, double lng1, double lat2,
+			double lng2) {
+		return haversine(lat1, lng1, Math.cos(lat1 * DEGREE_TO_RADIANS), lat2,
+				lng2);
+	}
+
+	private static double haversine(double lat1, double lng1, double cosLat1,
+			double lat2, double lng2) {
+		final double sinLat = Math.sin((lat2 - lat1) * (DEGREE_TO_RADIANS / 2));
+		final double sinLng = Math.sin((lng2 - lng1) * (DEGREE_TO_RADIANS / 2));
+		final double h = sinLat * sinLat + cosLat1
+				* Math.cos(lat2 * DEGREE_TO_RADIANS) * sinLng * sinLng;
+		return EARTH_RADIUS * 2 * Math.asin(Math.min(1, Math.sqrt(h)));
+	}
+
+	/**
+	 * @return the distance in meters, see the class description for the error
+	 */
+	public static double equirectangular(double lat1, double lng1,
+			double lat2, double lng2) {
+		final double x = wrap(lng2 - lng1)
+				* Math.cos((lat1 + lat2) * (DEGREE_TO_RADIANS / 2));
+		final double y = lat2 - lat1;
+		return METERS_PER_DEGREE * Math.sqrt(x * x + y * y);
+	}
+
+	/**
+	 * @param cosLat1
+	 *            the value of {@link #getLongitudeScale(double)} for lat1
+	 * @return the squared distance in square meters, only use it to compare
+	 *         distances from the same first position
+	 */
+	public static double squaredProjected(double lat1, double lng1,
+			double lat2, double lng2, double cosLat1) {
+		final double x = wrap(lng2 - lng1) * cosLat1;
+		final double y = lat2 - lat1;
+		return (x * x + y * y) * (METERS_PER_DEGREE * METERS_PER_DEGREE);
+	}
+
+	/**
+	 * @return the cosine of the latitude, a degree of longitude is this
+	 *         factor shorter than a degree of latitude
+	 */
+	public static double getLongitudeScale(double latitude) {
+		return Math.cos(latitude * DEGREE_TO_RADIANS);
+	}
+
+	/**
+	 * The first latitude is used to scale the longitude difference, so the
+	 * error grows with the latitude difference and the tangent of the
+	 * latitude
+	 *
+	 * @param latitude
+	 *            the first latitude of
+	 *            {@link #squaredProjected(double, double, double, double, double)}
+	 * @param distance
+	 *            in meters
+	 * @return the maximum relative error of the square root of the squared
+	 *         projected distance for positions up to this distance away
+	 */
+	public static double getProjectionError(double latitude, double distance) {
+		final double angle = distance / EARTH_RADIUS;
+		final double maxLatitude = Math.min(89.9, Math.abs(latitude) + angle
+				/ DEGREE_TO_RADIANS);
+		return angle * Math.tan(maxLatitude * DEGREE_TO_RADIANS);
+	}
+
+	/**
+	 * the shorter way around the date line
+	 */
+	private static double wrap(double dLng) {
+		if (dLng > 180) {
+			return dLng - 360;
+		}
+		if (dLng < -180) {
+			return dLng + 360;
+		}
+		return dLng;
+	}
+
+	/**
+	 * Calculates the exact distances from one position to the first count
+	 * positions of the arrays
+	 *
+	 * @param target
+	 *            the distance to position i will be stored at i
+	 */
+	public static void haversine(double lat, double lng, double[] latitudes,
+			double[] longitudes, int count, double[] target) {
+		final double cosLat = getLongitudeScale(lat);
+		for (int i = 0; i < count; i++) {
+			target[i] = haversine(lat, lng, cosLat, latitudes[i],
+					longitudes[i]);
+		}
+	}
+
+	/**
+	 * Like {@link #haversine(double, double, double[], double[], int, double[])}
+	 * but with {@link #equirectangular(double, double, double, double)}
+	 */
+	public static void equirectangular(double lat, double lng,
+			double[] latitudes, double[] longitudes, int count, double[] target) {
+		for (int i = 0; i < count; i++) {
+			target[i] = equirectangular(lat, lng, latitudes[i], longitudes[i]);
+		}
+	}
+
+	/**
+	 * Like {@link #haversine(double, double, double[], double[], int, double[])}
+	 * but with
+	 * {@link #squaredProjected(double, double, double, double, double)}
+	 */
+	public static void squaredProjected(double lat, double lng,
+			double[] latitudes, double[] longitudes, int count, double[] target) {
+		final double cosLat = getLongitudeScale(lat);
+		for (int i = 0; i < count; i++) {
+			target[i] = squaredProjected(lat, lng, latitudes[i], longitudes[i],
+					cosLat);
+		}
+	}
+
+	/**
+	 * @return true if the exact distance is not bigger than the maximum
+	 *         distance
+	 */
+	public static boolean isWithinDistance(double lat1, double lng1,
+			double lat2, double lng2, double maxDistance) {
+		final double error = getProjectionError(lat1, maxDistance);
+		if (error < MAX_PROJECTION_ERROR) {
+			final double d2 = squaredProjected(lat1, lng1, lat2, lng2,
+					getLongitudeScale(lat1));
+			if (d2 < square(maxDistance * (1 - error))) {
+				return true;
+			}
+			if (d2 > square(maxDistance * (1 + error))) {
+				return false;
+			}
+		}
+		return haversine(lat1, lng1, lat2, lng2) <= maxDistance;
+	}
+
+	/**
+	 * @return the index of the position with the smallest exact distance or
+	 *         -1 if count is 0
+	 */
+	public static int findNearest(double lat, double lng, double[] latitudes,
+			double[] longitudes, int count) {
+		final double cosLat = getLongitudeScale(lat);
+		int nearest = -1;
+		double nearestD2 = Double.MAX_VALUE;
+		for (int i = 0; i < count; i++) {
+			final double d2 = squaredProjected(lat, lng, latitudes[i],
+					longitudes[i], cosLat);
+			if (d2 < nearestD2) {
+				nearestD2 = d2;
+				nearest = i;
+			}
+		}
+		if (nearest == -1) {
+			return -1;
+		}
+		/*
+		 * every position which could be closer than the approximately nearest
+		 * one if the approximation errors are taken into account is checked
+		 * with the exact distance:
+		 */
+		final double d = Math.sqrt(nearestD2);
+		final double error = getProjectionError(lat, d * 2);
+		final double maxD2 = error < MAX_PROJECTION_ERROR ? square(d
+				* (1 + error) / (1 - error)) : Double.MAX_VALUE;
+		double nearestDistance = Double.MAX_VALUE;
+		for (int i = 0; i < count; i++) {
+			if (maxD2 == Double.MAX_VALUE
+					|| squaredProjected(lat, lng, latitudes[i], longitudes[i],
+							cosLat) <= maxD2) {
+				final double exact = haversine(lat, lng, cosLat, latitudes[i],
+						longitudes[i]);
+				if (exact < nearestDistance) {
+					nearestDistance = exact;
+					nearest = i;
+				}
+			}
+		}
+		return nearest;
+	}
+
+	/**
+	 * @param result
+	 *            the indices of the positions which are not further away than
+	 *            the radius are stored here, so it has to be big enough for
+	 *            all of them
+	 * @return the number of positions which were found
+	 */
+	public static int findWithinRadius(double lat, double lng,
+			double[] latitudes, double[] longitudes, int count, double radius,
+			int[] result) {
+		final double cosLat = getLongitudeScale(lat);
+		int found = 0;
+		final double error = getProjectionError(lat, radius);
+		if (error >= MAX_PROJECTION_ERROR) {
+			for (int i = 0; i < count; i++) {
+				if (haversine(lat, lng, cosLat, latitudes[i], longitudes[i]) <= radius) {
+					result[found++] = i;
+				}
+			}
+			return found;
+		}
+		final double minD2 = square(radius * (1 - error));
+		final double maxD2 = square(radius * (1 + error));
+		for (int i = 0; i < count; i++) {
+			final double d2 = squaredProjected(lat, lng, latitudes[i],
+					longitudes[i], cosLat);
+			if (d2 < minD2
+					|| (d2 <= maxD2 && haversine(lat, lng, cosLat,
+							latitudes[i], longitudes[i]) <= radius)) {
+				result[found++] = i;
+			}
+		}
+		return found;
+	}
+
+	private static double square(double x) {
+		return x * x;
+	}
+
+}
@@ -1,9 +1,21 @@
 package geo;
 
+import gl.Color;
+import gl.GLCamera;
 import gl.Renderable;
 import gl.scenegraph.MeshComponent;
-
-import java.util.Arrays;
+import gui.MetaInfos;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 
 import javax.microedition.khronos.opengles.GL10;
 
@@ -12,6 +24,7 @@ import system.EventManager;
 import util.EfficientList;
 import util.EfficientListQualified;
 import util.Log;
+import util.TextIndex;
 import worlddata.AbstractObj;
 import worlddata.Updateable;
 import worlddata.Visitor;
@@ -27,8 +40,6 @@ import worlddata.World;
  */
 public class GeoGraph extends AbstractObj implements Container<GeoObj> {
 
-	private static final boolean DEBUG1 = false;
-	private static final boolean DEBUG2 = false;
 	private static final String LOG_TAG = "GeoGraph";
 
 	private EfficientListQualified<GeoObj> myNodes;
@@ -36,6 +47,43 @@ public class GeoGraph extends AbstractObj implements Container<GeoObj> {
 	private boolean isPath;
 	private boolean nonDirectional = true;
 	private boolean useEdges;
+	private RoutingGraph myRoutingGraph;
+	private ContractionHierarchy myHierarchy;
+	/**
+	 * the same nodes as {@link #myNodes} for the nearest node searches and to
+	 * check in O(1) if a node is already part of the graph
+	 */
+	private final GeoIndex<GeoObj> myNodeIndex = new GeoIndex<GeoObj>();
+	private final EdgeIndex myEdgeIndex = new EdgeIndex();
+	/**
+	 * created with the first search, null before
+	 */
+	private TextIndex<GeoObj> myTextIndex;
+	/**
+	 * the {@link MetaInfos#getTextVersion()} of each node in the
+	 * {@link #myTextIndex} when its texts were copied
+	 */
+	private IdentityHashMap<GeoObj, Integer> myIndexedTextVersions;
+	/**
+	 * {@link MetaInfos#getTextChangeCount()} when the text versions were
+	 * checked the last time
+	 */
+	private int myCheckedTextChanges;
+	/**
+	 * the nodes with an own {@link GeoObj#matchesSearchTerm(String)}, they
+	 * are not part of the {@link #myTextIndex}
+	 */
+	private EfficientList<GeoObj> myOwnSearchNodes;
+	/**
+	 * for each {@link GeoObj} subclass if it has an own
+	 * {@link GeoObj#matchesSearchTerm(String)}
+	 */
+	private static final HashMap<Class<?>, Boolean> ownSearchClasses =
+			new HashMap<Class<?>, Boolean>();
+	/**
+	 * if not null it is drawn instead of the edges
+	 */
+	private PathMesh myPathMesh;
 
 	/**
 	 * this constructor will automatically enable edges!
@@ -74,10 +122,35 @@ public class GeoGraph extends AbstractObj implements Container<GeoObj> {
 	//
 	// }
 
+	/**
+	 * @param startPoint
+	 * @param target
+	 * @return the shortest path as a new {@link GeoGraph} or null if there is
+	 *         no path
+	 */
 	public GeoGraph dijkstra(GeoObj startPoint, GeoObj target) {
+		return findShortestPath(startPoint, target, false);
+	}
 
-		Log.d("GeoGraph", "Running Dijkstra-algo from " + startPoint + " to "
-				+ target);
+	/**
+	 * Like {@link #dijkstra(GeoObj, GeoObj)} but uses the distance to the
+	 * target to search in the right direction first, which is much faster for
+	 * large graphs
+	 *
+	 * @param startPoint
+	 * @param target
+	 * @return the shortest path as a new {@link GeoGraph} or null if there is
+	 *         no path
+	 */
+	public GeoGraph aStar(GeoObj startPoint, GeoObj target) {
+		return findShortestPath(startPoint, target, true);
+	}
+
+	private GeoGraph findShortestPath(GeoObj startPoint, GeoObj target,
+			boolean useAStar) {
+
+		Log.d("GeoGraph", "Running " + (useAStar ? "A*" : "Dijkstra")
+				+ "-algo from " + startPoint + " to " + target);
 
 		if (startPoint == null || target == null) {
 			Log.e("GeoGraph",
@@ -93,130 +166,238 @@ public class GeoGraph extends AbstractObj implements Container<GeoObj> {
 			return g;
 		}
 
-		// first move source item to first position because dijstra uses first
-		// item as startPoint
-		if (!moveObjToFirstPosition(startPoint)) {
+		RoutingGraph r = getRoutingGraph();
+		int start = indexOf(startPoint);
+		int end = indexOf(target);
+		if (r == null || start == -1 || end == -1) {
+			Log.e("GeoGraph", "Dijkstra-algo error: startPoint or target "
+					+ "are not part of the graph!");
 			return null;
 		}
-
-		int nodesArrayLength = myNodes.myLength;
-
-		// init edgeWeight Array:
-		int[][] edgeWeight = new int[nodesArrayLength][nodesArrayLength];
-		for (int i = 0; i < nodesArrayLength; i++) {
-			// init GeoObj id's (from 0 to n):
-			myNodes.get(i).dijkstraId = i;
-			// and init edgeWeight array:
-			Arrays.fill(edgeWeight[i], Integer.MAX_VALUE);
+		ContractionHierarchy ch = myHierarchy;
+		int[] path;
+		if (ch != null) {
+			path = ch.findPath(start, end);
+		} else {
+			path = useAStar ? r.aStar(start, end) : r.dijkstra(start, end);
 		}
-
-		final int edgesLength = myEdges.myLength;
-
-		if (DEBUG1) {
-			System.out.println(myNodes);
-			Log.d("GeoGraph", "EdgesArrayLength=" + edgesLength);
-			System.out.println(myEdges);
+		if (path == null) {
+			Log.d("GeoGraph", "  -> No path found :(");
+			return null;
 		}
 
-		for (int i = 0; i < edgesLength; i++) {
-			final Edge e = myEdges.get(i);
-			edgeWeight[e.from.dijkstraId][e.to.dijkstraId] = e.weight;
-			if (nonDirectional)
-				edgeWeight[e.to.dijkstraId][e.from.dijkstraId] = e.weight;
+		GeoGraph result = new GeoGraph();
+		result.setIsPath(true);
+		for (int i = 0; i < path.length; i++) {
+			result.add(myNodes.get(path[i]));
 		}
+		result.addEdgesToCreatePath();
+		Log.d("GeoGraph", "  -> Resulting path has length " + path.length);
 
-		if (DEBUG2)
-			debugShowDist(edgeWeight);
+		return result;
+	}
 
-		// initialize:
-		int[] specialPathLength = new int[nodesArrayLength];
-		GeoObj[] previousNodeInPath = new GeoObj[nodesArrayLength];
-		EfficientList<GeoObj> canidateSet = new EfficientList<GeoObj>();
+	/**
+	 * @return the packed version of this graph which is used for the shortest
+	 *         path searches. It is created again after the nodes or edges
+	 *         changed
+	 */
+	public synchronized RoutingGraph getRoutingGraph() {
+		if (myRoutingGraph == null && myNodes != null) {
+			myRoutingGraph = createRoutingGraph();
+		}
+		return myRoutingGraph;
+	}
 
-		// init arrays:
-		for (int i = 0; i < nodesArrayLength; i++) {
-			canidateSet.add(myNodes.get(i));
-			specialPathLength[i] = edgeWeight[0][i];
-			if (specialPathLength[i] != Integer.MAX_VALUE) {
-				previousNodeInPath[i] = myNodes.get(0);
+	private RoutingGraph createRoutingGraph() {
+		final int n = myNodes.myLength;
+		double[] latitudes = new double[n];
+		double[] longitudes = new double[n];
+		for (int i = 0; i < n; i++) {
+			GeoObj node = myNodes.get(i);
+			// the node order is not changed, the id is only a lookup hint:
+			node.dijkstraId = i;
+			latitudes[i] = node.getLatitude();
+			longitudes[i] = node.getLongitude();
+		}
+		final int edgeCount = myEdges != null ? myEdges.myLength : 0;
+		int[] from = new int[edgeCount];
+		int[] to = new int[edgeCount];
+		float[] weights = new float[edgeCount];
+		int count = 0;
+		for (int i = 0; i < edgeCount; i++) {
+			Edge e = myEdges.get(i);
+			int a = indexOf(e.from);
+			int b = indexOf(e.to);
+			if (a == -1 || b == -1) {
+				Log.w(LOG_TAG, "Ignoring edge " + e + " because its nodes "
+						+ "are not part of the graph");
+				continue;
 			}
+			from[count] = a;
+			to[count] = b;
+			weights[count] = e.weight;
+			count++;
 		}
+		return RoutingGraph.build(latitudes, longitudes, from, to, weights,
+				count, !nonDirectional);
+	}
 
-		if (DEBUG2) {
-			// debugShowGeoObjArray("canidateSet.myArray", canidateSet);
-			// debugShowGeoObjArray("previousNodeInPath", previousNodeInPath);
-			debugShowIntArray("specialPathLenth", specialPathLength);
-			Log.d("GeoGraph", "nodesArrayLength=" + nodesArrayLength);
-			Log.d("GeoGraph", "Dijkstra-init ok, starting crawl:");
+	/**
+	 * @param node
+	 * @return the index of the node in this graph or -1
+	 */
+	private int indexOf(GeoObj node) {
+		final int id = node.dijkstraId;
+		/*
+		 * the id can be set by another graph which contains the same node, so
+		 * it has to be checked:
+		 */
+		if (id >= 0 && id < myNodes.myLength && myNodes.get(id) == node) {
+			return id;
 		}
+		return myNodes.contains(node);
+	}
 
-		// crawl the graph
-		for (int i = 0; i < nodesArrayLength - 1; i++) {
-			// find the lightest Edge among the candidates
-			int lightest = Integer.MAX_VALUE;
-			GeoObj n = myNodes.get(0);
+	/**
+	 * Preprocesses the graph for many searches (e.g. re-routing on the same
+	 * walkway graph), after that all shortest path searches use the
+	 * {@link ContractionHierarchy} until the nodes or edges change. Use
+	 * {@link #saveContractionHierarchy(String)} to do this only once per
+	 * graph version
+	 *
+	 * @return the hierarchy or null if the graph is empty
+	 */
+	public synchronized ContractionHierarchy prepareContractionHierarchy() {
+		RoutingGraph r = getRoutingGraph();
+		if (r == null) {
+			return null;
+		}
+		myHierarchy = ContractionHierarchy.build(r);
+		return myHierarchy;
+	}
 
-			int candLength = canidateSet.myLength;
+	/**
+	 * @param fileName
+	 *            something like "/sdcard/campus.ch"
+	 * @return false if there is no prepared hierarchy or it could not be
+	 *         written
+	 */
+	public boolean saveContractionHierarchy(String fileName) {
+		ContractionHierarchy ch = myHierarchy;
+		if (ch == null) {
+			Log.w(LOG_TAG, "Call prepareContractionHierarchy() first");
+			return false;
+		}
+		OutputStream out = null;
+		try {
+			out = new BufferedOutputStream(new FileOutputStream(fileName));
+			ch.writeTo(out);
+			return true;
+		} catch (IOException e) {
+			Log.w(LOG_TAG, "Could not save the hierarchy to " + fileName
+					+ ": " + e);
+			return false;
+		} finally {
+			close(out);
+		}
+	}
 
-			for (int i2 = 0; i2 < candLength; i2++) {
-				GeoObj g = canidateSet.get(i2);
-				if (specialPathLength[g.dijkstraId] < lightest) {
-					n = g;
-					lightest = specialPathLength[g.dijkstraId];
-				}
+	/**
+	 * Loads a hierarchy which was saved with
+	 * {@link #saveContractionHierarchy(String)}. It is only used if it was
+	 * created for exactly the same nodes and edges
+	 *
+	 * @param fileName
+	 * @return true if the hierarchy can be used for this graph
+	 */
+	public boolean loadContractionHierarchy(String fileName) {
+		RoutingGraph r = getRoutingGraph();
+		if (r == null) {
+			return false;
+		}
+		InputStream in = null;
+		try {
+			in = new BufferedInputStream(new FileInputStream(fileName));
+			ContractionHierarchy ch = ContractionHierarchy.readFrom(in);
+			if (ch.getFingerprint() != r.getFingerprint()) {
+				Log.w(LOG_TAG, "The hierarchy in " + fileName
+						+ " was created for another version of the graph");
+				return false;
 			}
-			canidateSet.remove(n);
-
-			if (DEBUG2) {
-				if (n != null)
-					Log.d("GeoGraph", i + ": removed " + n + " (id="
-							+ n.dijkstraId + ") from canidateSet");
-				else
-					Log.d("GeoGraph", i
-							+ ": removed null (no id) from canidateSet");
-				// debugShowGeoObjArray(i + ": canidateSet",
-				// canidateSet.myArray);
-				Log.d("GeoGraph", i + ": lightest=" + lightest);
+			synchronized (this) {
+				myHierarchy = ch;
 			}
+			return true;
+		} catch (IOException e) {
+			Log.w(LOG_TAG, "Could not load the hierarchy from " + fileName
+					+ ": " + e);
+			return false;
+		} finally {
+			close(in);
+		}
+	}
 
-			// see if any Edges from this GeoObj yield a shorter path than from
-			// source->that GeoObj n
-			for (int j = 0; j < nodesArrayLength; j++) {
-				if (specialPathLength[n.dijkstraId] != Integer.MAX_VALUE
-						&& edgeWeight[n.dijkstraId][j] != Integer.MAX_VALUE
-						&& specialPathLength[n.dijkstraId]
-								+ edgeWeight[n.dijkstraId][j] < specialPathLength[j]) {
-					// found one, update the path
-					specialPathLength[j] = specialPathLength[n.dijkstraId]
-							+ edgeWeight[n.dijkstraId][j];
-					if (DEBUG2) {
-						debugShowIntArray(i + "," + j + ": specialPathLength",
-								specialPathLength);
-					}
-					previousNodeInPath[j] = n;
-				}
+	private static void close(Closeable c) {
+		if (c != null) {
+			try {
+				c.close();
+			} catch (IOException e) {
+				e.printStackTrace();
 			}
 		}
+	}
 
-		GeoGraph result = new GeoGraph();
-		result.setIsPath(true);
-		int loc = target.dijkstraId;
-		result.add(target);
-		// backtrack from the target by P(revious), adding to the result list
-		while (previousNodeInPath[loc] != myNodes.get(0)) {
-			if (previousNodeInPath[loc] == null) {
-				Log.d("GeoGraph", "  -> No path found :(");
-				return null;
-			}
-			result.insert(0, previousNodeInPath[loc]);
-			loc = previousNodeInPath[loc].dijkstraId;
+	private synchronized void graphChanged() {
+		myRoutingGraph = null;
+		myHierarchy = null;
+		if (myPathMesh != null) {
+			myPathMesh.setPathChanged();
 		}
-		result.insert(0, myNodes.get(0));
-		result.addEdgesToCreatePath();
-		Log.d("GeoGraph", "  -> Resulting path has length "
-				+ result.myNodes.myLength);
+	}
 
-		return result;
+	/**
+	 * Draws the path with one {@link PathMesh} instead of the meshes of the
+	 * single edges. The edges are still used for the path searches
+	 * 
+	 * @param camera
+	 *            the detail of the path mesh depends on the distance to this
+	 *            camera, can be null
+	 * @param color
+	 * @return the mesh which is used from now on
+	 */
+	public PathMesh usePathMesh(GLCamera camera, Color color) {
+		myPathMesh = new PathMesh(this, camera, color);
+		setIsPath(true);
+		return myPathMesh;
+	}
+
+	/**
+	 * @return the {@link PathMesh} or null if the edges are drawn
+	 */
+	public PathMesh getPathMesh() {
+		return myPathMesh;
+	}
+
+	/**
+	 * Simplifies the path (the nodes in the order of {@link #getAllItems()})
+	 * with a {@link PathSimplifier}
+	 * 
+	 * @param tolerance
+	 *            in meters, e.g. {@link PathSimplifier#getTolerance(double)}
+	 * @return the indices of the nodes which are kept
+	 */
+	public int[] simplifyPath(double tolerance) {
+		EfficientList<GeoObj> nodes = getAllItems();
+		final int count = nodes.myLength;
+		double[] latitudes = new double[count];
+		double[] longitudes = new double[count];
+		for (int i = 0; i < count; i++) {
+			latitudes[i] = nodes.get(i).getLatitude();
+			longitudes[i] = nodes.get(i).getLongitude();
+		}
+		return PathSimplifier.fromGeoPositions(latitudes, longitudes, count)
+				.simplify(tolerance);
 	}
 
 	public void addEdgesToCreatePath() {
@@ -248,49 +429,18 @@ public class GeoGraph extends AbstractObj implements Container<GeoObj> {
 		return visitor.default_visit(this);
 	}
 
-	private void debugShowIntArray(String string, int[] dist) {
-		Log.d("GeoGraph", string);
-		String line = "   = ";
-		for (int i = 0; i < dist.length; i++) {
-			if (dist[i] == Integer.MAX_VALUE) {
-				line += "inf, ";
-			} else {
-				line += dist[i] + ", ";
-			}
-		}
-		Log.d("GeoGraph", line);
-	}
-
-	private void debugShowDist(int[][] dist) {
-		Log.d("GeoGraph", "Distance Matrix:");
-		String line = "";
-		for (int i = 0; i < dist.length; i++) {
-			line = "   " + i + ": ";
-			for (int j = 0; j < dist[i].length; j++) {
-				if (dist[i][j] != Integer.MAX_VALUE) {
-					line += dist[i][j] + ",";
-				} else {
-					line += "inf ,";
-				}
-			}
-			Log.d("GeoGraph", line);
-		}
-	}
-
-	private boolean moveObjToFirstPosition(GeoObj obj) {
-		if ((myNodes == null))
-			return false;
-		if (myNodes.remove(obj)) {
-			return myNodes.insert(0, obj);
-		}
-		return false;
-	}
-
 	@Override
 	public boolean insert(int pos, GeoObj geoObj) {
 		if (myNodes == null)
 			myNodes = new EfficientListQualified<GeoObj>();
-		return myNodes.insert(pos, geoObj);
+		graphChanged();
+		if (myNodes.insert(pos, geoObj)) {
+			myNodeIndex.add(geoObj, geoObj.getLatitude(),
+					geoObj.getLongitude());
+			addToTextIndex(geoObj);
+			return true;
+		}
+		return false;
 	}
 
 	/**
@@ -302,8 +452,12 @@ public class GeoGraph extends AbstractObj implements Container<GeoObj> {
 	public boolean add(GeoObj geoObj) {
 		if (myNodes == null)
 			myNodes = new EfficientListQualified<GeoObj>();
-		if (myNodes.contains(geoObj) == -1) {
+		if (geoObj != null
+				&& myNodeIndex.add(geoObj, geoObj.getLatitude(),
+						geoObj.getLongitude())) {
 			myNodes.add(geoObj);
+			addToTextIndex(geoObj);
+			graphChanged();
 			return true;
 		}
 		return false;
@@ -361,7 +515,7 @@ public class GeoGraph extends AbstractObj implements Container<GeoObj> {
 
 	public GeoObj findBestPointFor(String searchTerm) {
 		Log.d("GeoGraph", "Searching graph for " + searchTerm);
-		GeoGraph searchResults = findGeoObjects(searchTerm);
+		GeoGraph searchResults = findGeoObjects(searchTerm, 1);
 
 		if (searchResults == null) {
 			Log.d("GeoGraph", "  -> Nothing found for '" + searchTerm + "'");
@@ -383,60 +537,363 @@ public class GeoGraph extends AbstractObj implements Container<GeoObj> {
 			start = getClosesedObjTo(EventManager.getInstance()
 					.getCurrentLocationObject());
 		}
-		return dijkstra(start, target);
+		return aStar(start, target);
 	}
 
 	/**
+	 * The nodes are found via a {@link GeoIndex}, so call
+	 * {@link #updateNodePosition(GeoObj)} after moving a node which is already
+	 * part of the graph
+	 *
 	 * @param pos
 	 * @return the {@link GeoObj} contained in this {@link GeoGraph} which has
 	 *         the smallest distance to the specified pos-{@link GeoObj}
 	 */
 	public GeoObj getClosesedObjTo(GeoObj pos) {
-		GeoObj result = null;
-		if (myNodes == null)
+		return myNodeIndex.findNearest(pos.getLatitude(), pos.getLongitude());
+	}
+
+	/**
+	 * @param pos
+	 * @param k
+	 *            the maximum number of nodes
+	 * @return the k nodes which are closest to pos, the closest one first
+	 */
+	public EfficientList<GeoObj> getClosestObjsTo(GeoObj pos, int k) {
+		return myNodeIndex.findNearest(pos.getLatitude(), pos.getLongitude(),
+				k);
+	}
+
+	/**
+	 * @param pos
+	 * @param radius
+	 *            in meters
+	 * @return all nodes which are not further away from pos than the radius
+	 */
+	public EfficientList<GeoObj> getObjsWithinRadius(GeoObj pos, double radius) {
+		return myNodeIndex.findWithinRadius(pos.getLatitude(),
+				pos.getLongitude(), radius);
+	}
+
+	/**
+	 * @param pos
+	 *            e.g. the current GPS position
+	 * @return the edge which passes pos closest or null if there are no edges
+	 */
+	public Edge getClosestEdgeTo(GeoObj pos) {
+		return findClosestEdge(pos, new double[3]);
+	}
+
+	/**
+	 * Moves a position (e.g. the inaccurate GPS position) onto the closest
+	 * edge of the graph
+	 *
+	 * @param pos
+	 * @return a new {@link GeoObj} at the point of the closest edge which is
+	 *         closest to pos or null if there are no edges
+	 */
+	public GeoObj snapToClosestEdge(GeoObj pos) {
+		double[] snapped = new double[3];
+		if (findClosestEdge(pos, snapped) == null) {
 			return null;
-		double minDistance;
+		}
+		return new GeoObj(snapped[0], snapped[1], snapped[2]);
+	}
 
-		GeoObj a = myNodes.get(0);
-		if (a != null) {
-			minDistance = a.getDistance(pos);
-			result = a;
-		} else {
+	/**
+	 * only the edges of nodes close to pos are checked: an edge which is
+	 * closer than the best edge found so far must have a node within this
+	 * distance plus half the length of the longest edge
+	 *
+	 * @param snapped
+	 *            will contain the latitude, longitude and altitude of the
+	 *            closest point on the resulting edge
+	 */
+	private Edge findClosestEdge(GeoObj pos, double[] snapped) {
+		if (myEdges == null || myEdges.myLength == 0) {
 			return null;
 		}
+		EdgeSnapper s = new EdgeSnapper(pos);
+		EfficientList<GeoObj> nodes = getClosestObjsTo(pos, 8);
+		for (int i = 0; i < nodes.myLength; i++) {
+			s.checkEdgesOf(nodes.get(i));
+		}
+		if (s.myEdge == null) {
+			// the closest nodes have no edges, so check all of them:
+			for (int i = 0; i < myEdges.myLength; i++) {
+				s.check(myEdges.get(i));
+			}
+		} else {
+			nodes = getObjsWithinRadius(pos, Math.sqrt(s.myDistance2)
+					+ myEdgeIndex.getMaxWeight() / 2 + 1);
+			for (int i = 0; i < nodes.myLength; i++) {
+				s.checkEdgesOf(nodes.get(i));
+			}
+		}
+		if (s.myEdge != null) {
+			snapped[0] = s.myLatitude;
+			snapped[1] = s.myLongitude;
+			snapped[2] = s.myAltitude;
+		}
+		return s.myEdge;
+	}
+
+	/**
+	 * Finds the closest point on edges in a plane around the position, which
+	 * is exact enough for edges shorter than a few kilometers
+	 */
+	private class EdgeSnapper {
 
-		for (int i = 1; i < myNodes.myLength; i++) {
-			GeoObj o = myNodes.get(i);
-			double distance = o.getDistance(pos);
-			if (distance < minDistance) {
-				minDistance = distance;
-				result = o;
+		private static final double METERS_PER_DEGREE = 6371000 * Math.PI / 180;
+
+		private final double myLat0, myLng0, myMetersPerDegreeLng;
+		Edge myEdge;
+		double myDistance2 = Double.MAX_VALUE;
+		double myLatitude, myLongitude, myAltitude;
+
+		EdgeSnapper(GeoObj pos) {
+			myLat0 = pos.getLatitude();
+			myLng0 = pos.getLongitude();
+			myMetersPerDegreeLng = METERS_PER_DEGREE
+					* Math.cos(Math.toRadians(myLat0));
+		}
+
+		void checkEdgesOf(GeoObj node) {
+			EfficientList<Edge> l = myEdgeIndex.getOutgoing(node);
+			for (int i = 0; i < l.myLength; i++) {
+				check(l.get(i));
+			}
+			l = myEdgeIndex.getIncoming(node);
+			for (int i = 0; i < l.myLength; i++) {
+				check(l.get(i));
 			}
 		}
-		return result;
+
+		void check(Edge e) {
+			final double ax = x(e.from), ay = y(e.from);
+			final double dx = x(e.to) - ax, dy = y(e.to) - ay;
+			final double length2 = dx * dx + dy * dy;
+			double t = length2 > 0 ? -(ax * dx + ay * dy) / length2 : 0;
+			t = Math.max(0, Math.min(1, t));
+			final double px = ax + t * dx, py = ay + t * dy;
+			final double d2 = px * px + py * py;
+			if (d2 < myDistance2) {
+				myDistance2 = d2;
+				myEdge = e;
+				myLatitude = myLat0 + py / METERS_PER_DEGREE;
+				myLongitude = myLng0 + px / myMetersPerDegreeLng;
+				myAltitude = e.from.getAltitude() + t
+						* (e.to.getAltitude() - e.from.getAltitude());
+			}
+		}
+
+		private double x(GeoObj o) {
+			double dLng = o.getLongitude() - myLng0;
+			// the shorter way around the date line:
+			if (dLng > 180) {
+				dLng -= 360;
+			} else if (dLng < -180) {
+				dLng += 360;
+			}
+			return dLng * myMetersPerDegreeLng;
+		}
+
+		private double y(GeoObj o) {
+			return (o.getLatitude() - myLat0) * METERS_PER_DEGREE;
+		}
 	}
 
 	public GeoGraph findGeoObjects(String searchTerm) {
+		return findGeoObjects(searchTerm, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Searches the names and descriptions of the nodes via a
+	 * {@link TextIndex}. If no node contains the search term, nodes with a
+	 * similar name are returned. Nodes of {@link GeoObj} subclasses which
+	 * override {@link GeoObj#matchesSearchTerm(String)} are checked with
+	 * their own method instead
+	 *
+	 * @param searchTerm
+	 * @param maxResults
+	 * @return a {@link GeoGraph} with the best matching nodes first or null
+	 *         if nothing was found
+	 */
+	public GeoGraph findGeoObjects(String searchTerm, int maxResults) {
 		if (myNodes == null)
 			return null;
+		EfficientList<GeoObj> found;
+		float[] qualities;
+		EfficientList<GeoObj> ownSearchNodes;
+		synchronized (this) {
+			TextIndex<GeoObj> index = getTextIndex();
+			found = index.search(searchTerm, maxResults);
+			qualities = new float[found.myLength];
+			for (int i = 0; i < found.myLength; i++) {
+				qualities[i] = index.getQualityOfLastSearch(i);
+			}
+			ownSearchNodes = myOwnSearchNodes.copy();
+		}
+
+		// the own search methods are called without the lock of the graph:
+		int count = 0;
+		GeoObj[] matches = new GeoObj[ownSearchNodes.myLength];
+		int[] matchQualities = new int[ownSearchNodes.myLength];
+		for (int i = 0; searchTerm != null && i < ownSearchNodes.myLength; i++) {
+			GeoObj node = ownSearchNodes.get(i);
+			int quality = node.matchesSearchTerm(searchTerm);
+			if (quality < 0) {
+				continue;
+			}
+			// sorted by quality, nodes with the same quality keep their order:
+			int j = count++;
+			for (; j > 0 && matchQualities[j - 1] > quality; j--) {
+				matches[j] = matches[j - 1];
+				matchQualities[j] = matchQualities[j - 1];
+			}
+			matches[j] = node;
+			matchQualities[j] = quality;
+		}
+
+		// both result lists are sorted, so they are merged in one pass:
 		GeoGraph searchResults = null;
-		for (int i = 0; i < myNodes.myLength; i++) {
-			GeoObj o = myNodes.get(i);
-			float matchQuality = o.matchesSearchTerm(searchTerm);
-			if (matchQuality > 0) {
-				if (searchResults == null) {
-					searchResults = new GeoGraph();
-				}
-				searchResults.insertWithDefinedQuality(matchQuality, o);
+		int a = 0;
+		int b = 0;
+		while ((a < found.myLength || b < count) && a + b < maxResults) {
+			if (searchResults == null) {
+				searchResults = new GeoGraph();
+			}
+			if (b == count
+					|| (a < found.myLength && qualities[a] <= matchQualities[b])) {
+				searchResults.insertWithDefinedQuality(qualities[a],
+						found.get(a));
+				a++;
+			} else {
+				searchResults.insertWithDefinedQuality(matchQualities[b],
+						matches[b]);
+				b++;
 			}
 		}
 		return searchResults;
 	}
 
+	/**
+	 * The index is created with the first search. Before each search the
+	 * nodes whose {@link MetaInfos} changed since they were indexed are
+	 * indexed again
+	 */
+	private synchronized TextIndex<GeoObj> getTextIndex() {
+		if (myTextIndex == null) {
+			myTextIndex = new TextIndex<GeoObj>();
+			myIndexedTextVersions = new IdentityHashMap<GeoObj, Integer>();
+			myOwnSearchNodes = new EfficientList<GeoObj>();
+			myCheckedTextChanges = MetaInfos.getTextChangeCount();
+			for (int i = 0; i < myNodes.myLength; i++) {
+				addToTextIndex(myNodes.get(i));
+			}
+			return myTextIndex;
+		}
+		int changes = MetaInfos.getTextChangeCount();
+		if (changes != myCheckedTextChanges) {
+			myCheckedTextChanges = changes;
+			for (int i = 0; i < myNodes.myLength; i++) {
+				GeoObj node = myNodes.get(i);
+				Integer version = myIndexedTextVersions.get(node);
+				if (version != null
+						&& version.intValue() != node.getInfoObject()
+								.getTextVersion()) {
+					removeFromTextIndex(node);
+					addToTextIndex(node);
+				}
+			}
+		}
+		return myTextIndex;
+	}
+
+	private synchronized void addToTextIndex(GeoObj node) {
+		if (myTextIndex == null) {
+			return;
+		}
+		if (hasOwnSearch(node)) {
+			myOwnSearchNodes.add(node);
+			return;
+		}
+		MetaInfos infos = node.getInfoObject();
+		// read first, so a change while the texts are copied is noticed:
+		int version = infos.getTextVersion();
+		if (myTextIndex.add(node, infos.getShortDescr(),
+				infos.getLongDescrAsString())) {
+			myIndexedTextVersions.put(node, version);
+		}
+	}
+
+	private synchronized void removeFromTextIndex(GeoObj node) {
+		if (myTextIndex != null) {
+			myTextIndex.remove(node);
+			myIndexedTextVersions.remove(node);
+			myOwnSearchNodes.remove(node);
+		}
+	}
+
+	private static boolean hasOwnSearch(GeoObj node) {
+		Class<?> c = node.getClass();
+		if (c == GeoObj.class) {
+			return false;
+		}
+		synchronized (ownSearchClasses) {
+			Boolean result = ownSearchClasses.get(c);
+			if (result == null) {
+				try {
+					result = c.getMethod("matchesSearchTerm", String.class)
+							.getDeclaringClass() != GeoObj.class;
+				} catch (NoSuchMethodException e) {
+					result = false;
+				}
+				ownSearchClasses.put(c, result);
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * The search index notices changes of the {@link gui.MetaInfos} of the
+	 * nodes before the next search, so this is only needed to update the
+	 * index of a node right away
+	 *
+	 * @param node
+	 */
+	public void updateSearchIndex(GeoObj node) {
+		removeFromTextIndex(node);
+		if (myNodeIndex.contains(node)) {
+			addToTextIndex(node);
+		}
+	}
+
+	/**
+	 * The position of each node is copied to the spatial index when it is
+	 * added, so call this after moving a node which is already part of the
+	 * graph (e.g. with {@link GeoObj#setMyLatitude(double)}), otherwise
+	 * {@link #getClosesedObjTo(GeoObj)} and {@link #findPath(GeoObj, GeoObj)}
+	 * still use its old position
+	 *
+	 * @param node
+	 * @return false if the node is not part of this graph
+	 */
+	public boolean updateNodePosition(GeoObj node) {
+		if (!myNodeIndex.remove(node)) {
+			return false;
+		}
+		myNodeIndex.add(node, node.getLatitude(), node.getLongitude());
+		graphChanged();
+		return true;
+	}
+
 	private void insertWithDefinedQuality(float matchQuality, GeoObj o) {
 		if (myNodes == null)
 			myNodes = new EfficientListQualified<GeoObj>();
 		myNodes.add(o, matchQuality);
+		myNodeIndex.add(o, o.getLatitude(), o.getLongitude());
+		graphChanged();
 	}
 
 	/**
@@ -455,7 +912,10 @@ public class GeoGraph extends AbstractObj implements Container<GeoObj> {
 				edgeMeshComp = Edge.getDefaultMesh(this, from, to, this
 						.getInfoObject().getColor());
 			Edge e = new Edge(from, to, edgeMeshComp);
+			e.myPosition = myEdges.myLength;
 			myEdges.add(e);
+			myEdgeIndex.add(e);
+			graphChanged();
 			return e;
 		} else {
 			Log.e(LOG_TAG, "Tried to add new edge but edge from " + from
@@ -470,19 +930,41 @@ public class GeoGraph extends AbstractObj implements Container<GeoObj> {
 	 * @return the position of the edge in the list or -1 if its not in the list
 	 */
 	public int hasEdge(GeoObj from, GeoObj to) {
-		if (myEdges == null)
+		Edge e = findEdge(from, to);
+		if (e == null)
 			return -1;
+		return positionOf(e);
+	}
 
-		// TODO move this method to efficient list and Edge.compare(edge) ?
+	/**
+	 * @return the edge from A to B or from B to A or null
+	 */
+	private Edge findEdge(GeoObj from, GeoObj to) {
+		Edge e = myEdgeIndex.get(from, to);
+		if (e == null)
+			e = myEdgeIndex.get(to, from);
+		return e;
+	}
 
-		for (int i = 0; i < myEdges.myLength; i++) {
-			Edge e = myEdges.get(i);
-			if ((e.from == from && e.to == to)
-					|| (e.from == to && e.to == from)) {
-				return i;
-			}
-		}
-		return -1;
+	private int positionOf(Edge e) {
+		final int pos = e.myPosition;
+		if (pos >= 0 && myEdges.get(pos) == e)
+			return pos;
+		// the list was changed from outside via getEdges():
+		return myEdges.contains(e);
+	}
+
+	private boolean removeEdge(Edge e) {
+		if (myEdges == null)
+			return false;
+		if (!myEdgeIndex.remove(e))
+			return myEdges.remove(e);
+		final int pos = positionOf(e);
+		Edge moved = myEdges.removeBySwappingLast(pos);
+		if (moved != null)
+			moved.myPosition = pos;
+		e.myPosition = -1;
+		return true;
 	}
 
 	/**
@@ -493,6 +975,7 @@ public class GeoGraph extends AbstractObj implements Container<GeoObj> {
 	 */
 	public void setNonDirectional(boolean nonDirectional) {
 		this.nonDirectional = nonDirectional;
+		graphChanged();
 	}
 
 	@Override
@@ -520,7 +1003,9 @@ public class GeoGraph extends AbstractObj implements Container<GeoObj> {
 			}
 		}
 		{
-			if ((isPath || useEdges) && myEdges != null) {
+			if (myPathMesh != null) {
+				myPathMesh.render(gl, this);
+			} else if ((isPath || useEdges) && myEdges != null) {
 				for (int i = 0; i < myEdges.myLength; i++) {
 					myEdges.get(i).render(gl, this);
 				}
@@ -541,7 +1026,9 @@ public class GeoGraph extends AbstractObj implements Container<GeoObj> {
 				}
 			}
 		}
-		if (useEdges && myEdges != null) {
+		if (myPathMesh != null) {
+			myPathMesh.update(timeDelta, this);
+		} else if (useEdges && myEdges != null) {
 			for (int i = 0; i < myEdges.myLength; i++) {
 				if (!myEdges.get(i).update(timeDelta, this)) {
 					remove(myEdges.get(i));
@@ -561,12 +1048,16 @@ public class GeoGraph extends AbstractObj implements Container<GeoObj> {
 	@Override
 	public boolean remove(GeoObj x) {
 		// first try to remove item from the nodes
-		if (myNodes.remove(x)) {
+		if (myNodeIndex.remove(x)) {
+			myNodes.remove(x);
+			removeFromTextIndex(x);
+			graphChanged();
 			x.setRemoved();
 			return true;
 		}
 		// then fom the edges
-		if (myEdges.remove(x)) {
+		if (x instanceof Edge && removeEdge((Edge) x)) {
+			graphChanged();
 			x.setRemoved();
 			return true;
 		}
@@ -589,10 +1080,16 @@ public class GeoGraph extends AbstractObj implements Container<GeoObj> {
 	@Override
 	public void clear() {
 		isClearedAtLeastOneTime = true;
+		graphChanged();
 		if (myNodes != null)
 			myNodes.clear();
 		if (myEdges != null)
 			myEdges.clear();
+		myNodeIndex.clear();
+		synchronized (this) {
+			myTextIndex = null;
+		}
+		myEdgeIndex.clear();
 	}
 
 	@Override
@@ -648,12 +1145,13 @@ public class GeoGraph extends AbstractObj implements Container<GeoObj> {
 
 	public EfficientList<GeoObj> getConnectedNodesOf(GeoObj obj) {
 		EfficientList<GeoObj> result = new EfficientList<GeoObj>();
-		for (int i = 0; i < myEdges.myLength; i++) {
-			if (myEdges.get(i).from.equals(obj)) {
-				result.add(myEdges.get(i).to);
-			} else if (myEdges.get(i).to.equals(obj)) {
-				result.add(myEdges.get(i).from);
-			}
+		EfficientList<Edge> outgoing = myEdgeIndex.getOutgoing(obj);
+		for (int i = 0; i < outgoing.myLength; i++) {
+			result.add(outgoing.get(i).to);
+		}
+		EfficientList<Edge> incoming = myEdgeIndex.getIncoming(obj);
+		for (int i = 0; i < incoming.myLength; i++) {
+			result.add(incoming.get(i).from);
 		}
 		return result;
 	}
@@ -665,12 +1163,9 @@ public class GeoGraph extends AbstractObj implements Container<GeoObj> {
 		}
 
 		EfficientList<GeoObj> result = new EfficientList<GeoObj>();
-		if (myEdges != null) {
-			for (int i = 0; i < myEdges.myLength; i++) {
-				if (myEdges.get(i).from.equals(obj)) {
-					result.add(myEdges.get(i).to);
-				}
-			}
+		EfficientList<Edge> outgoing = myEdgeIndex.getOutgoing(obj);
+		for (int i = 0; i < outgoing.myLength; i++) {
+			result.add(outgoing.get(i).to);
 		}
 		return result;
 	}
@@ -707,9 +1202,6 @@ public class GeoGraph extends AbstractObj implements Container<GeoObj> {
 	 * @return null of there is no edge for these nodes
 	 */
 	public Edge getEdge(GeoObj from, GeoObj to) {
-		int pos = hasEdge(from, to);
-		if (pos == -1)
-			return null;
-		return getEdges().get(pos);
+		return findEdge(from, to);
 	}
 }
@@ -0,0 +1,526 @@
+package geo;
+
+import java.util.HashMap;
+
+import util.EfficientList;
+
+/**
+ * A spatial index for nearest, k-nearest and within-radius queries on geo
+ * positions. The positions are converted to points on the unit sphere and
+ * stored in a kd-tree, so the queries work everywhere on earth (no projection
+ * distortion near the poles or at the date line).
+ *
+ * New items are first collected in a small list which is scanned linearly by
+ * the queries, the kd-tree is only rebuilt when this list gets too long or
+ * more than half of the tree items were removed. So adding and removing is
+ * O(1) and a query is O(log n) plus the items added since the last rebuild.
+ * Many items can be added in a row without rebuilding the tree each time.
+ *
+ * The position of an item is copied when it is added, if the item moves it
+ * has to be removed and added again.
+ *
+ * @author Spobo
+ *
+ * @param <T>
+ *            the type of the items, they are found again via
+ *            {@link Object#equals(Object)} when they are removed
+ */
+public class GeoIndex<T> {
+
+	private static final double EARTH_RADIUS = 6371000;
+	/**
+	 * up to this many added items are scanned by the queries without
+	 * rebuilding the tree
+	 */
+	private static final int MIN_PENDING = 32;
+
+	// the kd-tree, the median of each range is the split node of the range:
+	private Object[] myTreeItems = new Object[0];
+	private double[] myTreeX = new double[0];
+	private double[] myTreeY = new double[0];
+	private double[] myTreeZ = new double[0];
+	private byte[] myTreeAxis = new byte[0];
+	private boolean[] myTreeRemoved = new boolean[0];
+	private int myTreeRemovedCount;
+
+	// the items added since the last rebuild:
+	private Object[] myPendingItems = new Object[MIN_PENDING];
+	private double[] myPendingX = new double[MIN_PENDING];
+	private double[] myPendingY = new double[MIN_PENDING];
+	private double[] myPendingZ = new double[MIN_PENDING];
+	private int myPendingCount;
+
+	/**
+	 * the position of each item, a tree position p is stored as p and a pending
+	 * position p as -p-1
+	 */
+	private final HashMap<T, Integer> mySlots = new HashMap<T, Integer>();
+
+	// the result of toUnitSphere():
+	private double qx, qy, qz;
+
+	/**
+	 * @param item
+	 * @param latitude
+	 *            in degree
+	 * @param longitude
+	 *            in degree
+	 * @return false if the item was already in the index
+	 */
+	public synchronized boolean add(T item, double latitude, double longitude) {
+		if (item == null || mySlots.containsKey(item)) {
+			return false;
+		}
+		if (myPendingCount == myPendingItems.length) {
+			final int l = myPendingCount * 2;
+			myPendingItems = copyOf(myPendingItems, l);
+			myPendingX = copyOf(myPendingX, l);
+			myPendingY = copyOf(myPendingY, l);
+			myPendingZ = copyOf(myPendingZ, l);
+		}
+		toUnitSphere(latitude, longitude);
+		final int i = myPendingCount++;
+		myPendingItems[i] = item;
+		myPendingX[i] = qx;
+		myPendingY[i] = qy;
+		myPendingZ[i] = qz;
+		mySlots.put(item, -i - 1);
+		return true;
+	}
+
+	/**
+	 * @return false if the item was not in the index
+	 */
+	public synchronized boolean remove(T item) {
+		Integer slot = mySlots.remove(item);
+		if (slot == null) {
+			return false;
+		}
+		final int s = slot;
+		if (s >= 0) {
+			myTreeRemoved[s] = true;
+			myTreeItems[s] = null;
+			myTreeRemovedCount++;
+			return true;
+		}
+		// move the last pending item to the free place:
+		final int i = -s - 1;
+		final int last = --myPendingCount;
+		if (i != last) {
+			myPendingItems[i] = myPendingItems[last];
+			myPendingX[i] = myPendingX[last];
+			myPendingY[i] = myPendingY[last];
+			myPendingZ[i] = myPendingZ[last];
+			mySlots.put(cast(myPendingItems[i]), -i - 1);
+		}
+		myPendingItems[last] = null;
+		return true;
+	}
+
+	public synchronized boolean contains(T item) {
+		return mySlots.containsKey(item);
+	}
+
+	public synchronized int size() {
+		return mySlots.size();
+	}
+
+	public synchronized void clear() {
+		mySlots.clear();
+		myTreeItems = new Object[0];
+		myTreeX = new double[0];
+		myTreeY = new double[0];
+		myTreeZ = new double[0];
+		myTreeAxis = new byte[0];
+		myTreeRemoved = new boolean[0];
+		myTreeRemovedCount = 0;
+		myPendingItems = new Object[MIN_PENDING];
+		myPendingX = new double[MIN_PENDING];
+		myPendingY = new double[MIN_PENDING];
+		myPendingZ = new double[MIN_PENDING];
+		myPendingCount = 0;
+	}
+
+	/**
+	 * @return the item closest to the position or null if the index is empty
+	 */
+	public synchronized T findNearest(double latitude, double longitude) {
+		EfficientList<T> l = findNearest(latitude, longitude, 1);
+		return l.get(0);
+	}
+
+	/**
+	 * @param k
+	 *            the maximum number of results
+	 * @return the k closest items, the closest one first
+	 */
+	public synchronized EfficientList<T> findNearest(double latitude,
+			double longitude, int k) {
+		EfficientList<T> result = new EfficientList<T>();
+		// there can't be more results than items, e.g. for k=Integer.MAX_VALUE:
+		k = Math.min(k, size());
+		if (k <= 0) {
+			return result;
+		}
+		rebuildIfNeeded();
+		toUnitSphere(latitude, longitude);
+		Candidates c = new Candidates(k);
+		searchNearest(0, myTreeItems.length, c);
+		for (int i = 0; i < myPendingCount; i++) {
+			c.offer(myPendingItems[i],
+					distance2(myPendingX[i], myPendingY[i], myPendingZ[i]));
+		}
+		Object[] sorted = c.toSortedArray();
+		for (int i = 0; i < sorted.length; i++) {
+			result.add(cast(sorted[i]));
+		}
+		return result;
+	}
+
+	/**
+	 * @param radius
+	 *            in meters
+	 * @return all items which are not further away than the radius in no
+	 *         specific order
+	 */
+	public synchronized EfficientList<T> findWithinRadius(double latitude,
+			double longitude, double radius) {
+		EfficientList<T> result = new EfficientList<T>();
+		rebuildIfNeeded();
+		toUnitSphere(latitude, longitude);
+		final double chord = toChord(radius);
+		final double maxDistance2 = chord * chord;
+		searchRadius(0, myTreeItems.length, maxDistance2, result);
+		for (int i = 0; i < myPendingCount; i++) {
+			if (distance2(myPendingX[i], myPendingY[i], myPendingZ[i]) <= maxDistance2) {
+				result.add(cast(myPendingItems[i]));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @return the great circle distance in meters
+	 */
+	public static double getDistance(double lat1, double lng1, double lat2,
+			double lng2) {
+		return GeoDistance.haversine(lat1, lng1, lat2, lng2);
+	}
+
+	/**
+	 * @return the length of the straight line through the unit sphere between
+	 *         two points which have this distance in meters on the surface
+	 */
+	private static double toChord(double meters) {
+		if (meters < 0) {
+			return -1;
+		}
+		final double angle = Math.min(meters / EARTH_RADIUS, Math.PI);
+		return 2 * Math.sin(angle / 2);
+	}
+
+	private void toUnitSphere(double latitude, double longitude) {
+		final double lat = Math.toRadians(latitude);
+		final double lng = Math.toRadians(longitude);
+		final double cosLat = Math.cos(lat);
+		qx = cosLat * Math.cos(lng);
+		qy = cosLat * Math.sin(lng);
+		qz = Math.sin(lat);
+	}
+
+	private double distance2(double x, double y, double z) {
+		final double dx = x - qx;
+		final double dy = y - qy;
+		final double dz = z - qz;
+		return dx * dx + dy * dy + dz * dz;
+	}
+
+	private double splitDistance(int i) {
+		switch (myTreeAxis[i]) {
+		case 0:
+			return qx - myTreeX[i];
+		case 1:
+			return qy - myTreeY[i];
+		default:
+			return qz - myTreeZ[i];
+		}
+	}
+
+	private void searchNearest(int lo, int hi, Candidates c) {
+		if (lo >= hi) {
+			return;
+		}
+		final int mid = (lo + hi) >>> 1;
+		if (!myTreeRemoved[mid]) {
+			c.offer(myTreeItems[mid],
+					distance2(myTreeX[mid], myTreeY[mid], myTreeZ[mid]));
+		}
+		final double d = splitDistance(mid);
+		if (d < 0) {
+			searchNearest(lo, mid, c);
+			if (!c.isFull() || d * d < c.worstDistance()) {
+				searchNearest(mid + 1, hi, c);
+			}
+		} else {
+			searchNearest(mid + 1, hi, c);
+			if (!c.isFull() || d * d < c.worstDistance()) {
+				searchNearest(lo, mid, c);
+			}
+		}
+	}
+
+	private void searchRadius(int lo, int hi, double maxDistance2,
+			EfficientList<T> result) {
+		if (lo >= hi) {
+			return;
+		}
+		final int mid = (lo + hi) >>> 1;
+		if (!myTreeRemoved[mid]
+				&& distance2(myTreeX[mid], myTreeY[mid], myTreeZ[mid]) <= maxDistance2) {
+			result.add(cast(myTreeItems[mid]));
+		}
+		final double d = splitDistance(mid);
+		if (d < 0 || d * d <= maxDistance2) {
+			searchRadius(lo, mid, maxDistance2, result);
+		}
+		if (d >= 0 || d * d <= maxDistance2) {
+			searchRadius(mid + 1, hi, maxDistance2, result);
+		}
+	}
+
+	private void rebuildIfNeeded() {
+		final int treeSize = myTreeItems.length;
+		if ((myPendingCount > MIN_PENDING && (long) myPendingCount
+				* myPendingCount > treeSize)
+				|| myTreeRemovedCount * 2 > treeSize) {
+			rebuild();
+		}
+	}
+
+	private void rebuild() {
+		final int n = mySlots.size();
+		Object[] items = new Object[n];
+		double[] x = new double[n];
+		double[] y = new double[n];
+		double[] z = new double[n];
+		int count = 0;
+		for (int i = 0; i < myTreeItems.length; i++) {
+			if (!myTreeRemoved[i]) {
+				items[count] = myTreeItems[i];
+				x[count] = myTreeX[i];
+				y[count] = myTreeY[i];
+				z[count] = myTreeZ[i];
+				count++;
+			}
+		}
+		for (int i = 0; i < myPendingCount; i++) {
+			items[count] = myPendingItems[i];
+			x[count] = myPendingX[i];
+			y[count] = myPendingY[i];
+			z[count] = myPendingZ[i];
+			myPendingItems[i] = null;
+			count++;
+		}
+		myTreeItems = items;
+		myTreeX = x;
+		myTreeY = y;
+		myTreeZ = z;
+		myTreeAxis = new byte[n];
+		myTreeRemoved = new boolean[n];
+		myTreeRemovedCount = 0;
+		myPendingCount = 0;
+		build(0, n);
+		for (int i = 0; i < n; i++) {
+			mySlots.put(cast(items[i]), i);
+		}
+	}
+
+	/**
+	 * sorts the range so that the median splits it along the axis with the
+	 * largest extent, then does the same for both halves
+	 */
+	private void build(int lo, int hi) {
+		if (hi - lo < 2) {
+			if (lo < hi) {
+				myTreeAxis[lo] = 0;
+			}
+			return;
+		}
+		final byte axis = widestAxis(lo, hi);
+		final int mid = (lo + hi) >>> 1;
+		select(lo, hi - 1, mid, axis);
+		myTreeAxis[mid] = axis;
+		build(lo, mid);
+		build(mid + 1, hi);
+	}
+
+	private byte widestAxis(int lo, int hi) {
+		double minX = myTreeX[lo], maxX = minX;
+		double minY = myTreeY[lo], maxY = minY;
+		double minZ = myTreeZ[lo], maxZ = minZ;
+		for (int i = lo + 1; i < hi; i++) {
+			minX = Math.min(minX, myTreeX[i]);
+			maxX = Math.max(maxX, myTreeX[i]);
+			minY = Math.min(minY, myTreeY[i]);
+			maxY = Math.max(maxY, myTreeY[i]);
+			minZ = Math.min(minZ, myTreeZ[i]);
+			maxZ = Math.max(maxZ, myTreeZ[i]);
+		}
+		final double dx = maxX - minX, dy = maxY - minY, dz = maxZ - minZ;
+		if (dx >= dy && dx >= dz) {
+			return 0;
+		}
+		return (byte) (dy >= dz ? 1 : 2);
+	}
+
+	private double coord(int i, int axis) {
+		return axis == 0 ? myTreeX[i] : axis == 1 ? myTreeY[i] : myTreeZ[i];
+	}
+
+	/**
+	 * quickselect: moves the k-th smallest value of the range [left,right]
+	 * to position k, smaller values before and larger values after it
+	 */
+	private void select(int left, int right, int k, int axis) {
+		while (right > left) {
+			final double pivot = coord((left + right) >>> 1, axis);
+			int i = left;
+			int j = right;
+			while (i <= j) {
+				while (coord(i, axis) < pivot) {
+					i++;
+				}
+				while (coord(j, axis) > pivot) {
+					j--;
+				}
+				if (i <= j) {
+					swap(i, j);
+					i++;
+					j--;
+				}
+			}
+			if (k <= j) {
+				right = j;
+			} else if (k >= i) {
+				left = i;
+			} else {
+				return;
+			}
+		}
+	}
+
+	private void swap(int a, int b) {
+		Object o = myTreeItems[a];
+		myTreeItems[a] = myTreeItems[b];
+		myTreeItems[b] = o;
+		double t = myTreeX[a];
+		myTreeX[a] = myTreeX[b];
+		myTreeX[b] = t;
+		t = myTreeY[a];
+		myTreeY[a] = myTreeY[b];
+		myTreeY[b] = t;
+		t = myTreeZ[a];
+		myTreeZ[a] = myTreeZ[b];
+		myTreeZ[b] = t;
+	}
+
+	@SuppressWarnings("unchecked")
+	private T cast(Object o) {
+		return (T) o;
+	}
+
+	private static Object[] copyOf(Object[] a, int length) {
+		Object[] b = new Object[length];
+		System.arraycopy(a, 0, b, 0, a.length);
+		return b;
+	}
+
+	private static double[] copyOf(double[] a, int length) {
+		double[] b = new double[length];
+		System.arraycopy(a, 0, b, 0, a.length);
+		return b;
+	}
+
+	/**
+	 * the k best items found so far in a max heap, so the worst one can be
+	 * replaced in O(log k)
+	 */
+	private static class Candidates {
+
+		private final Object[] myItems;
+		private final double[] myDistances;
+		private int mySize;
+
+		Candidates(int k) {
+			myItems = new Object[k];
+			myDistances = new double[k];
+		}
+
+		boolean isFull() {
+			return mySize == myItems.length;
+		}
+
+		double worstDistance() {
+			return myDistances[0];
+		}
+
+		void offer(Object item, double distance) {
+			if (isFull()) {
+				if (distance >= myDistances[0]) {
+					return;
+				}
+				siftDown(0, item, distance, mySize);
+			} else {
+				int i = mySize++;
+				while (i > 0) {
+					final int parent = (i - 1) >> 1;
+					if (myDistances[parent] >= distance) {
+						break;
+					}
+					myItems[i] = myItems[parent];
+					myDistances[i] = myDistances[parent];
+					i = parent;
+				}
+				myItems[i] = item;
+				myDistances[i] = distance;
+			}
+		}
+
+		private void siftDown(int i, Object item, double distance, int size) {
+			while (true) {
+				int child = 2 * i + 1;
+				if (child >= size) {
+					break;
+				}
+				if (child + 1 < size
+						&& myDistances[child + 1] > myDistances[child]) {
+					child++;
+				}
+				if (myDistances[child] <= distance) {
+					break;
+				}
+				myItems[i] = myItems[child];
+				myDistances[i] = myDistances[child];
+				i = child;
+			}
+			myItems[i] = item;
+			myDistances[i] = distance;
+		}
+
+		/**
+		 * @return the items with the smallest distance first, the heap is
+		 *         empty after this
+		 */
+		Object[] toSortedArray() {
+			Object[] result = new Object[mySize];
+			while (mySize > 0) {
+				final int last = --mySize;
+				result[last] = myItems[0];
+				siftDown(0, myItems[last], myDistances[last], last);
+				myItems[last] = null;
+			}
+			return result;
+		}
+	}
+
+}
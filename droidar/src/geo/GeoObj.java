@@ -11,6 +11,7 @@ import util.Log;
 import util.Vec;
 import worlddata.Entity;
 import worlddata.Obj;
+import worlddata.Updateable;
 import worlddata.Visitor;
 import actions.ActionCalcRelativePos;
 import android.location.Address;
@@ -73,12 +74,11 @@ public class GeoObj extends Obj implements HasDebugInformation {
 	 * checked.
 	 */
 	private boolean autoCalcVirtualPos = true;
-
 	/**
-	 * this is the average radius of the earth in meters. polar-radius is
-	 * 6356800 meters and equatorial-radius is 6378100 meters
+	 * the {@link FloatingOrigin#getVersion()} the virtual position of the
+	 * surround group was calculated for
 	 */
-	private static final int EARTH_RADIUS = 6371000;
+	private int myOriginVersion = -1;
 
 	// MeshComponent myMesh;
 	private double myLatitude = 0;
@@ -86,8 +86,8 @@ public class GeoObj extends Obj implements HasDebugInformation {
 	private double myAltitude = 0;
 
 	/**
-	 * is needed for the dijsktra algorithm, dont use it anywhere else, it will
-	 * change when using dijsktra!
+	 * the index of the node in the last {@link GeoGraph} which created its
+	 * {@link RoutingGraph}, dont use it anywhere else!
 	 */
 	protected int dijkstraId;
 	private MeshComponent mySurroundGroup;
@@ -441,30 +441,17 @@ public class GeoObj extends Obj implements HasDebugInformation {
 		 * negative or positive otherwise delta value is wrong! this will nearly
 		 * never happen, but for people in Greenwhich eg it might be a problem
 		 * when living near the 0 latitude..
-		 */
-		Vec position = new Vec();
-		position.x = (float) ((myLongitude - zeroLongitude) * 111319.4917 * Math
-				.cos(zeroLatitude * 0.0174532925));
-		position.y = (float) ((myLatitude - zeroLatitude) * 111133.3333);
-
-		/*
+		 * 
 		 * the altitude should be respected as well but altitude = 0 should by
-		 * default mean the current device altitude is used:
+		 * default mean the current device altitude is used. If
+		 * ActionCalcRelativePos.USE_ALTITUDE_VALUES is false the altitude
+		 * value is ignored but the height of the meshcomp can be still set of
+		 * course
+		 * 
+		 * The GeoProjection caches the cosine of the zero latitude:
 		 */
-		if (ActionCalcRelativePos.USE_ALTITUDE_VALUES) {
-			if ((myAltitude == 0)
-					&& ActionCalcRelativePos.USE_DEVICE_ALTI_FOR_ZERO) {
-				position.z = 0;
-			} else {
-				position.z = (float) (myAltitude - zeroAltitude);
-			}
-		} else {
-			/*
-			 * else the altitude value is ignored but the height of the meshcomp
-			 * can be still set of course
-			 */
-		}
-		return position;
+		return GeoProjection.get(zeroLatitude, zeroLongitude, zeroAltitude)
+				.project(myLatitude, myLongitude, myAltitude, null);
 	}
 
 	/**
@@ -556,37 +543,42 @@ public class GeoObj extends Obj implements HasDebugInformation {
 
 	/**
 	 * calculates the distance in meters to the {@link GeoObj} GPS-position
+	 * with the exact haversine formula, see {@link GeoDistance}
 	 * 
 	 * @param otherGeoObj
 	 * @return positive value in meters
 	 */
 	public double getDistance(GeoObj otherObj) {
-		return distFrom(getLatitude(), getLongitude(), otherObj.getLatitude(),
-				otherObj.getLongitude());
+		return GeoDistance.haversine(getLatitude(), getLongitude(),
+				otherObj.getLatitude(), otherObj.getLongitude());
+	}
+
+	/**
+	 * A faster version of {@link #getDistance(GeoObj)} which is exact enough
+	 * for distances up to some kilometers, see
+	 * {@link GeoDistance#equirectangular(double, double, double, double)}
+	 * 
+	 * @param otherObj
+	 * @return positive value in meters
+	 */
+	public double getApproximateDistance(GeoObj otherObj) {
+		return GeoDistance.equirectangular(getLatitude(), getLongitude(),
+				otherObj.getLatitude(), otherObj.getLongitude());
 	}
 
 	/**
-	 * Implementation of the Harvesine function
+	 * Use this instead of comparing {@link #getDistance(GeoObj)} with a
+	 * maximum distance, the exact distance is only calculated if the
+	 * approximation is too close to the maximum distance
 	 * 
-	 * @param lat1
-	 *            value in degree
-	 * @param lng1
-	 *            value in degree
-	 * @param lat2
-	 *            value in degree
-	 * @param lng2
-	 *            value in degree
-	 * @return the distance in meters
-	 */
-	private static double distFrom(double lat1, double lng1, double lat2,
-			double lng2) {
-		final double dLat = Math.toRadians(lat2 - lat1);
-		final double dLng = Math.toRadians(lng2 - lng1);
-		final double a = (Math.sin(dLat / 2) * Math.sin(dLat / 2))
-				+ (Math.cos(Math.toRadians(lat1))
-				* Math.cos(Math.toRadians(lat2)) * Math.sin(dLng / 2)
-				* Math.sin(dLng / 2));
-		return EARTH_RADIUS * 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+	 * @param otherObj
+	 * @param maxDistance
+	 *            in meters
+	 * @return true if the other object is not further away than maxDistance
+	 */
+	public boolean isWithinDistance(GeoObj otherObj, double maxDistance) {
+		return GeoDistance.isWithinDistance(getLatitude(), getLongitude(),
+				otherObj.getLatitude(), otherObj.getLongitude(), maxDistance);
 	}
 
 	public boolean hasSameCoordsAs(GeoObj o) {
@@ -646,7 +638,30 @@ public class GeoObj extends Obj implements HasDebugInformation {
 	 *         axis))
 	 */
 	public Vec getVirtualPosition() {
-		return getVirtualPosition(EventManager.getInstance().getZeroPositionLocationObject().copy());
+		GeoProjection p = getOriginProjection();
+		if (p == null) {
+			Log.e(LOG_TAG, "Virtual position can't be calculated if the "
+					+ "relative zero position is not known!");
+			return null;
+		}
+		return p.project(this, null);
+	}
+
+	private static GeoProjection getOriginProjection() {
+		GeoProjection p = FloatingOrigin.getInstance().getProjection();
+		if (p == null) {
+			// the event manager will use the last known device position:
+			GeoObj zero = EventManager.getInstance()
+					.getZeroPositionLocationObject();
+			if (zero == null) {
+				return null;
+			}
+			p = FloatingOrigin.getInstance().getProjection();
+			if (p == null) {
+				p = FloatingOrigin.getInstance().rebase(zero);
+			}
+		}
+		return p;
 	}
 
 	/**
@@ -656,16 +671,48 @@ public class GeoObj extends Obj implements HasDebugInformation {
 	 * @return true if it worked
 	 */
 	public boolean refreshVirtualPosition() {
-		Vec pos = getVirtualPosition();
-		if (pos != null) {
-			MeshComponent m = getMySurroundGroup();
+		// read the version first, the projection can only be newer:
+		int version = FloatingOrigin.getInstance().getVersion();
+		GeoProjection p = getOriginProjection();
+		if (p == null) {
+			return false;
+		}
+		MeshComponent m = getMySurroundGroup();
+		if (m == null) {
+			return false;
+		}
+		// the position is changed directly instead of creating a new Vec:
+		p.project(this, m.getPosition());
+		myOriginVersion = version;
+		return true;
+	}
 
-			if (m != null) {
-				m.setPosition(pos);
-				return true;
-			}
+	/**
+	 * Recalculates the virtual position if the {@link FloatingOrigin} was
+	 * moved since the last calculation. This is done automatically before the
+	 * object is updated, the render thread only reads the result. The
+	 * {@link worlddata.World} re-bases all of its objects at once when the
+	 * origin is moved, see {@link GeoCalcer}
+	 *
+	 * @return true if the virtual position was recalculated
+	 */
+	public boolean refreshVirtualPositionIfOriginMoved() {
+		final int version = FloatingOrigin.getInstance().getVersion();
+		if (myOriginVersion == version) {
+			return false;
 		}
-		return false;
+		if (myOriginVersion == -1 && !autoCalcVirtualPos) {
+			// the position was set by hand for the current origin:
+			myOriginVersion = version;
+			return false;
+		}
+		return refreshVirtualPosition();
+	}
+
+	@Override
+	public boolean update(float timeDelta, Updateable parent) {
+		refreshVirtualPositionIfOriginMoved();
+		return super.update(timeDelta, parent);
 	}
 
 	// /**
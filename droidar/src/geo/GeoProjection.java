@@ -0,0 +1,192 @@
+package geo;
+
+import util.EfficientList;
+import util.Vec;
+import worlddata.ParallelUpdater;
+import worlddata.Updateable;
+import actions.ActionCalcRelativePos;
+
+/**
+ * Converts GPS positions to virtual positions relative to a zero position
+ * (x=east, y=north, z=altitude in meters). It uses the same formula as
+ * {@link GeoObj#getVirtualPosition(double, double, double)} but the cosine of
+ * the zero latitude is calculated only once per zero position and the
+ * positions can be converted without creating new {@link Vec}s.
+ *
+ * To re-base many positions when the zero position changed, keep their GPS
+ * coordinates in double arrays and convert all of them with
+ * {@link #project(double[], double[], double[], int, float[])} in one simple
+ * loop or with {@link #project(double[], double[], double[], int, float[], ParallelUpdater)}
+ * on all cores.
+ *
+ * A {@link GeoProjection} can't be changed, so it can be used by several
+ * threads.
+ *
+ * @author Spobo
+ *
+ */
+public class GeoProjection {
+
+	public static final double METERS_PER_DEGREE_LATITUDE = 111133.3333;
+	public static final double METERS_PER_DEGREE_LONGITUDE_AT_EQUATOR = 111319.4917;
+	private static final double DEGREE_TO_RADIANS = 0.0174532925;
+	/**
+	 * the number of positions one thread converts in one go
+	 */
+	private static final int CHUNK_SIZE = 128;
+
+	private static volatile GeoProjection lastUsed;
+
+	private final double myZeroLatitude;
+	private final double myZeroLongitude;
+	private final double myZeroAltitude;
+	private final double myMetersPerDegreeLongitude;
+
+	public GeoProjection(double zeroLatitude, double zeroLongitude,
+			double zeroAltitude) {
+		myZeroLatitude = zeroLatitude;
+		myZeroLongitude = zeroLongitude;
+		myZeroAltitude = zeroAltitude;
+		myMetersPerDegreeLongitude = METERS_PER_DEGREE_LONGITUDE_AT_EQUATOR
+				* Math.cos(zeroLatitude * DEGREE_TO_RADIANS);
+	}
+
+	/**
+	 * The zero position changes rarely, so the last projection is reused if
+	 * it has the same zero position
+	 *
+	 * @return a projection for this zero position
+	 */
+	public static GeoProjection get(double zeroLatitude, double zeroLongitude,
+			double zeroAltitude) {
+		GeoProjection p = lastUsed;
+		if (p == null || p.myZeroLatitude != zeroLatitude
+				|| p.myZeroLongitude != zeroLongitude
+				|| p.myZeroAltitude != zeroAltitude) {
+			p = new GeoProjection(zeroLatitude, zeroLongitude, zeroAltitude);
+			lastUsed = p;
+		}
+		return p;
+	}
+
+	public double getZeroLatitude() {
+		return myZeroLatitude;
+	}
+
+	public double getZeroLongitude() {
+		return myZeroLongitude;
+	}
+
+	public double getZeroAltitude() {
+		return myZeroAltitude;
+	}
+
+	/**
+	 * @param target
+	 *            the result is written to this vector, if it is null a new one
+	 *            is created
+	 * @return the virtual position
+	 */
+	public Vec project(double latitude, double longitude, double altitude,
+			Vec target) {
+		if (target == null) {
+			target = new Vec();
+		}
+		target.x = (float) ((longitude - myZeroLongitude) * myMetersPerDegreeLongitude);
+		target.y = (float) ((latitude - myZeroLatitude) * METERS_PER_DEGREE_LATITUDE);
+		target.z = getRelativeAltitude(altitude);
+		return target;
+	}
+
+	public Vec project(GeoObj o, Vec target) {
+		return project(o.getLatitude(), o.getLongitude(), o.getAltitude(),
+				target);
+	}
+
+	/**
+	 * see {@link GeoObj#getVirtualPosition(double, double, double)} for the
+	 * altitude rules
+	 */
+	private float getRelativeAltitude(double altitude) {
+		if (ActionCalcRelativePos.USE_ALTITUDE_VALUES) {
+			if (altitude == 0 && ActionCalcRelativePos.USE_DEVICE_ALTI_FOR_ZERO) {
+				return 0;
+			}
+			return (float) (altitude - myZeroAltitude);
+		}
+		return 0;
+	}
+
+	/**
+	 * Converts the first count positions of the arrays
+	 *
+	 * @param latitudes
+	 * @param longitudes
+	 * @param altitudes
+	 *            can be null, then all z values will be 0
+	 * @param count
+	 * @param target
+	 *            the x, y and z values of position i will be stored at 3*i,
+	 *            3*i+1 and 3*i+2, so it has to have at least 3*count values
+	 */
+	public void project(double[] latitudes, double[] longitudes,
+			double[] altitudes, int count, float[] target) {
+		projectRange(latitudes, longitudes, altitudes, 0, count, target);
+	}
+
+	/**
+	 * Like {@link #project(double[], double[], double[], int, float[])} but
+	 * the positions are split into chunks which are converted by the threads
+	 * of the updater. Small arrays are converted on the calling thread
+	 */
+	public void project(double[] latitudes, double[] longitudes,
+			double[] altitudes, int count, float[] target,
+			ParallelUpdater updater) {
+		EfficientList<Updateable> chunks = new EfficientList<Updateable>();
+		for (int from = 0; from < count; from += CHUNK_SIZE) {
+			chunks.add(new Chunk(latitudes, longitudes, altitudes, from, Math
+					.min(from + CHUNK_SIZE, count), target));
+		}
+		updater.update(chunks, 0, null, null);
+	}
+
+	private void projectRange(double[] latitudes, double[] longitudes,
+			double[] altitudes, int from, int to, float[] target) {
+		final double zeroLatitude = myZeroLatitude;
+		final double zeroLongitude = myZeroLongitude;
+		final double metersPerDegreeLongitude = myMetersPerDegreeLongitude;
+		for (int i = from, j = 3 * from; i < to; i++, j += 3) {
+			target[j] = (float) ((longitudes[i] - zeroLongitude) * metersPerDegreeLongitude);
+			target[j + 1] = (float) ((latitudes[i] - zeroLatitude) * METERS_PER_DEGREE_LATITUDE);
+		}
+		for (int i = from, j = 3 * from + 2; i < to; i++, j += 3) {
+			target[j] = altitudes != null ? getRelativeAltitude(altitudes[i])
+					: 0;
+		}
+	}
+
+	private class Chunk implements Updateable {
+
+		private final double[] myLatitudes, myLongitudes, myAltitudes;
+		private final int myFrom, myTo;
+		private final float[] myTarget;
+
+		Chunk(double[] latitudes, double[] longitudes, double[] altitudes,
+				int from, int to, float[] target) {
+			myLatitudes = latitudes;
+			myLongitudes = longitudes;
+			myAltitudes = altitudes;
+			myFrom = from;
+			myTo = to;
+			myTarget = target;
+		}
+
+		@Override
+		public boolean update(float timeDelta, Updateable parent) {
+			projectRange(myLatitudes, myLongitudes, myAltitudes, myFrom, myTo,
+					myTarget);
+			return true;
+		}
+	}
+
+}
@@ -2,7 +2,11 @@ package geo;
 
 import gl.GLCamera;
 
+import java.io.BufferedInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.ProtocolException;
@@ -54,6 +58,7 @@ public class GeoUtils {
 	private Context myContext;
 
 	private SimpleNodeEdgeListener defaultNEListener;
+	private RouteCache myRouteCache;
 
 	public GeoUtils(Context context, GLCamera glCamera) {
 		myContext = context;
@@ -262,99 +267,97 @@ public class GeoUtils {
 			return null;
 		}
 
-		// try to open the url:
-		try {
-			String url = generateUrl(startPos, destPos, byWalk);
-			
-			//kml does not work anymore, see a solution in http://stackoverflow.com/questions/11745314/why-retrieving-google-directions-for-android-using-kml-data-is-not-working-anymo/11745316#11745316
-//			Document kml = getDocumentFromUrl(url);
-			
-			DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
-			DocumentBuilder db = dbf.newDocumentBuilder();
-			Document kml = db.parse( url );
-
-			if (kml.getElementsByTagName("GeometryCollection").getLength() > 0) {
-
-				String path = kml.getElementsByTagName("GeometryCollection")
-						.item(0).getFirstChild().getFirstChild()
-						.getFirstChild().getNodeValue();
-
-				final String[] pairs = path.split(" ");
-				GeoGraph result = new GeoGraph();
-				result.getInfoObject().setShortDescr(
-						"Resulting graph for "
-								+ destPos.getInfoObject().getShortDescr());
-				result.setIsPath(true);
-				result.setNonDirectional(false);
-
-				if (nodeListener != null) {
-					nodeListener.addFirstNodeToGraph(result, startPos);
-				} else {
-					defaultNEListener.addFirstNodeToGraph(result, startPos);
-				}
-
-				GeoObj lastPoint = startPos;
-				for (int i = 1; i < pairs.length; i++) {
-					String[] geoCords = pairs[i].split(",");
-
-					GeoObj currentPoint = new GeoObj(
-							Double.parseDouble(geoCords[1]),
-							Double.parseDouble(geoCords[0]),
-							Double.parseDouble(geoCords[2]));
-
-					if (!currentPoint.hasSameCoordsAs(lastPoint)) {
-						if (nodeListener != null) {
-							nodeListener.addNodeToGraph(result, currentPoint);
-						} else {
-							defaultNEListener.addNodeToGraph(result,
-									currentPoint);
-						}
-						if (edgeListener != null) {
-							edgeListener.addEdgeToGraph(result, lastPoint,
-									currentPoint);
-						} else {
-							defaultNEListener.addEdgeToGraph(result, lastPoint,
-									currentPoint);
-						}
-						Log.d(LOG_TAG, "     + adding Waypoint:" + pairs[i]);
-						lastPoint = currentPoint;
-					}
-
-				}
-				if (lastPoint != null && !lastPoint.hasSameCoordsAs(destPos)) {
-
-					/*
-					 * add the egde to the past point:
-					 */
-					if (edgeListener != null) {
-						edgeListener.addEdgeToGraph(result, lastPoint, destPos);
-					} else {
-						defaultNEListener.addEdgeToGraph(result, lastPoint,
-								destPos);
-					}
-
-				}
-
-				if (nodeListener != null) {
-					nodeListener.addNodeToGraph(result, destPos);
-				} else {
-					defaultNEListener.addNodeToGraph(result, destPos);
-				}
-
-				/*
-				 * an alternative for adding the edges would be to call
-				 * result.addEdgesToCreatePath(); but this would be a bit
-				 * slower..
-				 */
+		if (nodeListener == null) {
+			nodeListener = defaultNEListener;
+		}
+		if (edgeListener == null) {
+			edgeListener = defaultNEListener;
+		}
 
-				return result;
+		//kml does not work anymore, see a solution in http://stackoverflow.com/questions/11745314/why-retrieving-google-directions-for-android-using-kml-data-is-not-working-anymo/11745316#11745316
+		String url = generateUrl(startPos, destPos, byWalk);
+		RouteCache cache = myRouteCache;
+		String key = RouteCache.getKey(startPos, destPos, byWalk);
+		Reader kml = null;
+		try {
+			kml = openRoute(url, cache, key);
+			if (kml == null) {
+				return null;
 			}
+			// the nodes are passed to the listeners while the route is read:
+			GeoGraph result = RouteParser.readPath(kml, startPos, destPos,
+					nodeListener, edgeListener);
+			if (result == null && cache != null) {
+				// dont keep error responses:
+				cache.remove(key);
+			}
+			/*
+			 * an alternative for adding the edges would be to call
+			 * result.addEdgesToCreatePath(); but this would be a bit slower..
+			 */
+			return result;
 		} catch (Exception e) {
 			e.printStackTrace();
+			if (cache != null) {
+				cache.remove(key);
+			}
+		} finally {
+			if (kml != null) {
+				try {
+					kml.close();
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+			}
 		}
 		return null;
 	}
 
+	/**
+	 * @return the cached response if there is a cache, otherwise the stream
+	 *         of the url
+	 */
+	private Reader openRoute(String url, RouteCache cache, String key)
+			throws IOException {
+		if (cache == null) {
+			return openUrl(url);
+		}
+		InputStream in = cache.open(key);
+		if (in == null) {
+			Log.d(LOG_TAG, "Route " + key + " not cached, downloading it");
+			InputStream download = new URL(url).openStream();
+			boolean stored;
+			try {
+				stored = cache.put(key, download);
+			} finally {
+				download.close();
+			}
+			in = stored ? cache.open(key) : null;
+			if (in == null) {
+				// e.g. the disk is full, so the route is read without the cache:
+				Log.w(LOG_TAG, "Route " + key + " could not be cached");
+				return openUrl(url);
+			}
+		}
+		return new InputStreamReader(in, "UTF-8");
+	}
+
+	private static Reader openUrl(String url) throws IOException {
+		return new InputStreamReader(new BufferedInputStream(new URL(url)
+				.openStream()), "UTF-8");
+	}
+
+	/**
+	 * @param routeCache
+	 *            if not null the routes loaded by
+	 *            {@link #getPathFromAtoB(GeoObj, GeoObj, boolean, NodeListener, EdgeListener)}
+	 *            are stored there and the same routes are not downloaded
+	 *            again
+	 */
+	public void setRouteCache(RouteCache routeCache) {
+		myRouteCache = routeCache;
+	}
+
 	@Deprecated
 	private Document getDocumentFromUrl(String url) throws IOException,
 			MalformedURLException, ProtocolException,
@@ -0,0 +1,145 @@
+package geo;
+
+/**
+ * A binary min heap of node indices with float keys which supports
+ * decreasing the key of a contained node. It is used by the searches of the
+ * {@link RoutingGraph} and the {@link ContractionHierarchy}. Clearing the heap
+ * is O(1), so it can be reused for many searches.
+ *
+ * @author Spobo
+ *
+ */
+class NodeHeap {
+
+	private final int[] myHeap;
+	private final float[] myKeys;
+	/**
+	 * the position of each node in the heap, only valid if
+	 * {@link #contains(int)} is true
+	 */
+	private final int[] myPositions;
+	private int mySize;
+
+	/**
+	 * @param nodeCount
+	 *            the node indices have to be smaller than this
+	 */
+	NodeHeap(int nodeCount) {
+		myHeap = new int[nodeCount];
+		myKeys = new float[nodeCount];
+		myPositions = new int[nodeCount];
+	}
+
+	void clear() {
+		mySize = 0;
+	}
+
+	boolean isEmpty() {
+		return mySize == 0;
+	}
+
+	int size() {
+		return mySize;
+	}
+
+	boolean contains(int node) {
+		final int i = myPositions[node];
+		return i < mySize && myHeap[i] == node;
+	}
+
+	/**
+	 * @return the smallest key, the heap must not be empty
+	 */
+	float peekKey() {
+		return myKeys[0];
+	}
+
+	float getKey(int node) {
+		return myKeys[myPositions[node]];
+	}
+
+	/**
+	 * Adds the node or changes its key if it is already in the heap
+	 */
+	void put(int node, float key) {
+		if (contains(node)) {
+			final int i = myPositions[node];
+			final float old = myKeys[i];
+			myKeys[i] = key;
+			if (key < old) {
+				siftUp(i);
+			} else {
+				siftDown(i);
+			}
+			return;
+		}
+		final int i = mySize++;
+		myHeap[i] = node;
+		myKeys[i] = key;
+		myPositions[node] = i;
+		siftUp(i);
+	}
+
+	/**
+	 * @return the node with the smallest key, the heap must not be empty
+	 */
+	int pop() {
+		final int top = myHeap[0];
+		final int last = --mySize;
+		if (last > 0) {
+			myHeap[0] = myHeap[last];
+			myKeys[0] = myKeys[last];
+			myPositions[myHeap[0]] = 0;
+			siftDown(0);
+		}
+		return top;
+	}
+
+	private void siftUp(int i) {
+		final int[] heap = myHeap;
+		final float[] keys = myKeys;
+		final int node = heap[i];
+		final float key = keys[i];
+		while (i > 0) {
+			final int parent = (i - 1) >> 1;
+			if (keys[parent] <= key) {
+				break;
+			}
+			heap[i] = heap[parent];
+			keys[i] = keys[parent];
+			myPositions[heap[i]] = i;
+			i = parent;
+		}
+		heap[i] = node;
+		keys[i] = key;
+		myPositions[node] = i;
+	}
+
+	private void siftDown(int i) {
+		final int[] heap = myHeap;
+		final float[] keys = myKeys;
+		final int size = mySize;
+		final int node = heap[i];
+		final float key = keys[i];
+		while (true) {
+			int child = 2 * i + 1;
+			if (child >= size) {
+				break;
+			}
+			if (child + 1 < size && keys[child + 1] < keys[child]) {
+				child++;
+			}
+			if (keys[child] >= key) {
+				break;
+			}
+			heap[i] = heap[child];
+			keys[i] = keys[child];
+			myPositions[heap[i]] = i;
+			i = child;
+		}
+		heap[i] = node;
+		keys[i] = key;
+		myPositions[node] = i;
+	}
+
+}
@@ -0,0 +1,164 @@
+package geo;
+
+import gl.Color;
+import gl.GLCamera;
+import gl.GLFactory;
+import gl.Renderable;
+import gl.scenegraph.MeshComponent;
+
+import javax.microedition.khronos.opengles.GL10;
+
+import util.EfficientList;
+import util.Vec;
+import worlddata.Updateable;
+
+/**
+ * Draws all edges of a path {@link GeoGraph} with one ribbon mesh instead of
+ * one mesh per edge, see {@link GeoGraph#usePathMesh(GLCamera, Color)}. The
+ * path is simplified with a {@link PathSimplifier}, the further away the
+ * camera is the less points are used. The mesh is only recreated when the
+ * tolerance for the camera distance changes by more than a factor of 2 or
+ * the nodes of the path change.
+ *
+ * @author Spobo
+ *
+ */
+public class PathMesh extends GeoObj {
+
+	private static final float DEFAULT_WIDTH = 1.8f;
+
+	private final GeoGraph myPath;
+	private final GLCamera myCamera;
+	private final Color myColor;
+	private float myWidth = DEFAULT_WIDTH;
+
+	private volatile boolean pathChanged = true;
+	private PathSimplifier mySimplifier;
+	/**
+	 * the virtual positions of the nodes relative to the first node
+	 */
+	private float[] myPositions;
+	private float myMinX, myMinY, myMaxX, myMaxY;
+	private int[] myIndices;
+	private int myToleranceLevel = Integer.MIN_VALUE;
+
+	/**
+	 * @param path
+	 * @param camera
+	 *            used to adapt the detail level to the distance of the path,
+	 *            if it is null the path is simplified with
+	 *            {@link PathSimplifier#MIN_TOLERANCE}
+	 * @param color
+	 */
+	public PathMesh(GeoGraph path, GLCamera camera, Color color) {
+		super(0, 0, 0, (MeshComponent) null);
+		myPath = path;
+		myCamera = camera;
+		myColor = color;
+	}
+
+	public void setWidth(float width) {
+		myWidth = width;
+		myToleranceLevel = Integer.MIN_VALUE;
+	}
+
+	/**
+	 * Called by the {@link GeoGraph} when its nodes change
+	 */
+	public void setPathChanged() {
+		pathChanged = true;
+	}
+
+	/**
+	 * @return the indices of the nodes of the path which are currently drawn
+	 *         (the order in {@link GeoGraph#getAllItems()})
+	 */
+	public int[] getOriginalIndices() {
+		return myIndices;
+	}
+
+	@Override
+	public boolean update(float timeDelta, Updateable parent) {
+		if (pathChanged) {
+			pathChanged = false;
+			loadPath();
+		}
+		int level = getToleranceLevel();
+		if (level != myToleranceLevel && mySimplifier != null) {
+			myToleranceLevel = level;
+			myIndices = mySimplifier.simplify(PathSimplifier.MIN_TOLERANCE
+					* Math.pow(2, level));
+			setComp(GLFactory.getInstance().newPathRibbon(myPositions,
+					myIndices, myWidth, myColor));
+		}
+		return super.update(timeDelta, parent);
+	}
+
+	@Override
+	public void render(GL10 gl, Renderable parent) {
+		// the mesh is created in the first update:
+		if (mySimplifier != null) {
+			super.render(gl, parent);
+		}
+	}
+
+	private void loadPath() {
+		EfficientList<GeoObj> nodes = myPath.getAllItems();
+		final int count = nodes.myLength;
+		if (count == 0) {
+			mySimplifier = null;
+			myIndices = new int[0];
+			return;
+		}
+		GeoObj first = nodes.get(0);
+		setMyLatitude(first.getLatitude());
+		setMyLongitude(first.getLongitude());
+		setMyAltitude(first.getAltitude());
+		refreshVirtualPosition();
+
+		GeoProjection p = new GeoProjection(first.getLatitude(),
+				first.getLongitude(), first.getAltitude());
+		double[] x = new double[count];
+		double[] y = new double[count];
+		float[] positions = new float[3 * count];
+		Vec v = new Vec();
+		myMinX = myMinY = Float.MAX_VALUE;
+		myMaxX = myMaxY = -Float.MAX_VALUE;
+		for (int i = 0; i < count; i++) {
+			p.project(nodes.get(i), v);
+			x[i] = positions[3 * i] = v.x;
+			y[i] = positions[3 * i + 1] = v.y;
+			positions[3 * i + 2] = v.z;
+			myMinX = Math.min(myMinX, v.x);
+			myMinY = Math.min(myMinY, v.y);
+			myMaxX = Math.max(myMaxX, v.x);
+			myMaxY = Math.max(myMaxY, v.y);
+		}
+		myPositions = positions;
+		mySimplifier = new PathSimplifier(x, y, count);
+		myToleranceLevel = Integer.MIN_VALUE;
+	}
+
+	/**
+	 * @return the tolerance as a power of 2 of the
+	 *         {@link PathSimplifier#MIN_TOLERANCE}
+	 */
+	private int getToleranceLevel() {
+		if (myCamera == null || mySimplifier == null) {
+			return 0;
+		}
+		Vec camera = myCamera.getPosition();
+		Vec origin = getMySurroundGroup().getPosition();
+		// the distance to the bounding box of the path:
+		final float cx = camera.x - origin.x;
+		final float cy = camera.y - origin.y;
+		final float dx = Math.max(0, Math.max(myMinX - cx, cx - myMaxX));
+		final float dy = Math.max(0, Math.max(myMinY - cy, cy - myMaxY));
+		final double tolerance = PathSimplifier.getTolerance(Math.sqrt(dx * dx
+				+ dy * dy));
+		return (int) Math.floor(Math.log(tolerance
+				/ PathSimplifier.MIN_TOLERANCE)
+				/ Math.log(2));
+	}
+
+}
@@ -0,0 +1,178 @@
+package geo;
+
+/**
+ * Douglas-Peucker simplification of a path (e.g. a route or a recorded
+ * track). The importance of each point is calculated once: it is the tolerance
+ * up to which the Douglas-Peucker algorithm would keep the point. After this
+ * the path can be simplified for any tolerance with one pass over the points,
+ * so the tolerance can change with the camera distance (see
+ * {@link #getTolerance(double)}) without running the algorithm again.
+ *
+ * The simplified paths are returned as the indices of the original points,
+ * the first and the last point are always kept.
+ *
+ * @author Spobo
+ *
+ */
+public class PathSimplifier {
+
+	/**
+	 * about the size of one pixel per meter distance to the camera (60 degree
+	 * field of view, 500 pixels)
+	 */
+	public static final double TOLERANCE_PER_METER = 0.0025;
+	/**
+	 * in meters, smaller deviations are always removed
+	 */
+	public static final double MIN_TOLERANCE = 0.5;
+
+	private final double[] myImportance;
+
+	/**
+	 * @param x
+	 *            the positions of the points in meters in a plane
+	 * @param y
+	 * @param count
+	 *            the number of points
+	 */
+	public PathSimplifier(double[] x, double[] y, int count) {
+		myImportance = calcImportance(x, y, count);
+	}
+
+	/**
+	 * The positions are projected onto a plane around the first point
+	 *
+	 * @return a simplifier for a path of GPS positions
+	 */
+	public static PathSimplifier fromGeoPositions(double[] latitudes,
+			double[] longitudes, int count) {
+		double[] x = new double[count];
+		double[] y = new double[count];
+		if (count > 0) {
+			final double scale = GeoProjection.METERS_PER_DEGREE_LONGITUDE_AT_EQUATOR
+					* GeoDistance.getLongitudeScale(latitudes[0]);
+			for (int i = 0; i < count; i++) {
+				double dLng = longitudes[i] - longitudes[0];
+				// the shorter way around the date line:
+				if (dLng > 180) {
+					dLng -= 360;
+				} else if (dLng < -180) {
+					dLng += 360;
+				}
+				x[i] = dLng * scale;
+				y[i] = (latitudes[i] - latitudes[0])
+						* GeoProjection.METERS_PER_DEGREE_LATITUDE;
+			}
+		}
+		return new PathSimplifier(x, y, count);
+	}
+
+	/**
+	 * @param cameraDistance
+	 *            the distance of the camera to the path in meters
+	 * @return the tolerance which removes the details which would be smaller
+	 *         than about one pixel
+	 */
+	public static double getTolerance(double cameraDistance) {
+		return Math.max(MIN_TOLERANCE, cameraDistance * TOLERANCE_PER_METER);
+	}
+
+	public int getPointCount() {
+		return myImportance.length;
+	}
+
+	/**
+	 * @return the tolerance up to which the point is kept,
+	 *         {@link Double#POSITIVE_INFINITY} for the first and last point
+	 */
+	public double getImportance(int i) {
+		return myImportance[i];
+	}
+
+	/**
+	 * @return the number of points of the path simplified with this tolerance
+	 */
+	public int getSimplifiedCount(double tolerance) {
+		int count = 0;
+		for (int i = 0; i < myImportance.length; i++) {
+			if (myImportance[i] > tolerance) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * @param tolerance
+	 *            in meters, no removed point is further away than this from
+	 *            the simplified path
+	 * @return the indices of the kept points in ascending order
+	 */
+	public int[] simplify(double tolerance) {
+		int[] result = new int[getSimplifiedCount(tolerance)];
+		int j = 0;
+		for (int i = 0; i < myImportance.length; i++) {
+			if (myImportance[i] > tolerance) {
+				result[j++] = i;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * The Douglas-Peucker algorithm with a stack instead of recursion. A
+	 * point is only kept if the point which split its part of the path is
+	 * kept as well, so its importance can't be bigger than the importance of
+	 * this point
+	 */
+	private static double[] calcImportance(double[] x, double[] y, int count) {
+		double[] importance = new double[count];
+		if (count == 0) {
+			return importance;
+		}
+		importance[0] = Double.POSITIVE_INFINITY;
+		importance[count - 1] = Double.POSITIVE_INFINITY;
+		int[] stack = new int[2 * count];
+		int top = 0;
+		stack[top++] = 0;
+		stack[top++] = count - 1;
+		while (top > 0) {
+			final int end = stack[--top];
+			final int start = stack[--top];
+			if (end - start < 2) {
+				continue;
+			}
+			int split = -1;
+			double maxDistance2 = -1;
+			for (int i = start + 1; i < end; i++) {
+				double d2 = getSegmentDistance2(x, y, start, end, i);
+				if (d2 > maxDistance2) {
+					maxDistance2 = d2;
+					split = i;
+				}
+			}
+			importance[split] = Math.min(Math.sqrt(maxDistance2), Math.min(
+					importance[start], importance[end]));
+			stack[top++] = start;
+			stack[top++] = split;
+			stack[top++] = split;
+			stack[top++] = end;
+		}
+		return importance;
+	}
+
+	private static double getSegmentDistance2(double[] x, double[] y, int a,
+			int b, int p) {
+		final double dx = x[b] - x[a];
+		final double dy = y[b] - y[a];
+		final double px = x[p] - x[a];
+		final double py = y[p] - y[a];
+		final double length2 = dx * dx + dy * dy;
+		double t = length2 > 0 ? (px * dx + py * dy) / length2 : 0;
+		t = Math.max(0, Math.min(1, t));
+		final double ex = px - t * dx;
+		final double ey = py - t * dy;
+		return ex * ex + ey * ey;
+	}
+
+}
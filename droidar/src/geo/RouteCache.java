@@ -0,0 +1,253 @@
+package geo;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import util.Log;
+
+/**
+ * Stores the responses of the directions service on the disk so that the same
+ * route does not have to be downloaded again, see
+ * {@link GeoUtils#setRouteCache(RouteCache)}. The start and destination
+ * positions are rounded to about 10 meters for the key, so a route which is
+ * requested again from nearly the same position is found too.
+ *
+ * If there are more than the maximum number of routes, the least recently
+ * used one is deleted. The order is stored as the modification date of the
+ * files, so it is kept when the app is restarted.
+ *
+ * @author Spobo
+ *
+ */
+public class RouteCache {
+
+	private static final String LOG_TAG = "RouteCache";
+	private static final String FILE_ENDING = ".route";
+	private static final String TEMP_FILE_ENDING = ".tmp";
+	/**
+	 * 1/10000 degree is about 11 meters
+	 */
+	private static final double QUANTIZATION = 10000;
+
+	private final File myDir;
+	private final int myMaxEntries;
+	/**
+	 * the keys in access order, the least recently used one first
+	 */
+	private LinkedHashMap<String, File> myEntries;
+	private long myLastUseTime;
+
+	/**
+	 * @param cacheDir
+	 *            e.g. a sub directory of
+	 *            {@link android.content.Context#getCacheDir()}
+	 * @param maxEntries
+	 *            the maximum number of stored routes
+	 */
+	public RouteCache(File cacheDir, int maxEntries) {
+		myDir = cacheDir;
+		myMaxEntries = Math.max(1, maxEntries);
+		if (!myDir.exists() && !myDir.mkdirs()) {
+			Log.e(LOG_TAG, "Could not create cache dir " + myDir);
+		}
+	}
+
+	public static String getKey(GeoObj startPos, GeoObj destPos, boolean byWalk) {
+		return getKey(startPos.getLatitude(), startPos.getLongitude(),
+				destPos.getLatitude(), destPos.getLongitude(), byWalk);
+	}
+
+	/**
+	 * @return a key which is the same for all positions in the same 1/10000
+	 *         degree cells and the same travel mode
+	 */
+	public static String getKey(double startLatitude, double startLongitude,
+			double destLatitude, double destLongitude, boolean byWalk) {
+		return (byWalk ? "walk_" : "drive_") + quantize(startLatitude) + "_"
+				+ quantize(startLongitude) + "_" + quantize(destLatitude)
+				+ "_" + quantize(destLongitude);
+	}
+
+	private static long quantize(double degrees) {
+		return Math.round(degrees * QUANTIZATION);
+	}
+
+	public synchronized boolean contains(String key) {
+		return getEntries().containsKey(key);
+	}
+
+	/**
+	 * @param key
+	 * @return the stored response or null if there is none. The route is
+	 *         marked as used
+	 */
+	public synchronized InputStream open(String key) {
+		File f = getEntries().get(key);
+		if (f == null) {
+			return null;
+		}
+		try {
+			InputStream in = new BufferedInputStream(new FileInputStream(f));
+			f.setLastModified(nextUseTime());
+			return in;
+		} catch (FileNotFoundException e) {
+			Log.w(LOG_TAG, "Cached route " + f + " was deleted");
+			myEntries.remove(key);
+			return null;
+		}
+	}
+
+	/**
+	 * Copies the stream to the disk. If there are too many routes now the
+	 * least recently used ones are deleted. The stream is copied without
+	 * holding the lock, so a slow download does not block the other routes
+	 *
+	 * @param key
+	 * @param in
+	 *            will not be closed
+	 * @return false if the stream could not be copied
+	 */
+	public boolean put(String key, InputStream in) {
+		// loads the old entries, which also deletes the old temp files:
+		synchronized (this) {
+			getEntries();
+		}
+		// the route is not visible before it is complete:
+		File temp = null;
+		OutputStream out = null;
+		try {
+			// each download gets its own file if a key is loaded twice:
+			temp = File.createTempFile(key + "_", TEMP_FILE_ENDING, myDir);
+			out = new BufferedOutputStream(new FileOutputStream(temp));
+			byte[] buffer = new byte[8192];
+			int n;
+			while ((n = in.read(buffer)) != -1) {
+				out.write(buffer, 0, n);
+			}
+			out.close();
+			out = null;
+		} catch (IOException e) {
+			Log.w(LOG_TAG, "Could not store route " + key + ": " + e);
+			close(out);
+			if (temp != null) {
+				temp.delete();
+			}
+			return false;
+		}
+		return addEntry(key, temp);
+	}
+
+	private synchronized boolean addEntry(String key, File temp) {
+		File f = getFile(key);
+		if ((f.exists() && !f.delete()) || !temp.renameTo(f)) {
+			Log.w(LOG_TAG, "Could not rename " + temp);
+			temp.delete();
+			return false;
+		}
+		f.setLastModified(nextUseTime());
+		getEntries().remove(key);
+		myEntries.put(key, f);
+		removeOldEntries();
+		return true;
+	}
+
+	public synchronized boolean remove(String key) {
+		File f = getEntries().remove(key);
+		return f != null && f.delete();
+	}
+
+	public synchronized int size() {
+		return getEntries().size();
+	}
+
+	/**
+	 * deletes all stored routes
+	 */
+	public synchronized void clear() {
+		for (File f : getEntries().values()) {
+			f.delete();
+		}
+		myEntries.clear();
+	}
+
+	private void removeOldEntries() {
+		Iterator<File> i = myEntries.values().iterator();
+		while (myEntries.size() > myMaxEntries && i.hasNext()) {
+			File f = i.next();
+			i.remove();
+			if (!f.delete()) {
+				Log.w(LOG_TAG, "Could not delete old route " + f);
+			}
+		}
+	}
+
+	/**
+	 * the routes stored by earlier sessions are loaded the first time they are
+	 * needed
+	 */
+	private LinkedHashMap<String, File> getEntries() {
+		if (myEntries == null) {
+			myEntries = new LinkedHashMap<String, File>(16, 0.75f, true);
+			File[] files = myDir.listFiles();
+			if (files != null) {
+				Arrays.sort(files, new Comparator<File>() {
+					@Override
+					public int compare(File a, File b) {
+						long d = a.lastModified() - b.lastModified();
+						return d < 0 ? -1 : d > 0 ? 1 : 0;
+					}
+				});
+				for (File f : files) {
+					String name = f.getName();
+					if (name.endsWith(FILE_ENDING)) {
+						myEntries.put(name.substring(0, name.length()
+								- FILE_ENDING.length()), f);
+						myLastUseTime = Math.max(myLastUseTime,
+								f.lastModified());
+					} else if (name.endsWith(TEMP_FILE_ENDING)) {
+						// an incomplete download of an earlier session:
+						f.delete();
+					}
+				}
+			}
+			removeOldEntries();
+		}
+		return myEntries;
+	}
+
+	/**
+	 * each use gets a different time so that the order is kept even if
+	 * several routes are used in the same millisecond
+	 */
+	private long nextUseTime() {
+		myLastUseTime = Math.max(System.currentTimeMillis(), myLastUseTime + 1);
+		return myLastUseTime;
+	}
+
+	private File getFile(String key) {
+		return new File(myDir, key + FILE_ENDING);
+	}
+
+	private static void close(Closeable c) {
+		if (c != null) {
+			try {
+				c.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+}
@@ -0,0 +1,332 @@
+package geo;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Reads the coordinates of a route from a KML document (like the ones the
+ * directions service returns, see
+ * {@link GeoUtils#getPathFromAtoB(GeoObj, GeoObj, boolean)}) while it is
+ * downloaded. Only the coordinates of the first GeometryCollection are read
+ * and no document tree or strings are created for them:
+ *
+ * <pre>
+ * RouteParser p = new RouteParser(reader);
+ * while (p.next()) {
+ * 	p.getLatitude() ...
+ * }
+ * </pre>
+ *
+ * @author Spobo
+ *
+ */
+public class RouteParser {
+
+	private static final String ROUTE_TAG = "GeometryCollection";
+	private static final String COORDINATES_TAG = "coordinates";
+	/**
+	 * 10^i can be stored exactly in a double up to 10^22
+	 */
+	private static final double[] POWERS_OF_TEN = new double[23];
+	private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+	static {
+		POWERS_OF_TEN[0] = 1;
+		for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+			POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+		}
+	}
+
+	private final Reader myIn;
+	private final char[] myBuffer = new char[8192];
+	private int myPos;
+	private int myEnd;
+	private final StringBuilder myTagName = new StringBuilder();
+	private final StringBuilder myNumber = new StringBuilder();
+	private final double[] myValues = new double[3];
+
+	private boolean routeFound;
+	private boolean searched;
+	private boolean finished;
+	private double myLatitude;
+	private double myLongitude;
+	private double myAltitude;
+
+	public RouteParser(Reader in) {
+		myIn = in;
+	}
+
+	/**
+	 * Skips everything up to the coordinates of the route. This is done by the
+	 * first {@link #next()} call automatically
+	 *
+	 * @return false if the document does not contain a route
+	 * @throws IOException
+	 */
+	public boolean findRoute() throws IOException {
+		if (searched) {
+			return routeFound;
+		}
+		searched = true;
+		boolean inRoute = false;
+		int c;
+		while ((c = read()) != -1) {
+			if (c != '<') {
+				continue;
+			}
+			if (peek() == '!' || peek() == '?') {
+				skipSpecialTag();
+				continue;
+			}
+			readTagName();
+			skipTo('>');
+			if (!inRoute) {
+				inRoute = isTag(ROUTE_TAG);
+			} else if (isTag(COORDINATES_TAG)) {
+				routeFound = true;
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return true if the next point of the route was read, false if the end
+	 *         of the route was reached
+	 * @throws IOException
+	 *             if the document could not be read or contains an invalid
+	 *             coordinate
+	 */
+	public boolean next() throws IOException {
+		if (finished || !findRoute()) {
+			return false;
+		}
+		int count = readTuple();
+		if (count < 2) {
+			finished = true;
+			return false;
+		}
+		myLongitude = myValues[0];
+		myLatitude = myValues[1];
+		myAltitude = count > 2 ? myValues[2] : 0;
+		return true;
+	}
+
+	public double getLatitude() {
+		return myLatitude;
+	}
+
+	public double getLongitude() {
+		return myLongitude;
+	}
+
+	public double getAltitude() {
+		return myAltitude;
+	}
+
+	/**
+	 * Builds a path like {@link GeoUtils#getPathFromAtoB(GeoObj, GeoObj, boolean)}
+	 * does it: the first point of the route is replaced by the start position
+	 * and the destination is added as the last node. The nodes and edges are
+	 * passed to the listeners while the route is read
+	 *
+	 * @param kml
+	 * @param startPos
+	 * @param destPos
+	 * @param nodeListener
+	 * @param edgeListener
+	 * @return the path or null if the document does not contain a route
+	 * @throws IOException
+	 */
+	public static GeoGraph readPath(Reader kml, GeoObj startPos,
+			GeoObj destPos, NodeListener nodeListener, EdgeListener edgeListener)
+			throws IOException {
+		RouteParser p = new RouteParser(kml);
+		if (!p.findRoute()) {
+			return null;
+		}
+		GeoGraph result = new GeoGraph();
+		result.getInfoObject().setShortDescr(
+				"Resulting graph for "
+						+ destPos.getInfoObject().getShortDescr());
+		result.setIsPath(true);
+		result.setNonDirectional(false);
+
+		nodeListener.addFirstNodeToGraph(result, startPos);
+		// the first point is the start position:
+		p.next();
+		GeoObj lastPoint = startPos;
+		while (p.next()) {
+			if (p.getLatitude() == lastPoint.getLatitude()
+					&& p.getLongitude() == lastPoint.getLongitude()) {
+				continue;
+			}
+			GeoObj currentPoint = new GeoObj(p.getLatitude(),
+					p.getLongitude(), p.getAltitude());
+			nodeListener.addNodeToGraph(result, currentPoint);
+			edgeListener.addEdgeToGraph(result, lastPoint, currentPoint);
+			lastPoint = currentPoint;
+		}
+		if (!lastPoint.hasSameCoordsAs(destPos)) {
+			// add the egde to the past point:
+			edgeListener.addEdgeToGraph(result, lastPoint, destPos);
+		}
+		nodeListener.addNodeToGraph(result, destPos);
+		return result;
+	}
+
+	private boolean isTag(String name) {
+		// namespace prefixes are ignored:
+		int start = myTagName.lastIndexOf(":") + 1;
+		if (myTagName.length() - start != name.length()) {
+			return false;
+		}
+		for (int i = 0; i < name.length(); i++) {
+			if (myTagName.charAt(start + i) != name.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void readTagName() throws IOException {
+		myTagName.setLength(0);
+		int c;
+		while ((c = peek()) != -1 && c != '>' && c != '/'
+				&& !Character.isWhitespace(c)) {
+			myTagName.append((char) read());
+		}
+	}
+
+	/**
+	 * comments, processing instructions and declarations
+	 */
+	private void skipSpecialTag() throws IOException {
+		if (read() == '!' && peek() == '-') {
+			// a comment can contain '>', so search for "-->":
+			int dashes = 0;
+			int c;
+			while ((c = read()) != -1) {
+				if (c == '>' && dashes >= 2) {
+					return;
+				}
+				dashes = c == '-' ? dashes + 1 : 0;
+			}
+			return;
+		}
+		skipTo('>');
+	}
+
+	private void skipTo(char end) throws IOException {
+		int c;
+		while ((c = read()) != -1 && c != end) {
+		}
+	}
+
+	/**
+	 * reads "longitude,latitude[,altitude]"
+	 *
+	 * @return the number of values or 0 if the end of the coordinates is
+	 *         reached
+	 */
+	private int readTuple() throws IOException {
+		int c;
+		while ((c = peek()) != -1 && Character.isWhitespace(c)) {
+			read();
+		}
+		if (c == -1 || c == '<') {
+			return 0;
+		}
+		int count = 0;
+		while (true) {
+			if (count == myValues.length) {
+				throw new IOException("Too many values in coordinate");
+			}
+			myValues[count++] = readNumber();
+			if (peek() != ',') {
+				return count;
+			}
+			read();
+		}
+	}
+
+	private double readNumber() throws IOException {
+		boolean negative = false;
+		if (peek() == '-' || peek() == '+') {
+			negative = read() == '-';
+		}
+		long mantissa = 0;
+		int decimals = 0;
+		int digits = 0;
+		boolean dot = false;
+		boolean exact = true;
+		myNumber.setLength(0);
+		int c;
+		while ((c = peek()) != -1) {
+			if (c >= '0' && c <= '9') {
+				if (mantissa < MAX_EXACT_MANTISSA / 10) {
+					mantissa = mantissa * 10 + (c - '0');
+					if (dot) {
+						decimals++;
+					}
+				} else {
+					exact = false;
+				}
+				digits++;
+			} else if (c == '.' && !dot) {
+				dot = true;
+			} else if (c == 'e' || c == 'E' || c == '-' || c == '+') {
+				exact = false;
+			} else {
+				break;
+			}
+			myNumber.append((char) read());
+		}
+		if (digits == 0) {
+			throw new IOException("Invalid coordinate value '" + myNumber
+					+ "'");
+		}
+		double value;
+		if (exact && decimals < POWERS_OF_TEN.length) {
+			/*
+			 * both values are exact doubles and the division is rounded
+			 * correctly, so the result is the same as the one of
+			 * Double.parseDouble:
+			 */
+			value = mantissa / POWERS_OF_TEN[decimals];
+		} else {
+			try {
+				value = Double.parseDouble(myNumber.toString());
+			} catch (NumberFormatException e) {
+				throw new IOException("Invalid coordinate value '" + myNumber
+						+ "'");
+			}
+		}
+		return negative ? -value : value;
+	}
+
+	private int peek() throws IOException {
+		if (myPos == myEnd && !fill()) {
+			return -1;
+		}
+		return myBuffer[myPos];
+	}
+
+	private int read() throws IOException {
+		if (myPos == myEnd && !fill()) {
+			return -1;
+		}
+		return myBuffer[myPos++];
+	}
+
+	private boolean fill() throws IOException {
+		myEnd = myIn.read(myBuffer, 0, myBuffer.length);
+		myPos = 0;
+		if (myEnd <= 0) {
+			myEnd = 0;
+			return false;
+		}
+		return true;
+	}
+
+}
@@ -0,0 +1,295 @@
+package geo;
+
+import java.util.Arrays;
+
+import util.Log;
+
+/**
+ * A packed copy of the nodes and edges of a {@link GeoGraph} for fast shortest
+ * path searches. The outgoing edges of all nodes are stored in one array
+ * (compressed sparse rows): the edges of node i are at the positions
+ * myEdgeStart[i] to myEdgeStart[i+1]-1 of {@link #myTargets} and
+ * {@link #myWeights}. Nodes are identified by their index, which is the
+ * position of the node in the {@link GeoGraph}.
+ *
+ * Dijkstra and A* use a binary heap, the working arrays are reused for all
+ * searches so a search does not allocate anything except the resulting path.
+ * A {@link RoutingGraph} is not changed after it was built, the
+ * {@link GeoGraph} creates a new one when its nodes or edges changed.
+ *
+ * @author Spobo
+ *
+ */
+public class RoutingGraph {
+
+	private static final String LOG_TAG = "RoutingGraph";
+
+	private static final double EARTH_RADIUS = 6371000;
+	/**
+	 * the edge weights are floats and can be a little shorter than the
+	 * haversine distance because of rounding, so the A* estimate is reduced a
+	 * bit to stay below the real distance
+	 */
+	private static final float HEURISTIC_FACTOR = 0.999f;
+
+	final int myNodeCount;
+	final int[] myEdgeStart;
+	final int[] myTargets;
+	final float[] myWeights;
+	private final double[] myLatitudes;
+	private final double[] myLongitudes;
+	private final double[] myCosLatitudes;
+
+	// the working arrays of the searches, valid if the stamp is current:
+	private final float[] myDistances;
+	private final int[] myPrevious;
+	private final int[] myReachedStamp;
+	private final int[] mySettledStamp;
+	private final NodeHeap myHeap;
+	private int myStamp;
+
+	// metrics of the last search:
+	private int mySettledCount;
+	private float myLastPathLength;
+
+	private RoutingGraph(int nodeCount, int[] edgeStart, int[] targets,
+			float[] weights, double[] latitudes, double[] longitudes) {
+		myNodeCount = nodeCount;
+		myEdgeStart = edgeStart;
+		myTargets = targets;
+		myWeights = weights;
+		myLatitudes = new double[nodeCount];
+		myLongitudes = new double[nodeCount];
+		myCosLatitudes = new double[nodeCount];
+		for (int i = 0; i < nodeCount; i++) {
+			myLatitudes[i] = Math.toRadians(latitudes[i]);
+			myLongitudes[i] = Math.toRadians(longitudes[i]);
+			myCosLatitudes[i] = Math.cos(myLatitudes[i]);
+		}
+		myDistances = new float[nodeCount];
+		myPrevious = new int[nodeCount];
+		myReachedStamp = new int[nodeCount];
+		mySettledStamp = new int[nodeCount];
+		myHeap = new NodeHeap(nodeCount);
+	}
+
+	/**
+	 * @param latitudes
+	 *            in degree, one value per node
+	 * @param longitudes
+	 *            in degree, one value per node
+	 * @param from
+	 *            the start node index of each edge
+	 * @param to
+	 *            the end node index of each edge
+	 * @param weights
+	 *            the length of each edge in meters, for A* it must not be
+	 *            shorter than the distance between the nodes
+	 * @param edgeCount
+	 *            the number of used values in from, to and weights
+	 * @param directed
+	 *            if false each edge can be used in both directions
+	 * @return the new graph
+	 */
+	public static RoutingGraph build(double[] latitudes, double[] longitudes,
+			int[] from, int[] to, float[] weights, int edgeCount,
+			boolean directed) {
+		final int n = latitudes.length;
+		int[] start = new int[n + 1];
+		// count the outgoing edges of each node:
+		for (int e = 0; e < edgeCount; e++) {
+			start[from[e] + 1]++;
+			if (!directed) {
+				start[to[e] + 1]++;
+			}
+		}
+		for (int i = 0; i < n; i++) {
+			start[i + 1] += start[i];
+		}
+		final int arcCount = start[n];
+		int[] targets = new int[arcCount];
+		float[] arcWeights = new float[arcCount];
+		int[] next = new int[n];
+		System.arraycopy(start, 0, next, 0, n);
+		for (int e = 0; e < edgeCount; e++) {
+			int a = next[from[e]]++;
+			targets[a] = to[e];
+			arcWeights[a] = weights[e];
+			if (!directed) {
+				a = next[to[e]]++;
+				targets[a] = from[e];
+				arcWeights[a] = weights[e];
+			}
+		}
+		return new RoutingGraph(n, start, targets, arcWeights, latitudes,
+				longitudes);
+	}
+
+	public int getNodeCount() {
+		return myNodeCount;
+	}
+
+	/**
+	 * @return the number of directed edges, an undirected edge counts twice
+	 */
+	public int getEdgeCount() {
+		return myTargets.length;
+	}
+
+	/**
+	 * @return a hash of the nodes and edges. Two graphs with the same
+	 *         fingerprint can use the same {@link ContractionHierarchy}
+	 */
+	public long getFingerprint() {
+		long h = 1125899906842597L;
+		h = 31 * h + myNodeCount;
+		for (int i = 0; i < myEdgeStart.length; i++) {
+			h = 31 * h + myEdgeStart[i];
+		}
+		for (int i = 0; i < myTargets.length; i++) {
+			h = 31 * h + myTargets[i];
+			h = 31 * h + Float.floatToIntBits(myWeights[i]);
+		}
+		return h;
+	}
+
+	/**
+	 * @param start
+	 * @param target
+	 * @return the node indices of the shortest path from start to target
+	 *         (including both) or null if there is no path
+	 */
+	public synchronized int[] dijkstra(int start, int target) {
+		return search(start, target, false);
+	}
+
+	/**
+	 * Like {@link #dijkstra(int, int)} but the haversine distance to the target
+	 * is used to visit the nodes in the direction of the target first, so far
+	 * less nodes have to be visited
+	 *
+	 * @param start
+	 * @param target
+	 * @return the node indices of the shortest path or null if there is no
+	 *         path
+	 */
+	public synchronized int[] aStar(int start, int target) {
+		return search(start, target, true);
+	}
+
+	private int[] search(int start, int target, boolean useHeuristic) {
+		if (start < 0 || start >= myNodeCount || target < 0
+				|| target >= myNodeCount) {
+			Log.e(LOG_TAG, "Node index out of range: start=" + start
+					+ ", target=" + target);
+			return null;
+		}
+		nextStamp();
+		final NodeHeap heap = myHeap;
+		heap.clear();
+		mySettledCount = 0;
+		myLastPathLength = -1;
+		final int stamp = myStamp;
+		final float[] dist = myDistances;
+		final int[] edgeStart = myEdgeStart;
+		final int[] targets = myTargets;
+		final float[] weights = myWeights;
+
+		dist[start] = 0;
+		myPrevious[start] = -1;
+		myReachedStamp[start] = stamp;
+		heap.put(start, useHeuristic ? estimate(start, target) : 0);
+		while (!heap.isEmpty()) {
+			final int node = heap.pop();
+			mySettledStamp[node] = stamp;
+			mySettledCount++;
+			if (node == target) {
+				myLastPathLength = dist[node];
+				return buildPath(target);
+			}
+			final float d = dist[node];
+			for (int a = edgeStart[node], end = edgeStart[node + 1]; a < end; a++) {
+				final int t = targets[a];
+				if (mySettledStamp[t] == stamp) {
+					continue;
+				}
+				final float newDist = d + weights[a];
+				if (myReachedStamp[t] != stamp) {
+					myReachedStamp[t] = stamp;
+					dist[t] = newDist;
+					myPrevious[t] = node;
+					heap.put(t, newDist
+							+ (useHeuristic ? estimate(t, target) : 0));
+				} else if (newDist < dist[t]) {
+					final float decrease = dist[t] - newDist;
+					dist[t] = newDist;
+					myPrevious[t] = node;
+					heap.put(t, heap.getKey(t) - decrease);
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * increases the stamp so that all working arrays are invalid without
+	 * clearing them
+	 */
+	private void nextStamp() {
+		myStamp++;
+		if (myStamp == Integer.MAX_VALUE) {
+			Arrays.fill(myReachedStamp, 0);
+			Arrays.fill(mySettledStamp, 0);
+			myStamp = 1;
+		}
+	}
+
+	private int[] buildPath(int target) {
+		int length = 0;
+		for (int n = target; n != -1; n = myPrevious[n]) {
+			length++;
+		}
+		int[] path = new int[length];
+		for (int n = target; n != -1; n = myPrevious[n]) {
+			path[--length] = n;
+		}
+		return path;
+	}
+
+	/**
+	 * @return the haversine distance between the nodes in meters
+	 */
+	public float getDistance(int a, int b) {
+		return (float) haversine(a, b);
+	}
+
+	private float estimate(int node, int target) {
+		return (float) haversine(node, target) * HEURISTIC_FACTOR;
+	}
+
+	private double haversine(int a, int b) {
+		final double sinLat = Math.sin((myLatitudes[b] - myLatitudes[a]) / 2);
+		final double sinLng = Math
+				.sin((myLongitudes[b] - myLongitudes[a]) / 2);
+		final double h = sinLat * sinLat + myCosLatitudes[a]
+				* myCosLatitudes[b] * sinLng * sinLng;
+		return EARTH_RADIUS * 2 * Math.asin(Math.min(1, Math.sqrt(h)));
+	}
+
+	/**
+	 * @return the number of nodes which were settled in the last search, to
+	 *         compare Dijkstra and A*
+	 */
+	public synchronized int getSettledCountOfLastSearch() {
+		return mySettledCount;
+	}
+
+	/**
+	 * @return the length of the last found path in meters or -1 if no path
+	 *         was found
+	 */
+	public synchronized float getLastPathLength() {
+		return myLastPathLength;
+	}
+
+}
@@ -95,6 +95,9 @@ public class GL1Renderer extends GLRenderer {
 			}
 		}
 
+		// use the newest state published by the update thread for this frame:
+		RenderStateExchange.getInstance().acquire();
+
 		// first check if there are new textures to load into openGL:
 		TextureManager.getInstance().updateTextures(gl); // TODO optimize? check
 															// boolean
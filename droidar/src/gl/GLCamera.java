@@ -52,6 +52,13 @@ public class GLCamera implements Updateable, HasDebugInformation, Renderable,
 	private final float[] mRotDirection = new float[4];
 	private final MoveComp mMover = new MoveComp(3);
 
+	/**
+	 * offset (3), if the offset is set (1), rotation (3), if the rotation is
+	 * set (1) and position (3) at the end of the last update, see
+	 * {@link RenderStateExchange}
+	 */
+	private final RenderSnapshot mSnapshot = new RenderSnapshot(11);
+
 
 	/**
 	 * use a {@link ActionUseCameraAngles2} instead
@@ -100,9 +107,33 @@ public class GLCamera implements Updateable, HasDebugInformation, Renderable,
 			mMover.update(timeDelta, this);
 		}
 
+		if (RenderStateExchange.useSnapshots) {
+			writeSnapshot();
+		}
 		return true;
 	}
 
+	private void writeSnapshot() {
+		float[] s = mSnapshot.getWriteBuffer();
+		s[3] = copyToSnapshot(mOffset, s, 0);
+		s[7] = copyToSnapshot(mRotationVec, s, 4);
+		copyToSnapshot(mPosition, s, 8);
+		mSnapshot.commit();
+	}
+
+	private static float copyToSnapshot(Vec v, float[] s, int i) {
+		if (v == null) {
+			s[i] = 0;
+			s[i + 1] = 0;
+			s[i + 2] = 0;
+			return 0;
+		}
+		s[i] = v.x;
+		s[i + 1] = v.y;
+		s[i + 2] = v.z;
+		return 1;
+	}
+
 	@Override
 	public Vec getRotation() {
 		return mRotationVec;
@@ -317,23 +348,46 @@ public class GLCamera implements Updateable, HasDebugInformation, Renderable,
 	 * @param
 	 */
 	@Override
-	public synchronized void render(GL10 gl, Renderable parent) {
+	public void render(GL10 gl, Renderable parent) {
+
+		float[] s = null;
+		if (RenderStateExchange.useSnapshots) {
+			s = mSnapshot.getReadBuffer();
+		}
 
 		// if the camera sould not be in the center of the rotation it has to be
 		// moved out before rotating:
-		glLoadPosition(gl, mOffset);
+		if (s == null) {
+			glLoadPosition(gl, mOffset);
+		} else if (s[3] != 0) {
+			gl.glTranslatef(-s[0], -s[1], -s[2]);
+		}
 
+		/*
+		 * the rotation matrix comes directly from the sensors and not from the
+		 * update thread so it is not part of the snapshot
+		 */
 		synchronized (mRotMatrLock) {
 			// load rotation matrix:
 			gl.glMultMatrixf(mRotationMatrix, mMatrixOffset);
 		}
 
 		// rotate Camera TODO use for manual rotation:
-		glLoadRotation(gl, mRotationVec);
+		if (s == null) {
+			glLoadRotation(gl, mRotationVec);
+		} else if (s[7] != 0) {
+			gl.glRotatef(s[5], 0, 1, 0);
+			gl.glRotatef(s[4], 1, 0, 0);
+			gl.glRotatef(s[6], 0, 0, 1);
+		}
 
 		// set the point where to rotate around
 		//ARLogger.debug("GLCAMERA","Render Camera Position:\nx:" + mPosition.x+"\ny:"+mPosition.y+"\nz:"+mPosition.z);
-		glLoadPosition(gl, mPosition);
+		if (s == null) {
+			glLoadPosition(gl, mPosition);
+		} else {
+			gl.glTranslatef(-s[8], -s[9], -s[10]);
+		}
 	}
 
 	/*
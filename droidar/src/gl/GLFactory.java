@@ -6,6 +6,7 @@ import gl.animations.AnimationRotate;
 import gl.scenegraph.MeshComponent;
 import gl.scenegraph.MultiColoredShape;
 import gl.scenegraph.Shape;
+import gl.textures.TextureAtlas;
 import gl.textures.TextureManager;
 import gl.textures.Textured2dShape;
 import gl.textures.TexturedRenderData;
@@ -165,6 +166,23 @@ public final class GLFactory {
 	 */
 	public MeshComponent newTexturedSquare(String bitmapName, Bitmap bitmap,
 			float heightInMeters) {
+		return newTexturedSquare(bitmapName, bitmap, heightInMeters, false);
+	}
+
+	/**
+	 * see {@link GLFactory#newTexturedSquare(String, Bitmap, float)}
+	 * 
+	 * @param bitmapName
+	 * @param bitmap
+	 * @param heightInMeters
+	 * @param packIntoAtlas
+	 *            true to pack the bitmap into the {@link TextureAtlas} instead
+	 *            of creating an own texture for it. Recommended for small
+	 *            icons if many of them are displayed
+	 * @return
+	 */
+	public MeshComponent newTexturedSquare(String bitmapName, Bitmap bitmap,
+			float heightInMeters, boolean packIntoAtlas) {
 
 		if (bitmapName == null) {
 			Log.e(LOG_TAG,
@@ -177,7 +195,7 @@ public final class GLFactory {
 			return null;
 		}
 
-		TexturedShape s = new TexturedShape(bitmapName, bitmap);
+		TexturedShape s = new TexturedShape(bitmapName, bitmap, packIntoAtlas);
 		float f = (float) bitmap.getHeight() / (float) bitmap.getWidth();
 		float x = heightInMeters / f;
 
@@ -495,6 +513,58 @@ public final class GLFactory {
 		return s;
 	}
 
+	/**
+	 * A flat band along a complete path, so the path can be drawn with one
+	 * {@link Shape} instead of one {@link Shape} per edge
+	 *
+	 * @param positions
+	 *            the x, y and z values of point i are at 3*i, 3*i+1 and 3*i+2
+	 * @param indices
+	 *            the points which should be connected, e.g. the result of
+	 *            {@link geo.PathSimplifier#simplify(double)}
+	 * @param width
+	 *            the width of the band in meters
+	 * @param c
+	 * @return the band which is lowered a bit like the other path meshes
+	 */
+	public Shape newPathRibbon(float[] positions, int[] indices, float width,
+			Color c) {
+		final float down = 0.5f;
+		final float halfWidth = width / 2;
+		Shape s = new Shape(c);
+		Vec a1 = new Vec(), a2 = new Vec(), b1 = new Vec(), b2 = new Vec();
+		for (int i = 1; i < indices.length; i++) {
+			final int a = 3 * indices[i - 1];
+			final int b = 3 * indices[i];
+			final float dx = positions[b] - positions[a];
+			final float dy = positions[b + 1] - positions[a + 1];
+			final float length = (float) Math.sqrt(dx * dx + dy * dy);
+			if (length == 0) {
+				continue;
+			}
+			// horizontally orthogonal to the segment:
+			final float ox = -dy / length * halfWidth;
+			final float oy = dx / length * halfWidth;
+			a1.setTo(positions[a] - ox, positions[a + 1] - oy,
+					positions[a + 2] - down);
+			a2.setTo(positions[a] + ox, positions[a + 1] + oy,
+					positions[a + 2] - down);
+			b1.setTo(positions[b] - ox, positions[b + 1] - oy,
+					positions[b + 2] - down);
+			b2.setTo(positions[b] + ox, positions[b + 1] + oy,
+					positions[b + 2] - down);
+			s.addFast(a1);
+			s.addFast(a2);
+			s.addFast(b2);
+
+			s.addFast(a1);
+			s.addFast(b2);
+			s.addFast(b1);
+		}
+		s.updateRenderDataManually();
+		return s;
+	}
+
 	public Shape newNSidedPolygon(int numberOfSides, float radius, Color c) {
 		Shape s = new Shape(c);
 
@@ -0,0 +1,114 @@
+package gl;
+
+/**
+ * The render relevant values of one object (e.g. the transformation matrix of
+ * a {@link gl.scenegraph.MeshComponent}) for each slot of the
+ * {@link RenderStateExchange}.
+ *
+ * The update thread fills {@link RenderSnapshot#getWriteBuffer()} and calls
+ * {@link RenderSnapshot#commit()}, the renderer uses
+ * {@link RenderSnapshot#getReadBuffer()}.
+ *
+ * @author Spobo
+ *
+ */
+public class RenderSnapshot {
+
+	private final float[][] mySlots;
+	/**
+	 * the tick in which each slot was written
+	 */
+	private final int[] mySlotTicks = new int[RenderStateExchange.SLOT_COUNT];
+
+	/**
+	 * @param size
+	 *            the number of float values to store
+	 */
+	public RenderSnapshot(int size) {
+		mySlots = new float[RenderStateExchange.SLOT_COUNT][size];
+	}
+
+	/**
+	 * only call this from the update thread
+	 *
+	 * @return the array to write the values of the current tick into
+	 */
+	public float[] getWriteBuffer() {
+		return mySlots[RenderStateExchange.getInstance().getWriteSlot()];
+	}
+
+	/**
+	 * like {@link RenderSnapshot#getWriteBuffer()} for objects with a variable
+	 * number of values. The buffer of the current slot is replaced by a bigger
+	 * one if it has less than minSize values, the other slots are not touched
+	 * because the renderer might read them
+	 *
+	 * @param minSize
+	 * @return the array to write the values of the current tick into
+	 */
+	public float[] getWriteBuffer(int minSize) {
+		int slot = RenderStateExchange.getInstance().getWriteSlot();
+		if (mySlots[slot].length < minSize) {
+			mySlots[slot] = new float[minSize + minSize / 2];
+		}
+		return mySlots[slot];
+	}
+
+	/**
+	 * marks the values in {@link RenderSnapshot#getWriteBuffer()} as complete
+	 */
+	public void commit() {
+		RenderStateExchange e = RenderStateExchange.getInstance();
+		mySlotTicks[e.getWriteSlot()] = e.getWriteTick();
+	}
+
+	/**
+	 * Writes the value as the first value of the current tick and commits it,
+	 * only call this from the update thread
+	 */
+	public void commit(float v0) {
+		getWriteBuffer()[0] = v0;
+		commit();
+	}
+
+	/**
+	 * like {@link RenderSnapshot#commit(float)} for 3 values, e.g. a vector
+	 */
+	public void commit(float v0, float v1, float v2) {
+		float[] s = getWriteBuffer();
+		s[0] = v0;
+		s[1] = v1;
+		s[2] = v2;
+		commit();
+	}
+
+	/**
+	 * like {@link RenderSnapshot#commit(float)} for 4 values, e.g. a color
+	 */
+	public void commit(float v0, float v1, float v2, float v3) {
+		float[] s = getWriteBuffer();
+		s[0] = v0;
+		s[1] = v1;
+		s[2] = v2;
+		s[3] = v3;
+		commit();
+	}
+
+	/**
+	 * only call this from the OpenGL thread
+	 *
+	 * @return the values of the tick which is currently rendered or null if
+	 *         the object was not updated in this tick. Then the live values
+	 *         have to be used
+	 */
+	public float[] getReadBuffer() {
+		RenderStateExchange e = RenderStateExchange.getInstance();
+		int slot = e.getReadSlot();
+		int tick = e.getReadTick();
+		if (tick == 0 || mySlotTicks[slot] != tick) {
+			return null;
+		}
+		return mySlots[slot];
+	}
+
+}
@@ -0,0 +1,106 @@
+package gl;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import worlddata.SystemUpdater;
+
+/**
+ * Hands the render relevant state from the update thread (
+ * {@link SystemUpdater}) to the OpenGL thread without any locks. It is a
+ * triple buffer: The update thread writes the state of the current tick into
+ * the back slot of each {@link RenderSnapshot} and then publishes the whole
+ * tick at once via {@link RenderStateExchange#publish()}. The renderer takes
+ * the newest published tick at the beginning of each frame via
+ * {@link RenderStateExchange#acquire()} and only reads this front slot while
+ * drawing. So the renderer never sees half updated values and both threads
+ * can run in parallel.
+ *
+ * {@link RenderStateExchange#publish()} may only be called by the update
+ * thread and {@link RenderStateExchange#acquire()} only by the OpenGL thread.
+ *
+ * @author Spobo
+ *
+ */
+public class RenderStateExchange {
+
+	/**
+	 * set this to false to let the renderer read the live values of the
+	 * objects again (like it was done before)
+	 */
+	public static boolean useSnapshots = true;
+
+	static final int SLOT_COUNT = 3;
+	private static final int SLOT_MASK = 3;
+	private static final int NEW_DATA_FLAG = 4;
+
+	private static RenderStateExchange instance = new RenderStateExchange();
+
+	/**
+	 * the slot which is neither written nor read at the moment. If
+	 * {@link #NEW_DATA_FLAG} is set it contains a tick the renderer did not
+	 * see yet
+	 */
+	private final AtomicInteger myMiddleSlot = new AtomicInteger(1);
+	/**
+	 * which tick was written into which slot
+	 */
+	private final int[] mySlotTicks = new int[SLOT_COUNT];
+
+	// only used by the update thread:
+	private int myWriteSlot = 0;
+	private int myWriteTick = 1;
+
+	// only used by the OpenGL thread:
+	private int myReadSlot = 2;
+	private int myReadTick = 0;
+
+	public static RenderStateExchange getInstance() {
+		return instance;
+	}
+
+	/**
+	 * Has to be called by the update thread after all objects were updated
+	 * and wrote their {@link RenderSnapshot}s
+	 */
+	public void publish() {
+		mySlotTicks[myWriteSlot] = myWriteTick;
+		myWriteSlot = myMiddleSlot.getAndSet(myWriteSlot | NEW_DATA_FLAG)
+				& SLOT_MASK;
+		myWriteTick++;
+	}
+
+	/**
+	 * Has to be called by the renderer before a frame is drawn
+	 *
+	 * @return true if a new tick was published since the last call
+	 */
+	public boolean acquire() {
+		if ((myMiddleSlot.get() & NEW_DATA_FLAG) == 0) {
+			return false;
+		}
+		myReadSlot = myMiddleSlot.getAndSet(myReadSlot) & SLOT_MASK;
+		myReadTick = mySlotTicks[myReadSlot];
+		return true;
+	}
+
+	int getWriteSlot() {
+		return myWriteSlot;
+	}
+
+	int getWriteTick() {
+		return myWriteTick;
+	}
+
+	int getReadSlot() {
+		return myReadSlot;
+	}
+
+	/**
+	 * @return the tick which is currently drawn by the renderer, 0 if nothing
+	 *         was published yet
+	 */
+	public int getReadTick() {
+		return myReadTick;
+	}
+
+}
@@ -1,5 +1,7 @@
 package gl.animations;
 
+import gl.RenderSnapshot;
+import gl.RenderStateExchange;
 import gl.Renderable;
 
 import javax.microedition.khronos.opengles.GL10;
@@ -18,6 +20,7 @@ public class AnimationBounce extends GLAnimation {
 	private final Vec mUEnd;
 	private Vec mCurrentPos;
 	private Vec mTargetPos;
+	private final RenderSnapshot mSnapshot = new RenderSnapshot(3);
 	private float mAccuracy;
 	private int mMode; // 1=morph to uperEnd 0=morph to lowerEnd
 
@@ -57,12 +60,23 @@ public class AnimationBounce extends GLAnimation {
 				mTargetPos = mDEnd;
 			}
 		}
+		if (RenderStateExchange.useSnapshots) {
+			mSnapshot.commit(mCurrentPos.x, mCurrentPos.y, mCurrentPos.z);
+		}
 		return true;
 	}
 
 	@Override
 	public void render(GL10 gl, Renderable parent) {
-		gl.glTranslatef(mCurrentPos.x, mCurrentPos.y, mCurrentPos.z);
+		float[] s = null;
+		if (RenderStateExchange.useSnapshots) {
+			s = mSnapshot.getReadBuffer();
+		}
+		if (s != null) {
+			gl.glTranslatef(s[0], s[1], s[2]);
+		} else {
+			gl.glTranslatef(mCurrentPos.x, mCurrentPos.y, mCurrentPos.z);
+		}
 	}
 
 	@Override
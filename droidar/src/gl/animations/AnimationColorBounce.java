@@ -2,6 +2,8 @@ package gl.animations;
 
 import gl.Color;
 import gl.ObjectPicker;
+import gl.RenderSnapshot;
+import gl.RenderStateExchange;
 import gl.Renderable;
 
 import javax.microedition.khronos.opengles.GL10;
@@ -25,6 +27,7 @@ public class AnimationColorBounce extends GLAnimation {
 	private Color mCurrentColor;
 	private Color mTargetColor;
 	private boolean mMode; // true = upperEnd, false = lowerEnd
+	private final RenderSnapshot mSnapshot = new RenderSnapshot(4);
 
 	/**
 	 * @param speed
@@ -63,15 +66,27 @@ public class AnimationColorBounce extends GLAnimation {
 				mTargetColor = mUpperColor;
 			}
 		}
+		if (RenderStateExchange.useSnapshots) {
+			mSnapshot.commit(mCurrentColor.red, mCurrentColor.green,
+					mCurrentColor.blue, mCurrentColor.alpha);
+		}
 		return true;
 	}
 
 	@Override
 	public void render(GL10 gl, Renderable parent) {
 
+		float[] s = null;
+		if (RenderStateExchange.useSnapshots) {
+			s = mSnapshot.getReadBuffer();
+		}
 		if (!ObjectPicker.readyToDrawWithColor) {
-			gl.glColor4f(mCurrentColor.red, mCurrentColor.green,
-					mCurrentColor.blue, mCurrentColor.alpha);
+			if (s != null) {
+				gl.glColor4f(s[0], s[1], s[2], s[3]);
+			} else {
+				gl.glColor4f(mCurrentColor.red, mCurrentColor.green,
+						mCurrentColor.blue, mCurrentColor.alpha);
+			}
 		}
 
 	}
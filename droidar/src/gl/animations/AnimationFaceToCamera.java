@@ -1,30 +1,37 @@
 package gl.animations;
 
 import gl.GLCamera;
+import gl.RenderSnapshot;
+import gl.RenderStateExchange;
 import gl.Renderable;
 import gl.scenegraph.MeshComponent;
 
 import javax.microedition.khronos.opengles.GL10;
 
 import util.Vec;
+import worlddata.TimerWheel.TimerListener;
 import worlddata.Updateable;
 import worlddata.Visitor;
+import worlddata.WheelUpdateTimer;
 
 /**
- * Animation to face the camera.
+ * Animation to face the camera. For many icons or labels use a
+ * {@link gl.textures.SpriteBatch} in the billboard mode instead, it turns all
+ * its squares to the camera in one pass per frame.
  */
 public class AnimationFaceToCamera extends GLAnimation {
 	private static final float DEFAULT_UPDATE_DELAY = 0.5f;
 	private static final int ADJUST_OBJECT_ROTATION = 90;
 	private GLCamera mTargetCamera;
-	private float mLastUpdateAway = 0;
-	private float mUpdateDelay;
+	private WheelUpdateTimer mUpdateTimer;
+	private Updateable mTimerParent;
 	private Vec mRotationVec = new Vec();
 	private Vec mNewRotationVec = new Vec();
 
 	private Vec mAdjustmentVec;
 	private Vec mTargetCameraPosition;
 	private boolean mDontChangeXRotation;
+	private final RenderSnapshot mSnapshot = new RenderSnapshot(3);
 
 	/**
 	 * Constructor.
@@ -41,7 +48,13 @@ public class AnimationFaceToCamera extends GLAnimation {
 			boolean dontChangeXRotation) {
 		mTargetCamera = targetCamera;
 
-		mUpdateDelay = updateDelay;
+		mUpdateTimer = new WheelUpdateTimer(updateDelay, new TimerListener() {
+			@Override
+			public boolean onTimer(float passedTime) {
+				updateRotation(mTimerParent);
+				return true;
+			}
+		});
 		mTargetCameraPosition = mTargetCamera.getPosition();
 		mDontChangeXRotation = dontChangeXRotation;
 	}
@@ -85,17 +98,18 @@ public class AnimationFaceToCamera extends GLAnimation {
 	@Override
 	public boolean update(float timeDelta, Updateable parent) {
 		timeDelta = Math.abs(timeDelta);
-		mLastUpdateAway += timeDelta;
-		if (mLastUpdateAway > mUpdateDelay) {
-			updateRotation(parent);
-			mLastUpdateAway = 0;
-		}
+		// the target rotation is recalculated by the timer wheel when due:
+		mTimerParent = parent;
+		mUpdateTimer.keepAlive();
 		if (mDontChangeXRotation) {
 			Vec.morphToNewAngleVec(mRotationVec, 0, 0, mNewRotationVec.z,
 					timeDelta);
 		} else {
 			Vec.morphToNewAngleVec(mRotationVec, mNewRotationVec.x, mNewRotationVec.y, mNewRotationVec.z, timeDelta);
 		}
+		if (RenderStateExchange.useSnapshots) {
+			mSnapshot.commit(mRotationVec.x, mRotationVec.y, mRotationVec.z);
+		}
 		return true;
 	}
 
@@ -120,9 +134,19 @@ public class AnimationFaceToCamera extends GLAnimation {
 	@Override
 	public void render(GL10 gl, Renderable parent) {
 
-		gl.glRotatef(mRotationVec.z, 0, 0, 1);
-		gl.glRotatef(mRotationVec.x, 1, 0, 0);
-		gl.glRotatef(mRotationVec.y, 0, 1, 0);
+		float[] s = null;
+		if (RenderStateExchange.useSnapshots) {
+			s = mSnapshot.getReadBuffer();
+		}
+		if (s != null) {
+			gl.glRotatef(s[2], 0, 0, 1);
+			gl.glRotatef(s[0], 1, 0, 0);
+			gl.glRotatef(s[1], 0, 1, 0);
+		} else {
+			gl.glRotatef(mRotationVec.z, 0, 0, 1);
+			gl.glRotatef(mRotationVec.x, 1, 0, 0);
+			gl.glRotatef(mRotationVec.y, 0, 1, 0);
+		}
 
 		if (mAdjustmentVec != null) {
 			/*
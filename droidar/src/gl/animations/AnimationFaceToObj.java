@@ -1,5 +1,7 @@
 package gl.animations;
 
+import gl.RenderSnapshot;
+import gl.RenderStateExchange;
 import gl.Renderable;
 import gl.scenegraph.MeshComponent;
 
@@ -26,6 +28,7 @@ public class AnimationFaceToObj extends GLAnimation {
 	private Vec mAdjustmentVec;
 	private Vec mTargetObjectPosition;
 	private boolean mDontChangeXRotation;
+	private final RenderSnapshot mSnapshot = new RenderSnapshot(3);
 
 	/**
 	 * Constructor.
@@ -94,6 +97,9 @@ public class AnimationFaceToObj extends GLAnimation {
 		} else {
 			Vec.morphToNewAngleVec(mRotationVec, mNewRotationVec.x, mNewRotationVec.y, mNewRotationVec.z, timeDelta);
 		}
+		if (RenderStateExchange.useSnapshots) {
+			mSnapshot.commit(mRotationVec.x, mRotationVec.y, mRotationVec.z);
+		}
 		return true;
 	}
 
@@ -118,9 +124,19 @@ public class AnimationFaceToObj extends GLAnimation {
 	@Override
 	public void render(GL10 gl, Renderable parent) {
 
-		gl.glRotatef(mRotationVec.z, 0, 0, 1);
-		gl.glRotatef(mRotationVec.x, 1, 0, 0);
-		gl.glRotatef(mRotationVec.y, 0, 1, 0);
+		float[] s = null;
+		if (RenderStateExchange.useSnapshots) {
+			s = mSnapshot.getReadBuffer();
+		}
+		if (s != null) {
+			gl.glRotatef(s[2], 0, 0, 1);
+			gl.glRotatef(s[0], 1, 0, 0);
+			gl.glRotatef(s[1], 0, 1, 0);
+		} else {
+			gl.glRotatef(mRotationVec.z, 0, 0, 1);
+			gl.glRotatef(mRotationVec.x, 1, 0, 0);
+			gl.glRotatef(mRotationVec.y, 0, 1, 0);
+		}
 
 		if (mAdjustmentVec != null) {
 			/*
@@ -1,5 +1,7 @@
 package gl.animations;
 
+import gl.RenderSnapshot;
+import gl.RenderStateExchange;
 import gl.Renderable;
 
 import javax.microedition.khronos.opengles.GL10;
@@ -15,6 +17,7 @@ public class AnimationGrow extends GLAnimation {
 	private float mGrothSize;
 	private float mGrothFactor;
 	private UpdateTimer mStopCondition;
+	private final RenderSnapshot mSnapshot = new RenderSnapshot(1);
 
 	/**
 	 * Constructor.
@@ -29,7 +32,12 @@ public class AnimationGrow extends GLAnimation {
 
 	@Override
 	public void render(GL10 gl, Renderable parent) {
-		gl.glScalef(mGrothSize, mGrothSize, mGrothSize);
+		float[] s = null;
+		if (RenderStateExchange.useSnapshots) {
+			s = mSnapshot.getReadBuffer();
+		}
+		float size = s != null ? s[0] : mGrothSize;
+		gl.glScalef(size, size, size);
 	}
 
 	@Override
@@ -41,6 +49,9 @@ public class AnimationGrow extends GLAnimation {
 		if (mGrothSize > 1) {
 			mGrothSize = 1;
 		}
+		if (RenderStateExchange.useSnapshots) {
+			mSnapshot.commit(mGrothSize);
+		}
 		return true;
 	}
 
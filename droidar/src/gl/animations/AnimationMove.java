@@ -1,5 +1,7 @@
 package gl.animations;
 
+import gl.RenderSnapshot;
+import gl.RenderStateExchange;
 import gl.Renderable;
 
 import javax.microedition.khronos.opengles.GL10;
@@ -18,6 +20,7 @@ public class AnimationMove extends GLAnimation {
 	private Vec mRelativeTargetPos;
 	private Vec mPos;
 	private boolean mDone;
+	private final RenderSnapshot mSnapshot = new RenderSnapshot(3);
 
 	/**
 	 * Constructor.
@@ -36,7 +39,15 @@ public class AnimationMove extends GLAnimation {
 
 	@Override
 	public void render(GL10 gl, Renderable parent) {
-		gl.glTranslatef(mPos.x, mPos.y, mPos.z);
+		float[] s = null;
+		if (RenderStateExchange.useSnapshots) {
+			s = mSnapshot.getReadBuffer();
+		}
+		if (s != null) {
+			gl.glTranslatef(s[0], s[1], s[2]);
+		} else {
+			gl.glTranslatef(mPos.x, mPos.y, mPos.z);
+		}
 	}
 
 	@Override
@@ -47,6 +58,9 @@ public class AnimationMove extends GLAnimation {
 				mDone = true;
 			}
 		}
+		if (RenderStateExchange.useSnapshots) {
+			mSnapshot.commit(mPos.x, mPos.y, mPos.z);
+		}
 		return true;
 	}
 
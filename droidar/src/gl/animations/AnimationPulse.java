@@ -1,5 +1,7 @@
 package gl.animations;
 
+import gl.RenderSnapshot;
+import gl.RenderStateExchange;
 import gl.Renderable;
 
 import javax.microedition.khronos.opengles.GL10;
@@ -18,6 +20,7 @@ public class AnimationPulse extends GLAnimation {
 	private final Vec mUperEnd;
 	private Vec mCurrentScale;
 	private Vec mTargetScale;
+	private final RenderSnapshot mSnapshot = new RenderSnapshot(3);
 	private float mAccuracy;
 	private boolean mMode; // true=morph to uperEnd false=morph to lowerEnd
 
@@ -56,12 +59,24 @@ public class AnimationPulse extends GLAnimation {
 				mTargetScale = mLowerEnd;
 			}
 		}
+		if (RenderStateExchange.useSnapshots) {
+			mSnapshot.commit(mCurrentScale.x, mCurrentScale.y,
+					mCurrentScale.z);
+		}
 		return true;
 	}
 
 	@Override
 	public void render(GL10 gl, Renderable parent) {
-		gl.glScalef(mCurrentScale.x, mCurrentScale.y, mCurrentScale.z);
+		float[] s = null;
+		if (RenderStateExchange.useSnapshots) {
+			s = mSnapshot.getReadBuffer();
+		}
+		if (s != null) {
+			gl.glScalef(s[0], s[1], s[2]);
+		} else {
+			gl.glScalef(mCurrentScale.x, mCurrentScale.y, mCurrentScale.z);
+		}
 	}
 
 	@Override
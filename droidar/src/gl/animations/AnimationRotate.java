@@ -1,5 +1,7 @@
 package gl.animations;
 
+import gl.RenderSnapshot;
+import gl.RenderStateExchange;
 import gl.Renderable;
 
 import javax.microedition.khronos.opengles.GL10;
@@ -20,6 +22,7 @@ public class AnimationRotate extends GLAnimation {
 	private float mAngle = 0;
 	private float mSpeed;
 	private Vec mRotVec;
+	private final RenderSnapshot mSnapshot = new RenderSnapshot(1);
 
 	/**
 	 * @param speed
@@ -38,12 +41,20 @@ public class AnimationRotate extends GLAnimation {
 			mAngle = 0;
 		}
 		mAngle = mAngle + (timeDelta * mSpeed);
+		if (RenderStateExchange.useSnapshots) {
+			mSnapshot.commit(mAngle);
+		}
 		return true;
 	}
 
 	@Override
 	public void render(GL10 gl, Renderable parent) {
-		gl.glRotatef(mAngle, mRotVec.x, mRotVec.y, mRotVec.z);
+		float[] s = null;
+		if (RenderStateExchange.useSnapshots) {
+			s = mSnapshot.getReadBuffer();
+		}
+		float angle = s != null ? s[0] : mAngle;
+		gl.glRotatef(angle, mRotVec.x, mRotVec.y, mRotVec.z);
 	}
 
 	@Override
@@ -1,5 +1,7 @@
 package gl.animations;
 
+import gl.RenderSnapshot;
+import gl.RenderStateExchange;
 import gl.Renderable;
 
 import javax.microedition.khronos.opengles.GL10;
@@ -13,6 +15,7 @@ import worlddata.Visitor;
 public class AnimationShrink extends GLAnimation {
 
 	private float mGrothSize = 1;
+	private final RenderSnapshot mSnapshot = new RenderSnapshot(1);
 	private float mShrinkFactor;
 
 	/**
@@ -27,7 +30,12 @@ public class AnimationShrink extends GLAnimation {
 
 	@Override
 	public void render(GL10 gl, Renderable parent) {
-		gl.glScalef(mGrothSize, mGrothSize, mGrothSize);
+		float[] s = null;
+		if (RenderStateExchange.useSnapshots) {
+			s = mSnapshot.getReadBuffer();
+		}
+		float size = s != null ? s[0] : mGrothSize;
+		gl.glScalef(size, size, size);
 	}
 
 	@Override
@@ -37,6 +45,9 @@ public class AnimationShrink extends GLAnimation {
 		} else {
 			mGrothSize = 0;
 		}
+		if (RenderStateExchange.useSnapshots) {
+			mSnapshot.commit(mGrothSize);
+		}
 		return true;
 	}
 
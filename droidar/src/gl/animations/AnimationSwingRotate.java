@@ -1,5 +1,7 @@
 package gl.animations;
 
+import gl.RenderSnapshot;
+import gl.RenderStateExchange;
 import gl.Renderable;
 
 import javax.microedition.khronos.opengles.GL10;
@@ -22,6 +24,7 @@ public class AnimationSwingRotate extends GLAnimation {
 	private final Vec mUEnd;
 	private Vec mCurrentPos;
 	private Vec mTargetPos;
+	private final RenderSnapshot mSnapshot = new RenderSnapshot(3);
 	private float mAccuracy;
 	private int mMode; // 1=morph to uperEnd 0=morph to lowerEnd
 
@@ -65,6 +68,9 @@ public class AnimationSwingRotate extends GLAnimation {
 				mTargetPos = mDEnd;
 			}
 		}
+		if (RenderStateExchange.useSnapshots) {
+			mSnapshot.commit(mCurrentPos.x, mCurrentPos.y, mCurrentPos.z);
+		}
 		return true;
 	}
 
@@ -75,8 +81,18 @@ public class AnimationSwingRotate extends GLAnimation {
 
 	@Override
 	public void render(GL10 gl, Renderable parent) {
-		gl.glRotatef(mCurrentPos.z, 0, 0, 1);
-		gl.glRotatef(mCurrentPos.x, 1, 0, 0);
-		gl.glRotatef(mCurrentPos.y, 0, 1, 0);
+		float[] s = null;
+		if (RenderStateExchange.useSnapshots) {
+			s = mSnapshot.getReadBuffer();
+		}
+		if (s != null) {
+			gl.glRotatef(s[2], 0, 0, 1);
+			gl.glRotatef(s[0], 1, 0, 0);
+			gl.glRotatef(s[1], 0, 1, 0);
+		} else {
+			gl.glRotatef(mCurrentPos.z, 0, 0, 1);
+			gl.glRotatef(mCurrentPos.x, 1, 0, 0);
+			gl.glRotatef(mCurrentPos.y, 0, 1, 0);
+		}
 	}
 }
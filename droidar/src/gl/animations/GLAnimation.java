@@ -9,6 +9,9 @@ import worlddata.Updateable;
  * but dont have to be). Some of the most important {@link GLAnimation}s are
  * {@link AnimationFaceToCamera} or {@link AnimationRotate}.
  * 
+ * For thousands of animated objects use the presets of the
+ * {@link TweenEngine} instead, it updates all animations in one loop.
+ * 
  * @author Spobo
  * 
  */
@@ -0,0 +1,781 @@
+package gl.animations;
+
+import gl.Color;
+import gl.HasColor;
+import gl.HasPosition;
+import gl.HasRotation;
+import gl.HasScale;
+import gl.scenegraph.MeshComponent;
+import gl.scenegraph.RenderList;
+
+import java.util.IdentityHashMap;
+
+import util.EfficientList;
+import util.HasDebugInformation;
+import util.Log;
+import util.Vec;
+import worlddata.Entity;
+import worlddata.Obj;
+import worlddata.RenderableEntity;
+import worlddata.StepListener;
+import worlddata.SystemUpdater;
+import worlddata.TransformStore;
+
+/**
+ * Runs many simple animations (tweens) in one loop instead of one
+ * {@link GLAnimation} child per mesh which has to be updated and rendered on
+ * its own. All active tweens are stored in packed arrays and the results are
+ * written directly into the position, scale, rotation or color of the target
+ * (or into a slot of a {@link TransformStore}), so nothing has to be done in
+ * the render method anymore.
+ *
+ * The presets ({@link #pulse(HasScale, float, Vec, Vec, float)},
+ * {@link #rotate(HasRotation, float, Vec)}, ..) behave like the
+ * {@link GLAnimation} with the same name. Other than the {@link GLAnimation}s
+ * they change the values of the target itself, e.g. a bounce moves the
+ * position of the mesh.
+ *
+ * The {@link SystemUpdater} advances the engine before the objects are
+ * updated. The tweens of an {@link Obj} are cancelled when it is removed from
+ * the world (see {@link #cancelAllOf(Object)}) and the tweens of a
+ * {@link TransformStore} slot when the slot is freed.
+ *
+ * @author Spobo
+ *
+ */
+public class TweenEngine implements StepListener, HasDebugInformation {
+
+	private static final String LOG_TAG = "TweenEngine";
+
+	public static final int POSITION = 0;
+	public static final int SCALE = 1;
+	public static final int ROTATION = 2;
+	public static final int COLOR = 3;
+	/**
+	 * a rotation around an axis which is converted into the rotation angles,
+	 * see {@link #rotate(HasRotation, float, Vec)}
+	 */
+	private static final int AXIS_ROTATION = 4;
+
+	public static final int LINEAR = 0;
+	public static final int EASE_IN = 1;
+	public static final int EASE_OUT = 2;
+	public static final int EASE_IN_OUT = 3;
+
+	/**
+	 * the tween is removed when it reached its end
+	 */
+	public static final int ONCE = 0;
+	/**
+	 * starts again from the beginning when it reached its end
+	 */
+	public static final int LOOP = 1;
+	/**
+	 * runs back and forth
+	 */
+	public static final int PING_PONG = 2;
+
+	private static final int INITIAL_CAPACITY = 64;
+	private static final float MIN_DURATION = 0.05f;
+
+	/**
+	 * the order of the {@link StepListener}, before the objects so that they see the new values
+	 */
+	public static final int STEP_ORDER = -100;
+
+	private static TweenEngine instance = new TweenEngine();
+
+	/*
+	 * the active tweens are stored without gaps from 0 to myCount-1, a
+	 * finished tween is replaced with the last one:
+	 */
+	private Object[] myTargets = new Object[INITIAL_CAPACITY];
+	/**
+	 * the {@link Vec} or {@link Color} which is changed, null for
+	 * {@link TransformStore} tweens
+	 */
+	private Object[] myValues = new Object[INITIAL_CAPACITY];
+	private TransformStore[] myStores = new TransformStore[INITIAL_CAPACITY];
+	private int[] mySlots = new int[INITIAL_CAPACITY];
+	private int[] myIds = new int[INITIAL_CAPACITY];
+	private int[] myProperties = new int[INITIAL_CAPACITY];
+	private int[] myEasings = new int[INITIAL_CAPACITY];
+	private int[] myRepeats = new int[INITIAL_CAPACITY];
+	/**
+	 * 4 values per tween
+	 */
+	private float[] myFrom = new float[INITIAL_CAPACITY * 4];
+	private float[] myTo = new float[INITIAL_CAPACITY * 4];
+	private float[] myTime = new float[INITIAL_CAPACITY];
+	private float[] myDuration = new float[INITIAL_CAPACITY];
+	private int myCount;
+	private int myNextId = 1;
+	/**
+	 * the number of active tweens per target, so that cancelling the tweens
+	 * of a target without tweens costs nothing
+	 */
+	private final IdentityHashMap<Object, int[]> myTweenCounts = new IdentityHashMap<Object, int[]>();
+
+	public static TweenEngine getInstance() {
+		return instance;
+	}
+
+	public static void resetInstance() {
+		instance = new TweenEngine();
+	}
+
+	/**
+	 * @param target
+	 * @param to
+	 *            the final position
+	 * @param duration
+	 *            in seconds
+	 * @param easing
+	 *            {@link #LINEAR}, {@link #EASE_IN}, {@link #EASE_OUT} or
+	 *            {@link #EASE_IN_OUT}
+	 * @param repeat
+	 *            {@link #ONCE}, {@link #LOOP} or {@link #PING_PONG}
+	 * @return the id of the tween or -1 if the target has no position
+	 */
+	public synchronized int tweenPosition(HasPosition target, Vec to,
+			float duration, int easing, int repeat) {
+		Vec v = getPositionOf(target);
+		if (v == null) {
+			return -1;
+		}
+		return add(target, v, null, 0, POSITION, v.x, v.y, v.z, 0, to.x, to.y,
+				to.z, 0, duration, easing, repeat);
+	}
+
+	public synchronized int tweenScale(HasScale target, Vec to,
+			float duration, int easing, int repeat) {
+		Vec v = getScaleOf(target);
+		return add(target, v, null, 0, SCALE, v.x, v.y, v.z, 0, to.x, to.y,
+				to.z, 0, duration, easing, repeat);
+	}
+
+	/**
+	 * @param target
+	 * @param to
+	 *            the final angles in degree. The angles are interpolated one
+	 *            by one, see {@link HasRotation#setRotation(Vec)}
+	 */
+	public synchronized int tweenRotation(HasRotation target, Vec to,
+			float duration, int easing, int repeat) {
+		Vec v = getRotationOf(target);
+		return add(target, v, null, 0, ROTATION, v.x, v.y, v.z, 0, to.x, to.y,
+				to.z, 0, duration, easing, repeat);
+	}
+
+	public synchronized int tweenColor(HasColor target, Color to,
+			float duration, int easing, int repeat) {
+		Color c = getColorOf(target);
+		return add(target, c, null, 0, COLOR, c.red, c.green, c.blue, c.alpha,
+				to.red, to.green, to.blue, to.alpha, duration, easing, repeat);
+	}
+
+	/**
+	 * A tween for an object of a {@link TransformStore}
+	 *
+	 * @param store
+	 * @param slot
+	 * @param property
+	 *            {@link #POSITION}, {@link #SCALE}, {@link #ROTATION} or
+	 *            {@link #COLOR}
+	 * @param to
+	 *            3 values (or 4 for the color)
+	 * @param duration
+	 * @param easing
+	 * @param repeat
+	 * @return the id of the tween
+	 */
+	public synchronized int tween(TransformStore store, int slot,
+			int property, float[] to, float duration, int easing, int repeat) {
+		float[] from = new float[4];
+		TransformStore.View view = store.getView(slot);
+		if (property == COLOR) {
+			if (!store.getColor(slot, from)) {
+				from[0] = from[1] = from[2] = from[3] = 1;
+			}
+		} else {
+			Vec v = property == POSITION ? view.getPosition()
+					: (property == SCALE ? view.getScale() : view
+							.getRotation());
+			from[0] = v.x;
+			from[1] = v.y;
+			from[2] = v.z;
+		}
+		return add(store, null, store, slot, property, from[0], from[1],
+				from[2], from[3], to[0], to[1], to[2], to.length > 3 ? to[3]
+						: 0, duration, easing, repeat);
+	}
+
+	private int add(Object target, Object value, TransformStore store,
+			int slot, int property, float fx, float fy, float fz, float fw,
+			float tx, float ty, float tz, float tw, float duration,
+			int easing, int repeat) {
+		if (myCount == myIds.length) {
+			grow(myCount * 2);
+		}
+		int i = myCount++;
+		myTargets[i] = target;
+		int[] count = myTweenCounts.get(target);
+		if (count == null) {
+			myTweenCounts.put(target, new int[] { 1 });
+		} else {
+			count[0]++;
+		}
+		myValues[i] = value;
+		myStores[i] = store;
+		mySlots[i] = slot;
+		myProperties[i] = property;
+		myEasings[i] = easing;
+		myRepeats[i] = repeat;
+		int o = i * 4;
+		myFrom[o] = fx;
+		myFrom[o + 1] = fy;
+		myFrom[o + 2] = fz;
+		myFrom[o + 3] = fw;
+		myTo[o] = tx;
+		myTo[o + 1] = ty;
+		myTo[o + 2] = tz;
+		myTo[o + 3] = tw;
+		myTime[i] = 0;
+		myDuration[i] = Math.max(duration, MIN_DURATION);
+		myIds[i] = myNextId++;
+		return myIds[i];
+	}
+
+	private void grow(int capacity) {
+		myTargets = copy(myTargets, new Object[capacity]);
+		myValues = copy(myValues, new Object[capacity]);
+		myStores = copy(myStores, new TransformStore[capacity]);
+		mySlots = copy(mySlots, capacity);
+		myIds = copy(myIds, capacity);
+		myProperties = copy(myProperties, capacity);
+		myEasings = copy(myEasings, capacity);
+		myRepeats = copy(myRepeats, capacity);
+		myFrom = copy(myFrom, capacity * 4);
+		myTo = copy(myTo, capacity * 4);
+		myTime = copy(myTime, capacity);
+		myDuration = copy(myDuration, capacity);
+	}
+
+	private static <T> T[] copy(T[] source, T[] target) {
+		System.arraycopy(source, 0, target, 0, source.length);
+		return target;
+	}
+
+	private static int[] copy(int[] source, int capacity) {
+		int[] target = new int[capacity];
+		System.arraycopy(source, 0, target, 0, source.length);
+		return target;
+	}
+
+	private static float[] copy(float[] source, int capacity) {
+		float[] target = new float[capacity];
+		System.arraycopy(source, 0, target, 0, source.length);
+		return target;
+	}
+
+	/**
+	 * Is called by the {@link SystemUpdater} in each update step
+	 *
+	 * @param timeDelta
+	 *            in seconds
+	 */
+	public synchronized void advance(float timeDelta) {
+		final float[] from = myFrom;
+		final float[] to = myTo;
+		int i = 0;
+		while (i < myCount) {
+			float d = myDuration[i];
+			float time = myTime[i] + timeDelta;
+			float t;
+			boolean finished = false;
+			switch (myRepeats[i]) {
+			case LOOP:
+				time %= d;
+				t = time / d;
+				break;
+			case PING_PONG:
+				time %= 2 * d;
+				t = time < d ? time / d : 2 - time / d;
+				break;
+			default:
+				if (time >= d) {
+					time = d;
+					finished = true;
+				}
+				t = time / d;
+			}
+			myTime[i] = time;
+			float e = ease(myEasings[i], t);
+
+			int o = i * 4;
+			Object value = myValues[i];
+			if (myProperties[i] == AXIS_ROTATION) {
+				// from is the start rotation, to the axis and the angle:
+				setAxisRotation((Vec) value, from, to, o, to[o + 3] * e);
+			} else {
+				float x = from[o] + (to[o] - from[o]) * e;
+				float y = from[o + 1] + (to[o + 1] - from[o + 1]) * e;
+				float z = from[o + 2] + (to[o + 2] - from[o + 2]) * e;
+				float w = from[o + 3] + (to[o + 3] - from[o + 3]) * e;
+				if (value instanceof Vec) {
+					Vec v = (Vec) value;
+					v.x = x;
+					v.y = y;
+					v.z = z;
+				} else if (value instanceof Color) {
+					Color c = (Color) value;
+					c.red = x;
+					c.green = y;
+					c.blue = z;
+					c.alpha = w;
+				} else if (!writeToStore(i, x, y, z, w)) {
+					// the object was removed from the store:
+					finished = true;
+				}
+			}
+
+			if (finished) {
+				removeAt(i);
+			} else {
+				i++;
+			}
+		}
+	}
+
+	/**
+	 * @return false if the slot is not used anymore
+	 */
+	private boolean writeToStore(int i, float x, float y, float z, float w) {
+		TransformStore s = myStores[i];
+		int slot = mySlots[i];
+		if (!s.isUsed(slot)) {
+			return false;
+		}
+		switch (myProperties[i]) {
+		case POSITION:
+			s.setPosition(slot, x, y, z);
+			break;
+		case SCALE:
+			s.setScale(slot, x, y, z);
+			break;
+		case ROTATION:
+			s.setRotation(slot, x, y, z);
+			break;
+		case COLOR:
+			s.setColor(slot, x, y, z, w);
+			break;
+		}
+		return true;
+	}
+
+	/**
+	 * Sets the rotation angles to the start rotation followed by a rotation
+	 * around the axis, like a {@link AnimationRotate} child of a mesh with the
+	 * start rotation would draw it
+	 *
+	 * @param from
+	 *            the start rotation angles at o
+	 * @param to
+	 *            the normalized axis at o
+	 * @param angle
+	 *            in degree
+	 */
+	static void setAxisRotation(Vec v, float[] from, float[] to, int o,
+			float angle) {
+		final float bx = from[o], by = from[o + 1], bz = from[o + 2];
+		final float ax = to[o], ay = to[o + 1], az = to[o + 2];
+		/*
+		 * the angles are applied in the order z, x, y (see
+		 * Calculus.setTransformM), so a rotation around the y axis can
+		 * always be added to the y angle and the ones around the x and z
+		 * axis if the angles applied after them are 0:
+		 */
+		if (ax == 0 && az == 0) {
+			v.x = bx;
+			v.y = by + ay * angle;
+			v.z = bz;
+			return;
+		}
+		if (ay == 0 && az == 0 && by == 0) {
+			v.x = bx + ax * angle;
+			v.y = 0;
+			v.z = bz;
+			return;
+		}
+		if (ax == 0 && ay == 0 && bx == 0 && by == 0) {
+			v.x = 0;
+			v.y = 0;
+			v.z = bz + az * angle;
+			return;
+		}
+
+		// B = Rz * Rx * Ry of the start rotation:
+		double r = Math.toRadians(bx);
+		final double cx = Math.cos(r), sx = Math.sin(r);
+		r = Math.toRadians(by);
+		final double cy = Math.cos(r), sy = Math.sin(r);
+		r = Math.toRadians(bz);
+		final double cz = Math.cos(r), sz = Math.sin(r);
+		final double b00 = cz * cy - sz * sx * sy, b01 = -sz * cx, b02 = cz
+				* sy + sz * sx * cy;
+		final double b10 = sz * cy + cz * sx * sy, b11 = cz * cx, b12 = sz
+				* sy - cz * sx * cy;
+		final double b20 = -cx * sy, b21 = sx, b22 = cx * cy;
+
+		// A = the rotation around the axis:
+		r = Math.toRadians(angle);
+		final double c = Math.cos(r), s = Math.sin(r), t = 1 - c;
+		final double a00 = t * ax * ax + c, a01 = t * ax * ay - s * az, a02 = t
+				* ax * az + s * ay;
+		final double a10 = t * ax * ay + s * az, a11 = t * ay * ay + c, a12 = t
+				* ay * az - s * ax;
+		final double a20 = t * ax * az - s * ay, a21 = t * ay * az + s * ax, a22 = t
+				* az * az + c;
+
+		// the angles of B * A:
+		final double m00 = b00 * a00 + b01 * a10 + b02 * a20;
+		final double m01 = b00 * a01 + b01 * a11 + b02 * a21;
+		final double m10 = b10 * a00 + b11 * a10 + b12 * a20;
+		final double m11 = b10 * a01 + b11 * a11 + b12 * a21;
+		final double m20 = b20 * a00 + b21 * a10 + b22 * a20;
+		final double m21 = b20 * a01 + b21 * a11 + b22 * a21;
+		final double m22 = b20 * a02 + b21 * a12 + b22 * a22;
+		final double x = Math.asin(Math.max(-1, Math.min(1, m21)));
+		if (Math.abs(m21) < 0.99999) {
+			v.x = (float) Math.toDegrees(x);
+			v.y = (float) Math.toDegrees(Math.atan2(-m20, m22));
+			v.z = (float) Math.toDegrees(Math.atan2(-m01, m11));
+		} else {
+			// the x angle is +-90 degree, the z angle is enough:
+			v.x = (float) Math.toDegrees(x);
+			v.y = 0;
+			v.z = (float) Math.toDegrees(Math.atan2(m10, m00));
+		}
+	}
+
+	static float ease(int easing, float t) {
+		switch (easing) {
+		case EASE_IN:
+			return t * t;
+		case EASE_OUT:
+			return t * (2 - t);
+		case EASE_IN_OUT:
+			return t * t * (3 - 2 * t);
+		default:
+			return t;
+		}
+	}
+
+	private void removeAt(int i) {
+		int[] count = myTweenCounts.get(myTargets[i]);
+		if (count != null && --count[0] == 0) {
+			myTweenCounts.remove(myTargets[i]);
+		}
+		int last = --myCount;
+		if (i != last) {
+			myTargets[i] = myTargets[last];
+			myValues[i] = myValues[last];
+			myStores[i] = myStores[last];
+			mySlots[i] = mySlots[last];
+			myIds[i] = myIds[last];
+			myProperties[i] = myProperties[last];
+			myEasings[i] = myEasings[last];
+			myRepeats[i] = myRepeats[last];
+			System.arraycopy(myFrom, last * 4, myFrom, i * 4, 4);
+			System.arraycopy(myTo, last * 4, myTo, i * 4, 4);
+			myTime[i] = myTime[last];
+			myDuration[i] = myDuration[last];
+		}
+		myTargets[last] = null;
+		myValues[last] = null;
+		myStores[last] = null;
+	}
+
+	/**
+	 * @param id
+	 * @return false if the tween was already finished
+	 */
+	public synchronized boolean cancel(int id) {
+		for (int i = 0; i < myCount; i++) {
+			if (myIds[i] == id) {
+				removeAt(i);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @param target
+	 *            the object (or {@link TransformStore}) the tweens were
+	 *            created for
+	 * @return the number of removed tweens
+	 */
+	public synchronized int cancelAll(Object target) {
+		if (target == null || !myTweenCounts.containsKey(target)) {
+			return 0;
+		}
+		int removed = 0;
+		int i = 0;
+		while (i < myCount) {
+			if (myTargets[i] == target) {
+				removeAt(i);
+				removed++;
+			} else {
+				i++;
+			}
+		}
+		return removed;
+	}
+
+	/**
+	 * Is called when the {@link Obj} is removed from the world or a component
+	 * is removed from it, so that LOOP and PING_PONG tweens do not run
+	 * forever. The tweens of the components of an {@link Obj} and of all
+	 * child meshes of a {@link MeshComponent} are cancelled too
+	 *
+	 * @param removed
+	 *            the object or component which was removed
+	 * @return the number of removed tweens
+	 */
+	public synchronized int cancelAllOf(Object removed) {
+		if (removed == null || myCount == 0) {
+			return 0;
+		}
+		int result = cancelAll(removed);
+		if (removed instanceof Obj) {
+			Obj o = (Obj) removed;
+			EfficientList<Entity> comps = o.getMyComponents();
+			for (int i = 0; i < comps.myLength; i++) {
+				result += cancelAllOf(comps.get(i));
+			}
+			// the mesh does not have to be in the component list:
+			result += cancelAllOf(o.getGraphicsComponent());
+		} else if (removed instanceof MeshComponent) {
+			result += cancelAllOf(((MeshComponent) removed).getChildren());
+		} else if (removed instanceof RenderList) {
+			EfficientList<RenderableEntity> children = ((RenderList) removed)
+					.getAllItems();
+			for (int i = 0; i < children.myLength; i++) {
+				result += cancelAllOf(children.get(i));
+			}
+		}
+		return result;
+	}
+
+	public synchronized boolean isActive(int id) {
+		for (int i = 0; i < myCount; i++) {
+			if (myIds[i] == id) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	public synchronized int getActiveTweenCount() {
+		return myCount;
+	}
+
+	private static Vec getPositionOf(HasPosition target) {
+		Vec v = target.getPosition();
+		if (v == null) {
+			Log.e(LOG_TAG, target + " has no position which could be animated");
+		}
+		return v;
+	}
+
+	private static Vec getScaleOf(HasScale target) {
+		if (target.getScale() == null) {
+			target.setScale(new Vec(1, 1, 1));
+		}
+		return target.getScale();
+	}
+
+	private static Vec getRotationOf(HasRotation target) {
+		if (target.getRotation() == null) {
+			target.setRotation(new Vec());
+		}
+		return target.getRotation();
+	}
+
+	private static Color getColorOf(HasColor target) {
+		if (target.getColor() == null) {
+			target.setColor(Color.white());
+		}
+		return target.getColor();
+	}
+
+	/**
+	 * @return how long the exponential morphing of the old animations needed
+	 *         to get closer than the accuracy
+	 */
+	private static float morphDuration(float speed, float range, float accuracy) {
+		if (speed <= 0 || accuracy <= 0 || range <= accuracy) {
+			return MIN_DURATION;
+		}
+		return (float) Math.log(range / accuracy) / speed;
+	}
+
+	private static float maxDifference(Vec a, Vec b) {
+		return Math.max(Math.abs(a.x - b.x),
+				Math.max(Math.abs(a.y - b.y), Math.abs(a.z - b.z)));
+	}
+
+	/**
+	 * Like the {@link AnimationPulse}, the scale runs back and forth between
+	 * the lower and the upper end
+	 */
+	public synchronized int pulse(HasScale target, float speed, Vec lowerEnd,
+			Vec upperEnd, float accuracy) {
+		Vec v = getScaleOf(target);
+		v.setToVec(lowerEnd);
+		return add(target, v, null, 0, SCALE, lowerEnd.x, lowerEnd.y,
+				lowerEnd.z, 0, upperEnd.x, upperEnd.y, upperEnd.z, 0,
+				morphDuration(speed, maxDifference(lowerEnd, upperEnd),
+						accuracy), EASE_IN_OUT, PING_PONG);
+	}
+
+	/**
+	 * Like the {@link AnimationBounce}, the position runs back and forth
+	 * between the current position plus the relative lower and upper end
+	 *
+	 * @return the id or -1 if the target has no position
+	 */
+	public synchronized int bounce(HasPosition target, float speed,
+			Vec relativeLowerEnd, Vec relativeUpperEnd, float accuracy) {
+		Vec v = getPositionOf(target);
+		if (v == null) {
+			return -1;
+		}
+		float x = v.x, y = v.y, z = v.z;
+		return add(target, v, null, 0, POSITION, x + relativeLowerEnd.x, y
+				+ relativeLowerEnd.y, z + relativeLowerEnd.z, 0, x
+				+ relativeUpperEnd.x, y + relativeUpperEnd.y, z
+				+ relativeUpperEnd.z, 0, morphDuration(speed,
+				maxDifference(relativeLowerEnd, relativeUpperEnd), accuracy),
+				EASE_IN_OUT, PING_PONG);
+	}
+
+	/**
+	 * Like the {@link AnimationRotate}, the target turns around the rotation
+	 * vector. The angle around the axis is tweened and converted into the
+	 * rotation angles of the target in each step
+	 *
+	 * @param speed
+	 *            in degree per second, a negative speed turns the other way
+	 * @return the id or -1 if the speed is 0 or the rotation vector has no
+	 *         length, then the target does not turn
+	 */
+	public synchronized int rotate(HasRotation target, float speed,
+			Vec rotationVector) {
+		// a speed of 0 would never finish a circle:
+		if (speed == 0 || rotationVector.getLength() == 0) {
+			return -1;
+		}
+		Vec v = getRotationOf(target);
+		Vec axis = rotationVector.copy().normalize();
+		float fullCircle = speed < 0 ? -360 : 360;
+		return add(target, v, null, 0, AXIS_ROTATION, v.x, v.y, v.z, 0,
+				axis.x, axis.y, axis.z, fullCircle, 360 / Math.abs(speed),
+				LINEAR, LOOP);
+	}
+
+	/**
+	 * Like the {@link AnimationSwingRotate}, the rotation runs back and forth
+	 * between the current rotation plus the lower and upper end
+	 */
+	public synchronized int swingRotate(HasRotation target, float speed,
+			Vec lowerEnd, Vec upperEnd, float accuracy) {
+		Vec v = getRotationOf(target);
+		float x = v.x, y = v.y, z = v.z;
+		return add(target, v, null, 0, ROTATION, x + lowerEnd.x, y
+				+ lowerEnd.y, z + lowerEnd.z, 0, x + upperEnd.x, y
+				+ upperEnd.y, z + upperEnd.z, 0, morphDuration(speed,
+				maxDifference(lowerEnd, upperEnd), accuracy), EASE_IN_OUT,
+				PING_PONG);
+	}
+
+	/**
+	 * Like the {@link AnimationMove}, moves the target once by the relative
+	 * target position
+	 *
+	 * @return the id or -1 if the target has no position
+	 */
+	public synchronized int move(HasPosition target, float timeToMove,
+			Vec relativeTargetPos) {
+		Vec v = getPositionOf(target);
+		if (v == null) {
+			return -1;
+		}
+		return add(target, v, null, 0, POSITION, v.x, v.y, v.z, 0, v.x
+				+ relativeTargetPos.x, v.y + relativeTargetPos.y, v.z
+				+ relativeTargetPos.z, 0, timeToMove, EASE_OUT, ONCE);
+	}
+
+	/**
+	 * Like the {@link AnimationColorMorph}
+	 *
+	 * @param duration
+	 *            in seconds
+	 */
+	public synchronized int colorMorph(HasColor target, float duration,
+			Color targetColor) {
+		return tweenColor(target, targetColor, duration, EASE_OUT, ONCE);
+	}
+
+	/**
+	 * Like the {@link AnimationColorBounce}
+	 */
+	public synchronized int colorBounce(HasColor target, float speed,
+			Color startColor, Color endColor, float accuracy) {
+		Color c = getColorOf(target);
+		float range = Math.max(
+				Math.max(Math.abs(startColor.red - endColor.red),
+						Math.abs(startColor.green - endColor.green)),
+				Math.max(Math.abs(startColor.blue - endColor.blue),
+						Math.abs(startColor.alpha - endColor.alpha)));
+		return add(target, c, null, 0, COLOR, startColor.red,
+				startColor.green, startColor.blue, startColor.alpha,
+				endColor.red, endColor.green, endColor.blue, endColor.alpha,
+				morphDuration(speed, range, accuracy), EASE_IN_OUT, PING_PONG);
+	}
+
+	/**
+	 * Like the {@link AnimationGrow}, scales the target from 0 to its current
+	 * scale
+	 */
+	public synchronized int grow(HasScale target, float timeTillFullGrowth) {
+		Vec v = getScaleOf(target);
+		float x = v.x, y = v.y, z = v.z;
+		v.setToZero();
+		return add(target, v, null, 0, SCALE, 0, 0, 0, 0, x, y, z, 0,
+				timeTillFullGrowth, LINEAR, ONCE);
+	}
+
+	/**
+	 * Like the {@link AnimationShrink}, scales the target from its current
+	 * scale to 0
+	 */
+	public synchronized int shrink(HasScale target, float timeTillGone) {
+		Vec v = getScaleOf(target);
+		return add(target, v, null, 0, SCALE, v.x, v.y, v.z, 0, 0, 0, 0, 0,
+				timeTillGone, LINEAR, ONCE);
+	}
+
+	@Override
+	public void showDebugInformation() {
+		Log.i(LOG_TAG, "Debug infos about the TweenEngine:");
+		Log.i(LOG_TAG, "   > active tweens=" + getActiveTweenCount());
+	}
+
+	@Override
+	public void onStep(float timeDelta) {
+		advance(timeDelta);
+	}
+
+}
@@ -0,0 +1,193 @@
+package gl.scenegraph;
+
+import gl.HasPosition;
+import gl.ObjectPicker;
+import gl.RenderSnapshot;
+import gl.RenderStateExchange;
+import gl.Renderable;
+
+import javax.microedition.khronos.opengles.GL10;
+
+import util.Vec;
+import worlddata.TransformStore;
+import worlddata.Updateable;
+import worlddata.Visitor;
+
+/**
+ * Draws the same mesh at the position of every visible object of a
+ * {@link TransformStore}. One {@link InstancedMesh} in a normal
+ * {@link worlddata.Obj} can replace thousands of objs with their own
+ * {@link MeshComponent}s. In each update the objects of the store are animated
+ * and the ones which are too far away from the camera are culled.
+ *
+ * The renderer does not read the store directly. At the end of each update the
+ * visible objects are copied into a {@link RenderSnapshot} and only this copy
+ * is drawn, so changes to the store (including a resize in
+ * {@link TransformStore#allocate()}) can never be seen half done.
+ *
+ * @author Spobo
+ *
+ */
+public class InstancedMesh extends MeshComponent {
+
+	/**
+	 * per visible object: the transformation matrix, 1 if the object has an
+	 * own color (else 0) and the color
+	 */
+	private static final int FLOATS_PER_OBJECT = 21;
+	private static final int COLOR_FLAG_OFFSET = 16;
+
+	private final TransformStore myStore;
+	private final MeshComponent myTemplate;
+	private HasPosition myCamera;
+	private float myMaxDistance;
+	/**
+	 * the first value is the number of visible objects, followed by
+	 * {@link #FLOATS_PER_OBJECT} values for each of them
+	 */
+	private final RenderSnapshot myVisibleObjects = new RenderSnapshot(1);
+	// only used on the update thread:
+	private final float[] myUpdateMatrix = new float[16];
+	private final float[] myUpdateColor = new float[4];
+	// only used on the OpenGL thread:
+	private final float[] myMatrix = new float[16];
+	private final float[] myColor = new float[4];
+
+	/**
+	 * @param store
+	 * @param template
+	 *            the mesh which is drawn for each object, its own position,
+	 *            rotation and scale are ignored
+	 */
+	public InstancedMesh(TransformStore store, MeshComponent template) {
+		super(null);
+		myStore = store;
+		myTemplate = template;
+	}
+
+	/**
+	 * @param camera
+	 * @param maxDistance
+	 *            objects which are further away from the camera are not drawn
+	 */
+	public void setCulling(HasPosition camera, float maxDistance) {
+		myCamera = camera;
+		myMaxDistance = maxDistance;
+	}
+
+	public TransformStore getStore() {
+		return myStore;
+	}
+
+	@Override
+	public boolean update(float timeDelta, Updateable parent) {
+		myStore.animate(timeDelta);
+		HasPosition camera = myCamera;
+		if (camera != null) {
+			Vec c = camera.getPosition();
+			myStore.cullByDistance(c.x, c.y, c.z, myMaxDistance);
+		}
+		if (RenderStateExchange.useSnapshots) {
+			copyVisibleObjects();
+		}
+		return super.update(timeDelta, parent);
+	}
+
+	/**
+	 * copies the transformation and color of all visible objects into the
+	 * {@link RenderSnapshot} of the current tick
+	 */
+	private void copyVisibleObjects() {
+		final TransformStore s = myStore;
+		// the lock keeps allocate() from resizing the store meanwhile:
+		synchronized (s) {
+			final int n = s.getSlotCount();
+			final float[] b = myVisibleObjects.getWriteBuffer(1 + n
+					* FLOATS_PER_OBJECT);
+			final float[] color = myUpdateColor;
+			int pos = 1;
+			for (int i = 0; i < n; i++) {
+				if (!s.isVisible(i)) {
+					continue;
+				}
+				s.getTransform(i, myUpdateMatrix);
+				System.arraycopy(myUpdateMatrix, 0, b, pos, 16);
+				if (s.getColor(i, color)) {
+					b[pos + COLOR_FLAG_OFFSET] = 1;
+					System.arraycopy(color, 0, b, pos + COLOR_FLAG_OFFSET + 1,
+							4);
+				} else {
+					b[pos + COLOR_FLAG_OFFSET] = 0;
+				}
+				pos += FLOATS_PER_OBJECT;
+			}
+			b[0] = (pos - 1) / FLOATS_PER_OBJECT;
+		}
+		myVisibleObjects.commit();
+	}
+
+	@Override
+	public void draw(GL10 gl, Renderable parent) {
+		if (!RenderStateExchange.useSnapshots) {
+			drawStore(gl);
+			return;
+		}
+		/*
+		 * if the mesh was not updated in the rendered tick there is no copy
+		 * and nothing is drawn, the store itself is never read here:
+		 */
+		final float[] b = myVisibleObjects.getReadBuffer();
+		if (b == null) {
+			return;
+		}
+		final int n = (int) b[0];
+		final boolean picking = ObjectPicker.readyToDrawWithColor;
+		int pos = 1;
+		for (int i = 0; i < n; i++) {
+			gl.glPushMatrix();
+			gl.glMultMatrixf(b, pos);
+			// the pick color of the group is not overwritten:
+			if (!picking && b[pos + COLOR_FLAG_OFFSET] != 0) {
+				int c = pos + COLOR_FLAG_OFFSET + 1;
+				gl.glColor4f(b[c], b[c + 1], b[c + 2], b[c + 3]);
+			}
+			myTemplate.draw(gl, this);
+			gl.glPopMatrix();
+			pos += FLOATS_PER_OBJECT;
+		}
+	}
+
+	/**
+	 * draws the live values of the store if the {@link RenderStateExchange}
+	 * is disabled. The store is locked so that
+	 * {@link TransformStore#allocate()} can not resize it meanwhile, the
+	 * values of an object can still be half updated
+	 */
+	private void drawStore(GL10 gl) {
+		final TransformStore s = myStore;
+		final boolean picking = ObjectPicker.readyToDrawWithColor;
+		synchronized (s) {
+			final int n = s.getSlotCount();
+			for (int i = 0; i < n; i++) {
+				if (!s.isVisible(i)) {
+					continue;
+				}
+				s.getTransform(i, myMatrix);
+				gl.glPushMatrix();
+				gl.glMultMatrixf(myMatrix, 0);
+				if (!picking && s.getColor(i, myColor)) {
+					gl.glColor4f(myColor[0], myColor[1], myColor[2],
+							myColor[3]);
+				}
+				myTemplate.draw(gl, this);
+				gl.glPopMatrix();
+			}
+		}
+	}
+
+	@Override
+	public boolean accept(Visitor visitor) {
+		return visitor.default_visit(this);
+	}
+
+}
@@ -8,6 +8,8 @@ import gl.HasRotation;
 import gl.HasScale;
 import gl.LightSource;
 import gl.ObjectPicker;
+import gl.RenderSnapshot;
+import gl.RenderStateExchange;
 import gl.Renderable;
 import gl.animations.GLAnimation;
 
@@ -15,6 +17,7 @@ import javax.microedition.khronos.opengles.GL10;
 
 import listeners.SelectionListener;
 import system.Container;
+import util.Calculus;
 import util.EfficientList;
 import util.Log;
 import util.Vec;
@@ -61,7 +64,11 @@ public abstract class MeshComponent implements RenderableEntity,
 
 	@Deprecated
 	private boolean graficAnimationActive = true;
-	private RenderableEntity myChildren;
+	/**
+	 * volatile because the update thread removes finished children while the
+	 * renderer draws them, see {@link RenderList} for the child lists
+	 */
+	private volatile RenderableEntity myChildren;
 
 	private Updateable myParent;
 
@@ -77,6 +84,32 @@ public abstract class MeshComponent implements RenderableEntity,
 	 */
 	private float[] markerRotationMatrix;
 
+	/**
+	 * The transformation of this mesh relative to its parent (position,
+	 * scale, marker rotation and rotation) and the transformation relative to
+	 * the world. Both are only recalculated if something changed
+	 */
+	private final float[] myLocalMatrix = Calculus.createIdentityMatrix();
+	private final float[] myWorldMatrix = Calculus.createIdentityMatrix();
+	/**
+	 * the values which were used to calculate {@link #myLocalMatrix}
+	 */
+	private final float[] myLocalMatrixValues = new float[9];
+	private final Object myMatrixLock = new Object();
+	private boolean myLocalMatrixValid;
+	private int myLocalVersion;
+	private int myWorldVersion;
+	private int myWorldMatrixLocalVersion = -1;
+	private int myWorldMatrixParentVersion;
+	private MeshComponent myWorldMatrixParent;
+
+	/**
+	 * local matrix (16), color (4) and if the color is set (1) as they were at
+	 * the end of the last update, see {@link RenderStateExchange}
+	 */
+	private static final int SNAPSHOT_SIZE = 21;
+	private volatile RenderSnapshot mySnapshot;
+
 	/**
 	 * for now only used for marker detection
 	 */
@@ -171,48 +204,127 @@ public abstract class MeshComponent implements RenderableEntity,
 		this.myScale = new Vec(scaleRate, scaleRate, scaleRate);
 	}
 
-	private void loadPosition(GL10 gl) {
-		if (myPosition != null)
-			gl.glTranslatef(myPosition.x, myPosition.y, myPosition.z);
+	/**
+	 * @return the transformation relative to the parent. It is only
+	 *         recalculated if the position, rotation or scale changed since the
+	 *         last call. Don't modify the returned array!
+	 */
+	public float[] getLocalMatrix() {
+		synchronized (myMatrixLock) {
+			updateLocalMatrix();
+			return myLocalMatrix;
+		}
 	}
 
-	private void loadRotation(GL10 gl) {
-
-		if (markerRotationMatrix != null) {
-			gl.glMultMatrixf(markerRotationMatrix, 0);
+	private void updateLocalMatrix() {
+		float px = 0, py = 0, pz = 0, sx = 1, sy = 1, sz = 1, rx = 0, ry = 0, rz = 0;
+		if (myPosition != null) {
+			px = myPosition.x;
+			py = myPosition.y;
+			pz = myPosition.z;
+		}
+		if (myScale != null) {
+			sx = myScale.x;
+			sy = myScale.y;
+			sz = myScale.z;
 		}
-
 		if (myRotation != null) {
 			/*
-			 * this order is important. first rotate around the blue-z-axis
-			 * (like a compass) then the the green-y-axis and red-x-axis. the
-			 * order of the x and y axis rotations normaly is not important but
-			 * first x and then y is better in this case because of
-			 * Vec.calcRotationVec which may be extendet to add also a y
-			 * rotation which then would have to be rotated last to not make the
-			 * x-axis rotation wrong. so z x y is the best rotation order but
-			 * normaly z y x would work too:
+			 * the rotation order is important. first rotate around the
+			 * blue-z-axis (like a compass) then the the green-y-axis and
+			 * red-x-axis. the order of the x and y axis rotations normaly is
+			 * not important but first x and then y is better in this case
+			 * because of Vec.calcRotationVec which may be extendet to add also
+			 * a y rotation which then would have to be rotated last to not
+			 * make the x-axis rotation wrong. so z x y is the best rotation
+			 * order but normaly z y x would work too:
 			 */
-			gl.glRotatef(myRotation.z, 0, 0, 1);
-			gl.glRotatef(myRotation.x, 1, 0, 0);
-			gl.glRotatef(myRotation.y, 0, 1, 0);
+			rx = myRotation.x;
+			ry = myRotation.y;
+			rz = myRotation.z;
 		}
-
+		float[] v = myLocalMatrixValues;
+		/*
+		 * the vectors are changed directly by animations etc so the values have
+		 * to be compared. The marker matrix is changed directly by the marker
+		 * detection so it is always reloaded:
+		 */
+		if (myLocalMatrixValid && markerRotationMatrix == null && v[0] == px
+				&& v[1] == py && v[2] == pz && v[3] == sx && v[4] == sy
+				&& v[5] == sz && v[6] == rx && v[7] == ry && v[8] == rz) {
+			return;
+		}
+		v[0] = px;
+		v[1] = py;
+		v[2] = pz;
+		v[3] = sx;
+		v[4] = sy;
+		v[5] = sz;
+		v[6] = rx;
+		v[7] = ry;
+		v[8] = rz;
+		Calculus.setTransformM(myLocalMatrix, px, py, pz, sx, sy, sz,
+				markerRotationMatrix, rx, ry, rz);
+		myLocalMatrixValid = true;
+		myLocalVersion++;
 	}
 
-	private void setScale(GL10 gl) {
-		if (myScale != null)
-			gl.glScalef(myScale.x, myScale.y, myScale.z);
+	/**
+	 * The world matrix is the local matrix of this mesh multiplied with the
+	 * world matrices of all parent {@link MeshComponent}s. It is only
+	 * recalculated if this mesh or one of its parents changed. The
+	 * transformations done by {@link GLAnimation} children in their render
+	 * method are not included!
+	 * 
+	 * @return the transformation relative to the world (or the first parent
+	 *         which is not a {@link MeshComponent}, e.g. the {@link Obj}).
+	 *         Don't modify the returned array!
+	 */
+	public float[] getWorldMatrix() {
+		MeshComponent parent = null;
+		float[] parentMatrix = null;
+		int parentVersion = 0;
+		if (myParent instanceof MeshComponent) {
+			parent = (MeshComponent) myParent;
+			// the parent is updated first without holding the own lock:
+			parentMatrix = parent.getWorldMatrix();
+			parentVersion = parent.myWorldVersion;
+		}
+		synchronized (myMatrixLock) {
+			updateLocalMatrix();
+			if (myWorldMatrixLocalVersion != myLocalVersion
+					|| myWorldMatrixParent != parent
+					|| myWorldMatrixParentVersion != parentVersion) {
+				if (parentMatrix != null) {
+					Calculus.multiplyMM(myWorldMatrix, parentMatrix,
+							myLocalMatrix);
+				} else {
+					System.arraycopy(myLocalMatrix, 0, myWorldMatrix, 0, 16);
+				}
+				myWorldMatrixLocalVersion = myLocalVersion;
+				myWorldMatrixParent = parent;
+				myWorldMatrixParentVersion = parentVersion;
+				myWorldVersion++;
+			}
+			return myWorldMatrix;
+		}
 	}
 
 	@Override
-	public synchronized void render(GL10 gl, Renderable parent) {
+	public void render(GL10 gl, Renderable parent) {
+
+		float[] snapshot = null;
+		if (RenderStateExchange.useSnapshots && mySnapshot != null) {
+			snapshot = mySnapshot.getReadBuffer();
+		}
 
 		// store current matrix and then modify it:
 		gl.glPushMatrix();
-		loadPosition(gl);
-		setScale(gl);
-		loadRotation(gl);
+		if (snapshot != null) {
+			gl.glMultMatrixf(snapshot, 0);
+		} else {
+			gl.glMultMatrixf(getLocalMatrix(), 0);
+		}
 
 		if (ObjectPicker.readyToDrawWithColor) {
 			if (myPickColor != null) {
@@ -222,13 +334,19 @@ public abstract class MeshComponent implements RenderableEntity,
 				Log.d("Object Picker", "Object " + this
 						+ " had no picking color");
 			}
+		} else if (snapshot != null) {
+			if (snapshot[20] != 0) {
+				gl.glColor4f(snapshot[16], snapshot[17], snapshot[18],
+						snapshot[19]);
+			}
 		} else if (myColor != null) {
 			gl.glColor4f(myColor.red, myColor.green, myColor.blue,
 					myColor.alpha);
 		}
 
-		if (myChildren != null) {
-			myChildren.render(gl, this);
+		RenderableEntity children = myChildren;
+		if (children != null) {
+			children.render(gl, this);
 		}
 
 		draw(gl, parent);
@@ -252,20 +370,52 @@ public abstract class MeshComponent implements RenderableEntity,
 	public boolean update(float timeDelta, Updateable parent) {
 		setMyParent(parent);
 
-		if ((myChildren != null) && (graficAnimationActive)) {
+		RenderableEntity children = myChildren;
+		if ((children != null) && (graficAnimationActive)) {
 
 			// if the animation does not need to be animated anymore..
-			if (!myChildren.update(timeDelta, this)) {
+			if (!children.update(timeDelta, this)) {
 				// ..remove it:
-				Log.d(LOG_TAG, myChildren
+				Log.d(LOG_TAG, children
 						+ " will now be removed from mesh because it "
 						+ "is finished (returned false on update())");
-				myChildren = null;
+				if (myChildren == children) {
+					myChildren = null;
+				}
 			}
 		}
+		if (RenderStateExchange.useSnapshots) {
+			writeSnapshot();
+		}
 		return true;
 	}
 
+	/**
+	 * Stores the current transformation and color for the renderer, see
+	 * {@link RenderStateExchange}
+	 */
+	private void writeSnapshot() {
+		if (mySnapshot == null) {
+			mySnapshot = new RenderSnapshot(SNAPSHOT_SIZE);
+		}
+		float[] s = mySnapshot.getWriteBuffer();
+		synchronized (myMatrixLock) {
+			updateLocalMatrix();
+			System.arraycopy(myLocalMatrix, 0, s, 0, 16);
+		}
+		Color c = myColor;
+		if (c != null) {
+			s[16] = c.red;
+			s[17] = c.green;
+			s[18] = c.blue;
+			s[19] = c.alpha;
+			s[20] = 1;
+		} else {
+			s[20] = 0;
+		}
+		mySnapshot.commit();
+	}
+
 	/**
 	 * when this is called the mesh can be selected and the onClick,
 	 * onLongCLick.. {@link UndoableCommand}s set for this mesh will be executed
@@ -308,16 +458,17 @@ public abstract class MeshComponent implements RenderableEntity,
 		myParent = parent;
 	}
 
+	/**
+	 * @param pos
+	 *            the position of the mesh relative to the world (see
+	 *            {@link MeshComponent#getWorldMatrix()}) will be added to this
+	 *            vector
+	 */
 	public void getAbsoluteMeshPosition(Vec pos) {
-		if (myPosition != null) {
-			pos.add(myPosition);
-		}
-
-		Updateable p = getMyParent();
-		if (p instanceof MeshComponent) {
-			((MeshComponent) p).getAbsoluteMeshPosition(pos);
-		}
-
+		float[] m = getWorldMatrix();
+		pos.x += m[12];
+		pos.y += m[13];
+		pos.z += m[14];
 	}
 
 	@Override
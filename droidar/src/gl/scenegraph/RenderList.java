@@ -16,16 +16,27 @@ public class RenderList implements RenderableEntity,
 
 	private static final String LOG_TAG = "RenderList";
 	EfficientList<RenderableEntity> myItems = new EfficientList<RenderableEntity>();
+	/**
+	 * a copy of {@link #myItems} for the renderer. The items are changed by
+	 * the update thread, so the copy is replaced after each change instead of
+	 * iterating the list while it is modified
+	 */
+	private volatile EfficientList<RenderableEntity> myRenderItems = new EfficientList<RenderableEntity>();
 	private boolean isClearedAtLeastOnce;
 	private Updateable myParent;
 
 	@Override
 	public void render(GL10 gl, Renderable parent) {
-		for (int i = 0; i < myItems.myLength; i++) {
-			myItems.get(i).render(gl, parent);
+		EfficientList<RenderableEntity> items = myRenderItems;
+		for (int i = 0; i < items.myLength; i++) {
+			items.get(i).render(gl, parent);
 		}
 	}
 
+	private void itemsChanged() {
+		myRenderItems = myItems.copy();
+	}
+
 	@Override
 	public Updateable getMyParent() {
 		return myParent;
@@ -44,7 +55,7 @@ public class RenderList implements RenderableEntity,
 				Log.d(LOG_TAG, "Item " + myItems.get(i)
 						+ " will now be removed from RenderList because it "
 						+ "is finished (returned false on update())");
-				myItems.remove(myItems.get(i));
+				remove(myItems.get(i));
 			}
 		}
 		if (myItems.myLength == 0)
@@ -53,22 +64,27 @@ public class RenderList implements RenderableEntity,
 	}
 
 	@Override
-	public boolean add(RenderableEntity child) {
+	public synchronized boolean add(RenderableEntity child) {
 		if (child == this) {
 			Log.e(LOG_TAG, "Not allowed to add object to itself!");
 			return false;
 		}
-		return myItems.add(child);
+		boolean result = myItems.add(child);
+		itemsChanged();
+		return result;
 	}
 
 	@Override
-	public boolean remove(RenderableEntity child) {
-		return myItems.remove(child);
+	public synchronized boolean remove(RenderableEntity child) {
+		boolean result = myItems.remove(child);
+		itemsChanged();
+		return result;
 	}
 
 	@Override
-	public void clear() {
+	public synchronized void clear() {
 		myItems.clear();
+		itemsChanged();
 		isClearedAtLeastOnce = true;
 	}
 
@@ -82,7 +98,7 @@ public class RenderList implements RenderableEntity,
 	public void removeEmptyItems() {
 		for (int i = 0; i < myItems.myLength; i++) {
 			if (((Container) myItems.get(i)).isCleared())
-				myItems.remove(myItems.get(i));
+				remove(myItems.get(i));
 		}
 	}
 
@@ -107,7 +123,9 @@ public class RenderList implements RenderableEntity,
 	}
 
 	@Override
-	public boolean insert(int pos, RenderableEntity item) {
-		return myItems.insert(pos, item);
+	public synchronized boolean insert(int pos, RenderableEntity item) {
+		boolean result = myItems.insert(pos, item);
+		itemsChanged();
+		return result;
 	}
 }
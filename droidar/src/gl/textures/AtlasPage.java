@@ -0,0 +1,103 @@
+package gl.textures;
+
+import util.Log;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+
+/**
+ * One texture of the {@link TextureAtlas}. All bitmaps packed into the same
+ * page share one OpenGL texture, so they can be drawn with a single texture
+ * bind (and in a {@link SpriteBatch} with a single draw call).
+ *
+ * @author Spobo
+ *
+ */
+public class AtlasPage {
+
+	private static final String LOG_TAG = "AtlasPage";
+
+	private final String myName;
+	private final int mySize;
+	private final Bitmap myBitmap;
+	private final Canvas myCanvas;
+	private final SkylinePacker myPacker;
+	private final int[] myResultXY = new int[2];
+
+	/**
+	 * receives the texture id of the page from the {@link TextureManager}
+	 */
+	private final TexturedRenderData myPageData = new TexturedRenderData();
+	private boolean registeredAtTextureManager;
+
+	AtlasPage(String name, int size) {
+		myName = name;
+		mySize = size;
+		myBitmap = Bitmap.createBitmap(size, size, Bitmap.Config.ARGB_8888);
+		myCanvas = new Canvas(myBitmap);
+		myPacker = new SkylinePacker(size, size);
+	}
+
+	/**
+	 * @param b
+	 * @param padding
+	 *            the free pixels around the image to avoid that neighbor
+	 *            images bleed into each other when the texture is filtered
+	 * @return null if the bitmap does not fit into this page anymore
+	 */
+	AtlasRegion tryToAdd(Bitmap b, int padding) {
+		int w = b.getWidth();
+		int h = b.getHeight();
+		if (!myPacker.insert(w + 2 * padding, h + 2 * padding, myResultXY)) {
+			return null;
+		}
+		int x = myResultXY[0] + padding;
+		int y = myResultXY[1] + padding;
+		synchronized (myBitmap) {
+			myCanvas.drawBitmap(b, x, y, null);
+		}
+		if (!registeredAtTextureManager) {
+			TextureManager.getInstance().addTexture(myPageData, myBitmap,
+					myName);
+			/*
+			 * the page is changed later on so it must never be recycled and
+			 * mipmaps would let the regions bleed into each other:
+			 */
+			Texture t = TextureManager.getInstance().loadTextureFromMap(myName);
+			t.setRecyclable(false);
+			t.setMipmapsAllowed(false);
+			registeredAtTextureManager = true;
+		} else {
+			TextureManager.getInstance().updateTextureRegion(myName, b, x, y);
+		}
+		Log.v(LOG_TAG, "Packed " + w + "x" + h + " bitmap into " + myName
+				+ " (occupancy now " + myPacker.getOccupancy() + ")");
+		return new AtlasRegion(this, x, y, w, h);
+	}
+
+	/**
+	 * @return the OpenGL texture id of this page or
+	 *         {@link TexturedRenderData#NO_ID_SET} if the page was not
+	 *         uploaded yet
+	 */
+	public int getTextureId() {
+		return myPageData.myTextureId;
+	}
+
+	public String getName() {
+		return myName;
+	}
+
+	public int getSize() {
+		return mySize;
+	}
+
+	public float getOccupancy() {
+		return myPacker.getOccupancy();
+	}
+
+	@Override
+	public String toString() {
+		return myName;
+	}
+
+}
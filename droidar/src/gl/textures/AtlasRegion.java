@@ -0,0 +1,82 @@
+package gl.textures;
+
+/**
+ * A sub-rectangle of an {@link AtlasPage}. The texture coordinates of a
+ * {@link TexturedRenderData} which uses a region are mapped from the normal 0
+ * to 1 range into the area of this region, see
+ * {@link AtlasRegion#mapU(float)} and {@link AtlasRegion#mapV(float)}
+ *
+ * @author Spobo
+ *
+ */
+public class AtlasRegion {
+
+	private final AtlasPage myPage;
+	private final int myX;
+	private final int myY;
+	private final int myWidth;
+	private final int myHeight;
+
+	private final float u0;
+	private final float v0;
+	private final float u1;
+	private final float v1;
+
+	AtlasRegion(AtlasPage page, int x, int y, int width, int height) {
+		myPage = page;
+		myX = x;
+		myY = y;
+		myWidth = width;
+		myHeight = height;
+		float size = page.getSize();
+		u0 = x / size;
+		v0 = y / size;
+		u1 = (x + width) / size;
+		v1 = (y + height) / size;
+	}
+
+	/**
+	 * @param u
+	 *            a texture coordinate in the range 0 to 1
+	 * @return the coordinate inside of the {@link AtlasPage}
+	 */
+	public float mapU(float u) {
+		return u0 + u * (u1 - u0);
+	}
+
+	/**
+	 * @param v
+	 *            a texture coordinate in the range 0 to 1
+	 * @return the coordinate inside of the {@link AtlasPage}
+	 */
+	public float mapV(float v) {
+		return v0 + v * (v1 - v0);
+	}
+
+	public AtlasPage getPage() {
+		return myPage;
+	}
+
+	public int getX() {
+		return myX;
+	}
+
+	public int getY() {
+		return myY;
+	}
+
+	public int getWidth() {
+		return myWidth;
+	}
+
+	public int getHeight() {
+		return myHeight;
+	}
+
+	@Override
+	public String toString() {
+		return "AtlasRegion(" + myPage.getName() + ": " + myX + "," + myY
+				+ " " + myWidth + "x" + myHeight + ")";
+	}
+
+}
@@ -0,0 +1,181 @@
+package gl.textures;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import util.Log;
+import android.graphics.Bitmap;
+import android.opengl.ETC1Util;
+import android.opengl.ETC1Util.ETC1Texture;
+
+/**
+ * Compressing a texture to ETC1 is slow, so the compressed data is stored on
+ * the disk the first time a texture is used and loaded from there the next
+ * times. Each mipmap level is stored in its own .pkm file. The texture size is
+ * part of the file name, but if the content of a texture changes its texture
+ * name should change as well (e.g. by adding a version number) or
+ * {@link Etc1TextureCache#clear()} has to be called.
+ * 
+ * @author Spobo
+ * 
+ */
+public class Etc1TextureCache {
+
+	private static final String LOG_TAG = "Etc1TextureCache";
+	private static final String FILE_ENDING = ".pkm";
+
+	private final File myDir;
+
+	/**
+	 * @param cacheDir
+	 *            e.g. {@link android.content.Context#getCacheDir()}
+	 */
+	public Etc1TextureCache(File cacheDir) {
+		myDir = cacheDir;
+		if (!myDir.exists() && !myDir.mkdirs()) {
+			Log.e(LOG_TAG, "Could not create cache dir " + myDir);
+		}
+	}
+
+	/**
+	 * @param textureName
+	 * @param level
+	 *            the mipmap level
+	 * @param b
+	 *            the image for this level, only used if the level is not
+	 *            cached yet
+	 * @return the compressed texture
+	 */
+	public ETC1Texture getOrCreate(String textureName, int level, Bitmap b) {
+		File f = getFile(textureName, level, b.getWidth(), b.getHeight());
+		if (f.exists()) {
+			ETC1Texture t = load(f);
+			if (t != null) {
+				return t;
+			}
+		}
+		ETC1Texture t = compress(b);
+		store(t, f);
+		return t;
+	}
+
+	/**
+	 * This can be called from a background thread (e.g. on the first start of
+	 * the app) to avoid that the compression has to be done when the texture
+	 * is uploaded by the render thread
+	 * 
+	 * @param textureName
+	 * @param b
+	 * @param withMipmaps
+	 */
+	public void precompress(String textureName, Bitmap b, boolean withMipmaps) {
+		getOrCreate(textureName, 0, b);
+		if (!withMipmaps) {
+			return;
+		}
+		int w = b.getWidth();
+		int h = b.getHeight();
+		int[] pixels = new int[w * h];
+		b.getPixels(pixels, 0, w, 0, 0, w, h);
+		int levels = MipmapGenerator.getLevelCount(w, h);
+		for (int level = 1; level < levels; level++) {
+			pixels = MipmapGenerator.downsample(pixels, w, h, null);
+			w = MipmapGenerator.nextLevelSize(w);
+			h = MipmapGenerator.nextLevelSize(h);
+			Bitmap levelBitmap = Bitmap.createBitmap(pixels, w, h,
+					Bitmap.Config.ARGB_8888);
+			getOrCreate(textureName, level, levelBitmap);
+			levelBitmap.recycle();
+		}
+	}
+
+	/**
+	 * @param b
+	 * @return the ETC1 compressed version of the bitmap (the alpha channel is
+	 *         lost)
+	 */
+	public static ETC1Texture compress(Bitmap b) {
+		Bitmap rgb = b;
+		if (b.getConfig() != Bitmap.Config.RGB_565) {
+			rgb = b.copy(Bitmap.Config.RGB_565, false);
+		}
+		int w = rgb.getWidth();
+		int h = rgb.getHeight();
+		ByteBuffer pixels = ByteBuffer.allocateDirect(w * h * 2).order(
+				ByteOrder.nativeOrder());
+		rgb.copyPixelsToBuffer(pixels);
+		pixels.position(0);
+		if (rgb != b) {
+			rgb.recycle();
+		}
+		return ETC1Util.compressTexture(pixels, w, h, 2, 2 * w);
+	}
+
+	private ETC1Texture load(File f) {
+		InputStream in = null;
+		try {
+			in = new BufferedInputStream(new FileInputStream(f));
+			return ETC1Util.createTexture(in);
+		} catch (IOException e) {
+			Log.w(LOG_TAG, "Could not load cached texture " + f + ": " + e);
+			return null;
+		} finally {
+			close(in);
+		}
+	}
+
+	private void store(ETC1Texture t, File f) {
+		OutputStream out = null;
+		try {
+			out = new BufferedOutputStream(new FileOutputStream(f));
+			ETC1Util.writeTexture(t, out);
+		} catch (IOException e) {
+			Log.w(LOG_TAG, "Could not store compressed texture " + f + ": "
+					+ e);
+		} finally {
+			close(out);
+		}
+	}
+
+	private static void close(Closeable c) {
+		if (c != null) {
+			try {
+				c.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	private File getFile(String textureName, int level, int width, int height) {
+		String name = textureName.replaceAll("[^A-Za-z0-9_-]", "_") + "_"
+				+ Integer.toHexString(textureName.hashCode()) + "_" + width
+				+ "x" + height + "_L" + level + FILE_ENDING;
+		return new File(myDir, name);
+	}
+
+	/**
+	 * deletes all cached textures
+	 */
+	public void clear() {
+		File[] files = myDir.listFiles();
+		if (files == null) {
+			return;
+		}
+		for (File f : files) {
+			if (f.getName().endsWith(FILE_ENDING)) {
+				f.delete();
+			}
+		}
+	}
+
+}
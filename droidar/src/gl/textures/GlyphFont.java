@@ -0,0 +1,221 @@
+package gl.textures;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map.Entry;
+
+import util.Log;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Typeface;
+
+/**
+ * Rasterizes each character only once into the {@link TextureAtlas} so that
+ * text can be displayed as textured squares (see {@link TextLabel}). Changing
+ * a text will not create or upload any new texture as long as all its
+ * characters were used before.
+ *
+ * The layout of a text (which glyph is placed where) is cached as well, so
+ * switching between already used strings (like "10m", "11m", "10m") is cheap.
+ *
+ * @author Spobo
+ *
+ */
+public class GlyphFont {
+
+	private static final String LOG_TAG = "GlyphFont";
+	private static final float DEFAULT_TEXT_SIZE_IN_PX = 32;
+	private static final int MAX_CACHED_LAYOUTS = 256;
+
+	private static GlyphFont defaultFont;
+
+	/**
+	 * The result of {@link GlyphFont#getLayout(String)}
+	 */
+	public static class Layout {
+		/**
+		 * the glyphs to draw (whitespace is skipped)
+		 */
+		public final AtlasRegion[] glyphs;
+		/**
+		 * the horizontal center of each glyph in pixels from the start of the
+		 * text
+		 */
+		public final float[] glyphCenters;
+		/**
+		 * the complete width of the text in pixels
+		 */
+		public final float width;
+
+		private Layout(AtlasRegion[] glyphs, float[] glyphCenters, float width) {
+			this.glyphs = glyphs;
+			this.glyphCenters = glyphCenters;
+			this.width = width;
+		}
+	}
+
+	private final String myName;
+	private final Paint myPaint;
+	private final float myBaseline;
+	private final int myLineHeight;
+	private final HashMap<Character, AtlasRegion> myGlyphs = new HashMap<Character, AtlasRegion>();
+	private final HashMap<Character, Float> myAdvances = new HashMap<Character, Float>();
+	/**
+	 * the glyphs which did not fit into the atlas, they are only tried once
+	 */
+	private final HashSet<Character> myMissingGlyphs = new HashSet<Character>();
+
+	private final LinkedHashMap<String, Layout> myLayoutCache = new LinkedHashMap<String, Layout>(
+			16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Entry<String, Layout> eldest) {
+			return size() > MAX_CACHED_LAYOUTS;
+		}
+	};
+
+	/**
+	 * @param uniqueName
+	 *            used to name the glyphs in the {@link TextureAtlas}, so each
+	 *            font needs its own name
+	 * @param typeface
+	 *            e.g. {@link Typeface#DEFAULT_BOLD}
+	 * @param textSizeInPx
+	 *            the size the glyphs are rasterized with. Bigger values look
+	 *            better when the text is near but need more texture memory
+	 * @param argbColor
+	 *            e.g. {@link android.graphics.Color#WHITE}
+	 */
+	public GlyphFont(String uniqueName, Typeface typeface, float textSizeInPx,
+			int argbColor) {
+		myName = uniqueName;
+		myPaint = new Paint();
+		myPaint.setAntiAlias(true);
+		myPaint.setTypeface(typeface);
+		myPaint.setTextSize(textSizeInPx);
+		myPaint.setColor(argbColor);
+		Paint.FontMetrics fm = myPaint.getFontMetrics();
+		myBaseline = -fm.ascent;
+		myLineHeight = (int) Math.ceil(fm.descent - fm.ascent);
+	}
+
+	/**
+	 * @return a bold white font which is shared by all texts which do not
+	 *         need a special font
+	 */
+	public static synchronized GlyphFont getDefault() {
+		if (defaultFont == null) {
+			defaultFont = new GlyphFont("defaultFont", Typeface.DEFAULT_BOLD,
+					DEFAULT_TEXT_SIZE_IN_PX, android.graphics.Color.WHITE);
+		}
+		return defaultFont;
+	}
+
+	/**
+	 * Has to be called when the {@link TextureAtlas} is reset
+	 */
+	public static synchronized void resetDefault() {
+		defaultFont = null;
+	}
+
+	/**
+	 * @param text
+	 * @return the cached layout or a new one if the text was not used
+	 *         recently
+	 */
+	public synchronized Layout getLayout(String text) {
+		Layout l = myLayoutCache.get(text);
+		if (l == null) {
+			l = createLayout(text);
+			myLayoutCache.put(text, l);
+		}
+		return l;
+	}
+
+	private Layout createLayout(String text) {
+		int glyphCount = 0;
+		for (int i = 0; i < text.length(); i++) {
+			if (!Character.isWhitespace(text.charAt(i))) {
+				glyphCount++;
+			}
+		}
+		AtlasRegion[] glyphs = new AtlasRegion[glyphCount];
+		float[] centers = new float[glyphCount];
+		float x = 0;
+		int j = 0;
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			float advance = getAdvance(c);
+			if (!Character.isWhitespace(c)) {
+				glyphs[j] = getGlyph(c);
+				// a missing glyph is left empty but keeps its advance:
+				if (glyphs[j] != null) {
+					centers[j] = x + glyphs[j].getWidth() / 2f;
+					j++;
+				}
+			}
+			x += advance;
+		}
+		if (j < glyphCount) {
+			AtlasRegion[] drawnGlyphs = new AtlasRegion[j];
+			float[] drawnCenters = new float[j];
+			System.arraycopy(glyphs, 0, drawnGlyphs, 0, j);
+			System.arraycopy(centers, 0, drawnCenters, 0, j);
+			glyphs = drawnGlyphs;
+			centers = drawnCenters;
+		}
+		return new Layout(glyphs, centers, x);
+	}
+
+	/**
+	 * @param c
+	 * @return the region of the glyph. It is rasterized into the
+	 *         {@link TextureAtlas} the first time it is requested. Null if the
+	 *         glyph is bigger than an atlas page
+	 */
+	public synchronized AtlasRegion getGlyph(char c) {
+		AtlasRegion r = myGlyphs.get(c);
+		if (r == null && !myMissingGlyphs.contains(c)) {
+			String s = String.valueOf(c);
+			int w = Math.max(1, (int) Math.ceil(getAdvance(c)));
+			Bitmap b = Bitmap.createBitmap(w, myLineHeight,
+					Bitmap.Config.ARGB_8888);
+			new Canvas(b).drawText(s, 0, myBaseline, myPaint);
+			r = TextureAtlas.getInstance().add(myName + "_" + s, b);
+			if (r == null) {
+				Log.e(LOG_TAG, "Glyph '" + s + "' (" + w + "x" + myLineHeight
+						+ "px) does not fit into the texture atlas, "
+						+ "it will be left empty");
+				myMissingGlyphs.add(c);
+				return null;
+			}
+			Log.v(LOG_TAG, "Rasterized glyph '" + s + "' into " + r);
+			myGlyphs.put(c, r);
+		}
+		return r;
+	}
+
+	public synchronized float getAdvance(char c) {
+		Float a = myAdvances.get(c);
+		if (a == null) {
+			a = myPaint.measureText(String.valueOf(c));
+			myAdvances.put(c, a);
+		}
+		return a;
+	}
+
+	/**
+	 * @return the height of one line of text in pixels
+	 */
+	public int getLineHeight() {
+		return myLineHeight;
+	}
+
+	public String getName() {
+		return myName;
+	}
+
+}
@@ -0,0 +1,90 @@
+package gl.textures;
+
+/**
+ * Creates the smaller levels of a mipmap pyramid on the CPU with a 2x2 box
+ * filter. This is the fallback if the device can't generate mipmaps in
+ * hardware (OpenGL ES 1.0) or if the texture is compressed. The pixels are
+ * passed as ARGB int arrays like returned by
+ * {@link android.graphics.Bitmap#getPixels(int[], int, int, int, int, int, int)}
+ * so this class has no Android dependencies and can be tested on the desktop.
+ * 
+ * @author Spobo
+ * 
+ */
+public class MipmapGenerator {
+
+	/**
+	 * @param size
+	 *            width or height of the current level
+	 * @return the size of the next smaller level
+	 */
+	public static int nextLevelSize(int size) {
+		return Math.max(1, size / 2);
+	}
+
+	/**
+	 * @param width
+	 * @param height
+	 * @return the number of levels including the full size level 0
+	 */
+	public static int getLevelCount(int width, int height) {
+		int levels = 1;
+		while (width > 1 || height > 1) {
+			width = nextLevelSize(width);
+			height = nextLevelSize(height);
+			levels++;
+		}
+		return levels;
+	}
+
+	/**
+	 * Averages each 2x2 block of the source into one pixel of the target. If
+	 * one dimension is already 1 only 2 pixels are averaged
+	 * 
+	 * @param src
+	 *            ARGB pixels, row after row
+	 * @param width
+	 * @param height
+	 * @param target
+	 *            has to have at least the size of the next level, can be null
+	 * @return the target array (or a new one if the target was null or too
+	 *         small)
+	 */
+	public static int[] downsample(int[] src, int width, int height,
+			int[] target) {
+		final int w2 = nextLevelSize(width);
+		final int h2 = nextLevelSize(height);
+		if (target == null || target.length < w2 * h2) {
+			target = new int[w2 * h2];
+		}
+		for (int y = 0; y < h2; y++) {
+			int y0 = Math.min(y * 2, height - 1);
+			int y1 = Math.min(y * 2 + 1, height - 1);
+			for (int x = 0; x < w2; x++) {
+				int x0 = Math.min(x * 2, width - 1);
+				int x1 = Math.min(x * 2 + 1, width - 1);
+				target[y * w2 + x] = average(src[y0 * width + x0], src[y0
+						* width + x1], src[y1 * width + x0], src[y1 * width
+						+ x1]);
+			}
+		}
+		return target;
+	}
+
+	private static int average(int p1, int p2, int p3, int p4) {
+		int a = (channel(p1, 24) + channel(p2, 24) + channel(p3, 24)
+				+ channel(p4, 24) + 2) >> 2;
+		int r = (channel(p1, 16) + channel(p2, 16) + channel(p3, 16)
+				+ channel(p4, 16) + 2) >> 2;
+		int g = (channel(p1, 8) + channel(p2, 8) + channel(p3, 8)
+				+ channel(p4, 8) + 2) >> 2;
+		int b = (channel(p1, 0) + channel(p2, 0) + channel(p3, 0)
+				+ channel(p4, 0) + 2) >> 2;
+		return (a << 24) | (r << 16) | (g << 8) | b;
+	}
+
+	private static int channel(int argb, int shift) {
+		return (argb >>> shift) & 0xFF;
+	}
+
+}
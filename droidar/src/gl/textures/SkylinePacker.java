@@ -0,0 +1,183 @@
+package gl.textures;
+
+/**
+ * A simple skyline rectangle packer (bottom-left heuristic). It is used by the
+ * {@link TextureAtlas} to find free places for small bitmaps inside of the
+ * atlas pages. The skyline is stored in 3 int arrays to avoid creating objects
+ * for every segment.
+ *
+ * This class does not depend on any Android classes so it can be tested on
+ * the desktop as well.
+ *
+ * @author Spobo
+ *
+ */
+public class SkylinePacker {
+
+	private static final int INIT_SEGMENT_COUNT = 16;
+
+	private final int myWidth;
+	private final int myHeight;
+
+	private int[] mySegX = new int[INIT_SEGMENT_COUNT];
+	private int[] mySegY = new int[INIT_SEGMENT_COUNT];
+	private int[] mySegWidth = new int[INIT_SEGMENT_COUNT];
+	private int mySegCount;
+
+	private long myUsedArea;
+
+	public SkylinePacker(int width, int height) {
+		myWidth = width;
+		myHeight = height;
+		clear();
+	}
+
+	public void clear() {
+		mySegCount = 1;
+		mySegX[0] = 0;
+		mySegY[0] = 0;
+		mySegWidth[0] = myWidth;
+		myUsedArea = 0;
+	}
+
+	/**
+	 * @param w
+	 * @param h
+	 * @param resultXY
+	 *            an int[2] where the x and y position of the packed rectangle
+	 *            will be stored in
+	 * @return false if there was no space left for the rectangle
+	 */
+	public boolean insert(int w, int h, int[] resultXY) {
+		if (w <= 0 || h <= 0 || w > myWidth || h > myHeight) {
+			return false;
+		}
+		int bestIndex = -1;
+		int bestTop = Integer.MAX_VALUE;
+		int bestSegWidth = Integer.MAX_VALUE;
+		int bestY = 0;
+		for (int i = 0; i < mySegCount; i++) {
+			int y = fits(i, w, h);
+			if (y >= 0) {
+				int top = y + h;
+				if (top < bestTop
+						|| (top == bestTop && mySegWidth[i] < bestSegWidth)) {
+					bestIndex = i;
+					bestTop = top;
+					bestSegWidth = mySegWidth[i];
+					bestY = y;
+				}
+			}
+		}
+		if (bestIndex == -1) {
+			return false;
+		}
+		resultXY[0] = mySegX[bestIndex];
+		resultXY[1] = bestY;
+		addSkylineLevel(bestIndex, mySegX[bestIndex], bestY + h, w);
+		myUsedArea += w * h;
+		return true;
+	}
+
+	/**
+	 * @return the y position where a rectangle starting at segment i could be
+	 *         placed or -1 if it does not fit there
+	 */
+	private int fits(int i, int w, int h) {
+		int x = mySegX[i];
+		if (x + w > myWidth) {
+			return -1;
+		}
+		int widthLeft = w;
+		int y = mySegY[i];
+		while (widthLeft > 0) {
+			if (mySegY[i] > y) {
+				y = mySegY[i];
+			}
+			if (y + h > myHeight) {
+				return -1;
+			}
+			widthLeft -= mySegWidth[i];
+			i++;
+		}
+		return y;
+	}
+
+	private void addSkylineLevel(int index, int x, int y, int w) {
+		insertSegment(index, x, y, w);
+
+		// shrink or remove the segments which are now covered:
+		for (int i = index + 1; i < mySegCount; i++) {
+			int prevEnd = mySegX[i - 1] + mySegWidth[i - 1];
+			if (mySegX[i] < prevEnd) {
+				int shrink = prevEnd - mySegX[i];
+				mySegX[i] += shrink;
+				mySegWidth[i] -= shrink;
+				if (mySegWidth[i] <= 0) {
+					removeSegment(i);
+					i--;
+				} else {
+					break;
+				}
+			} else {
+				break;
+			}
+		}
+
+		// merge neighbors with the same height:
+		for (int i = 0; i < mySegCount - 1; i++) {
+			if (mySegY[i] == mySegY[i + 1]) {
+				mySegWidth[i] += mySegWidth[i + 1];
+				removeSegment(i + 1);
+				i--;
+			}
+		}
+	}
+
+	private void insertSegment(int index, int x, int y, int w) {
+		if (mySegCount == mySegX.length) {
+			mySegX = doubleTheArraySize(mySegX);
+			mySegY = doubleTheArraySize(mySegY);
+			mySegWidth = doubleTheArraySize(mySegWidth);
+		}
+		int moveCount = mySegCount - index;
+		System.arraycopy(mySegX, index, mySegX, index + 1, moveCount);
+		System.arraycopy(mySegY, index, mySegY, index + 1, moveCount);
+		System.arraycopy(mySegWidth, index, mySegWidth, index + 1, moveCount);
+		mySegX[index] = x;
+		mySegY[index] = y;
+		mySegWidth[index] = w;
+		mySegCount++;
+	}
+
+	private void removeSegment(int index) {
+		int moveCount = mySegCount - index - 1;
+		System.arraycopy(mySegX, index + 1, mySegX, index, moveCount);
+		System.arraycopy(mySegY, index + 1, mySegY, index, moveCount);
+		System.arraycopy(mySegWidth, index + 1, mySegWidth, index, moveCount);
+		mySegCount--;
+	}
+
+	private static int[] doubleTheArraySize(int[] a) {
+		int[] b = new int[a.length * 2];
+		System.arraycopy(a, 0, b, 0, a.length);
+		return b;
+	}
+
+	/**
+	 * @return a value between 0 and 1 which tells how much of the area is
+	 *         already used
+	 */
+	public float getOccupancy() {
+		return (float) myUsedArea / (float) (myWidth * myHeight);
+	}
+
+	public int getWidth() {
+		return myWidth;
+	}
+
+	public int getHeight() {
+		return myHeight;
+	}
+
+}
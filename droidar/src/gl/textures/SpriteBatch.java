@@ -0,0 +1,455 @@
+package gl.textures;
+
+import gl.GLUtilityClass;
+import gl.ObjectPicker;
+import gl.Renderable;
+import gl.scenegraph.MeshComponent;
+
+import java.nio.FloatBuffer;
+
+import javax.microedition.khronos.opengles.GL10;
+import javax.microedition.khronos.opengles.GL11;
+
+import util.EfficientList;
+import util.Vec;
+import worlddata.Visitor;
+
+/**
+ * Draws many textured squares (e.g. POI icons) which are packed into the
+ * {@link TextureAtlas} with one draw call per {@link AtlasPage} instead of one
+ * {@link TexturedShape} (and one texture bind + draw call) per icon. The
+ * squares are positioned relative to the batch and stand upright like the
+ * squares created by
+ * {@link gl.GLFactory#newTexturedSquare(String, android.graphics.Bitmap, float)}
+ *
+ * In the billboard mode (see {@link #setBillboard(boolean)}) all squares are
+ * turned to the camera once per frame: the camera axes are read from the
+ * current modelview matrix and every square is expanded along them into the
+ * shared vertex buffer. This replaces one
+ * {@link gl.animations.AnimationFaceToCamera} per icon and the squares do not
+ * lag behind the camera.
+ *
+ * @author Spobo
+ *
+ */
+public class SpriteBatch extends MeshComponent {
+
+	private static final int FLOATS_PER_VERTEX = 3;
+	private static final int FLOATS_PER_TEX_COORD = 2;
+	private static final int VERTICES_PER_SPRITE = 6;
+	/**
+	 * the camera axes have to change more than this before the billboards are
+	 * expanded again
+	 */
+	private static final float AXIS_EPSILON = 0.0005f;
+
+	/**
+	 * A single textured square of the {@link SpriteBatch}
+	 */
+	public static class Sprite {
+
+		private final SpriteBatch myBatch;
+		private final Vec myPosition;
+		private AtlasRegion myRegion;
+		private float myHalfWidth;
+		private float myHalfHeight;
+		private float myOffsetX;
+		private float myOffsetY;
+
+		private Sprite(SpriteBatch batch, AtlasRegion region, Vec position,
+				float heightInMeters) {
+			myBatch = batch;
+			myPosition = position.copy();
+			setRegion(region, heightInMeters);
+		}
+
+		/**
+		 * @param region
+		 * @param heightInMeters
+		 *            the width is calculated from the aspect ratio of the
+		 *            region
+		 */
+		public void setRegion(AtlasRegion region, float heightInMeters) {
+			synchronized (myBatch.mySprites) {
+				myRegion = region;
+				myHalfHeight = heightInMeters / 2;
+				myHalfWidth = myHalfHeight * region.getWidth()
+						/ region.getHeight();
+				myBatch.spritesChanged();
+			}
+		}
+
+		public void setPosition(Vec position) {
+			synchronized (myBatch.mySprites) {
+				myPosition.setToVec(position);
+				myBatch.spritesChanged();
+			}
+		}
+
+		/**
+		 * Moves the square inside its own plane, e.g. to lay out the glyphs of
+		 * a text around one position. In the billboard mode the offset is
+		 * turned with the square
+		 *
+		 * @param offsetX
+		 *            along the width of the square (for upright squares this
+		 *            is the x axis)
+		 * @param offsetY
+		 *            along the height of the square (for upright squares this
+		 *            is the z axis)
+		 */
+		public void setOffset(float offsetX, float offsetY) {
+			synchronized (myBatch.mySprites) {
+				myOffsetX = offsetX;
+				myOffsetY = offsetY;
+				myBatch.spritesChanged();
+			}
+		}
+
+		/**
+		 * @return a copy of the position. Use
+		 *         {@link Sprite#setPosition(Vec)} to change it
+		 */
+		public Vec getPosition() {
+			synchronized (myBatch.mySprites) {
+				return myPosition.copy();
+			}
+		}
+
+		public AtlasRegion getRegion() {
+			synchronized (myBatch.mySprites) {
+				return myRegion;
+			}
+		}
+	}
+
+	/**
+	 * changed by the update thread (or any other thread) and read by the GL
+	 * thread, so the list and the fields of the sprites are only accessed
+	 * while holding its lock
+	 */
+	private final EfficientList<Sprite> mySprites = new EfficientList<Sprite>();
+	private final EfficientList<AtlasPage> myUsedPages = new EfficientList<AtlasPage>();
+	private int[] myPageVertexStart = new int[4];
+	private int[] myPageVertexCount = new int[4];
+
+	private Sprite[] myOrderedSprites = new Sprite[16];
+	private float[] myVertices;
+	private float[] myTexCoords;
+	private FloatBuffer myVertexBuffer;
+	private FloatBuffer myTexCoordBuffer;
+	private int myVertexCount;
+	private volatile boolean spritesChanged;
+
+	private volatile boolean isBillboard;
+	private final float[] myModelView = new float[16];
+	/**
+	 * the direction of the width and the height of all squares, for upright
+	 * squares these are the x and the z axis
+	 */
+	private final float[] myAxes = { 1, 0, 0, 0, 0, 1 };
+
+	public SpriteBatch() {
+		super(null);
+	}
+
+	/**
+	 * @param region
+	 *            the region of the texture, see
+	 *            {@link TextureAtlas#add(String, android.graphics.Bitmap)}
+	 * @param position
+	 *            the position relative to the batch
+	 * @param heightInMeters
+	 * @return the created {@link Sprite} which can be used to move or remove
+	 *         the square later on
+	 */
+	public Sprite add(AtlasRegion region, Vec position, float heightInMeters) {
+		Sprite s = new Sprite(this, region, position, heightInMeters);
+		synchronized (mySprites) {
+			mySprites.add(s);
+			spritesChanged();
+		}
+		return s;
+	}
+
+	public boolean remove(Sprite s) {
+		synchronized (mySprites) {
+			boolean removed = mySprites.remove(s);
+			spritesChanged();
+			return removed;
+		}
+	}
+
+	public int getSpriteCount() {
+		synchronized (mySprites) {
+			return mySprites.myLength;
+		}
+	}
+
+	/**
+	 * @return the number of draw calls needed in the last frame, which is the
+	 *         number of {@link AtlasPage}s the sprites use
+	 */
+	public int getDrawCallCount() {
+		return myUsedPages.myLength;
+	}
+
+	/**
+	 * @param billboard
+	 *            true if all squares should face the camera. This needs the
+	 *            {@link GL11} interface to read the modelview matrix, without
+	 *            it the squares stay upright
+	 */
+	public void setBillboard(boolean billboard) {
+		isBillboard = billboard;
+	}
+
+	public boolean isBillboard() {
+		return isBillboard;
+	}
+
+	private void spritesChanged() {
+		spritesChanged = true;
+	}
+
+	@Override
+	public void draw(GL10 gl, Renderable parent) {
+		boolean axesChanged = isBillboard ? updateCameraAxes(gl) : setAxes(1,
+				0, 0, 0, 0, 1);
+		synchronized (mySprites) {
+			if (spritesChanged) {
+				spritesChanged = false;
+				rebuildBuffers();
+			} else if (axesChanged) {
+				expandSquares();
+			}
+		}
+		if (myVertexCount == 0) {
+			return;
+		}
+
+		gl.glEnableClientState(GL10.GL_VERTEX_ARRAY);
+		gl.glVertexPointer(FLOATS_PER_VERTEX, GL10.GL_FLOAT, 0, myVertexBuffer);
+
+		if (ObjectPicker.readyToDrawWithColor) {
+			// the whole batch has one picking color, so no texture needed
+			gl.glDrawArrays(GL10.GL_TRIANGLES, 0, myVertexCount);
+		} else {
+			gl.glDisableClientState(GL10.GL_COLOR_ARRAY);
+			gl.glEnable(GL10.GL_TEXTURE_2D);
+			gl.glEnableClientState(GL10.GL_TEXTURE_COORD_ARRAY);
+			gl.glTexCoordPointer(FLOATS_PER_TEX_COORD, GL10.GL_FLOAT, 0,
+					myTexCoordBuffer);
+			for (int i = 0; i < myUsedPages.myLength; i++) {
+				gl.glBindTexture(GL10.GL_TEXTURE_2D, myUsedPages.get(i)
+						.getTextureId());
+				gl.glDrawArrays(GL10.GL_TRIANGLES, myPageVertexStart[i],
+						myPageVertexCount[i]);
+			}
+			gl.glDisableClientState(GL10.GL_TEXTURE_COORD_ARRAY);
+			gl.glDisable(GL10.GL_TEXTURE_2D);
+		}
+		gl.glDisableClientState(GL10.GL_VERTEX_ARRAY);
+	}
+
+	/**
+	 * Reads the right and up direction of the camera (in the coordinates of
+	 * the batch) from the current modelview matrix
+	 *
+	 * @return true if the axes changed since the last frame
+	 */
+	private boolean updateCameraAxes(GL10 gl) {
+		if (!(gl instanceof GL11)) {
+			return false;
+		}
+		final float[] m = myModelView;
+		((GL11) gl).glGetFloatv(GL11.GL_MODELVIEW_MATRIX, m, 0);
+		// the first two rows of the rotation part are the camera axes:
+		float rightLength = (float) Math.sqrt(m[0] * m[0] + m[4] * m[4] + m[8]
+				* m[8]);
+		float upLength = (float) Math.sqrt(m[1] * m[1] + m[5] * m[5] + m[9]
+				* m[9]);
+		if (rightLength == 0 || upLength == 0) {
+			return false;
+		}
+		/*
+		 * the width of the upright squares runs along the x axis which points
+		 * to the left of the texture, so the width has to run along the
+		 * negative right axis:
+		 */
+		return setAxes(-m[0] / rightLength, -m[4] / rightLength, -m[8]
+				/ rightLength, m[1] / upLength, m[5] / upLength, m[9]
+				/ upLength);
+	}
+
+	private boolean setAxes(float wx, float wy, float wz, float hx, float hy,
+			float hz) {
+		final float[] a = myAxes;
+		if (Math.abs(a[0] - wx) < AXIS_EPSILON
+				&& Math.abs(a[1] - wy) < AXIS_EPSILON
+				&& Math.abs(a[2] - wz) < AXIS_EPSILON
+				&& Math.abs(a[3] - hx) < AXIS_EPSILON
+				&& Math.abs(a[4] - hy) < AXIS_EPSILON
+				&& Math.abs(a[5] - hz) < AXIS_EPSILON) {
+			return false;
+		}
+		a[0] = wx;
+		a[1] = wy;
+		a[2] = wz;
+		a[3] = hx;
+		a[4] = hy;
+		a[5] = hz;
+		return true;
+	}
+
+	/**
+	 * writes all sprites into one vertex array, grouped by their
+	 * {@link AtlasPage} so that each page needs only one draw call. Has to be
+	 * called while holding the lock of {@link #mySprites}
+	 */
+	private void rebuildBuffers() {
+		myUsedPages.clear();
+		final int spriteCount = mySprites.myLength;
+		for (int i = 0; i < spriteCount; i++) {
+			AtlasPage p = mySprites.get(i).myRegion.getPage();
+			if (myUsedPages.contains(p) == -1) {
+				myUsedPages.add(p);
+			}
+		}
+		if (myPageVertexStart.length < myUsedPages.myLength) {
+			myPageVertexStart = new int[myUsedPages.myLength * 2];
+			myPageVertexCount = new int[myUsedPages.myLength * 2];
+		}
+
+		int vertexCount = spriteCount * VERTICES_PER_SPRITE;
+		if (myVertices == null || myVertices.length < vertexCount
+				* FLOATS_PER_VERTEX) {
+			myVertices = new float[vertexCount * FLOATS_PER_VERTEX];
+			myTexCoords = new float[vertexCount * FLOATS_PER_TEX_COORD];
+			myVertexBuffer = null;
+		}
+		if (myOrderedSprites.length < spriteCount) {
+			myOrderedSprites = new Sprite[spriteCount * 2];
+		}
+
+		int n = 0;
+		int t = 0;
+		for (int p = 0; p < myUsedPages.myLength; p++) {
+			AtlasPage page = myUsedPages.get(p);
+			myPageVertexStart[p] = n * VERTICES_PER_SPRITE;
+			for (int i = 0; i < spriteCount; i++) {
+				Sprite s = mySprites.get(i);
+				if (s.myRegion.getPage() == page) {
+					myOrderedSprites[n++] = s;
+					t = addSquareTexCoords(s.myRegion, t);
+				}
+			}
+			myPageVertexCount[p] = n * VERTICES_PER_SPRITE
+					- myPageVertexStart[p];
+		}
+		for (int i = n; i < myOrderedSprites.length
+				&& myOrderedSprites[i] != null; i++) {
+			myOrderedSprites[i] = null;
+		}
+		myVertexCount = vertexCount;
+
+		if (myVertexBuffer == null) {
+			myTexCoordBuffer = GLUtilityClass
+					.createAndInitFloatBuffer(myTexCoords);
+		} else {
+			myTexCoordBuffer.clear();
+			myTexCoordBuffer.put(myTexCoords, 0, t);
+			myTexCoordBuffer.position(0);
+		}
+		expandSquares();
+	}
+
+	/**
+	 * writes the corners of all squares into the vertex buffer. In the
+	 * billboard mode this is done again whenever the camera turns, the texture
+	 * coordinates and the page ranges stay the same. Has to be called while
+	 * holding the lock of {@link #mySprites}
+	 */
+	private void expandSquares() {
+		final int spriteCount = myVertexCount / VERTICES_PER_SPRITE;
+		int v = 0;
+		for (int i = 0; i < spriteCount; i++) {
+			v = addSquare(myOrderedSprites[i], v);
+		}
+		if (myVertexBuffer == null) {
+			myVertexBuffer = GLUtilityClass.createAndInitFloatBuffer(myVertices);
+		} else {
+			myVertexBuffer.clear();
+			myVertexBuffer.put(myVertices, 0, v);
+			myVertexBuffer.position(0);
+		}
+	}
+
+	/**
+	 * same vertex order as in
+	 * {@link gl.GLFactory#newTexturedSquare(String, android.graphics.Bitmap, float)}
+	 * , the width runs along the first and the height along the second axis
+	 * of {@link #myAxes}
+	 */
+	private int addSquare(Sprite s, int i) {
+		final float[] a = myAxes;
+		final float w = s.myHalfWidth;
+		final float h = s.myHalfHeight;
+		// the center of the square:
+		final float x = s.myPosition.x + a[0] * s.myOffsetX + a[3]
+				* s.myOffsetY;
+		final float y = s.myPosition.y + a[1] * s.myOffsetX + a[4]
+				* s.myOffsetY;
+		final float z = s.myPosition.z + a[2] * s.myOffsetX + a[5]
+				* s.myOffsetY;
+		// the two half diagonals:
+		final float d1x = a[0] * w + a[3] * h;
+		final float d1y = a[1] * w + a[4] * h;
+		final float d1z = a[2] * w + a[5] * h;
+		final float d2x = a[0] * w - a[3] * h;
+		final float d2y = a[1] * w - a[4] * h;
+		final float d2z = a[2] * w - a[5] * h;
+		i = addVertex(i, x + d1x, y + d1y, z + d1z);
+		i = addVertex(i, x + d2x, y + d2y, z + d2z);
+		i = addVertex(i, x - d2x, y - d2y, z - d2z);
+		i = addVertex(i, x - d1x, y - d1y, z - d1z);
+		i = addVertex(i, x + d2x, y + d2y, z + d2z);
+		i = addVertex(i, x - d2x, y - d2y, z - d2z);
+		return i;
+	}
+
+	private int addVertex(int i, float x, float y, float z) {
+		myVertices[i] = x;
+		myVertices[i + 1] = y;
+		myVertices[i + 2] = z;
+		return i + 3;
+	}
+
+	private int addSquareTexCoords(AtlasRegion r, int i) {
+		i = addTexCoord(i, r, 0, 0);
+		i = addTexCoord(i, r, 0, 1);
+		i = addTexCoord(i, r, 1, 0);
+		i = addTexCoord(i, r, 1, 1);
+		i = addTexCoord(i, r, 0, 1);
+		i = addTexCoord(i, r, 1, 0);
+		return i;
+	}
+
+	private int addTexCoord(int i, AtlasRegion r, float u, float v) {
+		myTexCoords[i] = r.mapU(u);
+		myTexCoords[i + 1] = r.mapV(v);
+		return i + 2;
+	}
+
+	@Override
+	public boolean accept(Visitor visitor) {
+		return visitor.default_visit(this);
+	}
+
+	@Override
+	public String toString() {
+		return "SpriteBatch (" + getSpriteCount() + " sprites) "
+				+ super.toString();
+	}
+
+}
@@ -0,0 +1,121 @@
+package gl.textures;
+
+import gl.textures.SpriteBatch.Sprite;
+import util.EfficientList;
+import util.Vec;
+
+/**
+ * A text which is displayed with the glyphs of a {@link GlyphFont} as
+ * {@link Sprite}s of a {@link SpriteBatch}. Many labels can share the same
+ * {@link SpriteBatch} and are then all drawn with one draw call. Changing the
+ * text via {@link TextLabel#changeTextTo(String)} reuses the existing sprites
+ * and does not upload any new textures (except for characters which were never
+ * used before).
+ *
+ * The text is centered at the label position and like in the old
+ * {@link gl.GLText} the text runs along the negative x axis. If the batch is in
+ * the billboard mode (see {@link SpriteBatch#setBillboard(boolean)}) the whole
+ * text faces the camera.
+ *
+ * @author Spobo
+ *
+ */
+public class TextLabel {
+
+	private final SpriteBatch myBatch;
+	private final GlyphFont myFont;
+	private final Vec myPosition;
+	private final float myHeightInMeters;
+	private final EfficientList<Sprite> mySprites = new EfficientList<Sprite>();
+	private String myText;
+	private GlyphFont.Layout myLayout;
+
+	/**
+	 * @param batch
+	 *            the batch the glyphs will be added to
+	 * @param font
+	 *            e.g. {@link GlyphFont#getDefault()}
+	 * @param text
+	 * @param position
+	 *            the center of the text relative to the batch
+	 * @param heightInMeters
+	 *            the height of one line of text
+	 */
+	public TextLabel(SpriteBatch batch, GlyphFont font, String text,
+			Vec position, float heightInMeters) {
+		myBatch = batch;
+		myFont = font;
+		myPosition = position.copy();
+		myHeightInMeters = heightInMeters;
+		changeTextTo(text);
+	}
+
+	public synchronized void changeTextTo(String text) {
+		if (text == null) {
+			text = "";
+		}
+		if (text.equals(myText)) {
+			return;
+		}
+		myText = text;
+		myLayout = myFont.getLayout(text);
+		int glyphCount = myLayout.glyphs.length;
+		// remove the sprites which are not needed anymore:
+		while (mySprites.myLength > glyphCount) {
+			Sprite s = mySprites.get(mySprites.myLength - 1);
+			mySprites.remove(s);
+			myBatch.remove(s);
+		}
+		for (int i = 0; i < glyphCount; i++) {
+			Sprite s;
+			if (i < mySprites.myLength) {
+				s = mySprites.get(i);
+				s.setRegion(myLayout.glyphs[i], myHeightInMeters);
+				s.setPosition(myPosition);
+			} else {
+				s = myBatch.add(myLayout.glyphs[i], myPosition,
+						myHeightInMeters);
+				mySprites.add(s);
+			}
+			/*
+			 * all glyphs share the label position and are moved inside the
+			 * plane of their square, so they stay in one line when the batch
+			 * turns them to the camera:
+			 */
+			s.setOffset(calcGlyphOffset(i), 0);
+		}
+	}
+
+	private float calcGlyphOffset(int i) {
+		float metersPerPixel = myHeightInMeters / myFont.getLineHeight();
+		float offset = myLayout.glyphCenters[i] - myLayout.width / 2;
+		return -offset * metersPerPixel;
+	}
+
+	public synchronized void setPosition(Vec position) {
+		myPosition.setToVec(position);
+		for (int i = 0; i < mySprites.myLength; i++) {
+			mySprites.get(i).setPosition(myPosition);
+		}
+	}
+
+	/**
+	 * removes all glyphs of this label from the {@link SpriteBatch}
+	 */
+	public synchronized void remove() {
+		for (int i = 0; i < mySprites.myLength; i++) {
+			myBatch.remove(mySprites.get(i));
+		}
+		mySprites.clear();
+		myText = null;
+	}
+
+	public String getText() {
+		return myText;
+	}
+
+	public Vec getPosition() {
+		return myPosition;
+	}
+
+}
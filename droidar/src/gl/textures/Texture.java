@@ -10,13 +10,40 @@ public class Texture {
 	private Bitmap myImage;
 	private String myName;
 	private EfficientList<TexturedRenderData> myList;
+	private boolean isRecyclable = true;
+	private boolean mipmapsAllowed = true;
+	private TextureFormat myFormat;
 
 	public Texture(TexturedRenderData target, Bitmap textureImage,
 			String textureName) {
+		this(target, textureImage, textureName, TextureFormat.RGBA_8888);
+	}
+
+	public Texture(TexturedRenderData target, Bitmap textureImage,
+			String textureName, TextureFormat format) {
 		myList = new EfficientList<TexturedRenderData>();
 		myList.add(target);
 		myImage = textureImage;
 		myName = textureName;
+		myFormat = format;
+	}
+
+	public TextureFormat getFormat() {
+		return myFormat;
+	}
+
+	/**
+	 * @param allowed
+	 *            false if the texture should never get mipmaps (e.g. an
+	 *            {@link AtlasPage} because the regions would bleed into each
+	 *            other in the smaller levels)
+	 */
+	public void setMipmapsAllowed(boolean allowed) {
+		mipmapsAllowed = allowed;
+	}
+
+	public boolean isMipmapsAllowed() {
+		return mipmapsAllowed;
 	}
 
 	public void idArrived(int id) {
@@ -29,10 +56,30 @@ public class Texture {
 	}
 
 	public void recycleImage() {
-		if (TextureManager.recycleBitmapsToFreeMemory)
+		if (TextureManager.recycleBitmapsToFreeMemory && isRecyclable)
 			myImage.recycle();
 	}
 
+	/**
+	 * @param recyclable
+	 *            false if the image is still changed after it was uploaded
+	 *            (like an {@link AtlasPage})
+	 */
+	public void setRecyclable(boolean recyclable) {
+		isRecyclable = recyclable;
+	}
+
+	/**
+	 * @return the OpenGL texture id or {@link TexturedRenderData#NO_ID_SET}
+	 *         if the texture was not loaded yet
+	 */
+	public int getId() {
+		if (myList.get(0) != null) {
+			return myList.get(0).myTextureId;
+		}
+		return TexturedRenderData.NO_ID_SET;
+	}
+
 	public Bitmap getImage() {
 		if (myImage == null
 				&& TextureManager.getInstance().getTextureReloader() != null)
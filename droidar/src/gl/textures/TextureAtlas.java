@@ -0,0 +1,151 @@
+package gl.textures;
+
+import java.util.HashMap;
+
+import util.EfficientList;
+import util.HasDebugInformation;
+import util.Log;
+import android.graphics.Bitmap;
+
+/**
+ * Packs small bitmaps (icons, labels, ..) into shared {@link AtlasPage}s
+ * instead of creating one OpenGL texture per bitmap. This saves the padding to
+ * the next power of two size and many texture binds when a lot of icons are
+ * rendered. If all pages are full a new page is created at runtime.
+ *
+ * Use {@link TextureAtlas#addTexture(TexturedRenderData, Bitmap, String)}
+ * instead of
+ * {@link TextureManager#addTexture(TexturedRenderData, Bitmap, String)} to
+ * pack the texture of a mesh into the atlas. The texture coordinates of the
+ * {@link TexturedRenderData} are then mapped to the {@link AtlasRegion}
+ * automatically.
+ *
+ * @author Spobo
+ *
+ */
+public class TextureAtlas implements HasDebugInformation {
+
+	private static final String LOG_TAG = "TextureAtlas";
+
+	/**
+	 * 1024x1024 is supported by all OpenGL ES 1 devices
+	 */
+	public static final int DEFAULT_PAGE_SIZE = 1024;
+	private static final int PADDING = 1;
+
+	private static TextureAtlas instance = new TextureAtlas(DEFAULT_PAGE_SIZE);
+
+	private final int myPageSize;
+	private final EfficientList<AtlasPage> myPages = new EfficientList<AtlasPage>();
+	private final HashMap<String, AtlasRegion> myRegions = new HashMap<String, AtlasRegion>();
+
+	public TextureAtlas(int pageSize) {
+		myPageSize = TextureManager.getNextPowerOfTwoValue(pageSize);
+	}
+
+	public static TextureAtlas getInstance() {
+		return instance;
+	}
+
+	/**
+	 * Also resets the {@link GlyphFont#getDefault()} font because its glyphs
+	 * were packed into the old atlas. Custom {@link GlyphFont}s have to be
+	 * created again as well
+	 */
+	public static void resetInstance() {
+		instance = new TextureAtlas(DEFAULT_PAGE_SIZE);
+		GlyphFont.resetDefault();
+	}
+
+	/**
+	 * @param b
+	 * @return true if the bitmap is small enough to be packed into the atlas.
+	 *         Bitmaps which are bigger than half of a page should get their own
+	 *         texture
+	 */
+	public boolean fitsIntoAtlas(Bitmap b) {
+		return b != null && b.getWidth() + 2 * PADDING <= myPageSize / 2
+				&& b.getHeight() + 2 * PADDING <= myPageSize / 2;
+	}
+
+	/**
+	 * @param textureName
+	 *            an unique name for the bitmap. Bitmaps with the same name will
+	 *            use the same {@link AtlasRegion}!
+	 * @param bitmap
+	 * @return the region where the bitmap was packed to or null if the bitmap
+	 *         is too big for the atlas (see
+	 *         {@link TextureAtlas#fitsIntoAtlas(Bitmap)})
+	 */
+	public synchronized AtlasRegion add(String textureName, Bitmap bitmap) {
+		AtlasRegion r = myRegions.get(textureName);
+		if (r != null) {
+			return r;
+		}
+		if (!fitsIntoAtlas(bitmap)) {
+			Log.w(LOG_TAG, "Bitmap " + textureName
+					+ " is too big for the texture atlas");
+			return null;
+		}
+		for (int i = 0; i < myPages.myLength; i++) {
+			r = myPages.get(i).tryToAdd(bitmap, PADDING);
+			if (r != null) {
+				break;
+			}
+		}
+		if (r == null) {
+			AtlasPage p = new AtlasPage("atlasPage" + myPages.myLength,
+					myPageSize);
+			Log.d(LOG_TAG, "All pages full, creating new page " + p);
+			myPages.add(p);
+			r = p.tryToAdd(bitmap, PADDING);
+		}
+		myRegions.put(textureName, r);
+		return r;
+	}
+
+	/**
+	 * @param target
+	 *            the mesh data which should use the texture
+	 * @param bitmap
+	 * @param textureName
+	 *            see {@link TextureAtlas#add(String, Bitmap)}
+	 * @return false if the bitmap could not be packed into the atlas. Then it
+	 *         has to be added to the {@link TextureManager} directly
+	 */
+	public boolean addTexture(TexturedRenderData target, Bitmap bitmap,
+			String textureName) {
+		AtlasRegion r = add(textureName, bitmap);
+		if (r == null) {
+			return false;
+		}
+		target.setAtlasRegion(r);
+		TextureManager.getInstance().addTexture(target, null,
+				r.getPage().getName());
+		return true;
+	}
+
+	public AtlasRegion getRegion(String textureName) {
+		return myRegions.get(textureName);
+	}
+
+	public int getPageCount() {
+		return myPages.myLength;
+	}
+
+	public AtlasPage getPage(int i) {
+		return myPages.get(i);
+	}
+
+	@Override
+	public void showDebugInformation() {
+		Log.i(LOG_TAG, "Debug infos about the Texture Atlas:");
+		Log.i(LOG_TAG, "   > myPageSize=" + myPageSize);
+		Log.i(LOG_TAG, "   > number of regions=" + myRegions.size());
+		for (int i = 0; i < myPages.myLength; i++) {
+			Log.i(LOG_TAG, "   > " + myPages.get(i) + " occupancy="
+					+ myPages.get(i).getOccupancy());
+		}
+	}
+
+}
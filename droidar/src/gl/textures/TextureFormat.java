@@ -0,0 +1,48 @@
+package gl.textures;
+
+/**
+ * The format a texture is stored in on the GPU. The 16 bit formats need half
+ * of the memory of {@link TextureFormat#RGBA_8888} and {@link TextureFormat#ETC1}
+ * only a quarter (but it has no alpha channel). Pass the format to
+ * {@link TextureManager#addTexture(TexturedRenderData, android.graphics.Bitmap, String, TextureFormat)}
+ * 
+ * @author Spobo
+ * 
+ */
+public enum TextureFormat {
+
+	/**
+	 * 32 bit, the default format and the best quality
+	 */
+	RGBA_8888(32, true),
+	/**
+	 * 16 bit without alpha, good for opaque images like photos
+	 */
+	RGB_565(16, false),
+	/**
+	 * 16 bit with 4 bit alpha, good for simple icons with few colors
+	 */
+	RGBA_4444(16, true),
+	/**
+	 * 4 bit compressed without alpha. If ETC1 is not supported by the device
+	 * the texture will be uploaded as {@link TextureFormat#RGB_565}
+	 */
+	ETC1(4, false);
+
+	private final int myBitsPerPixel;
+	private final boolean myHasAlpha;
+
+	private TextureFormat(int bitsPerPixel, boolean hasAlpha) {
+		myBitsPerPixel = bitsPerPixel;
+		myHasAlpha = hasAlpha;
+	}
+
+	public int getBitsPerPixel() {
+		return myBitsPerPixel;
+	}
+
+	public boolean hasAlpha() {
+		return myHasAlpha;
+	}
+
+}
@@ -1,5 +1,6 @@
 package gl.textures;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
@@ -13,6 +14,8 @@ import util.HasDebugInformation;
 import util.ImageTransform;
 import util.Log;
 import android.graphics.Bitmap;
+import android.opengl.ETC1Util;
+import android.opengl.ETC1Util.ETC1Texture;
 import android.opengl.GLUtils;
 
 public class TextureManager implements HasDebugInformation {
@@ -29,6 +32,15 @@ public class TextureManager implements HasDebugInformation {
 
 	public static boolean recycleBitmapsToFreeMemory = false;
 
+	/**
+	 * If true all textures with a power of two size (except the pages of the
+	 * {@link TextureAtlas}) get mipmaps, which avoids the flickering of far
+	 * away textures. This needs one third more texture memory
+	 */
+	public static boolean generateMipmaps = false;
+
+	private static Etc1TextureCache compressedTextureCache;
+
 	/**
 	 * TODO why am i using ArrayList here...
 	 */
@@ -37,6 +49,27 @@ public class TextureManager implements HasDebugInformation {
 	private int[] textureArray = new int[INIT_TEXTURE_MAP_SIZE];
 	private HashMap<String, Texture> myTextureMap;
 	private TexturReloader myReloader;
+	private Boolean hardwareMipmaps;
+	private long uploadedTextureBytes;
+	/**
+	 * parts of already uploaded textures which changed, see
+	 * {@link TextureManager#updateTextureRegion(String, Bitmap, int, int)}
+	 */
+	private final ArrayList<RegionUpdate> regionUpdates = new ArrayList<RegionUpdate>();
+
+	private static class RegionUpdate {
+		final String textureName;
+		final Bitmap image;
+		final int x;
+		final int y;
+
+		RegionUpdate(String textureName, Bitmap image, int x, int y) {
+			this.textureName = textureName;
+			this.image = image;
+			this.x = x;
+			this.y = y;
+		}
+	}
 
 	/**
 	 * @param target
@@ -49,11 +82,28 @@ public class TextureManager implements HasDebugInformation {
 	 */
 	public void addTexture(TexturedRenderData target, Bitmap bitmap,
 			String textureName) {
+		addTexture(target, bitmap, textureName, TextureFormat.RGBA_8888);
+	}
+
+	/**
+	 * see {@link TextureManager#addTexture(TexturedRenderData, Bitmap, String)}
+	 * 
+	 * @param target
+	 * @param bitmap
+	 * @param textureName
+	 * @param format
+	 *            e.g. {@link TextureFormat#RGB_565} for opaque images or
+	 *            {@link TextureFormat#RGBA_4444} for simple icons to save
+	 *            texture memory. Only used if the texture was not added
+	 *            before
+	 */
+	public void addTexture(TexturedRenderData target, Bitmap bitmap,
+			String textureName, TextureFormat format) {
 
 		Texture t = loadTextureFromMap(textureName);
 
 		if (t == null) {
-			addTexture(new Texture(target, bitmap, textureName));
+			addTexture(new Texture(target, bitmap, textureName, format));
 		} else {
 			Log.d(LOG_TAG, "Texture for " + textureName
 					+ " already added, so it will get the same texture id");
@@ -84,7 +134,28 @@ public class TextureManager implements HasDebugInformation {
 		this.myReloader = reloader;
 	}
 
-	private Texture loadTextureFromMap(String textureName) {
+	/**
+	 * Replaces a part of an existing texture without uploading the complete
+	 * texture again (used by the {@link TextureAtlas} when new bitmaps are
+	 * packed into a page which is already on the GPU)
+	 * 
+	 * @param textureName
+	 *            the name of the texture which was passed to
+	 *            {@link TextureManager#addTexture(TexturedRenderData, Bitmap, String)}
+	 * @param subImage
+	 * @param x
+	 *            the x offset in the texture in pixels
+	 * @param y
+	 *            the y offset in the texture in pixels
+	 */
+	public void updateTextureRegion(String textureName, Bitmap subImage,
+			int x, int y) {
+		synchronized (regionUpdates) {
+			regionUpdates.add(new RegionUpdate(textureName, subImage, x, y));
+		}
+	}
+
+	Texture loadTextureFromMap(String textureName) {
 		if (myTextureMap == null)
 			return null;
 		return myTextureMap.get(textureName);
@@ -112,20 +183,7 @@ public class TextureManager implements HasDebugInformation {
 					t.idArrived(newTextureId);
 
 					gl.glBindTexture(GL10.GL_TEXTURE_2D, newTextureId);
-
-					gl.glTexParameterf(GL10.GL_TEXTURE_2D,
-							GL10.GL_TEXTURE_MIN_FILTER, GL10.GL_NEAREST);
-					gl.glTexParameterf(GL10.GL_TEXTURE_2D,
-							GL10.GL_TEXTURE_MAG_FILTER, GL10.GL_LINEAR);
-					gl.glTexParameterf(GL10.GL_TEXTURE_2D,
-							GL10.GL_TEXTURE_WRAP_S, GL10.GL_CLAMP_TO_EDGE);
-					gl.glTexParameterf(GL10.GL_TEXTURE_2D,
-							GL10.GL_TEXTURE_WRAP_T, GL10.GL_CLAMP_TO_EDGE);
-
-					gl.glTexEnvf(GL10.GL_TEXTURE_ENV, GL10.GL_TEXTURE_ENV_MODE,
-							GL10.GL_REPLACE);
-
-					GLUtils.texImage2D(GL10.GL_TEXTURE_2D, 0, t.getImage(), 0);
+					uploadTexture(gl, t);
 
 					int[] mCropWorkspace = new int[4];
 					mCropWorkspace[0] = 0;
@@ -155,6 +213,168 @@ public class TextureManager implements HasDebugInformation {
 				e.printStackTrace();
 			}
 		}
+		updateTextureRegions(gl);
+	}
+
+	private void updateTextureRegions(GL10 gl) {
+		synchronized (regionUpdates) {
+			if (regionUpdates.isEmpty()) {
+				return;
+			}
+			for (int i = 0; i < regionUpdates.size(); i++) {
+				RegionUpdate u = regionUpdates.get(i);
+				Texture t = loadTextureFromMap(u.textureName);
+				if (t == null || t.getId() == TexturedRenderData.NO_ID_SET) {
+					/*
+					 * the complete texture will be uploaded in a later frame
+					 * and it already contains the changed region
+					 */
+					continue;
+				}
+				gl.glBindTexture(GL10.GL_TEXTURE_2D, t.getId());
+				GLUtils.texSubImage2D(GL10.GL_TEXTURE_2D, 0, u.x, u.y, u.image);
+			}
+			regionUpdates.clear();
+		}
+	}
+
+	/**
+	 * Sets the texture parameters and uploads the image of the texture (and
+	 * its mipmaps if {@link TextureManager#generateMipmaps} is true) in the
+	 * format of the texture. The texture has to be bound already
+	 */
+	private void uploadTexture(GL10 gl, Texture t) {
+		Bitmap image = t.getImage();
+		boolean mipmaps = generateMipmaps && t.isMipmapsAllowed()
+				&& isPowerOfTwo(image.getWidth())
+				&& isPowerOfTwo(image.getHeight());
+
+		gl.glTexParameterf(GL10.GL_TEXTURE_2D, GL10.GL_TEXTURE_MIN_FILTER,
+				mipmaps ? GL10.GL_LINEAR_MIPMAP_NEAREST : GL10.GL_LINEAR);
+		gl.glTexParameterf(GL10.GL_TEXTURE_2D, GL10.GL_TEXTURE_MAG_FILTER,
+				GL10.GL_LINEAR);
+		gl.glTexParameterf(GL10.GL_TEXTURE_2D, GL10.GL_TEXTURE_WRAP_S,
+				GL10.GL_CLAMP_TO_EDGE);
+		gl.glTexParameterf(GL10.GL_TEXTURE_2D, GL10.GL_TEXTURE_WRAP_T,
+				GL10.GL_CLAMP_TO_EDGE);
+
+		gl.glTexEnvf(GL10.GL_TEXTURE_ENV, GL10.GL_TEXTURE_ENV_MODE,
+				GL10.GL_REPLACE);
+
+		TextureFormat format = t.getFormat();
+		if (format == TextureFormat.ETC1 && !ETC1Util.isETC1Supported()) {
+			Log.w(LOG_TAG, "ETC1 not supported, using RGB_565 for "
+					+ t.getName());
+			format = TextureFormat.RGB_565;
+		}
+
+		synchronized (image) {
+			if (format == TextureFormat.ETC1) {
+				uploadEtc1(t.getName(), image, 0);
+				if (mipmaps) {
+					uploadMipmapPyramid(t.getName(), image, format);
+				}
+			} else if (mipmaps && supportsHardwareMipmaps(gl)) {
+				((GL11) gl).glTexParameteri(GL10.GL_TEXTURE_2D,
+						GL11.GL_GENERATE_MIPMAP, GL10.GL_TRUE);
+				uploadBitmap(image, 0, format);
+			} else {
+				uploadBitmap(image, 0, format);
+				if (mipmaps) {
+					uploadMipmapPyramid(t.getName(), image, format);
+				}
+			}
+		}
+
+		int bytes = image.getWidth() * image.getHeight()
+				* format.getBitsPerPixel() / 8;
+		if (mipmaps) {
+			// the complete pyramid needs one third more memory:
+			bytes += bytes / 3;
+		}
+		uploadedTextureBytes += bytes;
+	}
+
+	private void uploadBitmap(Bitmap b, int level, TextureFormat format) {
+		Bitmap converted = convertToFormat(b, format);
+		GLUtils.texImage2D(GL10.GL_TEXTURE_2D, level, converted, 0);
+		if (converted != b) {
+			converted.recycle();
+		}
+	}
+
+	private void uploadEtc1(String textureName, Bitmap b, int level) {
+		ETC1Texture compressed;
+		if (compressedTextureCache != null) {
+			compressed = compressedTextureCache.getOrCreate(textureName,
+					level, b);
+		} else {
+			compressed = Etc1TextureCache.compress(b);
+		}
+		ETC1Util.loadTexture(GL10.GL_TEXTURE_2D, level, 0, GL10.GL_RGB,
+				GL10.GL_UNSIGNED_SHORT_5_6_5, compressed);
+	}
+
+	/**
+	 * Creates the mipmap levels 1..n on the CPU with the
+	 * {@link MipmapGenerator}
+	 */
+	private void uploadMipmapPyramid(String textureName, Bitmap image,
+			TextureFormat format) {
+		int w = image.getWidth();
+		int h = image.getHeight();
+		int[] pixels = new int[w * h];
+		image.getPixels(pixels, 0, w, 0, 0, w, h);
+		int[] levelPixels = null;
+		int levels = MipmapGenerator.getLevelCount(w, h);
+		for (int level = 1; level < levels; level++) {
+			levelPixels = MipmapGenerator.downsample(pixels, w, h, levelPixels);
+			// swap so that the next level is created from this one:
+			int[] temp = pixels;
+			pixels = levelPixels;
+			levelPixels = temp;
+			w = MipmapGenerator.nextLevelSize(w);
+			h = MipmapGenerator.nextLevelSize(h);
+			Bitmap levelBitmap = Bitmap.createBitmap(pixels, 0, w, w, h,
+					Bitmap.Config.ARGB_8888);
+			if (format == TextureFormat.ETC1) {
+				uploadEtc1(textureName, levelBitmap, level);
+			} else {
+				uploadBitmap(levelBitmap, level, format);
+			}
+			levelBitmap.recycle();
+		}
+	}
+
+	private static Bitmap convertToFormat(Bitmap b, TextureFormat format) {
+		if (format == TextureFormat.RGB_565
+				&& b.getConfig() != Bitmap.Config.RGB_565) {
+			return b.copy(Bitmap.Config.RGB_565, false);
+		}
+		if (format == TextureFormat.RGBA_4444
+				&& b.getConfig() != Bitmap.Config.ARGB_4444) {
+			return b.copy(Bitmap.Config.ARGB_4444, false);
+		}
+		return b;
+	}
+
+	/**
+	 * OpenGL ES 1.1 can generate the mipmaps in hardware via
+	 * {@link GL11#GL_GENERATE_MIPMAP}, for 1.0 they are created on the CPU
+	 */
+	private boolean supportsHardwareMipmaps(GL10 gl) {
+		if (hardwareMipmaps == null) {
+			String version = gl.glGetString(GL10.GL_VERSION);
+			hardwareMipmaps = gl instanceof GL11 && version != null
+					&& !version.contains("1.0");
+			Log.d(LOG_TAG, "OpenGL version=" + version
+					+ ", hardware mipmaps=" + hardwareMipmaps);
+		}
+		return hardwareMipmaps;
+	}
+
+	private static boolean isPowerOfTwo(int x) {
+		return x > 0 && (x & (x - 1)) == 0;
 	}
 
 	private int[] doubleTheArraySize(int[] a) {
@@ -172,6 +392,33 @@ public class TextureManager implements HasDebugInformation {
 		myTextureMap.put(t.getName(), t);
 	}
 
+	/**
+	 * @param cacheDir
+	 *            the directory where ETC1 compressed textures are stored so
+	 *            that they only have to be compressed once, e.g.
+	 *            {@link android.content.Context#getCacheDir()}. Pass null to
+	 *            compress them each time they are uploaded
+	 */
+	public static void setCompressedTextureCacheDir(File cacheDir) {
+		if (cacheDir == null) {
+			compressedTextureCache = null;
+		} else {
+			compressedTextureCache = new Etc1TextureCache(cacheDir);
+		}
+	}
+
+	public static Etc1TextureCache getCompressedTextureCache() {
+		return compressedTextureCache;
+	}
+
+	/**
+	 * @return the estimated memory of all textures uploaded since the last
+	 *         {@link TextureManager#resetInstance()}
+	 */
+	public long getUploadedTextureBytes() {
+		return uploadedTextureBytes;
+	}
+
 	public static TextureManager getInstance() {
 		return instance;
 	}
@@ -214,6 +461,7 @@ public class TextureManager implements HasDebugInformation {
 		Log.i(LOG_TAG, "Debug infos about the Texture Manager:");
 		Log.i(LOG_TAG, "   > newTexturesToLoad=" + newTexturesToLoad);
 
+		Log.i(LOG_TAG, "   > uploadedTextureBytes=" + uploadedTextureBytes);
 		Log.i(LOG_TAG, "   > textureArray.length=" + textureArray.length);
 		Log.i(LOG_TAG, "   > textureArrayOffset=" + textureArrayOffset);
 
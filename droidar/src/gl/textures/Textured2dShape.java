@@ -4,6 +4,7 @@ import gl.Renderable;
 import gl.scenegraph.Shape;
 
 import javax.microedition.khronos.opengles.GL10;
+import javax.microedition.khronos.opengles.GL11;
 import javax.microedition.khronos.opengles.GL11Ext;
 
 import android.graphics.Bitmap;
@@ -19,13 +20,39 @@ public class Textured2dShape extends Shape {
 
 	private float textureWidth = 0;
 	private float textureHeight = 0;
+	/**
+	 * only used if the texture is part of a {@link TextureAtlas}
+	 */
+	private int[] myCropRect;
 
 	public Textured2dShape(Bitmap texture, String textureName) {
+		this(texture, textureName, false);
+	}
+
+	/**
+	 * @param texture
+	 * @param textureName
+	 * @param packIntoAtlas
+	 *            see {@link TexturedShape#TexturedShape(String, Bitmap, boolean)}
+	 */
+	public Textured2dShape(Bitmap texture, String textureName,
+			boolean packIntoAtlas) {
 		super(null);
 		myRenderData = new TexturedRenderData();
 		if (texture != null) {
-			TextureManager.getInstance().addTexture(
-					(TexturedRenderData) myRenderData, texture, textureName);
+			if (packIntoAtlas
+					&& TextureAtlas.getInstance().addTexture(
+							(TexturedRenderData) myRenderData, texture,
+							textureName)) {
+				AtlasRegion r = ((TexturedRenderData) myRenderData)
+						.getAtlasRegion();
+				myCropRect = new int[] { r.getX(), r.getY() + r.getHeight(),
+						r.getWidth(), -r.getHeight() };
+			} else {
+				TextureManager.getInstance()
+						.addTexture((TexturedRenderData) myRenderData,
+								texture, textureName);
+			}
 			textureHeight = texture.getHeight();
 			textureWidth = texture.getWidth();
 		}
@@ -36,6 +63,11 @@ public class Textured2dShape extends Shape {
 		if (myRenderData != null) {
 			gl.glBindTexture(GL10.GL_TEXTURE_2D,
 					((TexturedRenderData) myRenderData).myTextureId);
+			if (myCropRect != null) {
+				// the crop rect of the page is shared by all its regions:
+				((GL11) gl).glTexParameteriv(GL10.GL_TEXTURE_2D,
+						GL11Ext.GL_TEXTURE_CROP_RECT_OES, myCropRect, 0);
+			}
 			((GL11Ext) gl).glDrawTexfOES(myPosition.x, myPosition.y,
 					myPosition.z, textureWidth, textureHeight);
 		}
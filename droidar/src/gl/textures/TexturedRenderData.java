@@ -17,10 +17,27 @@ public class TexturedRenderData extends RenderData {
 
 	public int myTextureId = NO_ID_SET;
 	private FloatBuffer textureBuffer;
+	private AtlasRegion myAtlasRegion;
 
 	protected TexturedRenderData() {
 	}
 
+	/**
+	 * @param region
+	 *            if the texture is part of a {@link TextureAtlas} the texture
+	 *            coordinates (0 to 1) will be mapped into this region. Has to
+	 *            be set before
+	 *            {@link TexturedRenderData#updateTextureBuffer(ArrayList)} is
+	 *            called
+	 */
+	public void setAtlasRegion(AtlasRegion region) {
+		myAtlasRegion = region;
+	}
+
+	public AtlasRegion getAtlasRegion() {
+		return myAtlasRegion;
+	}
+
 	public void updateTextureBuffer(ArrayList<Vec> myTexturePositions) {
 		textureBuffer = GLUtilityClass
 				.createAndInitFloatBuffer(tryToDesignTextureArray(myTexturePositions));
@@ -34,6 +51,10 @@ public class TexturedRenderData extends RenderData {
 		for (int i = 0; i < myTexturePositions.size() * 2; i += 2) {
 			res[i] = myTexturePositions.get(j).x;
 			res[i + 1] = myTexturePositions.get(j).y;
+			if (myAtlasRegion != null) {
+				res[i] = myAtlasRegion.mapU(res[i]);
+				res[i + 1] = myAtlasRegion.mapV(res[i + 1]);
+			}
 
 			j++;
 			if (j >= myTexturePositions.size()) {
@@ -67,11 +88,10 @@ public class TexturedRenderData extends RenderData {
 
 			gl.glEnable(GL10.GL_TEXTURE_2D);
 
-			gl.glTexParameterf(GL10.GL_TEXTURE_2D, GL10.GL_TEXTURE_MIN_FILTER,
-					GL10.GL_LINEAR);
-			gl.glTexParameterf(GL10.GL_TEXTURE_2D, GL10.GL_TEXTURE_MAG_FILTER,
-					GL10.GL_LINEAR);
-
+			/*
+			 * the filter parameters are set once by the TextureManager when
+			 * the texture is uploaded (e.g. to use mipmaps)
+			 */
 			gl.glBindTexture(GL10.GL_TEXTURE_2D, myTextureId);
 			gl.glEnableClientState(GL10.GL_TEXTURE_COORD_ARRAY);
 			gl.glTexCoordPointer(2, GL10.GL_FLOAT, 0, textureBuffer);
@@ -24,20 +24,38 @@ public class TexturedShape extends Shape {
 	 * @param texture
 	 */
 	public TexturedShape(String textureName, Bitmap texture) {
+		this(textureName, texture, false);
+	}
+
+	/**
+	 * @param textureName
+	 * @param texture
+	 * @param packIntoAtlas
+	 *            true if the texture should be packed into the
+	 *            {@link TextureAtlas}. This is recommended for small icons. If
+	 *            the bitmap is too big for the atlas it will get its own
+	 *            texture
+	 */
+	public TexturedShape(String textureName, Bitmap texture,
+			boolean packIntoAtlas) {
 		super(null);
 		myRenderData = new TexturedRenderData();
 		/*
 		 * TODO redesign this so that the input texture is projected on the mesh
 		 * correctly
 		 */
-		if (texture != null) {
+		if (texture == null) {
+			Log.e("TexturedShape",
+					"got null-bitmap! check bitmap creation process");
+		} else if (!packIntoAtlas
+				|| !TextureAtlas.getInstance().addTexture(
+						(TexturedRenderData) myRenderData, texture,
+						textureName)) {
+			// atlas pages already have a power of two size, own textures not:
 			texture = TextureManager.getInstance().resizeBitmapIfNecessary(
 					texture);
 			TextureManager.getInstance().addTexture(
 					(TexturedRenderData) myRenderData, texture, textureName);
-		} else {
-			Log.e("TexturedShape",
-					"got null-bitmap! check bitmap creation process");
 		}
 	}
 
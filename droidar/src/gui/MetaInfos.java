@@ -9,6 +9,7 @@ import gui.simpleUI.modifiers.InfoText;
 import gui.simpleUI.modifiers.TextModifier;
 
 import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import listeners.ItemSelectedListener;
 import util.EfficientList;
@@ -43,6 +44,11 @@ public class MetaInfos implements EditItem {
 
 		private String key;
 		private String value;
+		/**
+		 * is informed when the value is edited, set when the element is added
+		 * to a {@link MetaInfos} object
+		 */
+		private MetaInfos myOwner;
 
 		public InfoElement(String value) {
 			this.value = value;
@@ -66,6 +72,9 @@ public class MetaInfos implements EditItem {
 				@Override
 				public boolean save(String newValue) {
 					value = newValue;
+					if (myOwner != null) {
+						myOwner.textChanged();
+					}
 					return true;
 				}
 
@@ -88,6 +97,11 @@ public class MetaInfos implements EditItem {
 		}
 	}
 
+	/**
+	 * is increased with every text change of any {@link MetaInfos} object
+	 */
+	private static final AtomicInteger textChangeCounter = new AtomicInteger();
+
 	private static final int DEFAULT_ICON = R.drawable.icon;
 	private static final Color DEFAULT_COLOR = Color.whiteTransparent();
 	/**
@@ -123,6 +137,11 @@ public class MetaInfos implements EditItem {
 	 * later is unseleted the mySelectedInfos only have to be set to null
 	 */
 	private MetaInfos mySelectedInfos;
+	/**
+	 * the value of the {@link #textChangeCounter} after the last text change
+	 * of this object
+	 */
+	private volatile int myTextVersion = textChangeCounter.incrementAndGet();
 
 	public MetaInfos(Object o) {
 		shortDescr = o.getClass().toString();
@@ -131,6 +150,33 @@ public class MetaInfos implements EditItem {
 	public MetaInfos() {
 	}
 
+	private void textChanged() {
+		myTextVersion = textChangeCounter.incrementAndGet();
+	}
+
+	/**
+	 * @return a number which is increased each time the result of
+	 *         {@link #getShortDescr()} or {@link #getLongDescrAsString()}
+	 *         might have changed. Different {@link MetaInfos} objects never
+	 *         have the same version, so a search index can compare it to
+	 *         find out if the texts it copied are still up to date
+	 */
+	public int getTextVersion() {
+		MetaInfos selected = mySelectedInfos;
+		if (selected != null) {
+			return Math.max(myTextVersion, selected.getTextVersion());
+		}
+		return myTextVersion;
+	}
+
+	/**
+	 * @return the number of text changes of all {@link MetaInfos} objects. If
+	 *         it did not change no {@link #getTextVersion()} changed either
+	 */
+	public static int getTextChangeCount() {
+		return textChangeCounter.get();
+	}
+
 	public String getLongDescrAsString() {
 		if (mySelectedInfos != null)
 			return mySelectedInfos.getLongDescrAsString();
@@ -218,12 +264,18 @@ public class MetaInfos implements EditItem {
 
 	public void addTextToLongDescr(String info) {
 		if (info != "")
-			longDescr.add(new InfoElement(info));
+			addToLongDescr(new InfoElement(info));
 	}
 
 	public void addDataToLongDescr(String key, String value) {
 		if (key != "" && value != "")
-			longDescr.add(new InfoElement(key, value));
+			addToLongDescr(new InfoElement(key, value));
+	}
+
+	private void addToLongDescr(InfoElement e) {
+		e.myOwner = this;
+		longDescr.add(e);
+		textChanged();
 	}
 
 	public String getDataFromLongDescr(String key) {
@@ -238,8 +290,10 @@ public class MetaInfos implements EditItem {
 	}
 
 	public void setShortDescr(String name) {
-		if (name != "")
+		if (name != "") {
 			shortDescr = name;
+			textChanged();
+		}
 	}
 
 	public void extractInfos(Address a) {
@@ -269,7 +323,13 @@ public class MetaInfos implements EditItem {
 
 	public void setTo(MetaInfos i) {
 		setShortDescr(i.shortDescr);
-		longDescr = i.longDescr;
+		// the elements are copied so that editing them only changes this object:
+		longDescr = new EfficientList<InfoElement>();
+		for (int j = 0; j < i.longDescr.myLength; j++) {
+			InfoElement e = i.longDescr.get(j);
+			addToLongDescr(new InfoElement(e.key, e.value));
+		}
+		textChanged();
 		if (i.myColor != null)
 			setColor(i.myColor.copy());
 		setMyIconId(i.myIconId);
@@ -313,6 +373,7 @@ public class MetaInfos implements EditItem {
 		if (mySelectedInfos == null)
 			return false;
 		mySelectedInfos = null;
+		textChanged();
 		return true;
 	}
 
@@ -327,6 +388,7 @@ public class MetaInfos implements EditItem {
 	 */
 	public void setSelected(MetaInfos selectedInfos) {
 		mySelectedInfos = selectedInfos;
+		textChanged();
 	}
 
 	/**
@@ -414,6 +476,7 @@ public class MetaInfos implements EditItem {
 			@Override
 			public boolean save(String newValue) {
 				shortDescr = newValue;
+				textChanged();
 				return true;
 			}
 
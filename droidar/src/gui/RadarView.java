@@ -10,8 +10,9 @@ import util.EfficientList;
 import util.Vec;
 import worlddata.Obj;
 import worlddata.RenderableEntity;
-import worlddata.UpdateTimer;
+import worlddata.TimerWheel.TimerListener;
 import worlddata.Updateable;
+import worlddata.WheelUpdateTimer;
 import worlddata.World;
 import android.app.Activity;
 import android.content.Context;
@@ -44,7 +45,7 @@ public class RadarView extends SimpleCustomView implements Updateable {
 	private GLCamera myCamera;
 	private Bitmap background;
 	private double myRotation;
-	private UpdateTimer myTimer;
+	private WheelUpdateTimer myTimer;
 	private float myUpdateSpeed = DEFAULT_UPDATE_SPEED;
 	private double myTouchScaleFactor = 5;
 	private volatile float mCameraAngleInDeg = -1;
@@ -69,6 +70,9 @@ public class RadarView extends SimpleCustomView implements Updateable {
 
 	public void setUpdateSpeed(float myUpdateSpeed) {
 		this.myUpdateSpeed = myUpdateSpeed;
+		if (myTimer != null) {
+			myTimer.setInterval(myUpdateSpeed);
+		}
 	}
 
 	public void setItems(EfficientList<RenderableEntity> items) {
@@ -113,7 +117,16 @@ public class RadarView extends SimpleCustomView implements Updateable {
 	}
 
 	private void init(int minimumViewSize) {
-		myTimer = new UpdateTimer(myUpdateSpeed, null);
+		myTimer = new WheelUpdateTimer(myUpdateSpeed, new TimerListener() {
+			@Override
+			public boolean onTimer(float passedTime) {
+				//setRotation(myCamera.getCameraAnglesInDegree()[0]);
+				// mCameraAngleInDeg = myCamera.getCameraAnglesInDegree()[0];
+				mCameraAngleInDeg = mSetup.getCameraAngle().z;
+				postInvalidate();
+				return true;
+			}
+		});
 
 		paint = new Paint();
 		paint.setAntiAlias(true);
@@ -352,12 +365,8 @@ public class RadarView extends SimpleCustomView implements Updateable {
 
 	@Override
 	public boolean update(float timeDelta, Updateable parent) {
-		if (myTimer.update(timeDelta, parent)) {
-			//setRotation(myCamera.getCameraAnglesInDegree()[0]);
-			// mCameraAngleInDeg = myCamera.getCameraAnglesInDegree()[0];
-			mCameraAngleInDeg = mSetup.getCameraAngle().z;
-			postInvalidate();
-		}
+		// the radar is redrawn by the timer wheel when it is due:
+		myTimer.keepAlive();
 		/*
 		 * TODO if view was removed from parent it can return false here!
 		 */
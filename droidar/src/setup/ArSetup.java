@@ -10,7 +10,11 @@ import system.SimpleLocationManager;
 import system.TaskManager;
 import util.EfficientList;
 import util.Vec;
+import worlddata.DistanceCuller;
+import worlddata.GeofenceEngine;
+import worlddata.PhysicsWorld;
 import worlddata.SystemUpdater;
+import worlddata.TimerWheel;
 import android.app.Activity;
 import android.view.Display;
 import android.view.KeyEvent;
@@ -28,9 +32,12 @@ import commands.undoable.CommandProcessor;
 
 import entry.ArType;
 import entry.ISetupEntry;
+import geo.FloatingOrigin;
 import gl.GLFactory;
 import gl.LightSource;
 import gl.ObjectPicker;
+import gl.animations.TweenEngine;
+import gl.textures.TextureAtlas;
 import gl.textures.TextureManager;
 import gui.GuiSetup;
 import gui.InfoScreenSettings;
@@ -197,11 +204,37 @@ public abstract class ArSetup implements ISetupSteps, ISetupLifeCycle {
 		initEventManagerInstance(getActivity());
 		SimpleLocationManager.resetInstance();
 		TextureManager.resetInstance();
+		TextureAtlas.resetInstance();
+		TimerWheel.resetInstance();
+		GeofenceEngine.resetInstance();
+		DistanceCuller.resetInstance();
+		FloatingOrigin.resetInstance();
+		TweenEngine.resetInstance();
+		PhysicsWorld.resetInstance();
 		TaskManager.resetInstance();
 		ObjectPicker.resetInstance(new CommandDeviceVibrate(getActivity(), VIBRATEDURATION));
 		CommandProcessor.resetInstance();
 	}
 
+	/**
+	 * The engines are advanced by the updater of this setup only, an engine
+	 * which is reset later has to be added to {@link #getSystemUpdater()}
+	 * again
+	 * 
+	 * @param updater - {@link worlddata.SystemUpdater}
+	 */
+	private void addStepListeners(SystemUpdater updater) {
+		updater.addStepListener(TweenEngine.getInstance(),
+				TweenEngine.STEP_ORDER);
+		updater.addStepListener(PhysicsWorld.getInstance(),
+				PhysicsWorld.STEP_ORDER);
+		updater.addStepListener(TimerWheel.getInstance(), TimerWheel.STEP_ORDER);
+		updater.addStepListener(GeofenceEngine.getInstance(),
+				GeofenceEngine.STEP_ORDER);
+		updater.addStepListener(DistanceCuller.getInstance(),
+				DistanceCuller.STEP_ORDER);
+	}
+
 	/**
 	 * You can create and set a subclass of {@link EventManager} here. To set
 	 * the instance use
@@ -389,6 +422,7 @@ public abstract class ArSetup implements ISetupSteps, ISetupLifeCycle {
 		ARLogger.debug(LOG_TAG, "onCreate");
 		initAllSingletons();
 		mWorldUpdater = new SystemUpdater();
+		addStepListeners(mWorldUpdater);
 	}
 
 	@Override
@@ -1,5 +1,6 @@
 package system;
 
+import geo.FloatingOrigin;
 import geo.GeoObj;
 import geo.GeoUtils;
 import gl.GLCamera;
@@ -424,6 +425,7 @@ public class EventManager implements LocationListener, SensorEventListener {
 					+ "The last known position of the device will be used "
 					+ "at the zero position.");
 			zeroPos = getCurrentLocationObject().copy();
+			FloatingOrigin.getInstance().rebase(zeroPos);
 		}
 		return zeroPos;
 	}
@@ -434,6 +436,7 @@ public class EventManager implements LocationListener, SensorEventListener {
 		} else {
 			zeroPos.setLocation(location);
 		}
+		FloatingOrigin.getInstance().rebase(zeroPos);
 	}
 
 	public void resumeEventListeners(Activity targetActivity,
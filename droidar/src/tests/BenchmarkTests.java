@@ -0,0 +1,662 @@
+package tests;
+
+import geo.ContractionHierarchy;
+import geo.GeoDistance;
+import geo.GeoGraph;
+import geo.GeoIndex;
+import geo.GeoObj;
+import geo.GeoProjection;
+import geo.PathSimplifier;
+import geo.RoutingGraph;
+import gl.GLCamera;
+import gl.HasPosition;
+import gl.animations.AnimationFaceToCamera;
+import gl.animations.AnimationRotate;
+import gl.animations.TweenEngine;
+import gl.scenegraph.MeshComponent;
+import gl.scenegraph.Shape;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Random;
+
+import util.TextIndex;
+import util.Vec;
+import worlddata.Entity;
+import worlddata.Geofence;
+import worlddata.GeofenceEngine;
+import worlddata.Obj;
+import worlddata.ParallelUpdater;
+import worlddata.PhysicsWorld;
+import worlddata.TransformStore;
+import worlddata.Updateable;
+import worlddata.Visitor;
+import worlddata.World;
+
+/**
+ * Speed measurements which can run on the desktop and on the device. The
+ * results are printed to System.out because the desktop test runner disables
+ * the log
+ *
+ * @author Spobo
+ *
+ */
+public class BenchmarkTests extends SimpleTesting {
+
+	private static final String LOG_TAG = "BenchmarkTests";
+
+	@Override
+	public void run() throws Exception {
+		parallelUpdateBenchmark(10000, 100);
+		geofenceBenchmark(50000, 1000);
+		componentLookupBenchmark(1000000);
+		transformStoreBenchmark(50000, 100);
+		tweenBenchmark(10000, 100);
+		physicsBenchmark(5000, 100);
+		routingBenchmark(100, false, 20);
+		routingBenchmark(700, false, 5);
+		routingBenchmark(700, true, 5);
+		contractionHierarchyBenchmark(200, 1000);
+		geoGraphImportBenchmark(320);
+		geoIndexBenchmark(100000, 10000);
+		textIndexBenchmark(100000, 300);
+		geoProjectionBenchmark(100000, 50);
+		geoDistanceBenchmark(10000, 200);
+		pathSimplifierBenchmark(100000);
+	}
+
+	/**
+	 * a random track with size points, simplified for several camera
+	 * distances
+	 */
+	private void pathSimplifierBenchmark(int size) throws Exception {
+		Random random = new Random(10);
+		double[] x = new double[size];
+		double[] y = new double[size];
+		for (int i = 1; i < size; i++) {
+			x[i] = x[i - 1] + random.nextDouble() * 10;
+			y[i] = y[i - 1] + (random.nextDouble() - 0.5) * 10;
+		}
+		long start = System.nanoTime();
+		PathSimplifier s = new PathSimplifier(x, y, size);
+		float buildTime = (System.nanoTime() - start) / 1000000f;
+		StringBuilder counts = new StringBuilder();
+		start = System.nanoTime();
+		for (int distance = 10; distance <= 100000; distance *= 10) {
+			int[] indices = s.simplify(PathSimplifier.getTolerance(distance));
+			counts.append(" ").append(distance).append("m=")
+					.append(indices.length);
+		}
+		float simplifyTime = (System.nanoTime() - start) / 1000000f / 5;
+		System.out.println(LOG_TAG + ": PathSimplifier with " + size
+				+ " points, build=" + buildTime + "ms, simplify="
+				+ simplifyTime + "ms, points for camera distance" + counts);
+	}
+
+	/**
+	 * distances from one position to size positions, the per object
+	 * {@link GeoObj#getDistance(GeoObj)} calls are compared to the batch
+	 * versions of {@link GeoDistance}
+	 */
+	private void geoDistanceBenchmark(int size, int rounds) throws Exception {
+		Random random = new Random(7);
+		GeoObj[] objs = new GeoObj[size];
+		double[] lat = new double[size];
+		double[] lng = new double[size];
+		for (int i = 0; i < size; i++) {
+			lat[i] = 50.7 + random.nextDouble() * 0.1;
+			lng[i] = 6.0 + random.nextDouble() * 0.15;
+			objs[i] = new GeoObj(lat[i], lng[i]);
+		}
+		double[] target = new double[size];
+		int[] found = new int[size];
+		double check = 0;
+		GeoObj pos = new GeoObj(50.75, 6.07);
+		long start = System.nanoTime();
+		for (int r = 0; r < rounds; r++) {
+			for (int i = 0; i < size; i++) {
+				target[i] = pos.getDistance(objs[i]);
+			}
+			check += target[r];
+		}
+		float perObjectTime = (System.nanoTime() - start) / 1000000f / rounds;
+		start = System.nanoTime();
+		for (int r = 0; r < rounds; r++) {
+			GeoDistance.haversine(50.75, 6.07, lat, lng, size, target);
+			check += target[r];
+		}
+		float haversineTime = (System.nanoTime() - start) / 1000000f / rounds;
+		start = System.nanoTime();
+		for (int r = 0; r < rounds; r++) {
+			GeoDistance.equirectangular(50.75, 6.07, lat, lng, size, target);
+			check += target[r];
+		}
+		float equirectangularTime = (System.nanoTime() - start) / 1000000f
+				/ rounds;
+		start = System.nanoTime();
+		for (int r = 0; r < rounds; r++) {
+			GeoDistance.squaredProjected(50.75, 6.07, lat, lng, size, target);
+			check += target[r];
+		}
+		float squaredTime = (System.nanoTime() - start) / 1000000f / rounds;
+		start = System.nanoTime();
+		for (int r = 0; r < rounds; r++) {
+			check += GeoDistance.findNearest(50.75, 6.07, lat, lng, size);
+			check += GeoDistance.findWithinRadius(50.75, 6.07, lat, lng, size,
+					1000, found);
+		}
+		float rankingTime = (System.nanoTime() - start) / 1000000f / rounds;
+		assertTrue(!Double.isNaN(check));
+		System.out.println(LOG_TAG + ": distances from one to " + size
+				+ " positions, GeoObj.getDistance=" + perObjectTime
+				+ "ms, batch haversine=" + haversineTime
+				+ "ms, batch equirectangular=" + equirectangularTime
+				+ "ms, batch squared projected=" + squaredTime + "ms ("
+				+ (perObjectTime / squaredTime) + "x), nearest + 1km radius="
+				+ rankingTime + "ms");
+	}
+
+	private void geoProjectionBenchmark(int size, int rounds) throws Exception {
+		Random random = new Random(4);
+		double[] lat = new double[size];
+		double[] lng = new double[size];
+		for (int i = 0; i < size; i++) {
+			lat[i] = 50.7 + random.nextDouble() * 0.1;
+			lng[i] = 6.0 + random.nextDouble() * 0.1;
+		}
+		float[] packed = new float[3 * size];
+		float check = 0;
+		long start = System.nanoTime();
+		for (int r = 0; r < rounds; r++) {
+			final double zeroLat = 50.75 + r * 0.0001;
+			final double zeroLng = 6.05;
+			// like the old GeoObj.getVirtualPosition() for each object:
+			for (int i = 0; i < size; i++) {
+				Vec v = new Vec();
+				v.x = (float) ((lng[i] - zeroLng) * 111319.4917 * Math
+						.cos(zeroLat * 0.0174532925));
+				v.y = (float) ((lat[i] - zeroLat) * 111133.3333);
+				check += v.x;
+			}
+		}
+		float perObjectTime = (System.nanoTime() - start) / 1000000f / rounds;
+		start = System.nanoTime();
+		for (int r = 0; r < rounds; r++) {
+			new GeoProjection(50.75 + r * 0.0001, 6.05, 0).project(lat, lng,
+					null, size, packed);
+			check += packed[0];
+		}
+		float batchTime = (System.nanoTime() - start) / 1000000f / rounds;
+		ParallelUpdater updater = ParallelUpdater.getInstance();
+		start = System.nanoTime();
+		for (int r = 0; r < rounds; r++) {
+			new GeoProjection(50.75 + r * 0.0001, 6.05, 0).project(lat, lng,
+					null, size, packed, updater);
+			check += packed[0];
+		}
+		float parallelTime = (System.nanoTime() - start) / 1000000f / rounds;
+		assertTrue(!Float.isNaN(check));
+		System.out.println(LOG_TAG + ": re-basing " + size
+				+ " positions, per object=" + perObjectTime + "ms, batch="
+				+ batchTime + "ms, parallel batch (" + updater.getThreadCount()
+				+ " threads)=" + parallelTime + "ms");
+	}
+
+	private void textIndexBenchmark(int size, int searches) throws Exception {
+		String[] words = { "main", "station", "street", "cafe", "museum",
+				"park", "church", "market", "bakery", "school", "library",
+				"tower", "bridge", "garden", "theater", "hotel" };
+		Random random = new Random(9);
+		TextIndex<Integer> index = new TextIndex<Integer>();
+		String[] names = new String[size];
+		long start = System.nanoTime();
+		for (int i = 0; i < size; i++) {
+			names[i] = words[random.nextInt(words.length)] + " "
+					+ Integer.toString(random.nextInt(1000000), 36) + " "
+					+ words[random.nextInt(words.length)];
+			index.add(i, names[i], "Number " + i);
+		}
+		float buildTime = (System.nanoTime() - start) / 1000000f;
+		String[] terms = new String[searches];
+		for (int i = 0; i < searches; i++) {
+			String name = names[random.nextInt(size)];
+			// type-ahead terms, full words and typos:
+			terms[i] = i % 3 == 0 ? name.substring(0, 6) : i % 3 == 1 ? name
+					: name.replace('a', 'e');
+		}
+		start = System.nanoTime();
+		int found = 0;
+		for (int i = 0; i < searches; i++) {
+			found += index.search(terms[i], 10).myLength;
+		}
+		float searchTime = (System.nanoTime() - start) / 1000000f / searches;
+		start = System.nanoTime();
+		final int linearSearches = Math.max(1, searches / 10);
+		for (int i = 0; i < linearSearches; i++) {
+			String term = terms[i].toLowerCase();
+			for (int j = 0; j < size; j++) {
+				if (names[j].toLowerCase().contains(term)) {
+					found++;
+				}
+			}
+		}
+		float linearTime = (System.nanoTime() - start) / 1000000f
+				/ linearSearches;
+		assertTrue(found > searches);
+		System.out.println(LOG_TAG + ": TextIndex with " + size
+				+ " names, build=" + buildTime + "ms, top-10 search="
+				+ searchTime + "ms, linear contains() search=" + linearTime
+				+ "ms");
+	}
+
+	private void geoIndexBenchmark(int size, int queries) throws Exception {
+		Random random = new Random(5);
+		double[] lat = new double[size];
+		double[] lng = new double[size];
+		GeoIndex<Integer> index = new GeoIndex<Integer>();
+		long start = System.nanoTime();
+		for (int i = 0; i < size; i++) {
+			lat[i] = 50.7 + random.nextDouble() * 0.1;
+			lng[i] = 6.0 + random.nextDouble() * 0.15;
+			index.add(i, lat[i], lng[i]);
+		}
+		// the first query builds the tree:
+		index.findNearest(50.75, 6.07);
+		float buildTime = (System.nanoTime() - start) / 1000000f;
+		start = System.nanoTime();
+		int found = 0;
+		for (int i = 0; i < queries; i++) {
+			double qLat = 50.7 + random.nextDouble() * 0.1;
+			double qLng = 6.0 + random.nextDouble() * 0.15;
+			found += index.findNearest(qLat, qLng, 5).myLength;
+			found += index.findWithinRadius(qLat, qLng, 50).myLength;
+		}
+		float indexTime = (System.nanoTime() - start) / 1000000f / queries;
+		start = System.nanoTime();
+		final int linearQueries = Math.max(1, queries / 100);
+		for (int q = 0; q < linearQueries; q++) {
+			double qLat = 50.7 + random.nextDouble() * 0.1;
+			double qLng = 6.0 + random.nextDouble() * 0.15;
+			double best = Double.MAX_VALUE;
+			for (int i = 0; i < size; i++) {
+				best = Math.min(best,
+						GeoIndex.getDistance(qLat, qLng, lat[i], lng[i]));
+			}
+			assertTrue(best < Double.MAX_VALUE);
+		}
+		float linearTime = (System.nanoTime() - start) / 1000000f
+				/ linearQueries;
+		assertTrue(found >= queries * 5);
+		System.out.println(LOG_TAG + ": GeoIndex with " + size
+				+ " positions, build=" + buildTime + "ms, 5-nearest + 50m "
+				+ "radius query=" + indexTime + "ms, linear nearest search="
+				+ linearTime + "ms");
+	}
+
+	/**
+	 * imports a grid with about 2*size^2 edges into a {@link GeoGraph}
+	 */
+	private void geoGraphImportBenchmark(int size) throws Exception {
+		GeoObj[] nodes = new GeoObj[size * size];
+		for (int i = 0; i < nodes.length; i++) {
+			nodes[i] = new GeoObj(50.7 + i / size * 0.0001, 6.0 + i % size
+					* 0.0001, 0);
+		}
+		// one mesh for all edges, only the graph structure is measured:
+		MeshComponent edgeMesh = new Shape();
+		GeoGraph g = new GeoGraph();
+		long start = System.nanoTime();
+		for (int i = 0; i < nodes.length; i++) {
+			g.add(nodes[i]);
+		}
+		int edges = 0;
+		for (int i = 0; i < nodes.length; i++) {
+			if (i % size < size - 1) {
+				assertTrue(g.addEdge(nodes[i], nodes[i + 1], edgeMesh) != null);
+				edges++;
+			}
+			if (i + size < nodes.length) {
+				assertTrue(g.addEdge(nodes[i], nodes[i + size], edgeMesh) != null);
+				edges++;
+			}
+		}
+		float importTime = (System.nanoTime() - start) / 1000000f;
+		start = System.nanoTime();
+		int connected = 0;
+		for (int i = 0; i < nodes.length; i++) {
+			connected += g.getConnectedNodesOf(nodes[i]).myLength;
+			assertTrue(g.getEdge(nodes[i], nodes[(i + 1) % nodes.length]) != null
+					|| i % size == size - 1);
+		}
+		float lookupTime = (System.nanoTime() - start) / 1000000f;
+		assertTrue(connected == 2 * edges);
+		System.out.println(LOG_TAG + ": GeoGraph import of " + nodes.length
+				+ " nodes and " + edges + " edges=" + importTime
+				+ "ms, lookup of all neighbours and edges=" + lookupTime + "ms");
+	}
+
+	private void contractionHierarchyBenchmark(int size, int searches)
+			throws Exception {
+		Random random = new Random(7);
+		RoutingGraph g = createTestGraph(size, true, random);
+		long start = System.nanoTime();
+		ContractionHierarchy ch = ContractionHierarchy.build(g);
+		float buildTime = (System.nanoTime() - start) / 1000000f;
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ch.writeTo(out);
+		start = System.nanoTime();
+		ch = ContractionHierarchy.readFrom(new ByteArrayInputStream(out
+				.toByteArray()));
+		float loadTime = (System.nanoTime() - start) / 1000000f;
+		final int n = g.getNodeCount();
+		long chTime = 0;
+		long aStarTime = 0;
+		int settled = 0;
+		for (int i = 0; i < searches; i++) {
+			int a = random.nextInt(n);
+			int b = random.nextInt(n);
+			start = System.nanoTime();
+			ch.findPath(a, b);
+			chTime += System.nanoTime() - start;
+			settled += ch.getSettledCountOfLastSearch();
+			if (i % 50 == 0) {
+				start = System.nanoTime();
+				g.aStar(a, b);
+				aStarTime += System.nanoTime() - start;
+				assertTrue(Math.abs(g.getLastPathLength()
+						- ch.getLastPathLength()) <= g.getLastPathLength() * 0.001f);
+			}
+		}
+		System.out.println(LOG_TAG + ": contraction hierarchy for " + n
+				+ " nodes: build=" + buildTime + "ms, " + out.size()
+				+ " bytes, load=" + loadTime + "ms, query="
+				+ (chTime / 1000f / searches) + "us (" + (settled / searches)
+				+ " nodes), A*=" + (aStarTime / 1000f / (searches / 50))
+				+ "us per search");
+	}
+
+	/**
+	 * @param size
+	 *            the graph is a size x size grid with about 2*size^2 edges
+	 * @param cityLike
+	 *            if true some edges are missing and only every 10th street
+	 *            is fast, the other streets are up to 2.5 times slower than
+	 *            the direct distance
+	 */
+	static RoutingGraph createTestGraph(int size, boolean cityLike,
+			Random random) {
+		final int n = size * size;
+		double[] lat = new double[n];
+		double[] lng = new double[n];
+		for (int i = 0; i < n; i++) {
+			// about 100m between the nodes:
+			lat[i] = 50.7 + (i / size) * 0.0009;
+			lng[i] = 6.0 + (i % size) * 0.0014;
+		}
+		int[] from = new int[2 * n];
+		int[] to = new int[2 * n];
+		float[] weights = new float[2 * n];
+		RoutingGraph positions = RoutingGraph.build(lat, lng, from, to,
+				weights, 0, false);
+		int edges = 0;
+		for (int i = 0; i < n; i++) {
+			int x = i % size;
+			int y = i / size;
+			for (int k = 0; k < 2; k++) {
+				int j = k == 0 ? i + 1 : i + size;
+				if ((k == 0 && x == size - 1) || (k == 1 && y == size - 1)) {
+					continue;
+				}
+				boolean mainRoad = k == 0 ? y % 10 == 0 : x % 10 == 0;
+				if (cityLike && !mainRoad && random.nextFloat() < 0.2f) {
+					continue;
+				}
+				float factor = 1;
+				if (cityLike && !mainRoad) {
+					factor = 1.5f + random.nextFloat();
+				}
+				from[edges] = i;
+				to[edges] = j;
+				weights[edges] = positions.getDistance(i, j) * factor;
+				edges++;
+			}
+		}
+		return RoutingGraph.build(lat, lng, from, to, weights, edges, false);
+	}
+
+	private void routingBenchmark(int size, boolean cityLike, int searches)
+			throws Exception {
+		Random random = new Random(42);
+		long start = System.nanoTime();
+		RoutingGraph g = createTestGraph(size, cityLike, random);
+		float buildTime = (System.nanoTime() - start) / 1000000f;
+		final int n = g.getNodeCount();
+		final int edges = g.getEdgeCount() / 2;
+		long dijkstraTime = 0;
+		long aStarTime = 0;
+		int dijkstraSettled = 0;
+		int aStarSettled = 0;
+		for (int i = 0; i < searches; i++) {
+			int a = random.nextInt(n);
+			int b = random.nextInt(n);
+			start = System.nanoTime();
+			int[] p1 = g.dijkstra(a, b);
+			dijkstraTime += System.nanoTime() - start;
+			dijkstraSettled += g.getSettledCountOfLastSearch();
+			float length = g.getLastPathLength();
+			start = System.nanoTime();
+			int[] p2 = g.aStar(a, b);
+			aStarTime += System.nanoTime() - start;
+			aStarSettled += g.getSettledCountOfLastSearch();
+			assertTrue((p1 == null) == (p2 == null));
+			assertTrue(Math.abs(g.getLastPathLength() - length) <= length * 0.001f);
+		}
+		System.out.println(LOG_TAG + ": " + (cityLike ? "city" : "grid")
+				+ " graph with " + n + " nodes and " + edges + " edges, setup="
+				+ buildTime + "ms, dijkstra="
+				+ (dijkstraTime / 1000000f / searches) + "ms ("
+				+ (dijkstraSettled / searches) + " nodes), A*="
+				+ (aStarTime / 1000000f / searches) + "ms ("
+				+ (aStarSettled / searches) + " nodes) per search");
+	}
+
+	private void physicsBenchmark(int bodyCount, int ticks) throws Exception {
+		PhysicsWorld world = new PhysicsWorld();
+		world.setGravity(new Vec(0, 0, -9.81f));
+		world.addBox(new Vec(0, 0, -1), new Vec(200, 200, 1), 0);
+		Vec pos = new Vec();
+		Vec velocity = new Vec();
+		for (int i = 0; i < bodyCount; i++) {
+			pos.setTo(i % 100 * 2, i / 100 * 2 % 200, 1 + i / 10000);
+			int body = i % 2 == 0 ? world.addSphere(pos, 0.5f, 1) : world
+					.addBox(pos, new Vec(0.5f, 0.5f, 0.5f), 1);
+			velocity.setTo((i % 7) - 3, (i % 5) - 2, 0);
+			world.setVelocity(body, velocity);
+		}
+		long start = System.nanoTime();
+		for (int i = 0; i < ticks; i++) {
+			world.update(1 / 60f);
+		}
+		float perTick = (System.nanoTime() - start) / 1000000f / ticks;
+		assertTrue(world.getBodyCount() == bodyCount + 1);
+		System.out.println(LOG_TAG + ": " + bodyCount
+				+ " bodies in the PhysicsWorld=" + perTick + "ms per tick ("
+				+ world.getSleepingCount() + " sleeping, "
+				+ world.getPairTestsInLastUpdate() + " pair tests)");
+	}
+
+	private void tweenBenchmark(int markerCount, int ticks) throws Exception {
+		TweenEngine engine = new TweenEngine();
+		TransformStore store = new TransformStore();
+		for (int i = 0; i < markerCount; i++) {
+			int slot = store.allocate();
+			engine.tween(store, slot, TweenEngine.SCALE, new float[] { 2, 2, 2 },
+					0.5f, TweenEngine.EASE_IN_OUT, TweenEngine.PING_PONG);
+		}
+		long start = System.nanoTime();
+		for (int i = 0; i < ticks; i++) {
+			engine.advance(0.02f);
+		}
+		float perTick = (System.nanoTime() - start) / 1000000f / ticks;
+		assertTrue(engine.getActiveTweenCount() == markerCount);
+		System.out.println(LOG_TAG + ": " + markerCount
+				+ " pulsing markers in the TweenEngine=" + perTick
+				+ "ms per tick");
+	}
+
+	private void transformStoreBenchmark(int objectCount, int ticks)
+			throws Exception {
+		TransformStore store = new TransformStore();
+		for (int i = 0; i < objectCount; i++) {
+			int slot = store.allocate();
+			store.setPosition(slot, i % 100, i / 100, 0);
+			store.setSpin(slot, 30);
+		}
+		float[] distances = new float[store.getSlotCount()];
+		long start = System.nanoTime();
+		for (int i = 0; i < ticks; i++) {
+			store.animate(0.02f);
+			store.cullByDistance(50, 50, 1, 100);
+			store.calcDistances(50, 50, 1, distances);
+		}
+		float perTick = (System.nanoTime() - start) / 1000000f / ticks;
+		assertTrue(store.getVisibleCount() > 0);
+		System.out.println(LOG_TAG + ": animating, culling and measuring "
+				+ objectCount + " packed objects=" + perTick + "ms per tick");
+	}
+
+	private static class DummyComp implements Entity {
+		@Override
+		public boolean update(float timeDelta, Updateable parent) {
+			return true;
+		}
+
+		@Override
+		public boolean accept(Visitor visitor) {
+			return false;
+		}
+
+		@Override
+		public Updateable getMyParent() {
+			return null;
+		}
+
+		@Override
+		public void setMyParent(Updateable parent) {
+		}
+	}
+
+	private static class LastComp extends DummyComp {
+	}
+
+	/**
+	 * Searches the last component of objects with more and more components,
+	 * the time per lookup should not grow with the number of components
+	 */
+	private void componentLookupBenchmark(int lookups) throws Exception {
+		for (int compCount = 2; compCount <= 128; compCount *= 4) {
+			Obj o = new Obj();
+			for (int i = 0; i < compCount - 1; i++) {
+				o.setComp(new DummyComp());
+			}
+			LastComp last = new LastComp();
+			o.setComp(last);
+			Object found = null;
+			long start = System.nanoTime();
+			for (int i = 0; i < lookups; i++) {
+				found = o.getComp(LastComp.class);
+			}
+			float perLookup = (System.nanoTime() - start) / (float) lookups;
+			assertTrue(found == last);
+			start = System.nanoTime();
+			for (int i = 0; i < lookups; i++) {
+				found = o.getComps(DummyComp.class);
+			}
+			float perListLookup = (System.nanoTime() - start) / (float) lookups;
+			assertTrue(o.getComps(DummyComp.class).size() == compCount);
+			System.out.println(LOG_TAG + ": getComp with " + compCount
+					+ " components=" + perLookup + "ns, getComps="
+					+ perListLookup + "ns");
+		}
+	}
+
+	private void geofenceBenchmark(int fenceCount, int ticks) throws Exception {
+		GeofenceEngine engine = new GeofenceEngine();
+		java.util.Random r = new java.util.Random(1);
+		float size = (float) Math.sqrt(fenceCount) * 10;
+		for (int i = 0; i < fenceCount; i++) {
+			float x = r.nextFloat() * size;
+			float y = r.nextFloat() * size;
+			if (i % 4 == 0) {
+				engine.add(Geofence.newPolygon(new float[] { x, y, x + 15, y,
+						x + 10, y + 12 }));
+			} else {
+				engine.add(Geofence.newCircle(x, y, 3 + r.nextFloat() * 10));
+			}
+		}
+		final Vec pos = new Vec();
+		engine.addTarget(new HasPosition() {
+			@Override
+			public Vec getPosition() {
+				return pos;
+			}
+
+			@Override
+			public void setPosition(Vec position) {
+			}
+		});
+		// the first update tests all new fences:
+		engine.update(0.02f);
+		long start = System.nanoTime();
+		float max = 0;
+		for (int i = 0; i < ticks; i++) {
+			// walk diagonally through the area, 1 unit per tick:
+			pos.x = pos.y = i % (int) size;
+			engine.update(0.02f);
+			max = Math.max(max, engine.getLastUpdateDurationInMs());
+		}
+		float average = (System.nanoTime() - start) / 1000000f / ticks;
+		assertTrue(engine.getFenceCount() == fenceCount);
+		System.out.println(LOG_TAG + ": " + fenceCount
+				+ " geofences with a moving target: average=" + average
+				+ "ms, max=" + max + "ms per update");
+	}
+
+	private void parallelUpdateBenchmark(int objectCount, int ticks)
+			throws Exception {
+		GLCamera camera = new GLCamera(new Vec(0, 0, 1));
+		World w = new World(camera);
+		for (int i = 0; i < objectCount; i++) {
+			MeshComponent s = new Shape(null, new Vec(i % 100, i / 100, 0));
+			s.addAnimation(new AnimationRotate(30, new Vec(0, 0, 1)));
+			s.addAnimation(new AnimationFaceToCamera(camera, 0));
+			Obj o = new Obj();
+			o.setComp(s);
+			w.add(o);
+		}
+		// warm up:
+		updateWorld(w, ticks / 2);
+		w.setParallelUpdate(true);
+		updateWorld(w, ticks / 2);
+
+		w.setParallelUpdate(false);
+		long single = updateWorld(w, ticks);
+		w.setParallelUpdate(true);
+		long parallel = updateWorld(w, ticks);
+		w.setParallelUpdate(false);
+
+		assertTrue(w.getAllItems().myLength == objectCount);
+		System.out.println(LOG_TAG + ": " + ticks + " updates of "
+				+ objectCount + " animated objects: 1 thread=" + single
+				+ "ms, " + ParallelUpdater.getInstance().getThreadCount()
+				+ " threads=" + parallel + "ms");
+	}
+
+	private static long updateWorld(World w, int ticks) {
+		long start = System.nanoTime();
+		for (int i = 0; i < ticks; i++) {
+			w.update(0.02f, null);
+		}
+		return (System.nanoTime() - start) / 1000000;
+	}
+
+}
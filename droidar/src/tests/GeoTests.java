@@ -1,10 +1,38 @@
 package tests;
 
+import geo.ContractionHierarchy;
+import geo.Edge;
+import geo.FloatingOrigin;
+import geo.GeoDistance;
 import geo.GeoGraph;
+import geo.GeoIndex;
+import geo.EdgeListener;
+import geo.GeoProjection;
 import geo.GeoObj;
+import geo.NodeListener;
+import geo.PathSimplifier;
+import geo.RouteCache;
+import geo.RouteParser;
+import geo.RoutingGraph;
 import gl.GLCamera;
 import gl.GLFactory;
+import gl.scenegraph.Shape;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.util.Random;
+
+import util.EfficientList;
 import util.Vec;
+import worlddata.ParallelUpdater;
 import worlddata.World;
 import actions.ActionCalcRelativePos;
 import android.util.Log;
@@ -30,6 +58,18 @@ public class GeoTests extends SimpleTesting {
 	@Override
 	public void run() throws Exception {
 		t8();
+		edgeIndexTests();
+		geoIndexTests();
+		edgeSnappingTests();
+		textSearchTests();
+		geoProjectionTests();
+		floatingOriginTests();
+		geoDistanceTests();
+		routeParserTests();
+		routeCacheTests();
+		pathSimplifierTests();
+		routingGraphTests();
+		contractionHierarchyTests();
 		distanceCalcTest();
 		virtualPosToGPSPosTest();
 		positioningTests();
@@ -42,6 +82,793 @@ public class GeoTests extends SimpleTesting {
 		t1();
 	}
 
+	private void edgeIndexTests() throws Exception {
+		GeoGraph g = new GeoGraph();
+		GeoObj a = new GeoObj(50.7691, 6.0975, 0, "A");
+		GeoObj b = new GeoObj(50.7693, 6.0975, 0, "B");
+		GeoObj c = new GeoObj(50.7693, 6.0979, 0, "C");
+		GeoObj d = new GeoObj(50.7691, 6.0979, 0, "D");
+		assertTrue(g.add(a) && g.add(b) && g.add(c) && g.add(d));
+		assertFalse(g.add(a));
+		assertTrue(g.getAllItems().myLength == 4);
+		Edge ab = g.addEdge(a, b, null);
+		Edge bc = g.addEdge(b, c, null);
+		Edge ca = g.addEdge(c, a, null);
+		assertTrue(ab != null && bc != null && ca != null);
+		// edges are unique in both directions:
+		assertTrue(g.addEdge(b, a, null) == null);
+		assertTrue(g.getEdge(a, b) == ab);
+		assertTrue(g.getEdge(b, a) == ab);
+		assertTrue(g.getEdge(a, d) == null);
+		assertTrue(g.hasEdge(c, b) == 1);
+		assertTrue(g.getConnectedNodesOf(a).myLength == 2);
+		assertTrue(g.getConnectedNodesOf(d).myLength == 0);
+
+		assertTrue(g.remove(ab));
+		assertTrue(g.getEdge(a, b) == null);
+		assertTrue(g.hasEdge(a, b) == -1);
+		// the last edge took the place of the removed one:
+		assertTrue(g.hasEdge(c, a) == 0);
+		assertTrue(g.getEdges().myLength == 2);
+		assertTrue(g.getConnectedNodesOf(a).myLength == 1);
+		assertTrue(g.getConnectedNodesOf(a).get(0) == c);
+		assertTrue(g.addEdge(b, a, null) != null);
+		assertTrue(g.remove(d));
+		assertTrue(g.add(d));
+
+		GeoGraph directed = new GeoGraph();
+		directed.setNonDirectional(false);
+		directed.add(a);
+		directed.add(b);
+		directed.add(c);
+		directed.addEdge(a, b, null);
+		directed.addEdge(c, a, null);
+		assertTrue(directed.getFollowingNodesOf(a).myLength == 1);
+		assertTrue(directed.getFollowingNodesOf(a).get(0) == b);
+		assertTrue(directed.getFollowingNodesOf(b).myLength == 0);
+		directed.clear();
+		assertTrue(directed.getEdge(a, b) == null);
+		assertTrue(directed.add(a));
+	}
+
+	private void geoIndexTests() throws Exception {
+		GeoIndex<Integer> index = new GeoIndex<Integer>();
+		Random random = new Random(3);
+		final int n = 3000;
+		double[] lat = new double[n];
+		double[] lng = new double[n];
+		for (int i = 0; i < n; i++) {
+			// one dense city and a few points around the world:
+			boolean city = i % 10 != 0;
+			lat[i] = city ? 50.77 + random.nextDouble() * 0.02 : random
+					.nextDouble() * 180 - 90;
+			lng[i] = city ? 6.08 + random.nextDouble() * 0.03 : random
+					.nextDouble() * 360 - 180;
+			assertTrue(index.add(i, lat[i], lng[i]));
+			if (i % 500 == 0) {
+				// queries between the adds rebuild the tree from time to time:
+				checkGeoIndex(index, lat, lng, i + 1, random);
+			}
+		}
+		assertFalse(index.add(5, 0, 0));
+		for (int i = 0; i < n; i += 3) {
+			assertTrue(index.remove(i));
+		}
+		assertFalse(index.remove(0));
+		assertTrue(index.size() == n - (n + 2) / 3);
+		checkGeoIndex(index, lat, lng, n, random);
+		assertTrue(index.findNearest(lat[1], lng[1]) == 1);
+		assertTrue(index.findWithinRadius(lat[1], lng[1], 0).myLength == 1);
+		// a huge k must not allocate k candidates:
+		EfficientList<Integer> all = index.findNearest(lat[1], lng[1],
+				Integer.MAX_VALUE);
+		assertTrue(all.myLength == index.size());
+		index.clear();
+		assertTrue(index.findNearest(0, 0) == null);
+		// the date line is no border:
+		index.add(1, 0, 179.9999);
+		index.add(2, 0, 170);
+		assertTrue(index.findNearest(0, -179.9999) == 1);
+		assertTrue(index.findWithinRadius(0, -179.9999, 30).myLength == 1);
+	}
+
+	private void checkGeoIndex(GeoIndex<Integer> index, double[] lat,
+			double[] lng, int n, Random random) throws Exception {
+		for (int q = 0; q < 50; q++) {
+			double qLat = 50.77 + random.nextDouble() * 0.02;
+			double qLng = 6.08 + random.nextDouble() * 0.03;
+			double radius = random.nextDouble() * 500;
+			int expectedInRadius = 0;
+			double best = Double.MAX_VALUE;
+			for (int i = 0; i < n; i++) {
+				if (!index.contains(i)) {
+					continue;
+				}
+				double d = GeoIndex.getDistance(qLat, qLng, lat[i], lng[i]);
+				best = Math.min(best, d);
+				if (d <= radius) {
+					expectedInRadius++;
+				}
+			}
+			EfficientList<Integer> k = index.findNearest(qLat, qLng, 5);
+			assertTrue(k.myLength == Math.min(5, index.size()));
+			double last = 0;
+			for (int i = 0; i < k.myLength; i++) {
+				int item = k.get(i);
+				double d = GeoIndex.getDistance(qLat, qLng, lat[item], lng[item]);
+				assertTrue(d >= last - 0.001);
+				last = d;
+			}
+			int nearest = index.findNearest(qLat, qLng);
+			assertTrue(Math.abs(GeoIndex.getDistance(qLat, qLng, lat[nearest],
+					lng[nearest]) - best) < 0.001);
+			assertTrue(index.findWithinRadius(qLat, qLng, radius).myLength == expectedInRadius);
+		}
+	}
+
+	private void edgeSnappingTests() throws Exception {
+		GeoGraph g = new GeoGraph();
+		GeoObj a = new GeoObj(50.0, 6.0, 0, "A");
+		GeoObj b = new GeoObj(50.0, 6.01, 0, "B");
+		GeoObj c = new GeoObj(50.01, 6.01, 0, "C");
+		GeoObj lonely = new GeoObj(50.0009, 6.005, 0, "D");
+		g.add(a);
+		g.add(b);
+		g.add(c);
+		g.add(lonely);
+		Edge ab = g.addEdge(a, b, null);
+		g.addEdge(b, c, null);
+		GeoObj gps = new GeoObj(50.001, 6.005, 0, "GPS");
+		assertTrue(g.getClosesedObjTo(gps) == lonely);
+		assertTrue(g.getClosestObjsTo(gps, 2).get(1) == a
+				|| g.getClosestObjsTo(gps, 2).get(1) == b);
+		assertTrue(g.getObjsWithinRadius(gps, 500).myLength == 3);
+		// the closest nodes are far away from the closest point of the edge:
+		assertTrue(g.getClosestEdgeTo(gps) == ab);
+		GeoObj snapped = g.snapToClosestEdge(gps);
+		assertTrue(Math.abs(snapped.getLatitude() - 50.0) < 0.00001);
+		assertTrue(Math.abs(snapped.getLongitude() - 6.005) < 0.00001);
+		// behind the end of an edge the end node is the closest point:
+		snapped = g.snapToClosestEdge(new GeoObj(50.02, 6.011, 0, "X"));
+		assertTrue(snapped.getDistance(c) < 0.01);
+		// a moved node is found at its new position after the update:
+		lonely.setMyLatitude(50.01);
+		lonely.setMyLongitude(6.0);
+		assertTrue(g.updateNodePosition(lonely));
+		assertTrue(g.getClosesedObjTo(new GeoObj(50.0099, 6.0, 0, "Y")) == lonely);
+		assertTrue(g.getClosesedObjTo(gps) != lonely);
+		assertFalse(new GeoGraph().updateNodePosition(lonely));
+		assertTrue(g.remove(lonely));
+		assertTrue(g.getClosesedObjTo(gps) == a || g.getClosesedObjTo(gps) == b);
+		assertTrue(new GeoGraph().snapToClosestEdge(gps) == null);
+	}
+
+	private void textSearchTests() throws Exception {
+		GeoGraph g = new GeoGraph();
+		GeoObj cafe = new GeoObj(50.7, 6.0, 0, "Cafe Central");
+		GeoObj station = new GeoObj(50.71, 6.0, 0, "Central Station");
+		GeoObj museum = new GeoObj(50.72, 6.0, 0, "Ludwig Forum");
+		museum.getInfoObject().addTextToLongDescr("next to the central park");
+		g.add(cafe);
+		g.add(station);
+		assertTrue(g.findBestPointFor("station") == station);
+		// nodes which are added after the first search are found too:
+		g.add(museum);
+		GeoGraph r = g.findGeoObjects("central");
+		assertTrue(r.getAllItems().myLength == 3);
+		// the description is ranked after the names:
+		assertTrue(r.getAllItems().get(2) == museum);
+		assertTrue(g.findGeoObjects("central", 1).getAllItems().myLength == 1);
+		assertTrue(g.findBestPointFor("cen sta") == station);
+		// a typo:
+		assertTrue(g.findBestPointFor("ludwik") == museum);
+		assertTrue(g.findGeoObjects("xyz") == null);
+		g.remove(station);
+		assertTrue(g.findBestPointFor("cen sta") == null);
+		cafe.getInfoObject().setShortDescr("Bakery");
+		g.updateSearchIndex(cafe);
+		assertTrue(g.findBestPointFor("bakery") == cafe);
+		// changed texts are found without updating the index by hand:
+		museum.getInfoObject().setShortDescr("Theater");
+		assertTrue(g.findBestPointFor("theater") == museum);
+		assertTrue(g.findBestPointFor("ludwig") == null);
+
+		// nodes with an own search method are checked with it:
+		GeoObj custom = new GeoObj(50.73, 6.0, 0, "Something") {
+			@Override
+			public int matchesSearchTerm(String searchTerm) {
+				if (searchTerm.equals("secret")) {
+					return 0;
+				}
+				return searchTerm.equals("theater") ? 5 : -1;
+			}
+		};
+		g.add(custom);
+		assertTrue(g.findBestPointFor("secret") == custom);
+		assertTrue(g.findBestPointFor("something") == null);
+		// the results of both searches are sorted by quality:
+		r = g.findGeoObjects("theater");
+		assertTrue(r.getAllItems().myLength == 2);
+		assertTrue(r.getAllItems().get(0) == museum);
+		assertTrue(r.getAllItems().get(1) == custom);
+	}
+
+	private void geoProjectionTests() throws Exception {
+		GeoProjection p = GeoProjection.get(50.77, 6.08, 100);
+		assertTrue(GeoProjection.get(50.77, 6.08, 100) == p);
+		Vec v = p.project(50.78, 6.09, 0, null);
+		assertTrue(Math.abs(v.y - 1111.333f) < 0.01f);
+		assertTrue(Math.abs(v.x - 0.01 * 111319.4917
+				* Math.cos(Math.toRadians(50.77))) < 0.01f);
+		assertTrue(v.z == 0);
+		// the target is reused:
+		assertTrue(p.project(50.77, 6.08, 0, v) == v && v.x == 0 && v.y == 0);
+
+		final int n = 1000;
+		double[] lat = new double[n];
+		double[] lng = new double[n];
+		Random random = new Random(2);
+		for (int i = 0; i < n; i++) {
+			lat[i] = 50.76 + random.nextDouble() * 0.02;
+			lng[i] = 6.07 + random.nextDouble() * 0.02;
+		}
+		float[] packed = new float[3 * n];
+		p.project(lat, lng, null, n, packed);
+		float[] parallel = new float[3 * n];
+		p.project(lat, lng, null, n, parallel, new ParallelUpdater(4));
+		for (int i = 0; i < n; i++) {
+			p.project(lat[i], lng[i], 0, v);
+			assertTrue(packed[3 * i] == v.x && packed[3 * i + 1] == v.y
+					&& packed[3 * i + 2] == v.z);
+			assertTrue(parallel[3 * i] == v.x && parallel[3 * i + 1] == v.y);
+		}
+		// only the first count positions are converted:
+		float[] part = new float[3 * n];
+		p.project(lat, lng, null, 10, part);
+		assertTrue(part[29] == 0 && part[30] == 0 && part[31] == 0);
+	}
+
+	/**
+	 * Walks 50km to the north east, the zero point is moved like the
+	 * {@link ActionCalcRelativePos} does it and only the objects near the
+	 * device are refreshed (like they would be when they are rendered)
+	 */
+	private void floatingOriginTests() throws Exception {
+		FloatingOrigin.resetInstance();
+		FloatingOrigin origin = FloatingOrigin.getInstance();
+		assertTrue(origin.getVersion() == 0 && origin.getProjection() == null);
+		final double startLat = 50.77;
+		final double startLng = 6.08;
+		final double metersPerDegreeLng = GeoProjection.METERS_PER_DEGREE_LONGITUDE_AT_EQUATOR
+				* Math.cos(Math.toRadians(startLat));
+		final double walkLength = 50000;
+		final double stepLength = 10;
+		final double dLat = stepLength / Math.sqrt(2)
+				/ GeoProjection.METERS_PER_DEGREE_LATITUDE;
+		final double dLng = stepLength / Math.sqrt(2) / metersPerDegreeLng;
+
+		Random random = new Random(5);
+		final int n = 500;
+		GeoObj[] objs = new GeoObj[n];
+		for (int i = 0; i < n; i++) {
+			double s = random.nextDouble() * walkLength / stepLength;
+			objs[i] = new GeoObj(startLat + s * dLat
+					+ (random.nextDouble() - 0.5) * 0.004, startLng + s * dLng
+					+ (random.nextDouble() - 0.5) * 0.006);
+		}
+		GeoObj farAway = new GeoObj(startLat - 0.1, startLng - 0.1);
+
+		origin.rebase(startLat, startLng, 0);
+		farAway.refreshVirtualPositionIfOriginMoved();
+		Vec farAwayPos = farAway.getMySurroundGroup().getPosition().copy();
+		int rebaseCount = 0;
+		int refreshCount = 0;
+		Vec camera = new Vec();
+		Vec expected = new Vec();
+		for (int step = 1; step <= walkLength / stepLength; step++) {
+			double lat = startLat + step * dLat;
+			double lng = startLng + step * dLng;
+			origin.getProjection().project(lat, lng, 0, camera);
+			if (Math.abs(camera.x) > 1000 || Math.abs(camera.y) > 1000) {
+				int oldVersion = origin.getVersion();
+				origin.rebase(lat, lng, 0);
+				assertTrue(origin.getVersion() != oldVersion);
+				camera.setToZero();
+				rebaseCount++;
+			}
+			if (step % 10 != 0) {
+				continue;
+			}
+			GeoProjection device = GeoProjection.get(lat, lng, 0);
+			for (int i = 0; i < n; i++) {
+				if (GeoIndex.getDistance(objs[i].getLatitude(),
+						objs[i].getLongitude(), lat, lng) > 500) {
+					continue;
+				}
+				if (objs[i].refreshVirtualPositionIfOriginMoved()) {
+					refreshCount++;
+				}
+				// a second refresh is not needed:
+				assertFalse(objs[i].refreshVirtualPositionIfOriginMoved());
+				Vec pos = objs[i].getMySurroundGroup().getPosition();
+				// never far away from the origin, so float is precise enough:
+				assertTrue(Math.abs(pos.x) < 2000 && Math.abs(pos.y) < 2000);
+				device.project(objs[i], expected);
+				assertTrue(Vec.distance(Vec.sub(pos, camera), expected) < 0.5f);
+			}
+		}
+		assertTrue(rebaseCount >= 30);
+		// only objects which were near the device were recalculated:
+		assertTrue(refreshCount < rebaseCount * n / 4);
+		// the far away object was not touched by all the re-basing:
+		assertTrue(farAway.getMySurroundGroup().getPosition().x == farAwayPos.x
+				&& farAway.getMySurroundGroup().getPosition().y == farAwayPos.y);
+		assertTrue(farAway.refreshVirtualPositionIfOriginMoved());
+		assertTrue(Vec.distance(farAway.getMySurroundGroup().getPosition(),
+				farAway.getVirtualPosition()) < 0.01f);
+
+		/*
+		 * a world re-bases all of its objects in the update which hands the
+		 * moved camera to the renderer, also the ones positioned by hand:
+		 */
+		World world = new World(new GLCamera(new Vec()));
+		GeoObj auto = new GeoObj(startLat, startLng + 0.001);
+		GeoObj manual = new GeoObj(false);
+		manual.setMyLatitude(startLat + 0.001);
+		manual.setMyLongitude(startLng);
+		world.add(auto);
+		world.add(manual);
+		world.update(0.02f, null);
+		origin.rebase(startLat + 0.01, startLng, 0);
+		world.update(0.02f, null);
+		assertTrue(Vec.distance(auto.getMySurroundGroup().getPosition(),
+				origin.getProjection().project(auto, null)) < 0.01f);
+		assertTrue(Vec.distance(manual.getMySurroundGroup().getPosition(),
+				origin.getProjection().project(manual, null)) < 0.01f);
+
+		// the versions of a new instance never match the ones of an old one:
+		int lastVersion = origin.getVersion();
+		FloatingOrigin.resetInstance();
+		FloatingOrigin.getInstance().rebase(startLat, startLng, 0);
+		assertTrue(FloatingOrigin.getInstance().getVersion() > lastVersion);
+		// the event manager will set the zero point again:
+		FloatingOrigin.resetInstance();
+	}
+
+	private void geoDistanceTests() throws Exception {
+		// one degree of latitude:
+		assertTrue(Math.abs(GeoDistance.haversine(50, 6, 51, 6) - 111194.93) < 0.01);
+		assertTrue(Math.abs(GeoDistance.haversine(0, 179.9, 0, -179.9)
+				- GeoDistance.equirectangular(0, 179.9, 0, -179.9)) < 0.01);
+		assertTrue(Math.abs(a1.getDistance(a2) - a1.getApproximateDistance(a2)) < 0.001);
+
+		Random random = new Random(6);
+		final int n = 2000;
+		double[] lat = new double[n];
+		double[] lng = new double[n];
+		double[] exact = new double[n];
+		double[] fast = new double[n];
+		double[] squared = new double[n];
+		int[] found = new int[n];
+		for (int round = 0; round < 20; round++) {
+			// also near the poles and the date line:
+			double qLat = (random.nextDouble() * 2 - 1) * (round < 15 ? 70 : 89);
+			double qLng = round % 5 == 0 ? 179.99 : random.nextDouble() * 360 - 180;
+			double spread = round % 2 == 0 ? 0.1 : 2;
+			for (int i = 0; i < n; i++) {
+				lat[i] = Math.max(-90, Math.min(90, qLat
+						+ (random.nextDouble() - 0.5) * spread));
+				lng[i] = qLng + (random.nextDouble() - 0.5) * spread;
+				if (lng[i] > 180) {
+					lng[i] -= 360;
+				}
+			}
+			GeoDistance.haversine(qLat, qLng, lat, lng, n, exact);
+			GeoDistance.equirectangular(qLat, qLng, lat, lng, n, fast);
+			GeoDistance.squaredProjected(qLat, qLng, lat, lng, n, squared);
+			int nearest = 0;
+			for (int i = 0; i < n; i++) {
+				assertTrue(exact[i] == GeoDistance.haversine(qLat, qLng, lat[i], lng[i]));
+				if (exact[i] < exact[nearest]) {
+					nearest = i;
+				}
+				if (Math.abs(qLat) <= 70 && exact[i] < 10000) {
+					assertTrue(Math.abs(fast[i] - exact[i]) <= exact[i] * 0.00001 + 0.001);
+				}
+				double error = GeoDistance.getProjectionError(qLat, exact[i]);
+				if (error < 0.1) {
+					assertTrue(Math.abs(Math.sqrt(squared[i]) - exact[i]) <= exact[i]
+							* error + 0.001);
+				}
+			}
+			assertTrue(GeoDistance.findNearest(qLat, qLng, lat, lng, n) == nearest);
+			double radius = exact[random.nextInt(n)];
+			int count = GeoDistance.findWithinRadius(qLat, qLng, lat, lng, n,
+					radius, found);
+			int expected = 0;
+			for (int i = 0; i < n; i++) {
+				boolean inside = exact[i] <= radius;
+				if (inside) {
+					assertTrue(found[expected++] == i);
+				}
+				assertTrue(GeoDistance.isWithinDistance(qLat, qLng, lat[i],
+						lng[i], radius) == inside);
+			}
+			assertTrue(count == expected);
+		}
+		assertTrue(GeoDistance.findNearest(0, 0, lat, lng, 0) == -1);
+	}
+
+	private static final String TEST_ROUTE = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+			+ "<kml xmlns=\"http://earth.google.com/kml/2.0\"><Document>\n"
+			+ "<!-- a comment with <coordinates>1,2,3</coordinates> -->\n"
+			+ "<Placemark><name>Step</name><Point><coordinates>9,9,0</coordinates></Point></Placemark>\n"
+			+ "<Placemark><name>Route</name><GeometryCollection><LineString>\n"
+			+ "<coordinates>6.097568,50.769118,0.000000 6.097514,50.769328,0.000000\n"
+			+ "\t6.097514,50.769328,0.000000 6.097986,50.769159,12.5 6.095191,50.769444 "
+			+ "-0.1234567890123456789,-1e-3,0</coordinates></LineString>"
+			+ "</GeometryCollection></Placemark></Document></kml>";
+
+	private void routeParserTests() throws Exception {
+		RouteParser p = new RouteParser(new StringReader(TEST_ROUTE));
+		double[] expected = { 50.769118, 6.097568, 0, 50.769328, 6.097514, 0,
+				50.769328, 6.097514, 0, 50.769159, 6.097986, 12.5, 50.769444,
+				6.095191, 0, -1e-3, -0.1234567890123456789, 0 };
+		for (int i = 0; i < expected.length; i += 3) {
+			assertTrue(p.next());
+			assertTrue(p.getLatitude() == expected[i]);
+			assertTrue(p.getLongitude() == expected[i + 1]);
+			assertTrue(p.getAltitude() == expected[i + 2]);
+		}
+		assertFalse(p.next());
+		assertFalse(p.next());
+		assertFalse(new RouteParser(new StringReader("<kml><Point>"
+				+ "<coordinates>1,2</coordinates></Point></kml>")).findRoute());
+		p = new RouteParser(new StringReader(
+				"<k:GeometryCollection><k:coordinates>1,x</k:coordinates>"));
+		try {
+			p.next();
+			assertTrue(false);
+		} catch (IOException e) {
+		}
+
+		// the same values as Double.parseDouble:
+		Random random = new Random(8);
+		StringBuilder b = new StringBuilder("<GeometryCollection><coordinates>");
+		double[] values = new double[3000];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = (random.nextDouble() - 0.5) * 360;
+			b.append(i % 3 == 0 ? " " : ",").append(values[i]);
+		}
+		p = new RouteParser(new StringReader(b.append("</coordinates>")
+				.toString()));
+		for (int i = 0; i < values.length; i += 3) {
+			assertTrue(p.next());
+			assertTrue(p.getLongitude() == values[i]
+					&& p.getLatitude() == values[i + 1]
+					&& p.getAltitude() == values[i + 2]);
+		}
+		assertFalse(p.next());
+
+		// the path is read from a local file instead of the directions service:
+		File f = File.createTempFile("route", ".kml");
+		OutputStream out = new FileOutputStream(f);
+		out.write(TEST_ROUTE.getBytes("UTF-8"));
+		out.close();
+		final EfficientList<GeoObj> nodes = new EfficientList<GeoObj>();
+		final EfficientList<GeoObj> edges = new EfficientList<GeoObj>();
+		NodeListener nodeListener = new NodeListener() {
+			@Override
+			public boolean addFirstNodeToGraph(GeoGraph graph, GeoObj o) {
+				return addNodeToGraph(graph, o);
+			}
+
+			@Override
+			public boolean addNodeToGraph(GeoGraph graph, GeoObj o) {
+				nodes.add(o);
+				return graph.add(o);
+			}
+
+			@Override
+			public boolean addLastNodeToGraph(GeoGraph graph, GeoObj o) {
+				return addNodeToGraph(graph, o);
+			}
+		};
+		EdgeListener edgeListener = new EdgeListener() {
+			@Override
+			public void addEdgeToGraph(GeoGraph graph, GeoObj from, GeoObj to) {
+				edges.add(from);
+				edges.add(to);
+				graph.addEdge(from, to, new Shape());
+			}
+		};
+		GeoObj start = new GeoObj(50.7691, 6.0975);
+		GeoObj dest = new GeoObj(50.7695, 6.0950);
+		InputStream in = new FileInputStream(f);
+		GeoGraph path = RouteParser.readPath(new InputStreamReader(in, "UTF-8"),
+				start, dest, nodeListener, edgeListener);
+		in.close();
+		f.delete();
+		assertTrue(path.isPath());
+		// the first point is replaced by the start, the duplicate is skipped:
+		assertTrue(nodes.myLength == 6);
+		assertTrue(nodes.get(0) == start && nodes.get(5) == dest);
+		assertTrue(nodes.get(1).getLatitude() == 50.769328);
+		assertTrue(nodes.get(2).getAltitude() == 12.5);
+		assertTrue(edges.myLength == 10);
+		for (int i = 0; i < 5; i++) {
+			assertTrue(edges.get(2 * i) == nodes.get(i)
+					&& edges.get(2 * i + 1) == nodes.get(i + 1));
+		}
+		assertTrue(path.getEdges().myLength == 5);
+		assertTrue(RouteParser.readPath(new StringReader("<kml/>"), start,
+				dest, nodeListener, edgeListener) == null);
+	}
+
+	private void routeCacheTests() throws Exception {
+		File dir = File.createTempFile("routes", "");
+		dir.delete();
+		RouteCache cache = new RouteCache(dir, 3);
+		cache.clear();
+		// positions in the same cell get the same key:
+		String key = RouteCache.getKey(50.76912, 6.09757, 50.77, 6.08, true);
+		assertTrue(key.equals(RouteCache.getKey(50.769121, 6.097569, 50.77001,
+				6.08002, true)));
+		assertFalse(key.equals(RouteCache.getKey(50.76912, 6.09757, 50.77,
+				6.08, false)));
+		assertFalse(key.equals(RouteCache.getKey(50.76932, 6.09757, 50.77,
+				6.08, true)));
+
+		assertTrue(cache.open(key) == null);
+		assertTrue(cache.put(key, new ByteArrayInputStream(TEST_ROUTE
+				.getBytes("UTF-8"))));
+		InputStream in = cache.open(key);
+		RouteParser p = new RouteParser(new InputStreamReader(in, "UTF-8"));
+		assertTrue(p.next() && p.getLatitude() == 50.769118);
+		in.close();
+
+		for (int i = 1; i <= 3; i++) {
+			assertTrue(cache.put("k" + i, new ByteArrayInputStream(new byte[] {
+					(byte) i })));
+			if (i == 1) {
+				// the route becomes the most recently used one:
+				cache.open(key).close();
+			}
+		}
+		// k1 was the least recently used one:
+		assertTrue(cache.size() == 3);
+		assertFalse(cache.contains("k1"));
+		assertTrue(cache.contains(key) && cache.contains("k2")
+				&& cache.contains("k3"));
+
+		// the routes and their order are kept for the next session:
+		cache.open("k2").close();
+		cache = new RouteCache(dir, 3);
+		assertTrue(cache.size() == 3);
+		cache.put("k4", new ByteArrayInputStream(new byte[] { 4 }));
+		assertFalse(cache.contains(key));
+		in = cache.open("k3");
+		assertTrue(in.read() == 3 && in.read() == -1);
+		in.close();
+		assertTrue(cache.remove("k3") && !cache.contains("k3"));
+
+		// a slow download does not block the other routes:
+		final RouteCache c = cache;
+		final Object lock = new Object();
+		final boolean[] released = new boolean[1];
+		final InputStream slow = new InputStream() {
+			@Override
+			public int read() throws IOException {
+				synchronized (lock) {
+					while (!released[0]) {
+						try {
+							lock.wait();
+						} catch (InterruptedException e) {
+							throw new IOException("interrupted");
+						}
+					}
+				}
+				return -1;
+			}
+		};
+		Thread t = new Thread() {
+			@Override
+			public void run() {
+				c.put("slow", slow);
+			}
+		};
+		t.start();
+		assertTrue(cache.put("k5", new ByteArrayInputStream(new byte[] { 5 })));
+		assertTrue(cache.contains("k5") && !cache.contains("slow"));
+		synchronized (lock) {
+			released[0] = true;
+			lock.notifyAll();
+		}
+		t.join();
+		assertTrue(cache.contains("slow"));
+		// a broken download is not stored:
+		assertFalse(cache.put("broken", new InputStream() {
+			@Override
+			public int read() throws IOException {
+				throw new IOException("connection lost");
+			}
+		}));
+		assertFalse(cache.contains("broken"));
+		assertTrue(dir.list().length == cache.size());
+		cache.clear();
+		assertTrue(cache.size() == 0 && dir.delete());
+	}
+
+	private void pathSimplifierTests() throws Exception {
+		Random random = new Random(9);
+		for (int round = 0; round < 20; round++) {
+			final int n = 2 + random.nextInt(300);
+			double[] x = new double[n];
+			double[] y = new double[n];
+			for (int i = 1; i < n; i++) {
+				x[i] = x[i - 1] + random.nextDouble() * 10;
+				y[i] = y[i - 1] + (random.nextDouble() - 0.5) * 10;
+			}
+			PathSimplifier s = new PathSimplifier(x, y, n);
+			for (double tolerance = 0.5; tolerance < 100; tolerance *= 2) {
+				int[] indices = s.simplify(tolerance);
+				boolean[] expected = new boolean[n];
+				expected[0] = expected[n - 1] = true;
+				douglasPeucker(x, y, 0, n - 1, tolerance, expected);
+				int j = 0;
+				for (int i = 0; i < n; i++) {
+					if (expected[i]) {
+						assertTrue(indices[j++] == i);
+					}
+				}
+				assertTrue(j == indices.length);
+				// no removed point is further away than the tolerance:
+				for (int k = 1; k < indices.length; k++) {
+					for (int i = indices[k - 1] + 1; i < indices[k]; i++) {
+						assertTrue(segmentDistance(x, y, indices[k - 1],
+								indices[k], i) <= tolerance);
+					}
+				}
+			}
+			assertTrue(s.getSimplifiedCount(0) <= n);
+			assertTrue(s.getSimplifiedCount(Double.MAX_VALUE) == Math.min(n, 2));
+		}
+		// a straight line is reduced to its end points:
+		double[] lat = new double[50];
+		double[] lng = new double[50];
+		for (int i = 0; i < 50; i++) {
+			lat[i] = 50.77 + i * 0.0001;
+			lng[i] = 6.08 + i * 0.0001;
+		}
+		int[] line = PathSimplifier.fromGeoPositions(lat, lng, 50).simplify(0.5);
+		assertTrue(line.length == 2 && line[0] == 0 && line[1] == 49);
+		assertTrue(PathSimplifier.getTolerance(10000) > PathSimplifier
+				.getTolerance(100));
+		assertTrue(PathSimplifier.getTolerance(0) == PathSimplifier.MIN_TOLERANCE);
+
+		// a zigzag route keeps its corners and reports the node indices:
+		GeoGraph route = new GeoGraph();
+		for (int i = 0; i < 40; i++) {
+			// 4 points on each straight part:
+			int corner = i / 4;
+			double t = (i % 4) / 4.0;
+			route.add(new GeoObj(50.77 + (corner + t) * 0.001,
+					6.08 + (corner % 2 == 0 ? t : 1 - t) * 0.001, 0));
+		}
+		int[] kept = route.simplifyPath(1);
+		assertTrue(kept[0] == 0 && kept[kept.length - 1] == 39);
+		for (int i = 1; i < kept.length - 1; i++) {
+			assertTrue(kept[i] % 4 == 0);
+		}
+		assertTrue(kept.length == 11);
+	}
+
+	/**
+	 * the recursive version for comparison
+	 */
+	private static void douglasPeucker(double[] x, double[] y, int start,
+			int end, double tolerance, boolean[] keep) {
+		int split = -1;
+		double max = -1;
+		for (int i = start + 1; i < end; i++) {
+			double d = segmentDistance(x, y, start, end, i);
+			if (d > max) {
+				max = d;
+				split = i;
+			}
+		}
+		if (split != -1 && max > tolerance) {
+			keep[split] = true;
+			douglasPeucker(x, y, start, split, tolerance, keep);
+			douglasPeucker(x, y, split, end, tolerance, keep);
+		}
+	}
+
+	private static double segmentDistance(double[] x, double[] y, int a,
+			int b, int p) {
+		double dx = x[b] - x[a], dy = y[b] - y[a];
+		double l2 = dx * dx + dy * dy;
+		double t = l2 > 0 ? ((x[p] - x[a]) * dx + (y[p] - y[a]) * dy) / l2 : 0;
+		t = Math.max(0, Math.min(1, t));
+		return Math.hypot(x[p] - x[a] - t * dx, y[p] - y[a] - t * dy);
+	}
+
+	private void contractionHierarchyTests() throws Exception {
+		Random random = new Random(1);
+		RoutingGraph g = BenchmarkTests.createTestGraph(30, true, random);
+		ContractionHierarchy ch = ContractionHierarchy.build(g);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ch.writeTo(out);
+		ContractionHierarchy loaded = ContractionHierarchy
+				.readFrom(new ByteArrayInputStream(out.toByteArray()));
+		assertTrue(loaded.getFingerprint() == g.getFingerprint());
+		assertTrue(loaded.getEdgeCount() == ch.getEdgeCount());
+		for (int i = 0; i < 200; i++) {
+			int a = random.nextInt(g.getNodeCount());
+			int b = random.nextInt(g.getNodeCount());
+			int[] expected = g.dijkstra(a, b);
+			float length = g.getLastPathLength();
+			int[] path = (i % 2 == 0 ? ch : loaded).findPath(a, b);
+			assertTrue((expected == null) == (path == null));
+			if (path == null) {
+				continue;
+			}
+			assertTrue(path[0] == a && path[path.length - 1] == b);
+			assertTrue(Math.abs(ch.getLastPathLength() - length) < 0.01f
+					|| Math.abs(loaded.getLastPathLength() - length) < 0.01f);
+			// the unpacked path only uses original edges of the 30x30 grid:
+			for (int k = 1; k < path.length; k++) {
+				int d = Math.abs(path[k] - path[k - 1]);
+				assertTrue(d == 1 || d == 30);
+			}
+		}
+		assertTrue(ch.findPath(5, 5).length == 1);
+		try {
+			ContractionHierarchy.readFrom(new ByteArrayInputStream(
+					new byte[] { 1, 2, 3, 4 }));
+			assertTrue(false);
+		} catch (IOException e) {
+			// expected
+		}
+	}
+
+	private void routingGraphTests() throws Exception {
+		/*
+		 * 0 - 1 - 2 with a long detour 0 - 3 - 2 and the lonely node 4:
+		 */
+		double[] lat = { 50.0, 50.0, 50.0, 50.001, 51 };
+		double[] lng = { 6.0, 6.001, 6.002, 6.001, 6 };
+		int[] from = { 0, 1, 0, 3 };
+		int[] to = { 1, 2, 3, 2 };
+		float[] w = new float[4];
+		RoutingGraph tmp = RoutingGraph.build(lat, lng, from, to, w, 0, true);
+		for (int i = 0; i < from.length; i++) {
+			w[i] = tmp.getDistance(from[i], to[i]);
+		}
+		RoutingGraph g = RoutingGraph.build(lat, lng, from, to, w, 4, false);
+		assertTrue(g.getEdgeCount() == 8);
+		int[] path = g.dijkstra(0, 2);
+		assertTrue(path.length == 3 && path[1] == 1);
+		float length = g.getLastPathLength();
+		path = g.aStar(2, 0);
+		assertTrue(path.length == 3 && path[0] == 2 && path[2] == 0);
+		assertTrue(Math.abs(g.getLastPathLength() - length) < 0.01f);
+		assertTrue(g.dijkstra(0, 4) == null);
+		assertTrue(g.getLastPathLength() == -1);
+
+		// the edges can only be used in one direction:
+		RoutingGraph directed = RoutingGraph.build(lat, lng, from, to, w, 4,
+				true);
+		assertTrue(directed.aStar(0, 2).length == 3);
+		assertTrue(directed.aStar(2, 0) == null);
+		// the shortcut is blocked, the detour is found:
+		w[1] = 10000;
+		RoutingGraph blocked = RoutingGraph.build(lat, lng, from, to, w, 4,
+				true);
+		path = blocked.aStar(0, 2);
+		assertTrue(path.length == 3 && path[1] == 3);
+	}
+
 	/**
 	 * 
 	 * <pre>
@@ -1,12 +1,72 @@
 package tests;
 
 import gl.Color;
+import gl.textures.MipmapGenerator;
+import gl.textures.SkylinePacker;
 
 public class GlTests extends SimpleTesting {
 
 	@Override
 	public void run() throws Exception {
 		testColorEquality();
+		testSkylinePacker();
+		testMipmapGenerator();
+	}
+
+	private void testMipmapGenerator() throws Exception {
+		assertTrue(MipmapGenerator.getLevelCount(1, 1) == 1);
+		assertTrue(MipmapGenerator.getLevelCount(256, 64) == 9);
+
+		int white = 0xFFFFFFFF;
+		int black = 0xFF000000;
+		int[] src = { white, black, white, white, black, white, white, black };
+		int[] result = MipmapGenerator.downsample(src, 4, 2, null);
+		assertTrue(result.length == 2);
+		// 2 white and 2 black pixels are gray, the alpha stays 255:
+		assertTrue(result[0] == 0xFF808080);
+		// 3 white and 1 black pixel:
+		assertTrue(result[1] == 0xFFBFBFBF);
+
+		// one dimension is already 1:
+		result = MipmapGenerator.downsample(new int[] { white, black }, 2, 1,
+				null);
+		assertTrue(result.length == 1);
+		assertTrue(result[0] == 0xFF808080);
+	}
+
+	/**
+	 * Packs many small rectangles and checks that none of them overlap or
+	 * leave the packer area
+	 * 
+	 * @throws Exception
+	 */
+	private void testSkylinePacker() throws Exception {
+		int size = 256;
+		SkylinePacker p = new SkylinePacker(size, size);
+		boolean[] used = new boolean[size * size];
+		int[] xy = new int[2];
+		int packed = 0;
+		for (int i = 0; i < 200; i++) {
+			int w = 5 + (i * 7) % 27;
+			int h = 5 + (i * 13) % 19;
+			if (!p.insert(w, h, xy)) {
+				continue;
+			}
+			packed++;
+			assertTrue(xy[0] >= 0 && xy[1] >= 0);
+			assertTrue(xy[0] + w <= size && xy[1] + h <= size);
+			for (int x = xy[0]; x < xy[0] + w; x++) {
+				for (int y = xy[1]; y < xy[1] + h; y++) {
+					assertFalse(used[y * size + x]);
+					used[y * size + x] = true;
+				}
+			}
+		}
+		assertTrue(packed > 50);
+		assertTrue(p.getOccupancy() > 0.5f);
+		assertFalse(p.insert(size + 1, 1, xy));
+		p.clear();
+		assertTrue(p.insert(size, size, xy));
 	}
 
 	/**
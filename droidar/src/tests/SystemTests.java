@@ -1,16 +1,39 @@
 package tests;
 
 import android.location.Location;
+import gl.GLCamera;
+import gl.HasPosition;
+import gl.HasRotation;
+import gl.HasScale;
 import gl.ObjectPicker;
+import gl.animations.TweenEngine;
 import gl.scenegraph.MeshComponent;
 import gl.scenegraph.Shape;
 import util.Calculus;
+import util.EfficientList;
 import util.LimitedQueue;
 import util.Log;
+import util.TextIndex;
 import util.Vec;
 import util.Wrapper;
+import worlddata.DistanceCuller;
+import worlddata.DistanceCuller.BucketListener;
 import worlddata.Entity;
+import worlddata.Geofence;
+import worlddata.GeofenceEngine;
+import worlddata.GeofenceEngine.Event;
+import worlddata.GeofenceEngine.GeofenceListener;
 import worlddata.Obj;
+import worlddata.PhysicsWorld;
+import worlddata.PhysicsWorld.CollisionListener;
+import worlddata.StepListener;
+import worlddata.SystemUpdater;
+import worlddata.TimerWheel;
+import worlddata.TransformStore;
+import worlddata.TimerWheel.TimerListener;
+import worlddata.Updateable;
+import worlddata.WheelUpdateTimer;
+import worlddata.WheelUpdateTimer.ParentTimerListener;
 import components.ProximitySensor;
 
 public class SystemTests extends SimpleTesting {
@@ -25,6 +48,685 @@ public class SystemTests extends SimpleTesting {
 		utilTests();
 		LimitedQueueTests();
 		colorTests();
+		systemUpdaterTests();
+		timerWheelTests();
+		wheelUpdateTimerTests();
+		geofenceTests();
+		distanceCullerTests();
+		transformStoreTests();
+		tweenEngineTests();
+		physicsWorldTests();
+		textIndexTests();
+	}
+
+	private void textIndexTests() throws Exception {
+		TextIndex<String> index = new TextIndex<String>();
+		assertTrue(index.add("street", "Main Street", "close to the station"));
+		assertTrue(index.add("station", "Central Station", null));
+		assertTrue(index.add("cafe", "Cafe Mainz", "Main Street 12"));
+		assertTrue(index.add("museum", "Ludwig Forum", "Modern art museum"));
+		assertFalse(index.add("cafe", "x", "y"));
+
+		// a match in the name is better than one in the description:
+		EfficientList<String> r = index.search("main street", 10);
+		assertTrue(r.myLength == 2 && r.get(0).equals("street")
+				&& r.get(1).equals("cafe"));
+		assertTrue(index.getQualityOfLastSearch(0) < TextIndex.QUALITY_LONG_TEXT);
+		assertTrue(index.getQualityOfLastSearch(1) >= TextIndex.QUALITY_LONG_TEXT);
+		// type-ahead with the beginnings of the words:
+		r = index.search("Mai St", 10);
+		assertTrue(r.myLength == 2 && r.get(0).equals("street"));
+		// a substring in the middle of a word like String.contains:
+		r = index.search("tatio", 10);
+		assertTrue(r.myLength == 2 && r.get(0).equals("station")
+				&& r.get(1).equals("street"));
+		r = index.search("ludwig", 1);
+		assertTrue(r.myLength == 1 && r.get(0).equals("museum"));
+		// typos are tolerated, but the results are ranked last:
+		r = index.search("musem", 10);
+		assertTrue(r.myLength == 1 && r.get(0).equals("museum"));
+		assertTrue(index.getQualityOfLastSearch(0) >= TextIndex.QUALITY_SIMILAR);
+		assertTrue(index.search("xyz", 10).myLength == 0);
+		assertTrue(index.search("", 10).myLength == 0);
+
+		assertTrue(index.remove("street"));
+		assertFalse(index.remove("street"));
+		r = index.search("main street", 10);
+		assertTrue(r.myLength == 1 && r.get(0).equals("cafe"));
+		for (int i = 0; i < 1000; i++) {
+			index.add("poi" + i, "Point " + i, null);
+		}
+		for (int i = 0; i < 1000; i += 2) {
+			index.remove("poi" + i);
+		}
+		assertTrue(index.size() == 503);
+		assertTrue(index.search("point 99", 100).myLength == 6);
+		// the removed item is not found, only similar ones:
+		r = index.search("point 998", 10);
+		assertTrue(r.myLength == 10);
+		assertTrue(index.getQualityOfLastSearch(0) >= TextIndex.QUALITY_SIMILAR);
+		assertTrue(index.search("point 999", 10).get(0).equals("poi999"));
+		index.clear();
+		assertTrue(index.search("cafe", 10).myLength == 0);
+	}
+
+	private void physicsWorldTests() throws Exception {
+		PhysicsWorld w = new PhysicsWorld();
+		w.setDamping(0);
+		final int[] collisions = new int[1];
+		int a = w.addSphere(new Vec(-2, 0, 0), 1, 1);
+		int b = w.addSphere(new Vec(2, 0, 0), 1, 1);
+		w.setRestitution(a, 1);
+		w.setRestitution(b, 1);
+		w.setVelocity(a, new Vec(2, 0, 0));
+		w.setVelocity(b, new Vec(-2, 0, 0));
+		w.setCollisionListener(a, new CollisionListener() {
+			@Override
+			public void onCollision(int handle, int otherHandle) {
+				collisions[0]++;
+			}
+		});
+		for (int i = 0; i < 60; i++) {
+			w.update(1 / 60f);
+		}
+		// the elastic spheres bounced back:
+		assertTrue(w.getVelocity(a, new Vec()).x < -1.9f);
+		assertTrue(w.getVelocity(b, new Vec()).x > 1.9f);
+		assertTrue(collisions[0] == 1);
+
+		// a sphere falls on a static box, stops and falls asleep:
+		w = new PhysicsWorld();
+		w.setGravity(new Vec(0, 0, -9.81f));
+		w.addBox(new Vec(), new Vec(10, 10, 1), 0);
+		int ball = w.addSphere(new Vec(0, 0, 5), 0.5f, 1);
+		w.setRestitution(ball, 0);
+		for (int i = 0; i < 300; i++) {
+			w.update(1 / 60f);
+		}
+		Vec p = w.getPosition(ball, new Vec());
+		assertTrue(Math.abs(p.z - 1.5f) < 0.05f);
+		assertTrue(w.isSleeping(ball));
+		assertTrue(w.getSleepingCount() == 1);
+		w.applyForce(ball, new Vec(1, 0, 0));
+		assertFalse(w.isSleeping(ball));
+
+		// a force is kept if the update was too short for a substep:
+		w = new PhysicsWorld();
+		w.setGravity(new Vec());
+		int pushed = w.addSphere(new Vec(), 0.5f, 1);
+		w.applyForce(pushed, new Vec(10, 0, 0));
+		w.update(0.001f);
+		assertTrue(w.getVelocity(pushed, new Vec()).x == 0);
+		w.update(0.1f);
+		assertTrue(w.getVelocity(pushed, new Vec()).x > 0);
+
+		// with the default restitution it bounces a few times and then rests:
+		w = new PhysicsWorld();
+		w.setGravity(new Vec(0, 0, -9.81f));
+		w.addBox(new Vec(), new Vec(10, 10, 1), 0);
+		ball = w.addSphere(new Vec(0, 0, 5), 0.5f, 1);
+		for (int i = 0; i < 600; i++) {
+			w.update(1 / 60f);
+		}
+		assertTrue(Math.abs(w.getPosition(ball, new Vec()).z - 1.5f) < 0.05f);
+		assertTrue(w.isSleeping(ball));
+
+		// the result does not depend on the frame rate:
+		PhysicsWorld slow = new PhysicsWorld();
+		PhysicsWorld fast = new PhysicsWorld();
+		slow.setGravity(new Vec(0, 0, -9.81f));
+		fast.setGravity(new Vec(0, 0, -9.81f));
+		int s = slow.addSphere(new Vec(0, 0, 10), 1, 1);
+		int f = fast.addSphere(new Vec(0, 0, 10), 1, 1);
+		for (int i = 0; i < 60; i++) {
+			fast.update(1 / 60f);
+			if (i % 4 == 3) {
+				slow.update(4 / 60f);
+			}
+		}
+		float zSlow = slow.getPosition(s, new Vec()).z;
+		float zFast = fast.getPosition(f, new Vec()).z;
+		assertTrue(Math.abs(zSlow - zFast) < 0.01f);
+
+		// bodies with an owner are removed if they are not kept alive:
+		Object owner = new Object();
+		slow.setOwner(s, owner);
+		slow.update(1 / 60f);
+		assertTrue(slow.keepAlive(s, owner));
+		slow.update(1 / 60f);
+		assertTrue(slow.getBodyCount() == 1);
+		slow.update(1 / 60f);
+		slow.update(1 / 60f);
+		assertTrue(slow.getBodyCount() == 0);
+		assertFalse(slow.keepAlive(s, owner));
+
+		// many bodies without keep alive are removed in the same update:
+		for (int i = 0; i < 100; i++) {
+			int h = slow.addSphere(new Vec(i * 3, 0, 0), 1, 1);
+			slow.setOwner(h, owner);
+		}
+		int kept = slow.addSphere(new Vec(-10, 0, 0), 1, 1);
+		slow.update(1 / 60f);
+		slow.update(1 / 60f);
+		assertTrue(slow.getBodyCount() == 1);
+		assertTrue(slow.remove(kept));
+		assertTrue(slow.getBodyCount() == 0);
+	}
+
+	private void tweenEngineTests() throws Exception {
+		TweenEngine e = new TweenEngine();
+		final Vec pos = new Vec();
+		final Vec scale = new Vec(1, 1, 1);
+		Object target = new TweenTarget(pos, scale);
+		int move = e.tweenPosition((HasPosition) target, new Vec(10, 0, 0), 1,
+				TweenEngine.LINEAR, TweenEngine.ONCE);
+		e.pulse((HasScale) target, 2, new Vec(1, 1, 1), new Vec(2, 2, 2), 0.1f);
+		assertTrue(e.getActiveTweenCount() == 2);
+		for (int i = 0; i < 25; i++) {
+			e.advance(0.02f);
+		}
+		assertTrue(Math.abs(pos.x - 5) < 0.001f);
+		assertTrue(scale.x > 1 && scale.x < 2);
+		// one more step because of the float rounding:
+		for (int i = 0; i < 26; i++) {
+			e.advance(0.02f);
+		}
+		// the move is done and removed, the pulse runs forever:
+		assertTrue(Math.abs(pos.x - 10) < 0.001f);
+		assertFalse(e.isActive(move));
+		assertTrue(e.getActiveTweenCount() == 1);
+		assertTrue(e.cancelAll(target) == 1);
+		assertTrue(e.getActiveTweenCount() == 0);
+
+		TransformStore s = new TransformStore();
+		int slot = s.allocate();
+		e.tween(s, slot, TweenEngine.ROTATION, new float[] { 0, 0, 90 }, 1,
+				TweenEngine.EASE_IN_OUT, TweenEngine.PING_PONG);
+		e.advance(1);
+		assertTrue(s.getView(slot).getRotation().z == 90);
+		e.advance(1);
+		assertTrue(s.getView(slot).getRotation().z == 0);
+		// the tweens of a released slot are removed:
+		assertTrue(s.release(slot));
+		e.advance(0.1f);
+		assertTrue(e.getActiveTweenCount() == 0);
+
+		// a negative speed rotates the other way like the AnimationRotate:
+		final Vec rotation = new Vec();
+		Object rotated = new TweenTarget(new Vec(), new Vec(1, 1, 1),
+				rotation);
+		e.rotate((HasRotation) rotated, -90, new Vec(0, 0, 1));
+		e.advance(0.25f);
+		assertTrue(Math.abs(rotation.z + 22.5f) < 0.001f);
+		assertTrue(e.cancelAllOf(rotated) == 1);
+
+		// an axis which is not x, y or z turns smoothly over the full circle:
+		rotation.setToZero();
+		e.rotate((HasRotation) rotated, 90, new Vec(1, 1, 0));
+		float[] last = rotationMatrix(rotation);
+		for (int i = 0; i < 400; i++) {
+			e.advance(0.01f);
+			float[] m = rotationMatrix(rotation);
+			for (int j = 0; j < 9; j++) {
+				// 0.9 degree per step:
+				assertTrue(Math.abs(m[j] - last[j]) < 0.05f);
+			}
+			last = m;
+		}
+		// after 4 seconds the full circle is done:
+		float[] start = rotationMatrix(new Vec());
+		for (int j = 0; j < 9; j++) {
+			assertTrue(Math.abs(last[j] - start[j]) < 0.001f);
+		}
+		// after half a circle the x and y axis are swapped:
+		e.advance(2);
+		float[] half = rotationMatrix(rotation);
+		assertTrue(Math.abs(half[1] - 1) < 0.001f);
+		assertTrue(Math.abs(half[3] - 1) < 0.001f);
+		assertTrue(Math.abs(half[8] + 1) < 0.001f);
+		assertTrue(e.cancelAll(rotated) == 1);
+
+		// a speed of 0 would never finish, so nothing is started:
+		assertTrue(e.rotate((HasRotation) rotated, 0, new Vec(0, 0, 1)) == -1);
+		assertTrue(e.getActiveTweenCount() == 0);
+
+		// the tweens of child meshes end when their obj is removed:
+		Obj o = new Obj();
+		MeshComponent parentMesh = new Shape();
+		MeshComponent childMesh = new Shape();
+		MeshComponent grandChild = new Shape();
+		parentMesh.addChild(childMesh);
+		childMesh.addChild(grandChild);
+		childMesh.addChild(new Shape());
+		o.setComp(parentMesh);
+		e.rotate(childMesh, 90, new Vec(0, 0, 1));
+		e.rotate(grandChild, 90, new Vec(0, 0, 1));
+		assertTrue(e.cancelAllOf(o) == 2);
+		assertTrue(e.getActiveTweenCount() == 0);
+	}
+
+	/**
+	 * @return the rotation matrix Rz * Rx * Ry for the angles like a
+	 *         MeshComponent uses it (row by row)
+	 */
+	private static float[] rotationMatrix(Vec angles) {
+		double a = Math.toRadians(angles.x);
+		float cx = (float) Math.cos(a), sx = (float) Math.sin(a);
+		a = Math.toRadians(angles.y);
+		float cy = (float) Math.cos(a), sy = (float) Math.sin(a);
+		a = Math.toRadians(angles.z);
+		float cz = (float) Math.cos(a), sz = (float) Math.sin(a);
+		return new float[] { cz * cy - sz * sx * sy, -sz * cx,
+				cz * sy + sz * sx * cy, sz * cy + cz * sx * sy, cz * cx,
+				sz * sy - cz * sx * cy, -cx * sy, sx, cx * cy };
+	}
+
+	private static class TweenTarget implements HasPosition, HasScale,
+			HasRotation {
+		private final Vec myPos;
+		private final Vec myScale;
+		private final Vec myRotation;
+
+		TweenTarget(Vec pos, Vec scale) {
+			this(pos, scale, new Vec());
+		}
+
+		TweenTarget(Vec pos, Vec scale, Vec rotation) {
+			myPos = pos;
+			myScale = scale;
+			myRotation = rotation;
+		}
+
+		@Override
+		public Vec getRotation() {
+			return myRotation;
+		}
+
+		@Override
+		public void setRotation(Vec rotation) {
+			myRotation.setToVec(rotation);
+		}
+
+		@Override
+		public Vec getPosition() {
+			return myPos;
+		}
+
+		@Override
+		public void setPosition(Vec position) {
+			myPos.setToVec(position);
+		}
+
+		@Override
+		public Vec getScale() {
+			return myScale;
+		}
+
+		@Override
+		public void setScale(Vec scale) {
+			myScale.setToVec(scale);
+		}
+	}
+
+	private void transformStoreTests() throws Exception {
+		TransformStore s = new TransformStore();
+		int[] slots = new int[100];
+		for (int i = 0; i < slots.length; i++) {
+			slots[i] = s.allocate();
+			s.setPosition(slots[i], i, 0, 0);
+		}
+		assertTrue(s.getCount() == 100);
+		assertTrue(s.release(slots[10]));
+		assertFalse(s.release(slots[10]));
+		// the released slot is used again:
+		assertTrue(s.allocate() == slots[10]);
+		s.setPosition(slots[10], 10, 0, 0);
+
+		assertTrue(s.cullByDistance(0, 0, 0, 49.5f) == 50);
+		assertTrue(s.isVisible(slots[49]));
+		assertFalse(s.isVisible(slots[50]));
+		float[] d = s.calcDistances(0, 0, 0, new float[s.getSlotCount()]);
+		assertTrue(d[slots[42]] == 42);
+
+		s.setSpin(slots[1], 90);
+		s.animate(0.5f);
+		assertTrue(s.getView(slots[1]).getRotation().z == 45);
+		assertTrue(s.getView(slots[2]).getRotation().z == 0);
+
+		// the view writes into the store:
+		TransformStore.View v = s.getView(slots[3]);
+		v.setPosition(new Vec(1, 2, 3));
+		assertTrue(v.getPosition().equals(new Vec(1, 2, 3)));
+		float[] m = new float[16];
+		s.getTransform(slots[3], m);
+		assertTrue(m[12] == 1 && m[13] == 2 && m[14] == 3);
+		assertTrue(v.getColor() == null);
+		s.setColor(slots[3], 1, 0, 0, 1);
+		assertTrue(v.getColor().red == 1);
+	}
+
+	private void distanceCullerTests() throws Exception {
+		DistanceCuller c = new DistanceCuller();
+		c.setInterval(0.1f);
+		c.setCamera(newPosition(new Vec()));
+		final int[] changes = new int[3];
+		BucketListener l = new BucketListener() {
+			@Override
+			public void onBucketChanged(int handle, int oldBucket,
+					int newBucket, float distance) {
+				changes[newBucket]++;
+			}
+		};
+		Vec farPos = new Vec(0, 100, 0);
+		int near = c.register(newPosition(new Vec(3, 4, 0)), 10, 20, l);
+		int gray = c.register(newPosition(new Vec(0, 15, 0)), 10, 20, l);
+		int far = c.register(newPosition(farPos), 10, 20, l);
+		c.update(0.05f);
+		// not due yet:
+		assertTrue(c.getBucket(near) == DistanceCuller.UNKNOWN);
+		c.update(0.05f);
+		assertTrue(c.getBucket(near) == DistanceCuller.NEAR);
+		assertTrue(c.getBucket(gray) == DistanceCuller.GRAY);
+		assertTrue(c.getBucket(far) == DistanceCuller.FAR);
+		assertTrue(Math.abs(c.getDistance(near) - 5) < 0.0001f);
+		assertTrue(changes[0] == 1 && changes[1] == 1 && changes[2] == 1);
+
+		// only the moved object changes its bucket:
+		farPos.y = 1;
+		for (int i = 0; i < 2; i++) {
+			assertTrue(c.keepAlive(near, l));
+			assertTrue(c.keepAlive(far, l));
+			c.update(0.1f);
+		}
+		assertTrue(c.getChangesInLastPass() == 0);
+		assertTrue(c.getBucket(far) == DistanceCuller.NEAR);
+		assertTrue(changes[0] == 2);
+		// the gray object was not kept alive and is removed:
+		assertFalse(c.isRegistered(gray));
+		assertFalse(c.keepAlive(gray, l));
+		assertTrue(c.getRegisteredCount() == 2);
+
+		// the slot of the gray object is reused, the old owner gets nothing:
+		BucketListener other = new BucketListener() {
+			@Override
+			public void onBucketChanged(int handle, int oldBucket,
+					int newBucket, float distance) {
+			}
+		};
+		int reused = c.register(newPosition(new Vec(0, 1, 0)), 10, 20, other);
+		assertTrue(reused == gray);
+		c.keepAlive(near, l);
+		c.keepAlive(far, l);
+		c.keepAlive(reused, other);
+		c.update(0.1f);
+		assertTrue(c.getBucket(reused, other) == DistanceCuller.NEAR);
+		assertTrue(c.getBucket(gray, l) == DistanceCuller.UNKNOWN);
+		assertTrue(c.getDistance(gray, l) == -1);
+		assertTrue(c.getDistance(near, l) == c.getDistance(near));
+	}
+
+	private static HasPosition newPosition(final Vec pos) {
+		return new HasPosition() {
+			@Override
+			public Vec getPosition() {
+				return pos;
+			}
+
+			@Override
+			public void setPosition(Vec position) {
+			}
+		};
+	}
+
+	private void geofenceTests() throws Exception {
+		GeofenceEngine engine = new GeofenceEngine(10);
+		Geofence circle = Geofence.newCircle(0, 0, 5);
+		circle.setDwellTime(1);
+		Geofence square = Geofence.newPolygon(new float[] { 20, 0, 30, 0, 30,
+				10, 20, 10 });
+		engine.add(circle);
+		engine.add(square);
+		assertTrue(engine.getFenceCount() == 2);
+		assertTrue(square.contains(25, 5));
+		assertFalse(square.contains(31, 5));
+
+		final int[] events = new int[4];
+		engine.addListener(new GeofenceListener() {
+			@Override
+			public void onGeofenceEvents(EfficientList<Event> list) {
+				for (int i = 0; i < list.myLength; i++) {
+					events[list.get(i).getType()]++;
+				}
+			}
+		});
+		final Vec pos = new Vec(1, 1, 0);
+		HasPosition target = new HasPosition() {
+			@Override
+			public Vec getPosition() {
+				return pos;
+			}
+
+			@Override
+			public void setPosition(Vec position) {
+			}
+		};
+		engine.addTarget(target);
+		engine.update(0.5f);
+		assertTrue(events[GeofenceEngine.ENTER] == 1);
+		assertTrue(engine.isInside(target, circle));
+		engine.update(0.6f);
+		assertTrue(events[GeofenceEngine.DWELL] == 1);
+		engine.update(1);
+		// dwell is only sent once:
+		assertTrue(events[GeofenceEngine.DWELL] == 1);
+
+		pos.x = 25;
+		pos.y = 5;
+		engine.update(0.1f);
+		assertTrue(events[GeofenceEngine.EXIT] == 1);
+		assertTrue(events[GeofenceEngine.ENTER] == 2);
+		assertTrue(engine.isInside(target, square));
+
+		// a moved fence is evaluated even if the target does not move:
+		circle.setCenter(24, 4);
+		engine.update(0.1f);
+		assertTrue(events[GeofenceEngine.ENTER] == 3);
+		assertTrue(engine.remove(circle));
+		assertFalse(engine.isInside(target, circle));
+		assertTrue(engine.getFenceCount() == 1);
+	}
+
+	private void wheelUpdateTimerTests() throws Exception {
+		TimerWheel.resetInstance();
+		final EfficientList<Updateable> checked = new EfficientList<Updateable>();
+		WheelUpdateTimer.PerParent timers = new WheelUpdateTimer.PerParent(1,
+				new ParentTimerListener() {
+					@Override
+					public boolean onTimer(Updateable parent, float passedTime) {
+						checked.add(parent);
+						return true;
+					}
+				});
+		Updateable a = new Obj();
+		Updateable b = new Obj();
+
+		// without a SystemUpdater the timers are called from keepAlive:
+		for (int i = 0; i < 5; i++) {
+			timers.keepAlive(a, 0.5f);
+			timers.keepAlive(b, 0.5f);
+		}
+		assertTrue(checked.myLength == 4);
+		assertTrue(checked.contains(a) != -1);
+		assertTrue(checked.contains(b) != -1);
+
+		// with an advancing wheel each parent gets its own timer:
+		checked.clear();
+		TimerWheel wheel = TimerWheel.getInstance();
+		for (int i = 0; i < 110; i++) { // 2.2 seconds
+			timers.keepAlive(a, 0.02f);
+			timers.keepAlive(b, 0.02f);
+			wheel.advance(0.02f);
+		}
+		assertTrue(checked.myLength == 4);
+		assertTrue(checked.contains(a) != -1);
+		assertTrue(checked.contains(b) != -1);
+
+		// the timer of a parent which is not updated anymore is removed:
+		for (int i = 0; i < 100; i++) {
+			timers.keepAlive(b, 0.02f);
+			wheel.advance(0.02f);
+		}
+		timers.keepAlive(new Obj(), 0.02f);
+		assertTrue(timers.getParentCount() == 2);
+		TimerWheel.resetInstance();
+	}
+
+	private void timerWheelTests() throws Exception {
+		TimerWheel w = new TimerWheel();
+		final int[] calls = new int[3];
+		final float[] passedTime = new float[1];
+		w.schedule(0.1f, new TimerListener() {
+			@Override
+			public boolean onTimer(float t) {
+				calls[0]++;
+				passedTime[0] = t;
+				return true;
+			}
+		});
+		// an interval which has to go through the upper wheels:
+		w.schedule(50, new TimerListener() {
+			@Override
+			public boolean onTimer(float t) {
+				calls[1]++;
+				return true;
+			}
+		});
+		TimerWheel.Entry e = w.schedule(0.5f, new TimerListener() {
+			@Override
+			public boolean onTimer(float t) {
+				calls[2]++;
+				// stop after the first call:
+				return false;
+			}
+		});
+		assertTrue(w.getActiveTimerCount() == 3);
+		for (int i = 0; i < 5000; i++) { // 100 seconds
+			w.advance(0.02f);
+		}
+		assertTrue(Math.abs(calls[0] - 1000) <= 1);
+		assertTrue(Math.abs(passedTime[0] - 0.1f) < 0.001f);
+		assertTrue(calls[1] == 2);
+		assertTrue(calls[2] == 1);
+		assertFalse(e.isActive());
+		assertTrue(w.getActiveTimerCount() == 2);
+
+		// the listeners are called without the lock of the wheel, so they
+		// can wait for other threads which use the wheel:
+		final TimerWheel wheel = new TimerWheel();
+		final int[] scheduled = new int[1];
+		wheel.schedule(0.1f, new TimerListener() {
+			@Override
+			public boolean onTimer(float t) {
+				Thread other = new Thread() {
+					@Override
+					public void run() {
+						scheduled[0] = wheel.getActiveTimerCount();
+					}
+				};
+				other.start();
+				try {
+					other.join(1000);
+				} catch (InterruptedException ex) {
+					return false;
+				}
+				return !other.isAlive();
+			}
+		});
+		for (int i = 0; i < 10; i++) {
+			wheel.advance(0.02f);
+		}
+		assertTrue(scheduled[0] == 1);
+		assertTrue(wheel.getActiveTimerCount() == 1);
+	}
+
+	private void systemUpdaterTests() throws Exception {
+		final float[] passedTime = new float[1];
+		final int[] updates = new int[1];
+		SystemUpdater u = new SystemUpdater();
+		u.setFixedStep(0.02f);
+		u.setMaxStepsPerTick(5);
+		u.addObjectToUpdateCycle(new Updateable() {
+			@Override
+			public boolean update(float timeDelta, Updateable parent) {
+				passedTime[0] += timeDelta;
+				updates[0]++;
+				return true;
+			}
+		});
+		assertTrue(u.tick(0.05f) == 2);
+		// the remaining 10ms are kept for the next tick:
+		assertTrue(u.tick(0.015f) == 1);
+		assertTrue(u.tick(0.001f) == 0);
+		assertTrue(updates[0] == 3);
+		assertTrue(Math.abs(passedTime[0] - 0.06f) < 0.0001f);
+
+		// too much passed time is dropped instead of simulated:
+		assertTrue(u.tick(1) == 5);
+		assertTrue(u.getDroppedTime() > 0.8f);
+		assertFalse(u.isOverloaded());
+		u.tick(1);
+		u.tick(1);
+		assertTrue(u.isOverloaded());
+		// in overload mode only one bigger step is done:
+		updates[0] = 0;
+		passedTime[0] = 0;
+		assertTrue(u.tick(1) == 1);
+		assertTrue(updates[0] == 1);
+		assertTrue(Math.abs(passedTime[0] - 0.1f) < 0.0001f);
+		for (int i = 0; i < 100; i++) {
+			u.tick(0.02f);
+		}
+		assertFalse(u.isOverloaded());
+
+		// step listeners run before or after the objects depending on their
+		// order:
+		final StringBuilder calls = new StringBuilder();
+		StepListener after = new StepListener() {
+			@Override
+			public void onStep(float timeDelta) {
+				calls.append('A');
+			}
+		};
+		StepListener before = new StepListener() {
+			@Override
+			public void onStep(float timeDelta) {
+				calls.append('B');
+			}
+		};
+		SystemUpdater stepUpdater = new SystemUpdater();
+		stepUpdater.addObjectToUpdateCycle(new Updateable() {
+			@Override
+			public boolean update(float timeDelta, Updateable parent) {
+				calls.append('U');
+				return true;
+			}
+		});
+		stepUpdater.addStepListener(after, 1000);
+		stepUpdater.addStepListener(before, -1000);
+		stepUpdater.tick(stepUpdater.getFixedStep());
+		assertTrue(calls.indexOf("B") < calls.indexOf("U"));
+		assertTrue(calls.indexOf("U") < calls.indexOf("A"));
+		assertTrue(stepUpdater.removeStepListener(after));
+		assertTrue(stepUpdater.removeStepListener(before));
+		assertFalse(stepUpdater.removeStepListener(before));
+		calls.setLength(0);
+		stepUpdater.tick(stepUpdater.getFixedStep());
+		assertTrue(calls.toString().equals("U"));
+		// the listeners only belong to the updater they were added to:
+		stepUpdater.addStepListener(after, 1000);
+		calls.setLength(0);
+		new SystemUpdater().tick(stepUpdater.getFixedStep());
+		assertTrue(calls.length() == 0);
 	}
 
 	private void LimitedQueueTests() throws Exception {
@@ -78,6 +780,28 @@ public class SystemTests extends SimpleTesting {
 		assertTrue(o.hasComponent(Entity.class));
 		assertFalse(o.hasComponent(ProximitySensor.class));
 
+		// the cached lookups have to notice new and removed components:
+		ProximitySensor sensor = new ProximitySensor(null, 10) {
+			@Override
+			public void onObjectIsCloseToCamera(GLCamera glCamera, Obj obj,
+					MeshComponent meshComp, float currentDistance) {
+			}
+		};
+		o.setComp(sensor);
+		assertTrue(o.getComp(ProximitySensor.class) == sensor);
+		assertTrue(o.getComps(Entity.class).size() == 2);
+		assertTrue(o.getComps(Entity.class) == o.getComps(Entity.class));
+		// the cached list is shared, so it must not be changeable:
+		try {
+			o.getComps(Entity.class).clear();
+			assertTrue(false);
+		} catch (UnsupportedOperationException e) {
+		}
+		assertTrue(o.getComps(Entity.class).size() == 2);
+		o.remove(sensor);
+		assertFalse(o.hasComponent(ProximitySensor.class));
+		assertTrue(o.getComp(ProximitySensor.class) == null);
+		assertTrue(o.getComps(Entity.class).size() == 1);
 	}
 
 	private void vecTests() throws Exception {
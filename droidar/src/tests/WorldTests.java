@@ -1,6 +1,8 @@
 package tests;
 
 import gl.GLCamera;
+import gl.RenderSnapshot;
+import gl.RenderStateExchange;
 import gl.animations.AnimationGrow;
 import gl.animations.GLAnimation;
 import gl.scenegraph.MeshComponent;
@@ -49,6 +51,50 @@ public class WorldTests extends SimpleTesting {
 		assertTrue(w.getAllItems().contains(o) == -1);
 
 		absolutePositionTest();
+		renderSnapshotTest();
+	}
+
+	private void renderSnapshotTest() throws Exception {
+		RenderStateExchange e = RenderStateExchange.getInstance();
+		RenderSnapshot s = new RenderSnapshot(1);
+		s.getWriteBuffer()[0] = 1;
+		s.commit();
+		e.publish();
+		assertTrue(e.acquire());
+		assertTrue(s.getReadBuffer()[0] == 1);
+		// the next tick must not be visible before it is published:
+		s.getWriteBuffer()[0] = 2;
+		s.commit();
+		assertFalse(e.acquire());
+		assertTrue(s.getReadBuffer()[0] == 1);
+		e.publish();
+		// a newer tick replaces an unread one:
+		s.getWriteBuffer()[0] = 3;
+		s.commit();
+		e.publish();
+		assertTrue(e.acquire());
+		assertTrue(s.getReadBuffer()[0] == 3);
+		// objects which were not updated in this tick use their live values:
+		e.publish();
+		assertTrue(e.acquire());
+		assertTrue(s.getReadBuffer() == null);
+
+		// a bigger buffer must not replace the one which is rendered:
+		s.getWriteBuffer()[0] = 4;
+		s.commit();
+		e.publish();
+		assertTrue(e.acquire());
+		float[] rendered = s.getReadBuffer();
+		float[] bigger = s.getWriteBuffer(100);
+		assertTrue(bigger.length >= 100);
+		assertTrue(bigger != rendered);
+		assertTrue(s.getReadBuffer() == rendered);
+		assertTrue(rendered[0] == 4);
+		bigger[99] = 5;
+		s.commit();
+		e.publish();
+		assertTrue(e.acquire());
+		assertTrue(s.getReadBuffer()[99] == 5);
 	}
 
 	private void absolutePositionTest() throws Exception {
@@ -64,6 +110,19 @@ public class WorldTests extends SimpleTesting {
 		c.getAbsoluteMeshPosition(pos);
 		System.out.println(pos);
 		assertEquals(pos, new Vec(10, 10, 10));
+
+		// the cached world matrices have to be updated if a parent changes:
+		a.setRotation(new Vec(0, 0, 90));
+		pos.setToZero();
+		c.getAbsoluteMeshPosition(pos);
+		assertTrue(pos.equals(new Vec(0, 0, 10), 1000));
+		b.getPosition().z = 5;
+		pos.setToZero();
+		c.getAbsoluteMeshPosition(pos);
+		assertTrue(pos.equals(new Vec(0, 0, 15), 1000));
+		float[] m = c.getWorldMatrix();
+		// the x axis of c now points in y direction:
+		assertTrue(Math.abs(m[1] - 1) < 0.0001f);
 	}
 
 }
@@ -150,6 +150,104 @@ public class Calculus {
 		return result;
 	}
 
+	/**
+	 * Fills m (column major like in OpenGL) with the same transformation
+	 * which the calls glTranslatef(t), glScalef(s), glMultMatrixf(k),
+	 * glRotatef(r.z,0,0,1), glRotatef(r.x,1,0,0), glRotatef(r.y,0,1,0) would
+	 * produce. Does not allocate any memory
+	 * 
+	 * @param m
+	 *            the target matrix (16 values)
+	 * @param k
+	 *            an additional rotation matrix, can be null
+	 * @param rx
+	 *            in degree
+	 * @param ry
+	 *            in degree
+	 * @param rz
+	 *            in degree
+	 */
+	public static void setTransformM(float[] m, float tx, float ty, float tz,
+			float sx, float sy, float sz, float[] k, float rx, float ry,
+			float rz) {
+		double a = Math.toRadians(rx);
+		float cx = (float) Math.cos(a);
+		float snx = (float) Math.sin(a);
+		a = Math.toRadians(ry);
+		float cy = (float) Math.cos(a);
+		float sny = (float) Math.sin(a);
+		a = Math.toRadians(rz);
+		float cz = (float) Math.cos(a);
+		float snz = (float) Math.sin(a);
+
+		// R = Rz * Rx * Ry (row, column):
+		float r00 = cz * cy - snz * snx * sny;
+		float r01 = -snz * cx;
+		float r02 = cz * sny + snz * snx * cy;
+		float r10 = snz * cy + cz * snx * sny;
+		float r11 = cz * cx;
+		float r12 = snz * sny - cz * snx * cy;
+		float r20 = -cx * sny;
+		float r21 = snx;
+		float r22 = cx * cy;
+
+		if (k == null) {
+			m[0] = r00;
+			m[1] = r10;
+			m[2] = r20;
+			m[3] = 0;
+			m[4] = r01;
+			m[5] = r11;
+			m[6] = r21;
+			m[7] = 0;
+			m[8] = r02;
+			m[9] = r12;
+			m[10] = r22;
+			m[11] = 0;
+			m[12] = 0;
+			m[13] = 0;
+			m[14] = 0;
+			m[15] = 1;
+		} else {
+			// K * R, the last column of R is (0,0,0,1):
+			for (int r = 0; r < 4; r++) {
+				float k0 = k[r];
+				float k1 = k[4 + r];
+				float k2 = k[8 + r];
+				m[r] = k0 * r00 + k1 * r10 + k2 * r20;
+				m[4 + r] = k0 * r01 + k1 * r11 + k2 * r21;
+				m[8 + r] = k0 * r02 + k1 * r12 + k2 * r22;
+				m[12 + r] = k[12 + r];
+			}
+		}
+
+		// S * (K * R) and then T * (S * K * R):
+		for (int c = 0; c < 16; c += 4) {
+			float w = m[c + 3];
+			m[c] = m[c] * sx + tx * w;
+			m[c + 1] = m[c + 1] * sy + ty * w;
+			m[c + 2] = m[c + 2] * sz + tz * w;
+		}
+	}
+
+	/**
+	 * result = lhs * rhs (column major). Same as
+	 * {@link Matrix#multiplyMM(float[], int, float[], int, float[], int)} but
+	 * the result may not be one of the input arrays
+	 */
+	public static void multiplyMM(float[] result, float[] lhs, float[] rhs) {
+		for (int c = 0; c < 16; c += 4) {
+			float b0 = rhs[c];
+			float b1 = rhs[c + 1];
+			float b2 = rhs[c + 2];
+			float b3 = rhs[c + 3];
+			for (int r = 0; r < 4; r++) {
+				result[c + r] = lhs[r] * b0 + lhs[4 + r] * b1 + lhs[8 + r]
+						* b2 + lhs[12 + r] * b3;
+			}
+		}
+	}
+
 	public static float morphToNewValue(float factor, float newX, float currentX) {
 		return currentX + (factor * (newX - currentX));
 	}
@@ -102,6 +102,27 @@ public class EfficientList<T> {
 		return false;
 	}
 
+	/**
+	 * Removes the item at pos and moves the last item to pos instead of
+	 * shifting all following items, so the order of the items changes
+	 *
+	 * @param pos
+	 *            should be from 0 to this.myLength-1
+	 * @return the item which is now at pos or null if the last item was
+	 *         removed
+	 */
+	@SuppressWarnings("unchecked")
+	public T removeBySwappingLast(int pos) {
+		if (pos < 0 || pos >= myLength)
+			return null;
+		myLength--;
+		myArray[pos] = myArray[myLength];
+		myArray[myLength] = null;
+		if (pos == myLength)
+			return null;
+		return (T) myArray[pos];
+	}
+
 	protected void removeItemFromArray(Object[] a, int pos) {
 		int i;
 		for (i = pos; i < a.length - 1; i++) {
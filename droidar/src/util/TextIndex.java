@@ -0,0 +1,684 @@
+package util;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+
+/**
+ * An inverted index for searching items by a short text (e.g. a name) and a
+ * long text (e.g. a description). It finds the same items as a case
+ * insensitive {@link String#contains(CharSequence)} on both texts (for search
+ * terms with at least 3 characters) and in addition:
+ *
+ * <ul>
+ * <li>items where each word of the search term is the beginning of a word in
+ * the text, which is what a user types in a type-ahead search field ("main
+ * st" finds "Main Street")</li>
+ * <li>items with a similar text if no text contains the search term, so
+ * small typos are tolerated</li>
+ * </ul>
+ *
+ * Each word is stored in a prefix tree and each 3 character sequence
+ * (trigram) of the texts has a list of the items which contain it. Only the
+ * best results are kept in a bounded heap, so the search time depends on the
+ * number of candidates and not on the number of items.
+ *
+ * Removed items are only marked as removed and their entries are cleaned up
+ * when there are more removed than living items. The texts are copied when an
+ * item is added, so if the text changes the item has to be removed and added
+ * again.
+ *
+ * @author Spobo
+ *
+ * @param <T>
+ *            the type of the items, they are found again via
+ *            {@link Object#equals(Object)} when they are removed
+ */
+public class TextIndex<T> {
+
+	/**
+	 * the quality of a match in the short text, lower values are better
+	 */
+	public static final float QUALITY_SHORT_TEXT = 1;
+	public static final float QUALITY_LONG_TEXT = 2;
+	/**
+	 * the quality of similar texts which do not contain the search term is
+	 * between this value and this value + 1
+	 */
+	public static final float QUALITY_SIMILAR = 3;
+	/**
+	 * the part of the trigrams of the search term which a text has to contain
+	 * to count as similar
+	 */
+	private static final float MIN_SIMILARITY = 0.5f;
+	private static final int MIN_REMOVED_FOR_CLEANUP = 64;
+
+	private final HashMap<T, Integer> myIds = new HashMap<T, Integer>();
+	private Object[] myItems = new Object[16];
+	private String[] myShortTexts = new String[16];
+	private String[] myLongTexts = new String[16];
+	private int myIdCount;
+	private int myRemovedCount;
+
+	private final TrieNode myWords = new TrieNode();
+	private final HashMap<Long, Postings> myTrigrams = new HashMap<Long, Postings>();
+
+	// working arrays of the searches, valid if the stamp is current:
+	private int[] myStamps = new int[16];
+	private int[] myCounts = new int[16];
+	private int myStamp;
+
+	// results of the last search:
+	private float[] myLastQualities = new float[0];
+	private int myCandidateCount;
+
+	/**
+	 * @param item
+	 * @param shortText
+	 *            can be null
+	 * @param longText
+	 *            can be null
+	 * @return false if the item was already in the index
+	 */
+	public synchronized boolean add(T item, String shortText, String longText) {
+		if (item == null || myIds.containsKey(item)) {
+			return false;
+		}
+		if (myIdCount == myItems.length) {
+			grow(myIdCount * 2);
+		}
+		final int id = myIdCount++;
+		myItems[id] = item;
+		myShortTexts[id] = shortText != null ? shortText.toLowerCase(Locale.ENGLISH)
+				: "";
+		myLongTexts[id] = longText != null ? longText.toLowerCase(Locale.ENGLISH)
+				: "";
+		myIds.put(item, id);
+		index(id);
+		return true;
+	}
+
+	private void grow(int capacity) {
+		Object[] items = new Object[capacity];
+		System.arraycopy(myItems, 0, items, 0, myIdCount);
+		myItems = items;
+		String[] s = new String[capacity];
+		System.arraycopy(myShortTexts, 0, s, 0, myIdCount);
+		myShortTexts = s;
+		s = new String[capacity];
+		System.arraycopy(myLongTexts, 0, s, 0, myIdCount);
+		myLongTexts = s;
+		myStamps = new int[capacity];
+		myCounts = new int[capacity];
+		myStamp = 0;
+	}
+
+	private void index(int id) {
+		addWords(id, myShortTexts[id]);
+		addWords(id, myLongTexts[id]);
+		addTrigrams(id, myShortTexts[id]);
+		addTrigrams(id, myLongTexts[id]);
+	}
+
+	private void addWords(int id, String text) {
+		final int l = text.length();
+		int i = 0;
+		while (i < l) {
+			while (i < l && !Character.isLetterOrDigit(text.charAt(i))) {
+				i++;
+			}
+			if (i == l) {
+				return;
+			}
+			TrieNode node = myWords;
+			while (i < l && Character.isLetterOrDigit(text.charAt(i))) {
+				node = node.getOrAddChild(text.charAt(i));
+				node.myWordCount++;
+				i++;
+			}
+			node.myItems.addOnce(id);
+		}
+	}
+
+	private void addTrigrams(int id, String text) {
+		for (int i = 0; i + 3 <= text.length(); i++) {
+			final Long key = trigram(text, i);
+			Postings p = myTrigrams.get(key);
+			if (p == null) {
+				p = new Postings();
+				myTrigrams.put(key, p);
+			}
+			p.addOnce(id);
+		}
+	}
+
+	private static Long trigram(String s, int i) {
+		return ((long) s.charAt(i) << 32) | ((long) s.charAt(i + 1) << 16)
+				| s.charAt(i + 2);
+	}
+
+	/**
+	 * @return false if the item was not in the index
+	 */
+	public synchronized boolean remove(T item) {
+		Integer id = myIds.remove(item);
+		if (id == null) {
+			return false;
+		}
+		// the entries of the id are skipped by the searches from now on:
+		myItems[id] = null;
+		myShortTexts[id] = null;
+		myLongTexts[id] = null;
+		myRemovedCount++;
+		if (myRemovedCount > MIN_REMOVED_FOR_CLEANUP
+				&& myRemovedCount > myIds.size()) {
+			rebuild();
+		}
+		return true;
+	}
+
+	public synchronized boolean contains(T item) {
+		return myIds.containsKey(item);
+	}
+
+	public synchronized int size() {
+		return myIds.size();
+	}
+
+	public synchronized void clear() {
+		myIds.clear();
+		myItems = new Object[16];
+		myShortTexts = new String[16];
+		myLongTexts = new String[16];
+		myIdCount = 0;
+		myRemovedCount = 0;
+		myWords.clear();
+		myTrigrams.clear();
+		myStamps = new int[16];
+		myCounts = new int[16];
+		myStamp = 0;
+	}
+
+	/**
+	 * gives the living items new ids without gaps and indexes them again
+	 */
+	private void rebuild() {
+		Object[] items = myItems;
+		String[] shortTexts = myShortTexts;
+		String[] longTexts = myLongTexts;
+		final int oldCount = myIdCount;
+		myWords.clear();
+		myTrigrams.clear();
+		myIdCount = 0;
+		myRemovedCount = 0;
+		for (int i = 0; i < oldCount; i++) {
+			if (items[i] != null) {
+				final int id = myIdCount++;
+				items[id] = items[i];
+				shortTexts[id] = shortTexts[i];
+				longTexts[id] = longTexts[i];
+				myIds.put(cast(items[id]), id);
+				index(id);
+			}
+		}
+		for (int i = myIdCount; i < oldCount; i++) {
+			items[i] = null;
+			shortTexts[i] = null;
+			longTexts[i] = null;
+		}
+	}
+
+	/**
+	 * @param searchTerm
+	 * @param maxResults
+	 * @return the best matching items, the best one first. Use
+	 *         {@link #getQualityOfLastSearch(int)} to get the quality of each
+	 *         result
+	 */
+	public synchronized EfficientList<T> search(String searchTerm,
+			int maxResults) {
+		EfficientList<T> result = new EfficientList<T>();
+		myCandidateCount = 0;
+		final String term = searchTerm != null ? searchTerm.toLowerCase(
+				Locale.ENGLISH).trim() : "";
+		if (term.length() == 0 || maxResults <= 0 || myIds.isEmpty()) {
+			myLastQualities = new float[0];
+			return result;
+		}
+		final String[] words = splitWords(term);
+		final ResultHeap best = new ResultHeap(Math.min(maxResults,
+				myIds.size()));
+		final int stamp = nextStamp();
+
+		/*
+		 * every result must contain a word which starts with the rarest word
+		 * of the search term, the other words are checked for each candidate:
+		 */
+		TrieNode rarestWord = null;
+		for (int i = 0; i < words.length; i++) {
+			TrieNode node = myWords.find(words[i]);
+			if (node == null) {
+				rarestWord = null;
+				break;
+			}
+			if (rarestWord == null
+					|| node.myWordCount < rarestWord.myWordCount) {
+				rarestWord = node;
+			}
+		}
+		if (rarestWord != null) {
+			checkWordCandidates(rarestWord, term, words, stamp, best);
+		}
+
+		// substrings in the middle of a word are found via the trigrams:
+		if (term.length() >= 3) {
+			Postings rarest = null;
+			for (int i = 0; i + 3 <= term.length(); i++) {
+				Postings p = myTrigrams.get(trigram(term, i));
+				if (p == null) {
+					rarest = null;
+					break;
+				}
+				if (rarest == null || p.mySize < rarest.mySize) {
+					rarest = p;
+				}
+			}
+			if (rarest != null) {
+				for (int i = 0; i < rarest.mySize; i++) {
+					checkCandidate(rarest.myIds[i], term, words, stamp, best);
+				}
+			}
+			if (best.mySize == 0) {
+				addSimilarItems(term, stamp, best);
+			}
+		}
+
+		myLastQualities = new float[best.mySize];
+		Object[] items = best.toSortedArray(myLastQualities);
+		for (int i = 0; i < items.length; i++) {
+			result.add(cast(items[i]));
+		}
+		return result;
+	}
+
+	private void checkWordCandidates(TrieNode node, String term,
+			String[] words, int stamp, ResultHeap best) {
+		// iterative walk through the sub tree:
+		EfficientList<TrieNode> open = new EfficientList<TrieNode>();
+		open.add(node);
+		while (open.myLength > 0) {
+			TrieNode n = open.get(open.myLength - 1);
+			open.removeBySwappingLast(open.myLength - 1);
+			for (int i = 0; i < n.myItems.mySize; i++) {
+				checkCandidate(n.myItems.myIds[i], term, words, stamp, best);
+			}
+			for (int i = 0; i < n.myChildCount; i++) {
+				open.add(n.myChildren[i]);
+			}
+		}
+	}
+
+	private void checkCandidate(int id, String term, String[] words,
+			int stamp, ResultHeap best) {
+		if (myStamps[id] == stamp || myItems[id] == null) {
+			return;
+		}
+		myStamps[id] = stamp;
+		myCandidateCount++;
+		myCounts[id] = 0;
+		float q = getQuality(myShortTexts[id], term, words);
+		if (q >= 0) {
+			best.offer(myItems[id], QUALITY_SHORT_TEXT + q);
+			return;
+		}
+		q = getQuality(myLongTexts[id], term, words);
+		if (q >= 0) {
+			best.offer(myItems[id], QUALITY_LONG_TEXT + q);
+		}
+	}
+
+	/**
+	 * @return -1 if the text does not match or a value between 0 and 1, lower
+	 *         is better
+	 */
+	private static float getQuality(String text, String term, String[] words) {
+		float q;
+		if (text.equals(term)) {
+			q = 0;
+		} else if (text.startsWith(term)) {
+			q = 0.1f;
+		} else if (isWordStart(text, term)) {
+			q = 0.2f;
+		} else if (text.contains(term)) {
+			q = 0.3f;
+		} else if (words.length > 0 && startsWordsWith(text, words)) {
+			q = 0.4f;
+		} else {
+			return -1;
+		}
+		// prefer short texts, they match the search term better:
+		return q + Math.min(text.length(), 999) / 10000f;
+	}
+
+	private static boolean isWordStart(String text, String word) {
+		int i = text.indexOf(word);
+		while (i != -1) {
+			if (i == 0 || !Character.isLetterOrDigit(text.charAt(i - 1))) {
+				return true;
+			}
+			i = text.indexOf(word, i + 1);
+		}
+		return false;
+	}
+
+	/**
+	 * @return true if each word is the beginning of a word of the text
+	 */
+	private static boolean startsWordsWith(String text, String[] words) {
+		for (int i = 0; i < words.length; i++) {
+			if (!isWordStart(text, words[i])) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static String[] splitWords(String text) {
+		EfficientList<String> words = new EfficientList<String>();
+		final int l = text.length();
+		int i = 0;
+		while (i < l) {
+			while (i < l && !Character.isLetterOrDigit(text.charAt(i))) {
+				i++;
+			}
+			final int start = i;
+			while (i < l && Character.isLetterOrDigit(text.charAt(i))) {
+				i++;
+			}
+			if (i > start) {
+				words.add(text.substring(start, i));
+			}
+		}
+		String[] result = new String[words.myLength];
+		for (int j = 0; j < result.length; j++) {
+			result[j] = words.get(j);
+		}
+		return result;
+	}
+
+	/**
+	 * A similar item has to contain at least {@link #MIN_SIMILARITY} of the n
+	 * different trigrams of the term, so it has to be in one of the lists of
+	 * the n - ceil(n * MIN_SIMILARITY) + 1 rarest trigrams. Only the items of
+	 * these lists are checked for all trigrams
+	 */
+	private void addSimilarItems(String term, int stamp, ResultHeap best) {
+		EfficientList<String> trigrams = new EfficientList<String>();
+		HashMap<Long, Boolean> seen = new HashMap<Long, Boolean>();
+		for (int i = 0; i + 3 <= term.length(); i++) {
+			if (seen.put(trigram(term, i), Boolean.TRUE) == null) {
+				trigrams.add(term.substring(i, i + 3));
+			}
+		}
+		final int n = trigrams.myLength;
+		Postings[] lists = new Postings[n];
+		for (int i = 0; i < n; i++) {
+			lists[i] = myTrigrams.get(trigram(trigrams.get(i), 0));
+		}
+		// sort by the list size, the missing trigrams first:
+		for (int i = 1; i < n; i++) {
+			Postings p = lists[i];
+			int j = i;
+			while (j > 0 && size(lists[j - 1]) > size(p)) {
+				lists[j] = lists[j - 1];
+				j--;
+			}
+			lists[j] = p;
+		}
+		final int minShared = (int) Math.ceil(n * MIN_SIMILARITY);
+		Postings touched = new Postings();
+		for (int i = 0; i < n - minShared + 1; i++) {
+			Postings p = lists[i];
+			if (p == null) {
+				continue;
+			}
+			for (int j = 0; j < p.mySize; j++) {
+				final int id = p.myIds[j];
+				if (myItems[id] == null) {
+					continue;
+				}
+				if (myStamps[id] != stamp) {
+					myStamps[id] = stamp;
+					myCounts[id] = 0;
+				}
+				if (myCounts[id] == 0) {
+					// 1 marks the items which are already in touched:
+					myCounts[id] = 1;
+					touched.addOnce(id);
+				}
+			}
+		}
+		for (int i = 0; i < touched.mySize; i++) {
+			final int id = touched.myIds[i];
+			int shared = 0;
+			for (int j = 0; j < n; j++) {
+				final String t = trigrams.get(j);
+				if (myShortTexts[id].contains(t) || myLongTexts[id].contains(t)) {
+					shared++;
+				}
+			}
+			final float similarity = shared / (float) n;
+			if (similarity >= MIN_SIMILARITY) {
+				myCandidateCount++;
+				best.offer(myItems[id], QUALITY_SIMILAR + 1 - similarity);
+			}
+		}
+	}
+
+	private static int size(Postings p) {
+		return p == null ? 0 : p.mySize;
+	}
+
+	private int nextStamp() {
+		myStamp++;
+		if (myStamp == Integer.MAX_VALUE) {
+			Arrays.fill(myStamps, 0);
+			myStamp = 1;
+		}
+		return myStamp;
+	}
+
+	/**
+	 * @param resultPosition
+	 * @return the quality of the result at this position of the list which
+	 *         was returned by the last {@link #search(String, int)}, lower is
+	 *         better (see {@link #QUALITY_SHORT_TEXT},
+	 *         {@link #QUALITY_LONG_TEXT} and {@link #QUALITY_SIMILAR})
+	 */
+	public synchronized float getQualityOfLastSearch(int resultPosition) {
+		return myLastQualities[resultPosition];
+	}
+
+	/**
+	 * @return the number of items which were checked by the last search
+	 */
+	public synchronized int getCandidateCountOfLastSearch() {
+		return myCandidateCount;
+	}
+
+	@SuppressWarnings("unchecked")
+	private T cast(Object o) {
+		return (T) o;
+	}
+
+	/**
+	 * a growing list of item ids
+	 */
+	private static class Postings {
+
+		int[] myIds = new int[2];
+		int mySize;
+
+		/**
+		 * the ids of one item are added one after the other, so checking the
+		 * last id is enough to avoid duplicates
+		 */
+		void addOnce(int id) {
+			if (mySize > 0 && myIds[mySize - 1] == id) {
+				return;
+			}
+			if (mySize == myIds.length) {
+				int[] a = new int[mySize * 2];
+				System.arraycopy(myIds, 0, a, 0, mySize);
+				myIds = a;
+			}
+			myIds[mySize++] = id;
+		}
+	}
+
+	private static class TrieNode {
+
+		char[] myChars = new char[0];
+		TrieNode[] myChildren = new TrieNode[0];
+		int myChildCount;
+		/**
+		 * the number of added words which start with the word of this node,
+		 * removed words are not subtracted
+		 */
+		int myWordCount;
+		/**
+		 * the items which contain the word that ends at this node
+		 */
+		Postings myItems = new Postings();
+
+		TrieNode getOrAddChild(char c) {
+			for (int i = 0; i < myChildCount; i++) {
+				if (myChars[i] == c) {
+					return myChildren[i];
+				}
+			}
+			if (myChildCount == myChars.length) {
+				final int l = Math.max(2, myChildCount * 2);
+				char[] chars = new char[l];
+				System.arraycopy(myChars, 0, chars, 0, myChildCount);
+				myChars = chars;
+				TrieNode[] children = new TrieNode[l];
+				System.arraycopy(myChildren, 0, children, 0, myChildCount);
+				myChildren = children;
+			}
+			TrieNode child = new TrieNode();
+			myChars[myChildCount] = c;
+			myChildren[myChildCount++] = child;
+			return child;
+		}
+
+		/**
+		 * @return the node of the word or null if no word starts with it
+		 */
+		TrieNode find(String word) {
+			TrieNode node = this;
+			for (int i = 0; i < word.length() && node != null; i++) {
+				final char c = word.charAt(i);
+				TrieNode next = null;
+				for (int j = 0; j < node.myChildCount; j++) {
+					if (node.myChars[j] == c) {
+						next = node.myChildren[j];
+						break;
+					}
+				}
+				node = next;
+			}
+			return node;
+		}
+
+		void clear() {
+			myChars = new char[0];
+			myChildren = new TrieNode[0];
+			myChildCount = 0;
+			myWordCount = 0;
+			myItems = new Postings();
+		}
+	}
+
+	/**
+	 * the best results found so far in a max heap, so the worst one can be
+	 * replaced in O(log k)
+	 */
+	private static class ResultHeap {
+
+		private final Object[] myItems;
+		private final float[] myQualities;
+		int mySize;
+
+		ResultHeap(int capacity) {
+			myItems = new Object[capacity];
+			myQualities = new float[capacity];
+		}
+
+		boolean isFull() {
+			return mySize == myItems.length;
+		}
+
+		void offer(Object item, float quality) {
+			if (isFull()) {
+				if (quality >= myQualities[0]) {
+					return;
+				}
+				siftDown(0, item, quality, mySize);
+				return;
+			}
+			int i = mySize++;
+			while (i > 0) {
+				final int parent = (i - 1) >> 1;
+				if (myQualities[parent] >= quality) {
+					break;
+				}
+				myItems[i] = myItems[parent];
+				myQualities[i] = myQualities[parent];
+				i = parent;
+			}
+			myItems[i] = item;
+			myQualities[i] = quality;
+		}
+
+		private void siftDown(int i, Object item, float quality, int size) {
+			while (true) {
+				int child = 2 * i + 1;
+				if (child >= size) {
+					break;
+				}
+				if (child + 1 < size
+						&& myQualities[child + 1] > myQualities[child]) {
+					child++;
+				}
+				if (myQualities[child] <= quality) {
+					break;
+				}
+				myItems[i] = myItems[child];
+				myQualities[i] = myQualities[child];
+				i = child;
+			}
+			myItems[i] = item;
+			myQualities[i] = quality;
+		}
+
+		/**
+		 * @param qualities
+		 *            will contain the quality of each result
+		 * @return the items with the best quality first, the heap is empty
+		 *         after this
+		 */
+		Object[] toSortedArray(float[] qualities) {
+			Object[] result = new Object[mySize];
+			while (mySize > 0) {
+				final int last = --mySize;
+				result[last] = myItems[0];
+				qualities[last] = myQualities[0];
+				siftDown(0, myItems[last], myQualities[last], last);
+				myItems[last] = null;
+			}
+			return result;
+		}
+	}
+
+}
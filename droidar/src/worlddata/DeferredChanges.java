@@ -0,0 +1,50 @@
+package worlddata;
+
+import system.Container;
+import util.EfficientList;
+
+/**
+ * Collects the add and remove requests for a {@link Container} while its
+ * children are updated in parallel and applies them afterwards on the update
+ * thread in the order they were requested
+ *
+ * @author Spobo
+ *
+ */
+class DeferredChanges<T> {
+
+	private final EfficientList<T> myItems = new EfficientList<T>();
+	private final EfficientList<Boolean> myIsAdd = new EfficientList<Boolean>();
+
+	public synchronized void add(T item) {
+		myItems.add(item);
+		myIsAdd.add(Boolean.TRUE);
+	}
+
+	public synchronized void remove(T item) {
+		myItems.add(item);
+		myIsAdd.add(Boolean.FALSE);
+	}
+
+	public void applyTo(Container<T> target) {
+		EfficientList<T> items;
+		EfficientList<Boolean> isAdd;
+		synchronized (this) {
+			if (myItems.isEmpty()) {
+				return;
+			}
+			items = myItems.copy();
+			isAdd = myIsAdd.copy();
+			myItems.clear();
+			myIsAdd.clear();
+		}
+		for (int i = 0; i < items.myLength; i++) {
+			if (isAdd.get(i)) {
+				target.add(items.get(i));
+			} else {
+				target.remove(items.get(i));
+			}
+		}
+	}
+
+}
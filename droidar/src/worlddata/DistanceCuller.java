@@ -0,0 +1,406 @@
+package worlddata;
+
+import gl.HasPosition;
+import util.HasDebugInformation;
+import util.Log;
+import util.Vec;
+
+/**
+ * Calculates the camera distance of all registered objects in one pass instead
+ * of letting each {@link components.TooFarAwayComp} do it for its own parent.
+ * The positions are copied into one packed float array and every object is
+ * sorted into the {@link #NEAR}, {@link #GRAY} or {@link #FAR} bucket. Only
+ * objects which changed their bucket are informed.
+ *
+ * The calculated distances can be read with {@link #getDistance(int)}, so other
+ * code (e.g. to choose a level of detail or to sort objects) does not have to
+ * calculate them again.
+ *
+ * Registered objects have to call {@link #keepAlive(int, BucketListener)} in
+ * each update, otherwise they are removed with the next pass. The
+ * {@link SystemUpdater} updates the culler after each update step.
+ *
+ * @author Spobo
+ *
+ */
+public class DistanceCuller implements StepListener, HasDebugInformation {
+
+	private static final String LOG_TAG = "DistanceCuller";
+
+	public static final int NEAR = 0;
+	public static final int GRAY = 1;
+	public static final int FAR = 2;
+	/**
+	 * the bucket before the first pass
+	 */
+	public static final int UNKNOWN = -1;
+
+	public static final float DEFAULT_INTERVAL = 0.2f;
+	private static final int INITIAL_CAPACITY = 64;
+
+	public interface BucketListener {
+		/**
+		 * Is called on the update thread when the object was moved to another
+		 * bucket
+		 *
+		 * @param handle
+		 * @param oldBucket
+		 *            {@link DistanceCuller#UNKNOWN} for the first pass
+		 * @param newBucket
+		 * @param distance
+		 *            to the camera
+		 */
+		public void onBucketChanged(int handle, int oldBucket, int newBucket,
+				float distance);
+	}
+
+	/**
+	 * the order of the {@link StepListener}, after the objects and the physics
+	 */
+	public static final int STEP_ORDER = 400;
+
+	private static DistanceCuller instance = new DistanceCuller();
+
+	private HasPosition myCamera;
+	private float myInterval = DEFAULT_INTERVAL;
+	private float myTimeSinceLastPass;
+
+	/*
+	 * all data is stored by slot index (the handle), free slots have a null
+	 * target:
+	 */
+	private HasPosition[] myTargets = new HasPosition[INITIAL_CAPACITY];
+	private BucketListener[] myListeners = new BucketListener[INITIAL_CAPACITY];
+	/**
+	 * x,y,z of each slot
+	 */
+	private float[] myPositions = new float[INITIAL_CAPACITY * 3];
+	private float[] myNearDistSq = new float[INITIAL_CAPACITY];
+	private float[] myGrayDistSq = new float[INITIAL_CAPACITY];
+	private float[] myDistances = new float[INITIAL_CAPACITY];
+	private int[] myBuckets = new int[INITIAL_CAPACITY];
+	private long[] myLastAliveStep = new long[INITIAL_CAPACITY];
+	private int[] myFreeSlots = new int[INITIAL_CAPACITY];
+	private int myFreeSlotCount;
+	private int mySlotCount;
+	private int myCount;
+
+	private volatile long myStepCount;
+	private long myLastPassStep;
+	private int[] myChanged = new int[INITIAL_CAPACITY];
+	private int[] myOldBuckets = new int[INITIAL_CAPACITY];
+
+	// metrics:
+	private int myChangesInLastPass;
+	private float myLastPassDurationInMs;
+
+	public static DistanceCuller getInstance() {
+		return instance;
+	}
+
+	public static void resetInstance() {
+		instance = new DistanceCuller();
+	}
+
+	/**
+	 * @param camera
+	 *            the position all distances are measured from, normally the
+	 *            {@link gl.GLCamera}
+	 */
+	public synchronized void setCamera(HasPosition camera) {
+		myCamera = camera;
+	}
+
+	public synchronized HasPosition getCamera() {
+		return myCamera;
+	}
+
+	/**
+	 * @param intervalInSeconds
+	 *            how often the distances are calculated
+	 */
+	public synchronized void setInterval(float intervalInSeconds) {
+		myInterval = intervalInSeconds;
+	}
+
+	/**
+	 * @param target
+	 * @param nearDistance
+	 *            up to this distance the object is {@link #NEAR}
+	 * @param grayDistance
+	 *            from the near distance up to this distance the object is in
+	 *            the {@link #GRAY} zone, after that it is {@link #FAR}
+	 * @param listener
+	 * @return the handle which has to be used for the other methods
+	 */
+	public synchronized int register(HasPosition target, float nearDistance,
+			float grayDistance, BucketListener listener) {
+		int slot;
+		if (myFreeSlotCount > 0) {
+			slot = myFreeSlots[--myFreeSlotCount];
+		} else {
+			if (mySlotCount == myTargets.length) {
+				grow(mySlotCount * 2);
+			}
+			slot = mySlotCount++;
+		}
+		myTargets[slot] = target;
+		myListeners[slot] = listener;
+		myNearDistSq[slot] = nearDistance * nearDistance;
+		myGrayDistSq[slot] = grayDistance * grayDistance;
+		myBuckets[slot] = UNKNOWN;
+		myDistances[slot] = -1;
+		myLastAliveStep[slot] = myStepCount;
+		myCount++;
+		return slot;
+	}
+
+	private void grow(int capacity) {
+		myTargets = copy(myTargets, new HasPosition[capacity]);
+		myListeners = copy(myListeners, new BucketListener[capacity]);
+		float[] p = new float[capacity * 3];
+		System.arraycopy(myPositions, 0, p, 0, myPositions.length);
+		myPositions = p;
+		myNearDistSq = copy(myNearDistSq, capacity);
+		myGrayDistSq = copy(myGrayDistSq, capacity);
+		myDistances = copy(myDistances, capacity);
+		int[] b = new int[capacity];
+		System.arraycopy(myBuckets, 0, b, 0, myBuckets.length);
+		myBuckets = b;
+		long[] a = new long[capacity];
+		System.arraycopy(myLastAliveStep, 0, a, 0, myLastAliveStep.length);
+		myLastAliveStep = a;
+		int[] f = new int[capacity];
+		System.arraycopy(myFreeSlots, 0, f, 0, myFreeSlots.length);
+		myFreeSlots = f;
+		myChanged = new int[capacity];
+		myOldBuckets = new int[capacity];
+	}
+
+	private static <T> T[] copy(T[] source, T[] target) {
+		System.arraycopy(source, 0, target, 0, source.length);
+		return target;
+	}
+
+	private static float[] copy(float[] source, int capacity) {
+		float[] target = new float[capacity];
+		System.arraycopy(source, 0, target, 0, source.length);
+		return target;
+	}
+
+	/**
+	 * Has to be called in each update of the registered object
+	 *
+	 * @param handle
+	 * @param listener
+	 *            the listener which was passed to
+	 *            {@link #register(HasPosition, float, float, BucketListener)}
+	 * @return false if the handle was removed in the meantime, then the
+	 *         object has to be registered again
+	 */
+	public synchronized boolean keepAlive(int handle, BucketListener listener) {
+		if (!isOwner(handle, listener)) {
+			return false;
+		}
+		myLastAliveStep[handle] = myStepCount;
+		return true;
+	}
+
+	/**
+	 * @param handle
+	 * @return false if the handle was already removed
+	 */
+	public synchronized boolean unregister(int handle) {
+		if (handle < 0 || handle >= mySlotCount || myTargets[handle] == null) {
+			return false;
+		}
+		myTargets[handle] = null;
+		myListeners[handle] = null;
+		myFreeSlots[myFreeSlotCount++] = handle;
+		myCount--;
+		return true;
+	}
+
+	/**
+	 * @param handle
+	 * @return true if the handle belongs to a registered object
+	 */
+	public synchronized boolean isRegistered(int handle) {
+		return handle >= 0 && handle < mySlotCount && myTargets[handle] != null;
+	}
+
+	/**
+	 * @param handle
+	 * @return the distance to the camera from the last pass or -1 if it was
+	 *         not calculated yet
+	 */
+	public float getDistance(int handle) {
+		if (handle < 0 || handle >= mySlotCount) {
+			return -1;
+		}
+		return myDistances[handle];
+	}
+
+	/**
+	 * @param handle
+	 * @return {@link #NEAR}, {@link #GRAY}, {@link #FAR} or {@link #UNKNOWN}
+	 */
+	public int getBucket(int handle) {
+		if (handle < 0 || handle >= mySlotCount) {
+			return UNKNOWN;
+		}
+		return myBuckets[handle];
+	}
+
+	/**
+	 * Like {@link #getDistance(int)} but checks that the handle still belongs
+	 * to the owner. A handle of a removed object can be reused by another
+	 * object, so callers which keep a handle over several steps should use
+	 * this method
+	 *
+	 * @param handle
+	 * @param listener
+	 *            the listener which was passed to
+	 *            {@link #register(HasPosition, float, float, BucketListener)}
+	 * @return -1 if the handle does not belong to the listener anymore
+	 */
+	public synchronized float getDistance(int handle, BucketListener listener) {
+		if (!isOwner(handle, listener)) {
+			return -1;
+		}
+		return myDistances[handle];
+	}
+
+	/**
+	 * Like {@link #getBucket(int)} but checks that the handle still belongs
+	 * to the owner, see {@link #getDistance(int, BucketListener)}
+	 *
+	 * @param handle
+	 * @param listener
+	 * @return {@link #UNKNOWN} if the handle does not belong to the listener
+	 *         anymore
+	 */
+	public synchronized int getBucket(int handle, BucketListener listener) {
+		if (!isOwner(handle, listener)) {
+			return UNKNOWN;
+		}
+		return myBuckets[handle];
+	}
+
+	private boolean isOwner(int handle, BucketListener listener) {
+		return handle >= 0 && handle < mySlotCount && listener != null
+				&& myListeners[handle] == listener;
+	}
+
+	/**
+	 * Is called by the {@link SystemUpdater} after each update step
+	 *
+	 * @param timeDelta
+	 */
+	public void update(float timeDelta) {
+		int changes;
+		int[] changed;
+		int[] oldBuckets;
+		synchronized (this) {
+			myStepCount++;
+			myTimeSinceLastPass += timeDelta;
+			if (myTimeSinceLastPass < myInterval || myCamera == null
+					|| myCount == 0) {
+				return;
+			}
+			myTimeSinceLastPass = 0;
+			changes = calcDistances();
+			changed = myChanged;
+			oldBuckets = myOldBuckets;
+		}
+		/*
+		 * the listeners are informed outside of the lock so that they can
+		 * register or unregister objects:
+		 */
+		for (int i = 0; i < changes; i++) {
+			int slot = changed[i];
+			BucketListener l = myListeners[slot];
+			if (l != null) {
+				l.onBucketChanged(slot, oldBuckets[i], myBuckets[slot],
+						myDistances[slot]);
+			}
+		}
+	}
+
+	private int calcDistances() {
+		final long startTime = System.nanoTime();
+		final long lastPass = myLastPassStep;
+		myLastPassStep = myStepCount;
+		final int slots = mySlotCount;
+		final float[] p = myPositions;
+
+		// collect the positions and remove the objects which were not updated:
+		for (int i = 0; i < slots; i++) {
+			HasPosition t = myTargets[i];
+			if (t == null) {
+				continue;
+			}
+			if (myLastAliveStep[i] < lastPass) {
+				unregister(i);
+				continue;
+			}
+			Vec v = t.getPosition();
+			if (v != null) {
+				p[i * 3] = v.x;
+				p[i * 3 + 1] = v.y;
+				p[i * 3 + 2] = v.z;
+			}
+		}
+
+		Vec cam = myCamera.getPosition();
+		final float cx = cam.x, cy = cam.y, cz = cam.z;
+		final float[] nearSq = myNearDistSq;
+		final float[] graySq = myGrayDistSq;
+		final float[] dist = myDistances;
+		final int[] buckets = myBuckets;
+		int changes = 0;
+		for (int i = 0, j = 0; i < slots; i++, j += 3) {
+			if (myTargets[i] == null) {
+				continue;
+			}
+			float dx = p[j] - cx;
+			float dy = p[j + 1] - cy;
+			float dz = p[j + 2] - cz;
+			float dSq = dx * dx + dy * dy + dz * dz;
+			int b = dSq <= nearSq[i] ? NEAR : (dSq < graySq[i] ? GRAY : FAR);
+			dist[i] = (float) Math.sqrt(dSq);
+			if (b != buckets[i]) {
+				myChanged[changes] = i;
+				myOldBuckets[changes] = buckets[i];
+				changes++;
+				buckets[i] = b;
+			}
+		}
+		myChangesInLastPass = changes;
+		myLastPassDurationInMs = (System.nanoTime() - startTime) / 1000000f;
+		return changes;
+	}
+
+	public synchronized int getRegisteredCount() {
+		return myCount;
+	}
+
+	public synchronized int getChangesInLastPass() {
+		return myChangesInLastPass;
+	}
+
+	@Override
+	public void showDebugInformation() {
+		Log.i(LOG_TAG, "Debug infos about the DistanceCuller:");
+		Log.i(LOG_TAG, "   > registered=" + getRegisteredCount() + ", slots="
+				+ mySlotCount);
+		Log.i(LOG_TAG, "   > last pass: changes=" + getChangesInLastPass()
+				+ ", duration=" + myLastPassDurationInMs + "ms");
+	}
+
+	@Override
+	public void onStep(float timeDelta) {
+		update(timeDelta);
+	}
+
+}
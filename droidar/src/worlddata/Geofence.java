@@ -0,0 +1,180 @@
+package worlddata;
+
+import util.Log;
+
+/**
+ * A circle or polygon on the x-y plane of the virtual world which is watched
+ * by a {@link GeofenceEngine}. Create fences with
+ * {@link Geofence#newCircle(float, float, float)} or
+ * {@link Geofence#newPolygon(float[])} and add them with
+ * {@link GeofenceEngine#add(Geofence)}
+ *
+ * @author Spobo
+ *
+ */
+public class Geofence {
+
+	private static final String LOG_TAG = "Geofence";
+
+	private final boolean isCircle;
+	float myCenterX, myCenterY, myRadius;
+	/**
+	 * x0,y0,x1,y1,.. for polygons
+	 */
+	private float[] myPoints;
+	float minX, minY, maxX, maxY;
+	private float myDwellTime;
+	private Object myTag;
+
+	GeofenceEngine myEngine;
+	/**
+	 * the query stamp of the {@link GeofenceEngine}, used to test each fence
+	 * only once even if it is found in several grid cells
+	 */
+	int myLastQuery;
+	/**
+	 * true if the fence is in the changed list of its engine
+	 */
+	boolean myChanged;
+
+	private Geofence(boolean isCircle) {
+		this.isCircle = isCircle;
+	}
+
+	/**
+	 * @param x
+	 *            virtual x position of the center
+	 * @param y
+	 *            virtual y position of the center
+	 * @param radius
+	 * @return the new fence
+	 */
+	public static Geofence newCircle(float x, float y, float radius) {
+		Geofence f = new Geofence(true);
+		f.myRadius = radius;
+		f.setCircleCenter(x, y);
+		return f;
+	}
+
+	/**
+	 * @param points
+	 *            the corners in the form x0,y0,x1,y1,.. (at least 3). The
+	 *            polygon is closed automatically
+	 * @return the new fence or null if there are not enough points
+	 */
+	public static Geofence newPolygon(float[] points) {
+		if (points == null || points.length < 6 || points.length % 2 != 0) {
+			Log.e(LOG_TAG, "A polygon needs at least 3 x,y pairs");
+			return null;
+		}
+		Geofence f = new Geofence(false);
+		f.myPoints = points.clone();
+		f.calcPolygonBounds();
+		return f;
+	}
+
+	private void setCircleCenter(float x, float y) {
+		myCenterX = x;
+		myCenterY = y;
+		minX = x - myRadius;
+		maxX = x + myRadius;
+		minY = y - myRadius;
+		maxY = y + myRadius;
+	}
+
+	private void calcPolygonBounds() {
+		minX = maxX = myPoints[0];
+		minY = maxY = myPoints[1];
+		for (int i = 2; i < myPoints.length; i += 2) {
+			minX = Math.min(minX, myPoints[i]);
+			maxX = Math.max(maxX, myPoints[i]);
+			minY = Math.min(minY, myPoints[i + 1]);
+			maxY = Math.max(maxY, myPoints[i + 1]);
+		}
+	}
+
+	/**
+	 * Moves a circle fence, the engine re-evaluates it at the next update
+	 *
+	 * @param x
+	 * @param y
+	 */
+	public void setCenter(float x, float y) {
+		if (!isCircle) {
+			Log.e(LOG_TAG, "setCenter can only be used for circles");
+			return;
+		}
+		GeofenceEngine e = myEngine;
+		if (e != null) {
+			e.move(this, x, y);
+		} else {
+			setCircleCenter(x, y);
+		}
+	}
+
+	void moveTo(float x, float y) {
+		setCircleCenter(x, y);
+	}
+
+	public boolean contains(float x, float y) {
+		if (x < minX || x > maxX || y < minY || y > maxY) {
+			return false;
+		}
+		if (isCircle) {
+			float dx = x - myCenterX;
+			float dy = y - myCenterY;
+			return dx * dx + dy * dy <= myRadius * myRadius;
+		}
+		// even-odd rule:
+		boolean inside = false;
+		float[] p = myPoints;
+		for (int i = 0, j = p.length - 2; i < p.length; j = i, i += 2) {
+			float yi = p[i + 1];
+			float yj = p[j + 1];
+			if ((yi > y) != (yj > y)
+					&& x < (p[j] - p[i]) * (y - yi) / (yj - yi) + p[i]) {
+				inside = !inside;
+			}
+		}
+		return inside;
+	}
+
+	public boolean isCircle() {
+		return isCircle;
+	}
+
+	public float getRadius() {
+		return myRadius;
+	}
+
+	/**
+	 * @param dwellTimeInSeconds
+	 *            if > 0 a {@link GeofenceEngine#DWELL} event is sent once a
+	 *            target stayed inside the fence that long
+	 */
+	public void setDwellTime(float dwellTimeInSeconds) {
+		myDwellTime = dwellTimeInSeconds;
+	}
+
+	public float getDwellTime() {
+		return myDwellTime;
+	}
+
+	/**
+	 * @param tag
+	 *            any object to identify the fence in the event listener
+	 */
+	public void setTag(Object tag) {
+		myTag = tag;
+	}
+
+	public Object getTag() {
+		return myTag;
+	}
+
+	@Override
+	public String toString() {
+		return (isCircle ? "Circle" : "Polygon") + "Fence(" + myTag + ")";
+	}
+
+}
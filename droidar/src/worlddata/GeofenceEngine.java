@@ -0,0 +1,537 @@
+package worlddata;
+
+import gl.HasPosition;
+import util.EfficientList;
+import util.HasDebugInformation;
+import util.Log;
+import util.Vec;
+
+/**
+ * Watches many {@link Geofence}s at once instead of letting each object poll
+ * its own distance to the camera (like the ProximitySensor does). The fences
+ * are sorted into a hashed grid, so a target only has to be tested against the
+ * fences of the grid cell it is in. A target is only evaluated again when it
+ * moved more than {@link #setMoveThreshold(float)} or when fences close to it
+ * were added or moved.
+ *
+ * All {@link #ENTER}, {@link #EXIT} and {@link #DWELL} transitions of one
+ * update are collected and passed to the {@link GeofenceListener}s at once.
+ * The {@link SystemUpdater} updates the engine after each update step.
+ *
+ * @author Spobo
+ *
+ */
+public class GeofenceEngine implements StepListener, HasDebugInformation {
+
+	private static final String LOG_TAG = "GeofenceEngine";
+
+	public static final int ENTER = 1;
+	public static final int EXIT = 2;
+	public static final int DWELL = 3;
+
+	public static final float DEFAULT_CELL_SIZE = 20;
+	public static final float DEFAULT_MOVE_THRESHOLD = 0.5f;
+	private static final int TABLE_BITS = 14;
+	private static final int TABLE_MASK = (1 << TABLE_BITS) - 1;
+	private static final int INITIAL_BUCKET_SIZE = 4;
+	/**
+	 * fences which would cover more cells than this are tested for every
+	 * evaluation instead of being added to all their cells
+	 */
+	private static final int MAX_CELLS_PER_FENCE = 64;
+
+	public interface GeofenceListener {
+		/**
+		 * Is called on the update thread once per update if there were
+		 * transitions. The event objects are reused after this call, so don't
+		 * keep references to them
+		 *
+		 * @param events
+		 */
+		public void onGeofenceEvents(EfficientList<Event> events);
+	}
+
+	public static class Event {
+		private int myType;
+		private Geofence myFence;
+		private HasPosition myTarget;
+		private float myTimeInside;
+
+		/**
+		 * @return {@link GeofenceEngine#ENTER}, {@link GeofenceEngine#EXIT}
+		 *         or {@link GeofenceEngine#DWELL}
+		 */
+		public int getType() {
+			return myType;
+		}
+
+		public Geofence getFence() {
+			return myFence;
+		}
+
+		public HasPosition getTarget() {
+			return myTarget;
+		}
+
+		/**
+		 * @return the time in seconds the target was inside the fence
+		 */
+		public float getTimeInside() {
+			return myTimeInside;
+		}
+	}
+
+	private static class Presence {
+		Geofence fence;
+		float time;
+		boolean dwellSent;
+	}
+
+	private static class Target {
+		final HasPosition obj;
+		boolean evaluated;
+		float lastX, lastY;
+		final EfficientList<Presence> inside = new EfficientList<Presence>();
+
+		Target(HasPosition obj) {
+			this.obj = obj;
+		}
+	}
+
+	/**
+	 * the order of the {@link StepListener}, after the objects and the physics
+	 */
+	public static final int STEP_ORDER = 300;
+
+	private static GeofenceEngine instance = new GeofenceEngine();
+
+	private final float myCellSize;
+	private float myMoveThreshold = DEFAULT_MOVE_THRESHOLD;
+	private final Geofence[][] myBuckets = new Geofence[TABLE_MASK + 1][];
+	private final int[] myBucketSizes = new int[TABLE_MASK + 1];
+	private final EfficientList<Geofence> myLargeFences = new EfficientList<Geofence>();
+	private final EfficientList<Geofence> myChangedFences = new EfficientList<Geofence>();
+	private final EfficientList<Target> myTargets = new EfficientList<Target>();
+	private final EfficientList<GeofenceListener> myListeners = new EfficientList<GeofenceListener>();
+	private final EfficientList<Event> myEvents = new EfficientList<Event>();
+	private Event[] myEventPool = new Event[16];
+	private int myEventPoolSize;
+	private Presence[] myPresencePool = new Presence[16];
+	private int myPresencePoolSize;
+	private int myQueryStamp;
+	private int myFenceCount;
+
+	// metrics:
+	private int myTestsInLastUpdate;
+	private float myLastUpdateDurationInMs;
+
+	public static GeofenceEngine getInstance() {
+		return instance;
+	}
+
+	public static void resetInstance() {
+		instance = new GeofenceEngine();
+	}
+
+	public GeofenceEngine() {
+		this(DEFAULT_CELL_SIZE);
+	}
+
+	/**
+	 * @param cellSize
+	 *            the size of the grid cells in virtual units. Should be about
+	 *            the size of a typical fence
+	 */
+	public GeofenceEngine(float cellSize) {
+		myCellSize = cellSize;
+	}
+
+	/**
+	 * @param moveThreshold
+	 *            a target has to move this far before it is evaluated again.
+	 *            Transitions can be detected that much too late
+	 */
+	public synchronized void setMoveThreshold(float moveThreshold) {
+		myMoveThreshold = moveThreshold;
+	}
+
+	public synchronized void addListener(GeofenceListener listener) {
+		if (myListeners.contains(listener) == -1) {
+			myListeners.add(listener);
+		}
+	}
+
+	public synchronized boolean removeListener(GeofenceListener listener) {
+		return myListeners.remove(listener);
+	}
+
+	/**
+	 * @param target
+	 *            e.g. the {@link gl.GLCamera} or a moving {@link Obj}
+	 */
+	public synchronized void addTarget(HasPosition target) {
+		if (findTarget(target) == null) {
+			myTargets.add(new Target(target));
+		}
+	}
+
+	/**
+	 * The target leaves its fences without {@link #EXIT} events
+	 *
+	 * @param target
+	 * @return false if the target was not added
+	 */
+	public synchronized boolean removeTarget(HasPosition target) {
+		Target t = findTarget(target);
+		if (t == null) {
+			return false;
+		}
+		while (!t.inside.isEmpty()) {
+			recyclePresence(t.inside, t.inside.myLength - 1);
+		}
+		return myTargets.remove(t);
+	}
+
+	private Target findTarget(HasPosition target) {
+		for (int i = 0; i < myTargets.myLength; i++) {
+			if (myTargets.get(i).obj == target) {
+				return myTargets.get(i);
+			}
+		}
+		return null;
+	}
+
+	public synchronized void add(Geofence fence) {
+		if (fence.myEngine != null) {
+			Log.e(LOG_TAG, fence + " was already added to a GeofenceEngine");
+			return;
+		}
+		fence.myEngine = this;
+		insert(fence);
+		myFenceCount++;
+		markChanged(fence);
+	}
+
+	/**
+	 * The targets leave the fence without {@link #EXIT} events
+	 *
+	 * @param fence
+	 * @return false if the fence was not added to this engine
+	 */
+	public synchronized boolean remove(Geofence fence) {
+		if (fence.myEngine != this) {
+			return false;
+		}
+		removeFromGrid(fence);
+		fence.myEngine = null;
+		myFenceCount--;
+		if (fence.myChanged) {
+			fence.myChanged = false;
+			myChangedFences.remove(fence);
+		}
+		for (int i = 0; i < myTargets.myLength; i++) {
+			EfficientList<Presence> inside = myTargets.get(i).inside;
+			int pos = indexOf(inside, fence);
+			if (pos != -1) {
+				recyclePresence(inside, pos);
+			}
+		}
+		return true;
+	}
+
+	synchronized void move(Geofence fence, float x, float y) {
+		removeFromGrid(fence);
+		fence.moveTo(x, y);
+		insert(fence);
+		markChanged(fence);
+	}
+
+	private void markChanged(Geofence fence) {
+		if (!fence.myChanged) {
+			fence.myChanged = true;
+			myChangedFences.add(fence);
+		}
+	}
+
+	private void clearChangedFences() {
+		if (myChangedFences.isEmpty()) {
+			return;
+		}
+		for (int i = 0; i < myChangedFences.myLength; i++) {
+			myChangedFences.get(i).myChanged = false;
+		}
+		myChangedFences.clear();
+	}
+
+	private int cellOf(float v) {
+		return (int) Math.floor(v / myCellSize);
+	}
+
+	private static int hash(int cx, int cy) {
+		return ((cx * 73856093) ^ (cy * 19349663)) & TABLE_MASK;
+	}
+
+	private boolean isLarge(Geofence f) {
+		long w = cellOf(f.maxX) - cellOf(f.minX) + 1;
+		long h = cellOf(f.maxY) - cellOf(f.minY) + 1;
+		return w * h > MAX_CELLS_PER_FENCE;
+	}
+
+	private void insert(Geofence f) {
+		if (isLarge(f)) {
+			myLargeFences.add(f);
+			return;
+		}
+		int maxCx = cellOf(f.maxX), maxCy = cellOf(f.maxY);
+		for (int cx = cellOf(f.minX); cx <= maxCx; cx++) {
+			for (int cy = cellOf(f.minY); cy <= maxCy; cy++) {
+				addToBucket(hash(cx, cy), f);
+			}
+		}
+	}
+
+	private void addToBucket(int b, Geofence f) {
+		Geofence[] bucket = myBuckets[b];
+		int size = myBucketSizes[b];
+		if (bucket == null) {
+			bucket = new Geofence[INITIAL_BUCKET_SIZE];
+			myBuckets[b] = bucket;
+		} else if (size == bucket.length) {
+			Geofence[] bigger = new Geofence[size * 2];
+			System.arraycopy(bucket, 0, bigger, 0, size);
+			bucket = bigger;
+			myBuckets[b] = bucket;
+		}
+		bucket[size] = f;
+		myBucketSizes[b] = size + 1;
+	}
+
+	private void removeFromGrid(Geofence f) {
+		if (isLarge(f)) {
+			myLargeFences.remove(f);
+			return;
+		}
+		int maxCx = cellOf(f.maxX), maxCy = cellOf(f.maxY);
+		for (int cx = cellOf(f.minX); cx <= maxCx; cx++) {
+			for (int cy = cellOf(f.minY); cy <= maxCy; cy++) {
+				int b = hash(cx, cy);
+				Geofence[] bucket = myBuckets[b];
+				int size = myBucketSizes[b];
+				for (int i = 0; i < size; i++) {
+					if (bucket[i] == f) {
+						// the order in the bucket does not matter:
+						bucket[i] = bucket[size - 1];
+						bucket[size - 1] = null;
+						myBucketSizes[b] = size - 1;
+						break;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Is called by the {@link SystemUpdater} after each update step
+	 *
+	 * @param timeDelta
+	 *            in seconds
+	 */
+	public synchronized void update(float timeDelta) {
+		if (myTargets.isEmpty()) {
+			clearChangedFences();
+			return;
+		}
+		final long startTime = System.nanoTime();
+		myTestsInLastUpdate = 0;
+		for (int i = 0; i < myTargets.myLength; i++) {
+			Target t = myTargets.get(i);
+			Vec pos = t.obj.getPosition();
+			if (pos == null) {
+				continue;
+			}
+			float dx = pos.x - t.lastX;
+			float dy = pos.y - t.lastY;
+			if (!t.evaluated
+					|| dx * dx + dy * dy > myMoveThreshold * myMoveThreshold) {
+				evaluate(t, pos.x, pos.y);
+			} else {
+				// only the fences which changed since the last update:
+				for (int j = 0; j < myChangedFences.myLength; j++) {
+					test(t, myChangedFences.get(j), t.lastX, t.lastY);
+				}
+			}
+			updateDwellTimes(t, timeDelta);
+		}
+		clearChangedFences();
+		dispatchEvents();
+		myLastUpdateDurationInMs = (System.nanoTime() - startTime) / 1000000f;
+	}
+
+	private void evaluate(Target t, float x, float y) {
+		t.evaluated = true;
+		t.lastX = x;
+		t.lastY = y;
+		// the fences the target left:
+		for (int i = t.inside.myLength - 1; i >= 0; i--) {
+			Presence p = t.inside.get(i);
+			myTestsInLastUpdate++;
+			if (!p.fence.contains(x, y)) {
+				addEvent(EXIT, p.fence, t, p.time);
+				recyclePresence(t.inside, i);
+			}
+		}
+		// the fences the target entered:
+		myQueryStamp++;
+		int b = hash(cellOf(x), cellOf(y));
+		Geofence[] bucket = myBuckets[b];
+		int size = myBucketSizes[b];
+		for (int i = 0; i < size; i++) {
+			testForEnter(t, bucket[i], x, y);
+		}
+		for (int i = 0; i < myLargeFences.myLength; i++) {
+			testForEnter(t, myLargeFences.get(i), x, y);
+		}
+	}
+
+	private void testForEnter(Target t, Geofence f, float x, float y) {
+		if (f.myLastQuery == myQueryStamp) {
+			return;
+		}
+		f.myLastQuery = myQueryStamp;
+		myTestsInLastUpdate++;
+		if (f.contains(x, y) && indexOf(t.inside, f) == -1) {
+			enter(t, f);
+		}
+	}
+
+	private void test(Target t, Geofence f, float x, float y) {
+		myTestsInLastUpdate++;
+		boolean isInside = f.contains(x, y);
+		int pos = indexOf(t.inside, f);
+		if (isInside && pos == -1) {
+			enter(t, f);
+		} else if (!isInside && pos != -1) {
+			addEvent(EXIT, f, t, t.inside.get(pos).time);
+			recyclePresence(t.inside, pos);
+		}
+	}
+
+	private void enter(Target t, Geofence f) {
+		Presence p = myPresencePoolSize == 0 ? new Presence()
+				: myPresencePool[--myPresencePoolSize];
+		p.fence = f;
+		p.time = 0;
+		p.dwellSent = false;
+		t.inside.add(p);
+		addEvent(ENTER, f, t, 0);
+	}
+
+	private void updateDwellTimes(Target t, float timeDelta) {
+		for (int i = 0; i < t.inside.myLength; i++) {
+			Presence p = t.inside.get(i);
+			p.time += timeDelta;
+			float dwellTime = p.fence.getDwellTime();
+			if (!p.dwellSent && dwellTime > 0 && p.time >= dwellTime) {
+				p.dwellSent = true;
+				addEvent(DWELL, p.fence, t, p.time);
+			}
+		}
+	}
+
+	private static int indexOf(EfficientList<Presence> inside, Geofence f) {
+		for (int i = 0; i < inside.myLength; i++) {
+			if (inside.get(i).fence == f) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private void recyclePresence(EfficientList<Presence> inside, int pos) {
+		Presence p = inside.get(pos);
+		inside.remove(p);
+		p.fence = null;
+		if (myPresencePoolSize == myPresencePool.length) {
+			Presence[] bigger = new Presence[myPresencePoolSize * 2];
+			System.arraycopy(myPresencePool, 0, bigger, 0, myPresencePoolSize);
+			myPresencePool = bigger;
+		}
+		myPresencePool[myPresencePoolSize++] = p;
+	}
+
+	private void addEvent(int type, Geofence f, Target t, float timeInside) {
+		Event e = myEventPoolSize == 0 ? new Event()
+				: myEventPool[--myEventPoolSize];
+		e.myType = type;
+		e.myFence = f;
+		e.myTarget = t.obj;
+		e.myTimeInside = timeInside;
+		myEvents.add(e);
+	}
+
+	private void dispatchEvents() {
+		if (myEvents.isEmpty()) {
+			return;
+		}
+		for (int i = 0; i < myListeners.myLength; i++) {
+			try {
+				myListeners.get(i).onGeofenceEvents(myEvents);
+			} catch (RuntimeException ex) {
+				Log.e(LOG_TAG, "Listener " + myListeners.get(i) + " failed: "
+						+ ex);
+			}
+		}
+		for (int i = 0; i < myEvents.myLength; i++) {
+			Event e = myEvents.get(i);
+			e.myFence = null;
+			e.myTarget = null;
+			if (myEventPoolSize == myEventPool.length) {
+				Event[] bigger = new Event[myEventPoolSize * 2];
+				System.arraycopy(myEventPool, 0, bigger, 0, myEventPoolSize);
+				myEventPool = bigger;
+			}
+			myEventPool[myEventPoolSize++] = e;
+		}
+		myEvents.clear();
+	}
+
+	/**
+	 * @param target
+	 * @param fence
+	 * @return true if the target was inside the fence at its last evaluation
+	 */
+	public synchronized boolean isInside(HasPosition target, Geofence fence) {
+		Target t = findTarget(target);
+		return t != null && indexOf(t.inside, fence) != -1;
+	}
+
+	public synchronized int getFenceCount() {
+		return myFenceCount;
+	}
+
+	/**
+	 * @return how many fences were tested in the last update
+	 */
+	public synchronized int getTestsInLastUpdate() {
+		return myTestsInLastUpdate;
+	}
+
+	public synchronized float getLastUpdateDurationInMs() {
+		return myLastUpdateDurationInMs;
+	}
+
+	@Override
+	public void showDebugInformation() {
+		Log.i(LOG_TAG, "Debug infos about the GeofenceEngine:");
+		Log.i(LOG_TAG, "   > fences=" + getFenceCount() + ", large fences="
+				+ myLargeFences.myLength + ", targets=" + myTargets.myLength);
+		Log.i(LOG_TAG, "   > last update: tests=" + getTestsInLastUpdate()
+				+ ", duration=" + getLastUpdateDurationInMs() + "ms");
+	}
+
+	@Override
+	public void onStep(float timeDelta) {
+		update(timeDelta);
+	}
+
+}
@@ -1,5 +1,6 @@
 package worlddata;
 
+import geo.GeoObj;
 import gl.GLCamera;
 import gl.HasPosition;
 
@@ -90,9 +91,10 @@ public class LargeWorld extends World {
 
 	/**
 	 * The current internal tree will be deleted and recreated. This is
-	 * expensive so do not call this too often!
+	 * expensive so do not call this too often! It is done automatically when
+	 * the {@link geo.FloatingOrigin} was moved
 	 */
-	public void rebuildTree() {
+	public synchronized void rebuildTree() {
 		final EfficientList<RenderableEntity> list = new EfficientList<RenderableEntity>();
 		tree.getAllItems(tree.new ResultListener() {
 			@Override
@@ -102,8 +104,19 @@ public class LargeWorld extends World {
 		});
 		tree.clear();
 		for (int i = 0; i < list.myLength; i++) {
-			this.add(list.get(i));
+			RenderableEntity x = list.get(i);
+			/*
+			 * the objects out of range are not updated, so their virtual
+			 * positions have to be refreshed before they are sorted in again:
+			 */
+			if (x instanceof GeoObj) {
+				((GeoObj) x).refreshVirtualPositionIfOriginMoved();
+			}
+			// they are already part of the world, only the tree is refilled:
+			add((HasPosition) x);
 		}
+		// the items in range are searched again with the next update:
+		itemsInRange = null;
 	}
 
 	@Override
@@ -121,6 +134,8 @@ public class LargeWorld extends World {
 
 	@Override
 	public boolean update(float timeDelta, Updateable parent) {
+		// also rebuilds the tree, see GeoCalcer:
+		rebaseIfOriginMoved();
 		EfficientList<RenderableEntity> list = getList(getMyCamera()
 				.getPosition().x, getMyCamera().getPosition().y);
 		for (int i = 0; i < list.myLength; i++) {
@@ -5,8 +5,14 @@ import gl.HasColor;
 import gl.HasPosition;
 import gl.ObjectPicker;
 import gl.Renderable;
+import gl.animations.TweenEngine;
 import gl.scenegraph.MeshComponent;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+
 import javax.microedition.khronos.opengles.GL10;
 
 import util.EfficientList;
@@ -20,8 +26,31 @@ public class Obj extends AbstractObj implements HasPosition, HasColor {
 
 	EfficientList<Entity> mComponents = new EfficientList<Entity>();
 
+	/**
+	 * stored in {@link Obj#mCompLookups} if there is no component of the
+	 * requested type, because null means that the type was not looked up yet
+	 */
+	private static final Object NO_COMP = new Object();
+
+	/**
+	 * The results of {@link Obj#getComp(Class)} and {@link Obj#getComps(Class)}
+	 * for each requested type. A map is never changed after it was assigned,
+	 * a lookup which is not cached yet assigns a changed copy, so other
+	 * threads can read the maps without a lock. Set to null if a component is
+	 * added or removed
+	 */
+	private volatile IdentityHashMap<Class<?>, Object> mCompLookups;
+	private volatile IdentityHashMap<Class<?>, List<?>> mCompsLookups;
+	/**
+	 * the number of components when the caches were filled, so that
+	 * components which are added directly to {@link Obj#getMyComponents()}
+	 * reset the caches too
+	 */
+	private int mLookupComponentCount;
+
 	public void setMyComponents(EfficientList<Entity> myComponents) {
 		this.mComponents = myComponents;
+		clearLookupCache();
 	}
 
 	private MeshComponent mGraphicsComponent;
@@ -80,6 +109,7 @@ public class Obj extends AbstractObj implements HasPosition, HasColor {
 		}
 		if (comp != null && mComponents.contains(comp) == -1) {
 			mComponents.add(comp);
+			clearLookupCache();
 		}
 	}
 
@@ -94,6 +124,7 @@ public class Obj extends AbstractObj implements HasPosition, HasColor {
 	@Deprecated
 	public void setMyGraphicsComponent(MeshComponent newGraphicsComponent) {
 		this.mGraphicsComponent = newGraphicsComponent;
+		clearLookupCache();
 	}
 
 	/**
@@ -146,10 +177,14 @@ public class Obj extends AbstractObj implements HasPosition, HasColor {
 	 * @return - true if successful
 	 */
 	public boolean remove(Entity compToRemove) {
+		// also called if the update of the component returned false:
+		TweenEngine.getInstance().cancelAllOf(compToRemove);
 		if (compToRemove instanceof MeshComponent) {
 			mGraphicsComponent = null;
 		}
-		return mComponents.remove(compToRemove);
+		boolean removed = mComponents.remove(compToRemove);
+		clearLookupCache();
+		return removed;
 	}
 
 	/**
@@ -166,12 +201,33 @@ public class Obj extends AbstractObj implements HasPosition, HasColor {
 	}
 
 	/**
+	 * The result is cached until a component is added or removed, so calling
+	 * this every frame only costs one map lookup no matter how many
+	 * components the {@link Obj} has
+	 * 
 	 * @param componentSubclass - class
 	 * @return - T
 	 */
 	@SuppressWarnings("unchecked")
 	public <T> T getComp(Class<T> componentSubclass) {
+		checkLookupCache();
+		IdentityHashMap<Class<?>, Object> lookups = mCompLookups;
+		if (lookups != null) {
+			Object result = lookups.get(componentSubclass);
+			if (result != null) {
+				return result == NO_COMP ? null : (T) result;
+			}
+		}
+		T result = searchComp(componentSubclass);
+		lookups = lookups == null ? new IdentityHashMap<Class<?>, Object>()
+				: new IdentityHashMap<Class<?>, Object>(lookups);
+		lookups.put(componentSubclass, result == null ? NO_COMP : result);
+		mCompLookups = lookups;
+		return result;
+	}
 
+	@SuppressWarnings("unchecked")
+	private <T> T searchComp(Class<T> componentSubclass) {
 		if (componentSubclass.isAssignableFrom(MeshComponent.class)) {
 			// Log.e(LOG_TAG, "Fast access to obj.meshcomp=" +
 			// mGraphicsComponent);
@@ -187,6 +243,61 @@ public class Obj extends AbstractObj implements HasPosition, HasColor {
 		return null;
 	}
 
+	/**
+	 * Like {@link Obj#getComp(Class)} but returns all matching components. The
+	 * list is cached in the same way and can not be modified. It is not
+	 * updated if a component is added or removed later, call this method
+	 * again instead
+	 * 
+	 * @param componentSubclass
+	 * @return an unmodifiable list which might be empty but never null
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> List<T> getComps(Class<T> componentSubclass) {
+		checkLookupCache();
+		IdentityHashMap<Class<?>, List<?>> lookups = mCompsLookups;
+		if (lookups != null) {
+			List<?> result = lookups.get(componentSubclass);
+			if (result != null) {
+				return (List<T>) result;
+			}
+		}
+		ArrayList<T> found = new ArrayList<T>();
+		for (int i = 0; i < mComponents.myLength; i++) {
+			Entity a = mComponents.get(i);
+			if (componentSubclass.isAssignableFrom(a.getClass())) {
+				found.add((T) a);
+			}
+		}
+		MeshComponent g = mGraphicsComponent;
+		if (g != null && componentSubclass.isInstance(g)
+				&& !found.contains(g)) {
+			found.add((T) g);
+		}
+		List<T> result = Collections.unmodifiableList(found);
+		lookups = lookups == null ? new IdentityHashMap<Class<?>, List<?>>()
+				: new IdentityHashMap<Class<?>, List<?>>(lookups);
+		lookups.put(componentSubclass, result);
+		mCompsLookups = lookups;
+		return result;
+	}
+
+	/**
+	 * clears the caches if components were added to or removed from
+	 * {@link Obj#getMyComponents()} directly
+	 */
+	private void checkLookupCache() {
+		if (mLookupComponentCount != mComponents.myLength) {
+			clearLookupCache();
+		}
+	}
+
+	private void clearLookupCache() {
+		mCompLookups = null;
+		mCompsLookups = null;
+		mLookupComponentCount = mComponents.myLength;
+	}
+
 	@Override
 	public Vec getPosition() {
 		MeshComponent g = getGraphicsComponent();
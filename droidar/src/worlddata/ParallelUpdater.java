@@ -0,0 +1,237 @@
+package worlddata;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import util.EfficientList;
+import util.Log;
+
+/**
+ * Updates the items of a list on all cores of the device. The list is split
+ * into more chunks than there are threads and each thread takes the next free
+ * chunk when it is done with its last one, so threads which got cheap objects
+ * help out the others. The calling thread works on the chunks as well and
+ * returns when all items are updated.
+ *
+ * {@link SequentialUpdateable}s are skipped in the parallel phase and updated
+ * one after another on the calling thread afterwards. The update methods of
+ * all other objects must not modify anything outside of the object itself,
+ * changes to the parent container have to be deferred (see
+ * {@link World#setParallelUpdate(boolean)}).
+ *
+ * @author Spobo
+ *
+ */
+public class ParallelUpdater {
+
+	private static final String LOG_TAG = "ParallelUpdater";
+
+	/**
+	 * smaller lists are updated on the calling thread because waking up the
+	 * other threads would take longer than the update itself
+	 */
+	public static final int MIN_ITEMS_FOR_PARALLEL_UPDATE = 256;
+	private static final int MIN_CHUNK_SIZE = 32;
+	private static final int CHUNKS_PER_THREAD = 4;
+
+	private static ParallelUpdater instance;
+
+	private final int myThreadCount;
+	private final ExecutorService myPool;
+	/**
+	 * only one list can be updated in parallel at a time, nested calls (e.g.
+	 * a {@link World} in a {@link World}) are done on the calling thread
+	 */
+	private final AtomicBoolean myBusy = new AtomicBoolean();
+
+	// the current job:
+	private EfficientList<? extends Updateable> myItems;
+	private int myLength;
+	private float myTimeDelta;
+	private Updateable myParent;
+	private boolean[] myResults;
+	private int myChunkSize;
+	private int myChunkCount;
+	private final AtomicInteger myNextChunk = new AtomicInteger();
+	private CountDownLatch myDoneSignal;
+	private volatile RuntimeException myFailure;
+
+	private final Runnable myWorker = new Runnable() {
+		@Override
+		public void run() {
+			try {
+				work();
+			} finally {
+				myDoneSignal.countDown();
+			}
+		}
+	};
+
+	/**
+	 * @param threadCount
+	 *            including the calling thread, so 1 means no parallel updates
+	 */
+	public ParallelUpdater(int threadCount) {
+		myThreadCount = Math.max(1, threadCount);
+		if (myThreadCount > 1) {
+			myPool = Executors.newFixedThreadPool(myThreadCount - 1,
+					new ThreadFactory() {
+						private int myCount;
+
+						@Override
+						public Thread newThread(Runnable r) {
+							Thread t = new Thread(r, LOG_TAG + "-" + myCount++);
+							t.setDaemon(true);
+							return t;
+						}
+					});
+		} else {
+			myPool = null;
+		}
+	}
+
+	/**
+	 * @return an updater which uses all available cores
+	 */
+	public static synchronized ParallelUpdater getInstance() {
+		if (instance == null) {
+			instance = new ParallelUpdater(Runtime.getRuntime()
+					.availableProcessors());
+		}
+		return instance;
+	}
+
+	public static synchronized void resetInstance() {
+		if (instance != null) {
+			instance.shutdown();
+			instance = null;
+		}
+	}
+
+	/**
+	 * @param items
+	 *            null entries are skipped
+	 * @param timeDelta
+	 * @param parent
+	 *            will be passed to {@link Updateable#update(float, Updateable)}
+	 * @param results
+	 *            can be null. Otherwise results[i] will be set to the return
+	 *            value of the update method of items.get(i) (true for null
+	 *            entries), so it has to be at least as long as the list
+	 */
+	public void update(EfficientList<? extends Updateable> items,
+			float timeDelta, Updateable parent, boolean[] results) {
+		int length = items.myLength;
+		if (myPool == null || length < MIN_ITEMS_FOR_PARALLEL_UPDATE
+				|| !myBusy.compareAndSet(false, true)) {
+			updateRange(items, 0, length, timeDelta, parent, results, true);
+			return;
+		}
+		try {
+			myItems = items;
+			myLength = length;
+			myTimeDelta = timeDelta;
+			myParent = parent;
+			myResults = results;
+			myFailure = null;
+			myChunkSize = Math.max(MIN_CHUNK_SIZE, length
+					/ (myThreadCount * CHUNKS_PER_THREAD) + 1);
+			myChunkCount = (length + myChunkSize - 1) / myChunkSize;
+			myNextChunk.set(0);
+			int helpers = Math.min(myThreadCount - 1, myChunkCount - 1);
+			myDoneSignal = new CountDownLatch(helpers);
+			for (int i = 0; i < helpers; i++) {
+				myPool.execute(myWorker);
+			}
+			work();
+			waitForHelpers();
+			if (myFailure != null) {
+				throw myFailure;
+			}
+			// now the objects which depend on others:
+			for (int i = 0; i < length; i++) {
+				Updateable u = items.get(i);
+				if (u instanceof SequentialUpdateable) {
+					boolean keep = u.update(timeDelta, parent);
+					if (results != null) {
+						results[i] = keep;
+					}
+				}
+			}
+		} finally {
+			myItems = null;
+			myParent = null;
+			myResults = null;
+			myBusy.set(false);
+		}
+	}
+
+	private void waitForHelpers() {
+		boolean interrupted = false;
+		while (true) {
+			try {
+				// the helpers access the list so they have to be done:
+				myDoneSignal.await();
+				break;
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void work() {
+		int chunk;
+		while ((chunk = myNextChunk.getAndIncrement()) < myChunkCount) {
+			int from = chunk * myChunkSize;
+			int to = Math.min(from + myChunkSize, myLength);
+			try {
+				updateRange(myItems, from, to, myTimeDelta, myParent,
+						myResults, false);
+			} catch (RuntimeException e) {
+				Log.e(LOG_TAG, "Error while updating items " + from + " to "
+						+ to + ": " + e);
+				myFailure = e;
+			}
+		}
+	}
+
+	private static void updateRange(EfficientList<? extends Updateable> items,
+			int from, int to, float timeDelta, Updateable parent,
+			boolean[] results, boolean includeSequential) {
+		for (int i = from; i < to; i++) {
+			Updateable u = items.get(i);
+			boolean keep = true;
+			if (u != null
+					&& (includeSequential || !(u instanceof SequentialUpdateable))) {
+				keep = u.update(timeDelta, parent);
+			}
+			if (results != null) {
+				results[i] = keep;
+			}
+		}
+	}
+
+	/**
+	 * @return the number of threads including the calling thread
+	 */
+	public int getThreadCount() {
+		return myThreadCount;
+	}
+
+	/**
+	 * Stops the worker threads, the updater can't be used afterwards
+	 */
+	public void shutdown() {
+		if (myPool != null) {
+			myPool.shutdown();
+		}
+	}
+
+}
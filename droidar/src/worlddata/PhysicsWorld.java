@@ -0,0 +1,842 @@
+package worlddata;
+
+import util.HasDebugInformation;
+import util.Log;
+import util.Vec;
+
+/**
+ * A lightweight physics simulation for AR games (e.g. items which can be
+ * pushed around). The bodies are spheres or axis aligned boxes and are stored
+ * in packed arrays, each body is identified by its handle.
+ *
+ * Each {@link #update(float)} is split into fixed substeps (see
+ * {@link #setFixedStep(float)}) so the simulation does not depend on the frame
+ * rate. A substep integrates all awake bodies, finds the potentially colliding
+ * pairs with a sweep and prune along the x axis (the order of the last step is
+ * reused, so sorting is nearly linear) and solves the contacts with impulses.
+ * Bodies which stay nearly still for {@link #SLEEP_TIME} seconds fall asleep
+ * and cost nothing until something hits them or a force is applied.
+ *
+ * The {@link SystemUpdater} updates the world after the objects were updated,
+ * use {@link components.PhysicsComponent} to connect an {@link Obj} to it.
+ *
+ * @author Spobo
+ *
+ */
+public class PhysicsWorld implements StepListener, HasDebugInformation {
+
+	private static final String LOG_TAG = "PhysicsWorld";
+
+	public static final int SPHERE = 0;
+	public static final int BOX = 1;
+
+	public static final float DEFAULT_FIXED_STEP = 1 / 60f;
+	/**
+	 * if an update needs more substeps the remaining time is dropped so that a
+	 * slow frame does not make the next one even slower
+	 */
+	public static final int MAX_SUBSTEPS = 8;
+	public static final float SLEEP_TIME = 0.5f;
+	private static final float SLEEP_VELOCITY = 0.05f;
+	/**
+	 * penetrations up to this depth are not corrected to avoid jitter
+	 */
+	private static final float PENETRATION_SLOP = 0.01f;
+	private static final float CORRECTION_PERCENT = 0.8f;
+	/**
+	 * contacts which close slower than this (plus the speed gravity adds in
+	 * one step) do not bounce, otherwise resting bodies never fall asleep
+	 */
+	private static final float MIN_BOUNCE_VELOCITY = 0.1f;
+	private static final int INITIAL_CAPACITY = 64;
+
+	private static final int FLAG_USED = 1;
+	private static final int FLAG_SLEEPING = 2;
+	/**
+	 * set for bodies with an owner, see {@link #keepAlive(int, Object)}
+	 */
+	private static final int FLAG_NEEDS_KEEP_ALIVE = 4;
+
+	public interface CollisionListener {
+		/**
+		 * Is called on the update thread at most once per update for each
+		 * pair of touching bodies
+		 *
+		 * @param handle
+		 *            the body the listener was set for
+		 * @param otherHandle
+		 */
+		public void onCollision(int handle, int otherHandle);
+	}
+
+	/**
+	 * the order of the {@link StepListener}, after the objects so that the forces they applied are used
+	 */
+	public static final int STEP_ORDER = 100;
+
+	private static PhysicsWorld instance = new PhysicsWorld();
+
+	private float myFixedStep = DEFAULT_FIXED_STEP;
+	private float myAccumulator;
+	private float myGravityX, myGravityY, myGravityZ;
+	/**
+	 * the part of the velocity which is lost per second
+	 */
+	private float myDamping = 0.1f;
+
+	// the data of each body by handle, x,y,z values are packed:
+	private float[] myPositions = new float[INITIAL_CAPACITY * 3];
+	private float[] myVelocities = new float[INITIAL_CAPACITY * 3];
+	private float[] myForces = new float[INITIAL_CAPACITY * 3];
+	/**
+	 * the radius for spheres and the half sizes for boxes
+	 */
+	private float[] myExtents = new float[INITIAL_CAPACITY * 3];
+	private float[] myInverseMasses = new float[INITIAL_CAPACITY];
+	private float[] myRestitutions = new float[INITIAL_CAPACITY];
+	private float[] myStillTimes = new float[INITIAL_CAPACITY];
+	private int[] myShapes = new int[INITIAL_CAPACITY];
+	private int[] myFlags = new int[INITIAL_CAPACITY];
+	private long[] myLastAliveStep = new long[INITIAL_CAPACITY];
+	private Object[] myOwners = new Object[INITIAL_CAPACITY];
+	private CollisionListener[] myListeners = new CollisionListener[INITIAL_CAPACITY];
+	private int[] myFreeSlots = new int[INITIAL_CAPACITY];
+	private int myFreeSlotCount;
+	private int mySlotCount;
+	private int myCount;
+	private long myStepCount;
+	private long myLastUpdateStep;
+
+	// the broad phase:
+	private float[] myBounds = new float[INITIAL_CAPACITY * 6];
+	private int[] myOrder = new int[INITIAL_CAPACITY];
+	private int myOrderLength;
+
+	/**
+	 * the closing speed below which a contact does not bounce, see
+	 * {@link #MIN_BOUNCE_VELOCITY}
+	 */
+	private float myBounceThreshold;
+
+	// the result of the last narrow phase test:
+	private float myNormalX, myNormalY, myNormalZ, myDepth;
+
+	// the contacts which have to be reported after the update:
+	private int[] myContacts = new int[32];
+	private int myContactCount;
+
+	// metrics:
+	private int myPairTestsInLastUpdate;
+	private int myCollisionsInLastUpdate;
+	private int mySubstepsInLastUpdate;
+	private float myLastUpdateDurationInMs;
+
+	public static PhysicsWorld getInstance() {
+		return instance;
+	}
+
+	public static void resetInstance() {
+		instance = new PhysicsWorld();
+	}
+
+	/**
+	 * @param fixedStepInSeconds
+	 *            the length of one simulation step, default is
+	 *            {@link #DEFAULT_FIXED_STEP}
+	 */
+	public synchronized void setFixedStep(float fixedStepInSeconds) {
+		if (fixedStepInSeconds <= 0) {
+			Log.e(LOG_TAG, "The fixed step has to be > 0");
+			return;
+		}
+		myFixedStep = fixedStepInSeconds;
+	}
+
+	/**
+	 * @param gravity
+	 *            in m/s^2, e.g. (0,0,-9.81) because the z axis points up. The
+	 *            default is no gravity
+	 */
+	public synchronized void setGravity(Vec gravity) {
+		myGravityX = gravity.x;
+		myGravityY = gravity.y;
+		myGravityZ = gravity.z;
+	}
+
+	/**
+	 * @param dampingPerSecond
+	 *            between 0 (no damping) and 1 (bodies stop immediately)
+	 */
+	public synchronized void setDamping(float dampingPerSecond) {
+		myDamping = dampingPerSecond;
+	}
+
+	/**
+	 * @param mass
+	 *            0 for static bodies which are never moved by the simulation
+	 * @return the handle of the new body
+	 */
+	public synchronized int addSphere(Vec position, float radius, float mass) {
+		int handle = addBody(SPHERE, position, mass);
+		myExtents[handle * 3] = radius;
+		myExtents[handle * 3 + 1] = radius;
+		myExtents[handle * 3 + 2] = radius;
+		return handle;
+	}
+
+	/**
+	 * @param halfSize
+	 *            the half width, depth and height of the box
+	 * @param mass
+	 *            0 for static bodies which are never moved by the simulation
+	 * @return the handle of the new body
+	 */
+	public synchronized int addBox(Vec position, Vec halfSize, float mass) {
+		int handle = addBody(BOX, position, mass);
+		myExtents[handle * 3] = halfSize.x;
+		myExtents[handle * 3 + 1] = halfSize.y;
+		myExtents[handle * 3 + 2] = halfSize.z;
+		return handle;
+	}
+
+	private int addBody(int shape, Vec position, float mass) {
+		int slot;
+		if (myFreeSlotCount > 0) {
+			slot = myFreeSlots[--myFreeSlotCount];
+		} else {
+			if (mySlotCount == myFlags.length) {
+				grow(mySlotCount * 2);
+			}
+			slot = mySlotCount++;
+		}
+		final int j = slot * 3;
+		myPositions[j] = position.x;
+		myPositions[j + 1] = position.y;
+		myPositions[j + 2] = position.z;
+		for (int k = j; k < j + 3; k++) {
+			myVelocities[k] = 0;
+			myForces[k] = 0;
+		}
+		myInverseMasses[slot] = mass > 0 ? 1 / mass : 0;
+		myRestitutions[slot] = 0.5f;
+		myStillTimes[slot] = 0;
+		myShapes[slot] = shape;
+		myFlags[slot] = FLAG_USED;
+		myOwners[slot] = null;
+		myListeners[slot] = null;
+		myOrder[myOrderLength++] = slot;
+		myCount++;
+		return slot;
+	}
+
+	private void grow(int capacity) {
+		myPositions = copy(myPositions, capacity * 3);
+		myVelocities = copy(myVelocities, capacity * 3);
+		myForces = copy(myForces, capacity * 3);
+		myExtents = copy(myExtents, capacity * 3);
+		myBounds = copy(myBounds, capacity * 6);
+		myInverseMasses = copy(myInverseMasses, capacity);
+		myRestitutions = copy(myRestitutions, capacity);
+		myStillTimes = copy(myStillTimes, capacity);
+		myShapes = copy(myShapes, capacity);
+		myFlags = copy(myFlags, capacity);
+		myOrder = copy(myOrder, capacity);
+		myFreeSlots = copy(myFreeSlots, capacity);
+		long[] a = new long[capacity];
+		System.arraycopy(myLastAliveStep, 0, a, 0, myLastAliveStep.length);
+		myLastAliveStep = a;
+		Object[] o = new Object[capacity];
+		System.arraycopy(myOwners, 0, o, 0, myOwners.length);
+		myOwners = o;
+		CollisionListener[] l = new CollisionListener[capacity];
+		System.arraycopy(myListeners, 0, l, 0, myListeners.length);
+		myListeners = l;
+	}
+
+	private static float[] copy(float[] source, int capacity) {
+		float[] target = new float[capacity];
+		System.arraycopy(source, 0, target, 0, source.length);
+		return target;
+	}
+
+	private static int[] copy(int[] source, int capacity) {
+		int[] target = new int[capacity];
+		System.arraycopy(source, 0, target, 0, source.length);
+		return target;
+	}
+
+	/**
+	 * @param handle
+	 * @return false if the body was already removed
+	 */
+	public synchronized boolean remove(int handle) {
+		if (!isUsed(handle)) {
+			return false;
+		}
+		releaseSlot(handle);
+		removeUnusedFromOrder();
+		return true;
+	}
+
+	/**
+	 * the slot stays in {@link #myOrder} until
+	 * {@link #removeUnusedFromOrder()} is called
+	 */
+	private void releaseSlot(int handle) {
+		myFlags[handle] = 0;
+		myOwners[handle] = null;
+		myListeners[handle] = null;
+		myFreeSlots[myFreeSlotCount++] = handle;
+		myCount--;
+	}
+
+	private void removeUnusedFromOrder() {
+		int k = 0;
+		for (int i = 0; i < myOrderLength; i++) {
+			if ((myFlags[myOrder[i]] & FLAG_USED) != 0) {
+				myOrder[k++] = myOrder[i];
+			}
+		}
+		myOrderLength = k;
+	}
+
+	private boolean isUsed(int handle) {
+		return handle >= 0 && handle < mySlotCount
+				&& (myFlags[handle] & FLAG_USED) != 0;
+	}
+
+	/**
+	 * @param handle
+	 * @param owner
+	 *            e.g. the {@link Obj} of the body. If an owner is set, the
+	 *            body has to be kept alive with {@link #keepAlive(int, Object)}
+	 *            in each update, otherwise it is removed
+	 */
+	public synchronized void setOwner(int handle, Object owner) {
+		if (!isUsed(handle)) {
+			return;
+		}
+		myOwners[handle] = owner;
+		myLastAliveStep[handle] = myStepCount;
+		if (owner != null) {
+			myFlags[handle] |= FLAG_NEEDS_KEEP_ALIVE;
+		} else {
+			myFlags[handle] &= ~FLAG_NEEDS_KEEP_ALIVE;
+		}
+	}
+
+	public synchronized Object getOwner(int handle) {
+		return isUsed(handle) ? myOwners[handle] : null;
+	}
+
+	/**
+	 * @param handle
+	 * @param owner
+	 *            the owner which was passed to {@link #setOwner(int, Object)}
+	 * @return false if the body was removed in the meantime, then it has to be
+	 *         added again
+	 */
+	public synchronized boolean keepAlive(int handle, Object owner) {
+		if (!isUsed(handle) || myOwners[handle] != owner) {
+			return false;
+		}
+		myLastAliveStep[handle] = myStepCount;
+		return true;
+	}
+
+	public synchronized void setCollisionListener(int handle,
+			CollisionListener listener) {
+		if (isUsed(handle)) {
+			myListeners[handle] = listener;
+		}
+	}
+
+	/**
+	 * @param handle
+	 * @param restitution
+	 *            0 for no bounce, 1 for a perfectly elastic bounce
+	 */
+	public synchronized void setRestitution(int handle, float restitution) {
+		myRestitutions[handle] = restitution;
+	}
+
+	/**
+	 * The force is applied during all substeps of the next update which runs
+	 * at least one substep
+	 */
+	public synchronized void applyForce(int handle, Vec force) {
+		final int j = handle * 3;
+		myForces[j] += force.x;
+		myForces[j + 1] += force.y;
+		myForces[j + 2] += force.z;
+		wakeUp(handle);
+	}
+
+	public synchronized void setVelocity(int handle, Vec velocity) {
+		final int j = handle * 3;
+		myVelocities[j] = velocity.x;
+		myVelocities[j + 1] = velocity.y;
+		myVelocities[j + 2] = velocity.z;
+		wakeUp(handle);
+	}
+
+	public synchronized void setPosition(int handle, Vec position) {
+		final int j = handle * 3;
+		myPositions[j] = position.x;
+		myPositions[j + 1] = position.y;
+		myPositions[j + 2] = position.z;
+		wakeUp(handle);
+	}
+
+	/**
+	 * @param handle
+	 * @param target
+	 *            will be set to the position of the body
+	 * @return the target
+	 */
+	public synchronized Vec getPosition(int handle, Vec target) {
+		final int j = handle * 3;
+		target.x = myPositions[j];
+		target.y = myPositions[j + 1];
+		target.z = myPositions[j + 2];
+		return target;
+	}
+
+	public synchronized Vec getVelocity(int handle, Vec target) {
+		final int j = handle * 3;
+		target.x = myVelocities[j];
+		target.y = myVelocities[j + 1];
+		target.z = myVelocities[j + 2];
+		return target;
+	}
+
+	public synchronized boolean isSleeping(int handle) {
+		return (myFlags[handle] & FLAG_SLEEPING) != 0;
+	}
+
+	private void wakeUp(int handle) {
+		myFlags[handle] &= ~FLAG_SLEEPING;
+		myStillTimes[handle] = 0;
+	}
+
+	private boolean isAwakeAndDynamic(int handle) {
+		return myInverseMasses[handle] != 0
+				&& (myFlags[handle] & FLAG_SLEEPING) == 0;
+	}
+
+	/**
+	 * Is called by the {@link SystemUpdater} after each update step
+	 *
+	 * @param timeDelta
+	 */
+	public void update(float timeDelta) {
+		int contactCount;
+		int[] contacts;
+		synchronized (this) {
+			final long startTime = System.nanoTime();
+			myStepCount++;
+			removeDeadBodies();
+			myLastUpdateStep = myStepCount;
+			myContactCount = 0;
+			myPairTestsInLastUpdate = 0;
+			myCollisionsInLastUpdate = 0;
+			myAccumulator += timeDelta;
+			int substeps = 0;
+			while (myAccumulator >= myFixedStep && substeps < MAX_SUBSTEPS) {
+				step(myFixedStep);
+				myAccumulator -= myFixedStep;
+				substeps++;
+			}
+			if (substeps == MAX_SUBSTEPS) {
+				myAccumulator = 0;
+			}
+			/*
+			 * the forces are used by all substeps of one update. If the update
+			 * was too short for a substep they are kept for the next one:
+			 */
+			if (substeps > 0) {
+				for (int i = 0; i < mySlotCount * 3; i++) {
+					myForces[i] = 0;
+				}
+			}
+			mySubstepsInLastUpdate = substeps;
+			myLastUpdateDurationInMs = (System.nanoTime() - startTime) / 1000000f;
+			contactCount = myContactCount;
+			contacts = myContacts;
+		}
+		/*
+		 * the listeners are informed outside of the lock so that they can add
+		 * or remove bodies:
+		 */
+		for (int i = 0; i < contactCount * 2; i += 2) {
+			informListener(contacts[i], contacts[i + 1]);
+			informListener(contacts[i + 1], contacts[i]);
+		}
+	}
+
+	private void informListener(int handle, int otherHandle) {
+		CollisionListener l = myListeners[handle];
+		if (l != null) {
+			l.onCollision(handle, otherHandle);
+		}
+	}
+
+	private void removeDeadBodies() {
+		boolean removed = false;
+		for (int i = 0; i < mySlotCount; i++) {
+			if ((myFlags[i] & FLAG_NEEDS_KEEP_ALIVE) != 0
+					&& myLastAliveStep[i] < myLastUpdateStep) {
+				releaseSlot(i);
+				removed = true;
+			}
+		}
+		// the order is compacted once for all removed bodies:
+		if (removed) {
+			removeUnusedFromOrder();
+		}
+	}
+
+	private void step(float dt) {
+		final float g = (float) Math.sqrt(myGravityX * myGravityX + myGravityY
+				* myGravityY + myGravityZ * myGravityZ);
+		myBounceThreshold = MIN_BOUNCE_VELOCITY + g * dt;
+		integrate(dt);
+		updateBounds();
+		sortByMinX();
+		sweepAndSolve();
+		updateSleeping(dt);
+	}
+
+	/**
+	 * semi implicit euler integration of all awake bodies
+	 */
+	private void integrate(float dt) {
+		final float[] p = myPositions;
+		final float[] v = myVelocities;
+		final float[] f = myForces;
+		final float keep = Math.max(0, 1 - myDamping * dt);
+		for (int i = 0, j = 0; i < mySlotCount; i++, j += 3) {
+			if ((myFlags[i] & FLAG_USED) == 0 || !isAwakeAndDynamic(i)) {
+				continue;
+			}
+			final float im = myInverseMasses[i];
+			v[j] = (v[j] + (myGravityX + f[j] * im) * dt) * keep;
+			v[j + 1] = (v[j + 1] + (myGravityY + f[j + 1] * im) * dt) * keep;
+			v[j + 2] = (v[j + 2] + (myGravityZ + f[j + 2] * im) * dt) * keep;
+			p[j] += v[j] * dt;
+			p[j + 1] += v[j + 1] * dt;
+			p[j + 2] += v[j + 2] * dt;
+		}
+	}
+
+	private void updateBounds() {
+		final float[] p = myPositions;
+		final float[] e = myExtents;
+		final float[] b = myBounds;
+		for (int n = 0; n < myOrderLength; n++) {
+			final int i = myOrder[n];
+			final int j = i * 3;
+			final int k = i * 6;
+			b[k] = p[j] - e[j];
+			b[k + 1] = p[j] + e[j];
+			b[k + 2] = p[j + 1] - e[j + 1];
+			b[k + 3] = p[j + 1] + e[j + 1];
+			b[k + 4] = p[j + 2] - e[j + 2];
+			b[k + 5] = p[j + 2] + e[j + 2];
+		}
+	}
+
+	/**
+	 * insertion sort by the min x value. The bodies move only a little per
+	 * step, so the order of the last step is nearly sorted already
+	 */
+	private void sortByMinX() {
+		final int[] o = myOrder;
+		final float[] b = myBounds;
+		for (int n = 1; n < myOrderLength; n++) {
+			final int body = o[n];
+			final float minX = b[body * 6];
+			int m = n - 1;
+			while (m >= 0 && b[o[m] * 6] > minX) {
+				o[m + 1] = o[m];
+				m--;
+			}
+			o[m + 1] = body;
+		}
+	}
+
+	private void sweepAndSolve() {
+		final int[] o = myOrder;
+		final float[] b = myBounds;
+		final int length = myOrderLength;
+		for (int n = 0; n < length; n++) {
+			final int a = o[n];
+			final int ka = a * 6;
+			final float maxX = b[ka + 1];
+			final boolean aActive = isAwakeAndDynamic(a);
+			for (int m = n + 1; m < length; m++) {
+				final int c = o[m];
+				final int kc = c * 6;
+				if (b[kc] > maxX) {
+					break; // all following bodies start even further right
+				}
+				if (!aActive && !isAwakeAndDynamic(c)) {
+					continue;
+				}
+				if (b[kc + 2] > b[ka + 3] || b[kc + 3] < b[ka + 2]
+						|| b[kc + 4] > b[ka + 5] || b[kc + 5] < b[ka + 4]) {
+					continue;
+				}
+				myPairTestsInLastUpdate++;
+				if (collide(a, c)) {
+					myCollisionsInLastUpdate++;
+					solve(a, c);
+					if (myListeners[a] != null || myListeners[c] != null) {
+						addContact(a, c);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * The narrow phase, sets {@link #myNormalX} etc to the contact normal
+	 * (pointing from a to b) and {@link #myDepth} to the penetration depth
+	 *
+	 * @return true if the bodies overlap
+	 */
+	private boolean collide(int a, int b) {
+		final int shapeA = myShapes[a];
+		final int shapeB = myShapes[b];
+		if (shapeA == SPHERE && shapeB == SPHERE) {
+			return collideSpheres(a, b);
+		}
+		if (shapeA == BOX && shapeB == BOX) {
+			return collideBoxes(a, b);
+		}
+		if (shapeA == SPHERE) {
+			return collideSphereBox(a, b, 1);
+		}
+		return collideSphereBox(b, a, -1);
+	}
+
+	private boolean collideSpheres(int a, int b) {
+		final float[] p = myPositions;
+		final int ja = a * 3, jb = b * 3;
+		final float dx = p[jb] - p[ja];
+		final float dy = p[jb + 1] - p[ja + 1];
+		final float dz = p[jb + 2] - p[ja + 2];
+		final float r = myExtents[ja] + myExtents[jb];
+		final float dSq = dx * dx + dy * dy + dz * dz;
+		if (dSq >= r * r) {
+			return false;
+		}
+		final float d = (float) Math.sqrt(dSq);
+		if (d == 0) {
+			setContact(0, 0, 1, r);
+		} else {
+			setContact(dx / d, dy / d, dz / d, r - d);
+		}
+		return true;
+	}
+
+	private boolean collideBoxes(int a, int b) {
+		final float[] bo = myBounds;
+		final int ka = a * 6, kb = b * 6;
+		// the overlap on each axis, the smallest one is the contact normal:
+		float ox = Math.min(bo[ka + 1], bo[kb + 1]) - Math.max(bo[ka], bo[kb]);
+		float oy = Math.min(bo[ka + 3], bo[kb + 3])
+				- Math.max(bo[ka + 2], bo[kb + 2]);
+		float oz = Math.min(bo[ka + 5], bo[kb + 5])
+				- Math.max(bo[ka + 4], bo[kb + 4]);
+		if (ox <= 0 || oy <= 0 || oz <= 0) {
+			return false;
+		}
+		final float[] p = myPositions;
+		final int ja = a * 3, jb = b * 3;
+		if (ox <= oy && ox <= oz) {
+			setContact(p[jb] >= p[ja] ? 1 : -1, 0, 0, ox);
+		} else if (oy <= oz) {
+			setContact(0, p[jb + 1] >= p[ja + 1] ? 1 : -1, 0, oy);
+		} else {
+			setContact(0, 0, p[jb + 2] >= p[ja + 2] ? 1 : -1, oz);
+		}
+		return true;
+	}
+
+	/**
+	 * @param sign
+	 *            1 if the normal should point from the sphere to the box, -1
+	 *            for the other direction
+	 */
+	private boolean collideSphereBox(int sphere, int box, int sign) {
+		final float[] p = myPositions;
+		final int js = sphere * 3, kb = box * 6;
+		final float sx = p[js], sy = p[js + 1], sz = p[js + 2];
+		final float r = myExtents[js];
+		// the closest point of the box to the sphere center:
+		final float cx = clamp(sx, myBounds[kb], myBounds[kb + 1]);
+		final float cy = clamp(sy, myBounds[kb + 2], myBounds[kb + 3]);
+		final float cz = clamp(sz, myBounds[kb + 4], myBounds[kb + 5]);
+		final float dx = cx - sx, dy = cy - sy, dz = cz - sz;
+		final float dSq = dx * dx + dy * dy + dz * dz;
+		if (dSq >= r * r) {
+			return false;
+		}
+		if (dSq > 0) {
+			final float d = (float) Math.sqrt(dSq);
+			setContact(sign * dx / d, sign * dy / d, sign * dz / d, r - d);
+			return true;
+		}
+		// the center is inside the box, push it out on the nearest side:
+		final int jb = box * 3;
+		final float[] e = myExtents;
+		final float px = e[jb] - Math.abs(sx - p[jb]);
+		final float py = e[jb + 1] - Math.abs(sy - p[jb + 1]);
+		final float pz = e[jb + 2] - Math.abs(sz - p[jb + 2]);
+		if (px <= py && px <= pz) {
+			setContact(sign * (sx < p[jb] ? 1 : -1), 0, 0, px + r);
+		} else if (py <= pz) {
+			setContact(0, sign * (sy < p[jb + 1] ? 1 : -1), 0, py + r);
+		} else {
+			setContact(0, 0, sign * (sz < p[jb + 2] ? 1 : -1), pz + r);
+		}
+		return true;
+	}
+
+	private static float clamp(float value, float min, float max) {
+		return value < min ? min : (value > max ? max : value);
+	}
+
+	private void setContact(float nx, float ny, float nz, float depth) {
+		myNormalX = nx;
+		myNormalY = ny;
+		myNormalZ = nz;
+		myDepth = depth;
+	}
+
+	/**
+	 * applies an impulse along the contact normal and pushes the bodies apart
+	 */
+	private void solve(int a, int b) {
+		final float ima = myInverseMasses[a];
+		final float imb = myInverseMasses[b];
+		final float imSum = ima + imb;
+		if (imSum == 0) {
+			return;
+		}
+		// a sleeping body which is hit has to wake up:
+		if ((myFlags[a] & FLAG_SLEEPING) != 0) {
+			wakeUp(a);
+		}
+		if ((myFlags[b] & FLAG_SLEEPING) != 0) {
+			wakeUp(b);
+		}
+		final float[] v = myVelocities;
+		final float[] p = myPositions;
+		final int ja = a * 3, jb = b * 3;
+		final float nx = myNormalX, ny = myNormalY, nz = myNormalZ;
+		final float vn = (v[jb] - v[ja]) * nx + (v[jb + 1] - v[ja + 1]) * ny
+				+ (v[jb + 2] - v[ja + 2]) * nz;
+		if (vn < 0) {
+			final float e = -vn < myBounceThreshold ? 0 : Math.min(
+					myRestitutions[a], myRestitutions[b]);
+			final float j = -(1 + e) * vn / imSum;
+			v[ja] -= j * ima * nx;
+			v[ja + 1] -= j * ima * ny;
+			v[ja + 2] -= j * ima * nz;
+			v[jb] += j * imb * nx;
+			v[jb + 1] += j * imb * ny;
+			v[jb + 2] += j * imb * nz;
+		}
+		final float depth = myDepth - PENETRATION_SLOP;
+		if (depth > 0) {
+			final float c = depth / imSum * CORRECTION_PERCENT;
+			p[ja] -= c * ima * nx;
+			p[ja + 1] -= c * ima * ny;
+			p[ja + 2] -= c * ima * nz;
+			p[jb] += c * imb * nx;
+			p[jb + 1] += c * imb * ny;
+			p[jb + 2] += c * imb * nz;
+		}
+	}
+
+	private void addContact(int a, int b) {
+		// each pair is only reported once per update:
+		for (int i = 0; i < myContactCount * 2; i += 2) {
+			if (myContacts[i] == a && myContacts[i + 1] == b
+					|| myContacts[i] == b && myContacts[i + 1] == a) {
+				return;
+			}
+		}
+		if (myContactCount * 2 == myContacts.length) {
+			myContacts = copy(myContacts, myContacts.length * 2);
+		}
+		myContacts[myContactCount * 2] = a;
+		myContacts[myContactCount * 2 + 1] = b;
+		myContactCount++;
+	}
+
+	private void updateSleeping(float dt) {
+		final float[] v = myVelocities;
+		final float maxSq = SLEEP_VELOCITY * SLEEP_VELOCITY;
+		for (int i = 0, j = 0; i < mySlotCount; i++, j += 3) {
+			if ((myFlags[i] & FLAG_USED) == 0 || !isAwakeAndDynamic(i)) {
+				continue;
+			}
+			if (v[j] * v[j] + v[j + 1] * v[j + 1] + v[j + 2] * v[j + 2] > maxSq) {
+				myStillTimes[i] = 0;
+			} else {
+				myStillTimes[i] += dt;
+				if (myStillTimes[i] >= SLEEP_TIME) {
+					myFlags[i] |= FLAG_SLEEPING;
+					v[j] = v[j + 1] = v[j + 2] = 0;
+				}
+			}
+		}
+	}
+
+	public synchronized int getBodyCount() {
+		return myCount;
+	}
+
+	public synchronized int getSleepingCount() {
+		int sleeping = 0;
+		for (int i = 0; i < mySlotCount; i++) {
+			if ((myFlags[i] & FLAG_USED) != 0
+					&& (myFlags[i] & FLAG_SLEEPING) != 0) {
+				sleeping++;
+			}
+		}
+		return sleeping;
+	}
+
+	/**
+	 * @return the number of narrow phase tests in the last update, to see how
+	 *         well the broad phase works
+	 */
+	public synchronized int getPairTestsInLastUpdate() {
+		return myPairTestsInLastUpdate;
+	}
+
+	public synchronized int getCollisionsInLastUpdate() {
+		return myCollisionsInLastUpdate;
+	}
+
+	@Override
+	public void showDebugInformation() {
+		Log.i(LOG_TAG, "Debug infos about the PhysicsWorld:");
+		Log.i(LOG_TAG, "   > bodies=" + getBodyCount() + ", sleeping="
+				+ getSleepingCount() + ", slots=" + mySlotCount);
+		Log.i(LOG_TAG, "   > last update: substeps=" + mySubstepsInLastUpdate
+				+ ", pair tests=" + getPairTestsInLastUpdate()
+				+ ", collisions=" + getCollisionsInLastUpdate()
+				+ ", duration=" + myLastUpdateDurationInMs + "ms");
+	}
+
+	@Override
+	public void onStep(float timeDelta) {
+		update(timeDelta);
+	}
+
+}
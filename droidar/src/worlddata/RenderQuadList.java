@@ -3,6 +3,7 @@ package worlddata;
 import gl.GLCamera;
 import gl.HasPosition;
 import gl.Renderable;
+import gl.animations.TweenEngine;
 
 import javax.microedition.khronos.opengles.GL10;
 
@@ -41,6 +42,10 @@ public class RenderQuadList implements RenderableEntity,
 	private boolean wasClearedAtLeastOnce = false;
 	private Updateable myParent;
 
+	private boolean myParallelUpdate;
+	private volatile boolean myDeferChanges;
+	private final DeferredChanges<RenderableEntity> myDeferredChanges = new DeferredChanges<RenderableEntity>();
+
 	/**
 	 * @param glCamera
 	 * @param renderDistance
@@ -93,6 +98,17 @@ public class RenderQuadList implements RenderableEntity,
 		setMyParent(parent);
 		Vec p = myGlCamera.getPosition();
 		EfficientList<RenderableEntity> list = getList(p.x, p.y);
+		if (myParallelUpdate) {
+			myDeferChanges = true;
+			try {
+				ParallelUpdater.getInstance().update(list, timeDelta, this,
+						null);
+			} finally {
+				myDeferChanges = false;
+			}
+			myDeferredChanges.applyTo(this);
+			return true;
+		}
 		for (int i = 0; i < list.myLength; i++) {
 			RenderableEntity obj = list.get(i);
 			if (obj != null)
@@ -101,6 +117,15 @@ public class RenderQuadList implements RenderableEntity,
 		return true;
 	}
 
+	/**
+	 * see {@link World#setParallelUpdate(boolean)}
+	 * 
+	 * @param parallelUpdate
+	 */
+	public void setParallelUpdate(boolean parallelUpdate) {
+		myParallelUpdate = parallelUpdate;
+	}
+
 	@Override
 	public boolean accept(Visitor visitor) {
 		if (allItems != null)
@@ -209,6 +234,10 @@ public class RenderQuadList implements RenderableEntity,
 
 	@Override
 	public boolean add(RenderableEntity newElement) {
+		if (myDeferChanges) {
+			myDeferredChanges.add(newElement);
+			return true;
+		}
 		if (newElement instanceof HasPosition)
 			return add((HasPosition) newElement);
 		Log.w(LOG_TAG, "Object was not added to the RenderQuadList "
@@ -248,6 +277,11 @@ public class RenderQuadList implements RenderableEntity,
 
 	@Override
 	public boolean remove(RenderableEntity x) {
+		TweenEngine.getInstance().cancelAllOf(x);
+		if (myDeferChanges) {
+			myDeferredChanges.remove(x);
+			return allItems != null && allItems.contains(x) >= 0;
+		}
 		if (tree != null) {
 			boolean rt = tree.remove(x);
 			boolean rl = allItems.remove(x);
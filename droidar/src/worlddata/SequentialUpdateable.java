@@ -0,0 +1,16 @@
+package worlddata;
+
+/**
+ * Implement this instead of {@link Updateable} if the update method of an
+ * object reads or changes other objects of the world (e.g. it follows another
+ * object or adds new objects). If the parallel update is enabled (see
+ * {@link World#setParallelUpdate(boolean)}) such objects are not updated
+ * together with the others but one after another on the update thread after
+ * all independent objects were updated.
+ *
+ * @author Spobo
+ *
+ */
+public interface SequentialUpdateable extends Updateable {
+
+}
@@ -0,0 +1,21 @@
+package worlddata;
+
+/**
+ * A subsystem which is advanced once per fixed step of the
+ * {@link SystemUpdater}, see
+ * {@link SystemUpdater#addStepListener(StepListener, int)}. The current
+ * instances of engines like the {@link PhysicsWorld} are registered by the
+ * {@link setup.ArSetup}.
+ * 
+ * @author Spobo
+ * 
+ */
+public interface StepListener {
+
+	/**
+	 * @param timeDelta
+	 *            the length of the step in seconds
+	 */
+	public void onStep(float timeDelta);
+
+}
@@ -1,26 +1,85 @@
 package worlddata;
 
+import gl.RenderStateExchange;
 import util.EfficientList;
-import android.os.SystemClock;
-import android.util.Log;
+import util.HasDebugInformation;
+import util.Log;
 
-public class SystemUpdater implements Runnable {
+/**
+ * Updates all added {@link Updateable}s with a fixed time step. The passed
+ * time is collected and as many steps as fit into it are executed (at most
+ * {@link SystemUpdater#setMaxStepsPerTick(int)}), so the simulation runs with
+ * the same speed on slow and fast devices and the update thread only sleeps
+ * until the next step is due.
+ *
+ * If the updates take longer than the step itself the updater switches to an
+ * overload mode where only one update with the complete passed time is done
+ * per tick instead of falling further and further behind.
+ *
+ * Subsystems which have to be advanced once per step (tweens, physics,
+ * timers..) register a {@link StepListener} via
+ * {@link SystemUpdater#addStepListener(StepListener, int)}.
+ *
+ * @author Spobo
+ *
+ */
+public class SystemUpdater implements Runnable, HasDebugInformation {
 
 	private final String LOG_TAG = "SystemUpdater";
-	/*
-	 * delay should be reduced if the game process gets more complecated! TODO
-	 * do this dynamically so that each update cycle is about 20ms long
+
+	/**
+	 * 20ms, so 50 updates per second
+	 */
+	public static final float DEFAULT_FIXED_STEP = 0.02f;
+	public static final int DEFAULT_MAX_STEPS_PER_TICK = 5;
+	/**
+	 * how many ticks in a row have to hit the max steps limit to switch to the
+	 * overload mode
 	 */
-	private static final long GAME_THREAD_DELAY = 20;
-	private boolean running = true;
+	private static final int OVERLOAD_TICKS_TO_ENTER = 3;
+	/**
+	 * how many ticks in a row have to be fast enough again to leave the
+	 * overload mode
+	 */
+	private static final int OVERLOAD_TICKS_TO_LEAVE = 25;
+	private static final float AVERAGE_FACTOR = 0.05f;
+
+	private static class StepEntry {
+		final StepListener listener;
+		final int order;
+
+		StepEntry(StepListener listener, int order) {
+			this.listener = listener;
+			this.order = order;
+		}
+	}
 
 	/**
-	 * this is the delay the WorldUpdater checks if it has to return from
-	 * sleeping when paused and a resume request happens
+	 * the step listeners sorted by their order, replaced on each change so
+	 * that the update thread can iterate them without a lock
 	 */
-	private static final long GAME_THREAD_NOT_KILLED_DELAY = 700;
-	private boolean notKilled = true;
-	private long lastTimeInMs;
+	private volatile StepEntry[] myStepListeners = new StepEntry[0];
+
+	private volatile boolean running = true;
+	private volatile boolean notKilled = true;
+	private final Object myPauseLock = new Object();
+
+	private float myFixedStep = DEFAULT_FIXED_STEP;
+	private int myMaxStepsPerTick = DEFAULT_MAX_STEPS_PER_TICK;
+	private float myAccumulator;
+	private long myLastTimeInNs;
+
+	private boolean myOverloaded;
+	private int myCappedTicksInRow;
+	private int myFastTicksInRow;
+
+	// metrics:
+	private long myTickCount;
+	private int myStepsInLastTick;
+	private float myLastTickDurationInMs;
+	private float myAverageTickDurationInMs;
+	private float myMaxTickDurationInMs;
+	private float myDroppedTime;
 
 	private EfficientList<Updateable> myObjectsToUpdate = new EfficientList<Updateable>();
 
@@ -36,31 +95,190 @@ public class SystemUpdater implements Runnable {
 			if (myObjectsToUpdate.get(i) instanceof UpdatableWithInit)
 				((UpdatableWithInit) myObjectsToUpdate.get(i)).init();
 		}
-		lastTimeInMs = SystemClock.uptimeMillis();
+		myLastTimeInNs = System.nanoTime();
 		while (notKilled) {
-			while (running) {
-				final long currentTime = SystemClock.uptimeMillis();
-				final float timeDelta = (currentTime - lastTimeInMs) / 1000.0f;
-				lastTimeInMs = currentTime;
-				for (int i = 0; i < myObjectsToUpdate.myLength; i++) {
-					if (!myObjectsToUpdate.get(i).update(timeDelta, null)) {
-						myObjectsToUpdate.remove(myObjectsToUpdate.get(i));
-					}
+			if (!running) {
+				waitWhilePaused();
+				// the paused time should not be simulated:
+				myLastTimeInNs = System.nanoTime();
+				continue;
+			}
+			final long currentTime = System.nanoTime();
+			tick((currentTime - myLastTimeInNs) / 1000000000f);
+			myLastTimeInNs = currentTime;
+			sleepUntilNextStep();
+		}
+	}
+
+	/**
+	 * Executes all steps which fit into the passed time. Normally called by
+	 * {@link SystemUpdater#run()}
+	 *
+	 * @param passedTimeInSeconds
+	 *            the time since the last tick
+	 * @return the number of executed update steps
+	 */
+	public int tick(float passedTimeInSeconds) {
+		final long startTime = System.nanoTime();
+		myAccumulator += passedTimeInSeconds;
+		final float maxTime = myMaxStepsPerTick * myFixedStep;
+		boolean capped = myAccumulator > maxTime;
+		if (capped) {
+			// the time which can't be simulated anymore is dropped:
+			myDroppedTime += myAccumulator - maxTime;
+			myAccumulator = maxTime;
+		}
+
+		int steps = 0;
+		if (myOverloaded) {
+			/*
+			 * one bigger step instead of many small ones, objects move less
+			 * smooth but the simulation keeps up with the real time
+			 */
+			if (myAccumulator >= myFixedStep) {
+				updateAll(myAccumulator);
+				myAccumulator = 0;
+				steps = 1;
+			}
+		} else {
+			while (myAccumulator >= myFixedStep) {
+				updateAll(myFixedStep);
+				myAccumulator -= myFixedStep;
+				steps++;
+			}
+		}
+		if (steps > 0) {
+			// hand the new state over to the renderer:
+			RenderStateExchange.getInstance().publish();
+		}
+
+		float duration = (System.nanoTime() - startTime) / 1000000f;
+		updateOverloadMode(capped, duration);
+		myTickCount++;
+		myStepsInLastTick = steps;
+		myLastTickDurationInMs = duration;
+		myAverageTickDurationInMs += AVERAGE_FACTOR
+				* (duration - myAverageTickDurationInMs);
+		if (duration > myMaxTickDurationInMs) {
+			myMaxTickDurationInMs = duration;
+		}
+		return steps;
+	}
+
+	private void updateAll(float timeDelta) {
+		final StepEntry[] listeners = myStepListeners;
+		int i = 0;
+		for (; i < listeners.length && listeners[i].order < 0; i++) {
+			listeners[i].listener.onStep(timeDelta);
+		}
+		for (int j = 0; j < myObjectsToUpdate.myLength; j++) {
+			if (!myObjectsToUpdate.get(j).update(timeDelta, null)) {
+				myObjectsToUpdate.remove(myObjectsToUpdate.get(j));
+			}
+		}
+		for (; i < listeners.length; i++) {
+			listeners[i].listener.onStep(timeDelta);
+		}
+	}
+
+	/**
+	 * Registers a subsystem which is advanced in every update step of this
+	 * {@link SystemUpdater}. The engines like the {@link PhysicsWorld} are
+	 * registered on the updater of the app by the {@link setup.ArSetup}.
+	 * Listeners with a negative order run before the
+	 * {@link Updateable}s are updated (e.g. tweens, so that the objects see
+	 * the new values), the others after them (e.g. physics which use the
+	 * forces the objects applied). Listeners with a smaller order run first.
+	 * 
+	 * @param listener
+	 * @param order
+	 */
+	public synchronized void addStepListener(StepListener listener, int order) {
+		if (listener == null) {
+			return;
+		}
+		removeStepListener(listener);
+		final StepEntry[] old = myStepListeners;
+		StepEntry[] listeners = new StepEntry[old.length + 1];
+		int pos = 0;
+		// listeners with the same order keep the order they were added in:
+		while (pos < old.length && old[pos].order <= order) {
+			pos++;
+		}
+		System.arraycopy(old, 0, listeners, 0, pos);
+		listeners[pos] = new StepEntry(listener, order);
+		System.arraycopy(old, pos, listeners, pos + 1, old.length - pos);
+		myStepListeners = listeners;
+	}
+
+	/**
+	 * @param listener
+	 * @return true if the listener was registered
+	 */
+	public synchronized boolean removeStepListener(StepListener listener) {
+		final StepEntry[] old = myStepListeners;
+		for (int i = 0; i < old.length; i++) {
+			if (old[i].listener == listener) {
+				StepEntry[] listeners = new StepEntry[old.length - 1];
+				System.arraycopy(old, 0, listeners, 0, i);
+				System.arraycopy(old, i + 1, listeners, i, old.length - i - 1);
+				myStepListeners = listeners;
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void updateOverloadMode(boolean capped, float durationInMs) {
+		if (!myOverloaded) {
+			myCappedTicksInRow = capped ? myCappedTicksInRow + 1 : 0;
+			if (myCappedTicksInRow >= OVERLOAD_TICKS_TO_ENTER) {
+				Log.w(LOG_TAG, "Updates take too long (" + durationInMs
+						+ "ms), switching to overload mode");
+				myOverloaded = true;
+				myCappedTicksInRow = 0;
+				myFastTicksInRow = 0;
+			}
+		} else {
+			boolean fast = !capped && durationInMs < myFixedStep * 1000 / 2;
+			myFastTicksInRow = fast ? myFastTicksInRow + 1 : 0;
+			if (myFastTicksInRow >= OVERLOAD_TICKS_TO_LEAVE) {
+				Log.i(LOG_TAG, "Leaving overload mode");
+				myOverloaded = false;
+				myFastTicksInRow = 0;
+			}
+		}
+	}
+
+	private void sleepUntilNextStep() {
+		long sleepTimeInMs = (long) ((myFixedStep - myAccumulator) * 1000);
+		if (sleepTimeInMs <= 0) {
+			Thread.yield();
+			return;
+		}
+		synchronized (myPauseLock) {
+			try {
+				// can be woken up early by pause or kill requests:
+				if (running && notKilled) {
+					myPauseLock.wait(sleepTimeInMs);
 				}
+			} catch (InterruptedException e) {
+				e.printStackTrace();
+				killUpdaterThread();
+			}
+		}
+	}
 
+	private void waitWhilePaused() {
+		synchronized (myPauseLock) {
+			while (!running && notKilled) {
 				try {
-					Thread.sleep(GAME_THREAD_DELAY);
+					myPauseLock.wait();
 				} catch (InterruptedException e) {
 					e.printStackTrace();
 					killUpdaterThread();
 				}
 			}
-			try {
-				Thread.sleep(GAME_THREAD_NOT_KILLED_DELAY);
-			} catch (InterruptedException e) {
-				e.printStackTrace();
-				killUpdaterThread();
-			}
 		}
 	}
 
@@ -78,11 +296,17 @@ public class SystemUpdater implements Runnable {
 	}
 
 	public void pauseUpdater() {
-		running = false;
+		synchronized (myPauseLock) {
+			running = false;
+			myPauseLock.notifyAll();
+		}
 	}
 
 	public void resumeUpdater() {
-		running = true;
+		synchronized (myPauseLock) {
+			running = true;
+			myPauseLock.notifyAll();
+		}
 	}
 
 	/**
@@ -91,8 +315,90 @@ public class SystemUpdater implements Runnable {
 	 * it completely with this method
 	 */
 	public void killUpdaterThread() {
-		notKilled = false;
-		running = false;
+		synchronized (myPauseLock) {
+			notKilled = false;
+			running = false;
+			myPauseLock.notifyAll();
+		}
+	}
+
+	/**
+	 * @param fixedStepInSeconds
+	 *            the timeDelta every {@link Updateable} will get, default is
+	 *            {@link SystemUpdater#DEFAULT_FIXED_STEP}
+	 */
+	public void setFixedStep(float fixedStepInSeconds) {
+		if (fixedStepInSeconds <= 0) {
+			Log.e(LOG_TAG, "The fixed step has to be > 0");
+			return;
+		}
+		myFixedStep = fixedStepInSeconds;
+	}
+
+	public float getFixedStep() {
+		return myFixedStep;
+	}
+
+	/**
+	 * @param maxStepsPerTick
+	 *            how many steps can be done at once to catch up if the update
+	 *            thread was delayed. Time beyond that is dropped
+	 */
+	public void setMaxStepsPerTick(int maxStepsPerTick) {
+		myMaxStepsPerTick = Math.max(1, maxStepsPerTick);
+	}
+
+	public int getMaxStepsPerTick() {
+		return myMaxStepsPerTick;
+	}
+
+	/**
+	 * @return true if the updates are currently too slow for the fixed step
+	 *         and only one update per tick is done
+	 */
+	public boolean isOverloaded() {
+		return myOverloaded;
+	}
+
+	public long getTickCount() {
+		return myTickCount;
+	}
+
+	public int getStepsInLastTick() {
+		return myStepsInLastTick;
+	}
+
+	public float getLastTickDurationInMs() {
+		return myLastTickDurationInMs;
+	}
+
+	public float getAverageTickDurationInMs() {
+		return myAverageTickDurationInMs;
+	}
+
+	public float getMaxTickDurationInMs() {
+		return myMaxTickDurationInMs;
+	}
+
+	/**
+	 * @return the time in seconds which was not simulated because the max
+	 *         steps limit was reached
+	 */
+	public float getDroppedTime() {
+		return myDroppedTime;
+	}
+
+	@Override
+	public void showDebugInformation() {
+		Log.i(LOG_TAG, "Debug infos about the SystemUpdater:");
+		Log.i(LOG_TAG, "   > fixed step=" + myFixedStep + "s, max steps="
+				+ myMaxStepsPerTick);
+		Log.i(LOG_TAG, "   > ticks=" + myTickCount + ", overloaded="
+				+ myOverloaded);
+		Log.i(LOG_TAG, "   > tick duration: last=" + myLastTickDurationInMs
+				+ "ms, average=" + myAverageTickDurationInMs + "ms, max="
+				+ myMaxTickDurationInMs + "ms");
+		Log.i(LOG_TAG, "   > dropped time=" + myDroppedTime + "s");
 	}
 
 }
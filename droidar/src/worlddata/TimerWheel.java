@@ -0,0 +1,316 @@
+package worlddata;
+
+import util.HasDebugInformation;
+import util.Log;
+
+/**
+ * A hierarchical timing wheel for periodic work. Instead of adding up the
+ * time in every update cycle (like the {@link UpdateTimer} does) the timers
+ * are sorted into slots by the time they are due, so each tick only the due
+ * timers cost time, no matter how many timers are waiting.
+ *
+ * There are {@link #LEVELS} wheels with {@link #SLOTS} slots each. The first
+ * wheel has a slot per tick ({@link #RESOLUTION}), the slots of each next
+ * wheel cover a complete turn of the previous wheel. When a wheel completes a
+ * turn the next slot of the wheel above is moved down.
+ *
+ * The {@link SystemUpdater} advances the wheel after each update step. Use
+ * {@link WheelUpdateTimer} in components instead of using the wheel directly.
+ *
+ * @author Spobo
+ *
+ */
+public class TimerWheel implements StepListener, HasDebugInformation {
+
+	private static final String LOG_TAG = "TimerWheel";
+
+	/**
+	 * the length of one tick in seconds
+	 */
+	public static final float RESOLUTION = 0.01f;
+	private static final int SLOT_BITS = 6;
+	public static final int SLOTS = 1 << SLOT_BITS;
+	private static final int SLOT_MASK = SLOTS - 1;
+	public static final int LEVELS = 4;
+	/**
+	 * about 46 hours
+	 */
+	private static final long MAX_INTERVAL_IN_TICKS = (1L << (SLOT_BITS * LEVELS)) - 1;
+
+	public interface TimerListener {
+		/**
+		 * @param passedTime
+		 *            the time in seconds since the timer was scheduled or
+		 *            called the last time
+		 * @return false to stop the timer
+		 */
+		public boolean onTimer(float passedTime);
+	}
+
+	/**
+	 * A scheduled timer, see
+	 * {@link TimerWheel#schedule(float, TimerListener)}
+	 */
+	public static class Entry {
+		private final TimerWheel myWheel;
+		private final TimerListener myListener;
+		private long myInterval;
+		private long myExpiry;
+		private long myLastCall;
+		private volatile boolean cancelled;
+		private Entry next;
+
+		private Entry(TimerWheel wheel, TimerListener listener, long interval) {
+			myWheel = wheel;
+			myListener = listener;
+			myInterval = interval;
+		}
+
+		public void cancel() {
+			myWheel.cancel(this);
+		}
+
+		TimerWheel getWheel() {
+			return myWheel;
+		}
+
+		/**
+		 * @return false if the timer was cancelled, its listener returned false
+		 *         or the {@link TimerWheel} was reset
+		 */
+		public boolean isActive() {
+			return !cancelled && !myWheel.disposed;
+		}
+
+		/**
+		 * @param intervalInSeconds
+		 *            is used after the next call of the listener
+		 */
+		public void setInterval(float intervalInSeconds) {
+			myInterval = toTicks(intervalInSeconds);
+		}
+	}
+
+	/**
+	 * the order of the {@link StepListener}, after the objects and the physics
+	 */
+	public static final int STEP_ORDER = 200;
+
+	private static TimerWheel instance = new TimerWheel();
+
+	/**
+	 * the first entry of each slot (single linked lists)
+	 */
+	private final Entry[][] mySlots = new Entry[LEVELS][SLOTS];
+	private long myCurrentTick;
+	private double myAccumulator;
+	private volatile long myStepCount;
+	private volatile boolean disposed;
+	private int myActiveTimers;
+	private int myCallsInLastStep;
+	/**
+	 * the entries which are due in the current tick, only used by
+	 * {@link #advance(float)}
+	 */
+	private Entry[] myDue = new Entry[16];
+
+	public static TimerWheel getInstance() {
+		return instance;
+	}
+
+	/**
+	 * All timers of the old wheel are stopped
+	 */
+	public static void resetInstance() {
+		instance.disposed = true;
+		instance = new TimerWheel();
+	}
+
+	static long toTicks(float seconds) {
+		long ticks = Math.round(seconds / RESOLUTION);
+		if (ticks < 1) {
+			return 1;
+		}
+		return Math.min(ticks, MAX_INTERVAL_IN_TICKS);
+	}
+
+	/**
+	 * @param intervalInSeconds
+	 *            how often the listener should be called, will be rounded to
+	 *            {@link #RESOLUTION}
+	 * @param listener
+	 * @return the entry which can be used to cancel the timer
+	 */
+	public synchronized Entry schedule(float intervalInSeconds,
+			TimerListener listener) {
+		Entry e = new Entry(this, listener, toTicks(intervalInSeconds));
+		e.myLastCall = myCurrentTick;
+		e.myExpiry = myCurrentTick + e.myInterval;
+		insert(e);
+		myActiveTimers++;
+		return e;
+	}
+
+	/**
+	 * The entry is only marked as cancelled, it will be removed from its slot
+	 * when the slot is processed the next time
+	 *
+	 * @param e
+	 */
+	public synchronized void cancel(Entry e) {
+		if (!e.cancelled) {
+			e.cancelled = true;
+			myActiveTimers--;
+		}
+	}
+
+	private void insert(Entry e) {
+		long delta = e.myExpiry - myCurrentTick;
+		int level = 0;
+		while (level < LEVELS - 1 && delta >= (1L << (SLOT_BITS * (level + 1)))) {
+			level++;
+		}
+		int slot = (int) ((e.myExpiry >> (SLOT_BITS * level)) & SLOT_MASK);
+		e.next = mySlots[level][slot];
+		mySlots[level][slot] = e;
+	}
+
+	/**
+	 * Is called by the {@link SystemUpdater} after each update step. The
+	 * listeners of the due timers are called after the lock of the wheel is
+	 * released, so they can block or use other locked subsystems
+	 *
+	 * @param timeDelta
+	 *            in seconds
+	 */
+	public void advance(float timeDelta) {
+		synchronized (this) {
+			myStepCount++;
+			myCallsInLastStep = 0;
+			myAccumulator += timeDelta;
+		}
+		while (true) {
+			int dueCount;
+			Entry[] due;
+			synchronized (this) {
+				if (myAccumulator < RESOLUTION) {
+					return;
+				}
+				myAccumulator -= RESOLUTION;
+				dueCount = tick();
+				due = myDue;
+			}
+			for (int i = 0; i < dueCount; i++) {
+				call(due[i]);
+				due[i] = null;
+			}
+		}
+	}
+
+	/**
+	 * @return the number of due entries which were collected in
+	 *         {@link #myDue}
+	 */
+	private int tick() {
+		myCurrentTick++;
+		// move the slots of the upper wheels down if a wheel turned around:
+		for (int level = 1; level < LEVELS; level++) {
+			if (((myCurrentTick >> (SLOT_BITS * (level - 1))) & SLOT_MASK) != 0) {
+				break;
+			}
+			int slot = (int) ((myCurrentTick >> (SLOT_BITS * level)) & SLOT_MASK);
+			Entry e = mySlots[level][slot];
+			mySlots[level][slot] = null;
+			while (e != null) {
+				Entry next = e.next;
+				if (!e.cancelled) {
+					insert(e);
+				}
+				e = next;
+			}
+		}
+
+		int slot = (int) (myCurrentTick & SLOT_MASK);
+		Entry e = mySlots[0][slot];
+		mySlots[0][slot] = null;
+		int dueCount = 0;
+		while (e != null) {
+			Entry next = e.next;
+			e.next = null;
+			if (!e.cancelled) {
+				if (dueCount == myDue.length) {
+					Entry[] a = new Entry[dueCount * 2];
+					System.arraycopy(myDue, 0, a, 0, dueCount);
+					myDue = a;
+				}
+				myDue[dueCount++] = e;
+			}
+			e = next;
+		}
+		return dueCount;
+	}
+
+	/**
+	 * calls the listener without holding the lock and reschedules the entry
+	 * afterwards
+	 */
+	private void call(Entry e) {
+		final long currentTick;
+		synchronized (this) {
+			if (e.cancelled) {
+				return;
+			}
+			currentTick = myCurrentTick;
+			myCallsInLastStep++;
+		}
+		float passedTime = (currentTick - e.myLastCall) * RESOLUTION;
+		e.myLastCall = currentTick;
+		boolean keepRunning;
+		try {
+			keepRunning = e.myListener.onTimer(passedTime);
+		} catch (RuntimeException ex) {
+			Log.e(LOG_TAG, "Timer " + e.myListener + " failed: " + ex);
+			keepRunning = false;
+		}
+		synchronized (this) {
+			if (!keepRunning) {
+				cancel(e);
+			} else if (!e.cancelled) {
+				e.myExpiry = currentTick + e.myInterval;
+				insert(e);
+			}
+		}
+	}
+
+	/**
+	 * @return how often {@link #advance(float)} was called
+	 */
+	public long getStepCount() {
+		return myStepCount;
+	}
+
+	public synchronized int getActiveTimerCount() {
+		return myActiveTimers;
+	}
+
+	/**
+	 * @return the number of timers which were due in the last step
+	 */
+	public synchronized int getCallsInLastStep() {
+		return myCallsInLastStep;
+	}
+
+	@Override
+	public void showDebugInformation() {
+		Log.i(LOG_TAG, "Debug infos about the TimerWheel:");
+		Log.i(LOG_TAG, "   > active timers=" + getActiveTimerCount());
+		Log.i(LOG_TAG, "   > calls in last step=" + getCallsInLastStep());
+		Log.i(LOG_TAG, "   > current time=" + myCurrentTick * RESOLUTION + "s");
+	}
+
+	@Override
+	public void onStep(float timeDelta) {
+		advance(timeDelta);
+	}
+
+}
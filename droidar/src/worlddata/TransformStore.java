@@ -0,0 +1,433 @@
+package worlddata;
+
+import gl.Color;
+import gl.HasColor;
+import gl.HasPosition;
+import gl.HasRotation;
+import gl.HasScale;
+import util.Calculus;
+import util.HasDebugInformation;
+import util.Log;
+import util.Vec;
+
+/**
+ * Stores the position, rotation, scale, color and flags of many lightweight
+ * objects (e.g. thousands of POIs) in one float array per value instead of one
+ * {@link Obj} with a {@link gl.scenegraph.MeshComponent} and several
+ * {@link Vec}s per object. The animation, culling and distance calculations
+ * are done in tight loops over these arrays.
+ *
+ * Each object is identified by its slot, see {@link #allocate()}. A
+ * {@link View} can be used where a {@link HasPosition} etc is needed. The
+ * store is drawn by a {@link gl.scenegraph.InstancedMesh} which can be added
+ * to a normal {@link Obj}, so the world, the visitors and the update cycle do
+ * not have to know about the store.
+ *
+ * The values are written on the update thread. The renderer does not read
+ * them directly, the {@link gl.scenegraph.InstancedMesh} copies the visible
+ * objects into a {@link gl.RenderSnapshot} in each update. Code which reads
+ * the store from another thread has to synchronize on the store, because
+ * {@link #allocate()} can replace all arrays.
+ *
+ * @author Spobo
+ *
+ */
+public class TransformStore implements HasDebugInformation {
+
+	private static final String LOG_TAG = "TransformStore";
+
+	public static final int FLAG_USED = 1;
+	/**
+	 * cleared by {@link #cullByDistance(float, float, float, float)}
+	 */
+	public static final int FLAG_VISIBLE = 2;
+	/**
+	 * set if the object should be drawn with its own color
+	 */
+	public static final int FLAG_HAS_COLOR = 4;
+	/**
+	 * the first flag which is not used by the store itself
+	 */
+	public static final int FLAG_CUSTOM = 1 << 8;
+
+	private static final int INITIAL_CAPACITY = 64;
+
+	/**
+	 * A lightweight view on one slot of the store which can be used where a
+	 * {@link HasPosition}, {@link HasRotation}, {@link HasScale} or
+	 * {@link HasColor} is expected. The getters return new objects, changing
+	 * them does not change the store
+	 */
+	public static class View implements HasPosition, HasRotation, HasScale,
+			HasColor {
+
+		private final TransformStore myStore;
+		private final int mySlot;
+
+		private View(TransformStore store, int slot) {
+			myStore = store;
+			mySlot = slot;
+		}
+
+		public int getSlot() {
+			return mySlot;
+		}
+
+		@Override
+		public Vec getPosition() {
+			return myStore.getPosition(mySlot, new Vec());
+		}
+
+		@Override
+		public void setPosition(Vec p) {
+			myStore.setPosition(mySlot, p.x, p.y, p.z);
+		}
+
+		@Override
+		public Vec getRotation() {
+			TransformStore s = myStore;
+			return new Vec(s.rx[mySlot], s.ry[mySlot], s.rz[mySlot]);
+		}
+
+		@Override
+		public void setRotation(Vec r) {
+			myStore.setRotation(mySlot, r.x, r.y, r.z);
+		}
+
+		@Override
+		public Vec getScale() {
+			TransformStore s = myStore;
+			return new Vec(s.sx[mySlot], s.sy[mySlot], s.sz[mySlot]);
+		}
+
+		@Override
+		public void setScale(Vec scale) {
+			myStore.setScale(mySlot, scale.x, scale.y, scale.z);
+		}
+
+		@Override
+		public Color getColor() {
+			TransformStore s = myStore;
+			if ((s.flags[mySlot] & FLAG_HAS_COLOR) == 0) {
+				return null;
+			}
+			return new Color(s.red[mySlot], s.green[mySlot], s.blue[mySlot],
+					s.alpha[mySlot]);
+		}
+
+		@Override
+		public void setColor(Color c) {
+			myStore.setColor(mySlot, c.red, c.green, c.blue, c.alpha);
+		}
+	}
+
+	// the values of each slot, x, y and z are the positions:
+	float[] x, y, z;
+	float[] rx, ry, rz;
+	float[] sx, sy, sz;
+	float[] red, green, blue, alpha;
+	/**
+	 * rotation speed around the z axis in degree per second
+	 */
+	float[] spin;
+	int[] flags;
+
+	private int[] myFreeSlots;
+	private int myFreeSlotCount;
+	private int mySlotCount;
+	private int myCount;
+	private int myVisibleCount;
+
+	public TransformStore() {
+		resize(INITIAL_CAPACITY);
+	}
+
+	private void resize(int capacity) {
+		x = copy(x, capacity);
+		y = copy(y, capacity);
+		z = copy(z, capacity);
+		rx = copy(rx, capacity);
+		ry = copy(ry, capacity);
+		rz = copy(rz, capacity);
+		sx = copy(sx, capacity);
+		sy = copy(sy, capacity);
+		sz = copy(sz, capacity);
+		red = copy(red, capacity);
+		green = copy(green, capacity);
+		blue = copy(blue, capacity);
+		alpha = copy(alpha, capacity);
+		spin = copy(spin, capacity);
+		int[] f = new int[capacity];
+		int[] free = new int[capacity];
+		if (flags != null) {
+			System.arraycopy(flags, 0, f, 0, flags.length);
+			System.arraycopy(myFreeSlots, 0, free, 0, myFreeSlots.length);
+		}
+		flags = f;
+		myFreeSlots = free;
+	}
+
+	private static float[] copy(float[] source, int capacity) {
+		float[] target = new float[capacity];
+		if (source != null) {
+			System.arraycopy(source, 0, target, 0, source.length);
+		}
+		return target;
+	}
+
+	/**
+	 * @return the slot of the new object. It is at 0,0,0 with scale 1 and
+	 *         visible
+	 */
+	public synchronized int allocate() {
+		int slot;
+		if (myFreeSlotCount > 0) {
+			slot = myFreeSlots[--myFreeSlotCount];
+		} else {
+			if (mySlotCount == flags.length) {
+				resize(mySlotCount * 2);
+			}
+			slot = mySlotCount++;
+		}
+		x[slot] = y[slot] = z[slot] = 0;
+		rx[slot] = ry[slot] = rz[slot] = 0;
+		sx[slot] = sy[slot] = sz[slot] = 1;
+		red[slot] = green[slot] = blue[slot] = alpha[slot] = 1;
+		spin[slot] = 0;
+		flags[slot] = FLAG_USED | FLAG_VISIBLE;
+		myCount++;
+		return slot;
+	}
+
+	/**
+	 * @param slot
+	 * @return false if the slot was not in use
+	 */
+	public synchronized boolean release(int slot) {
+		if (!isUsed(slot)) {
+			return false;
+		}
+		flags[slot] = 0;
+		myFreeSlots[myFreeSlotCount++] = slot;
+		myCount--;
+		return true;
+	}
+
+	public boolean isUsed(int slot) {
+		return slot >= 0 && slot < mySlotCount
+				&& (flags[slot] & FLAG_USED) != 0;
+	}
+
+	/**
+	 * @param slot
+	 * @return a new {@link View} on the slot
+	 */
+	public View getView(int slot) {
+		return new View(this, slot);
+	}
+
+	public void setPosition(int slot, float px, float py, float pz) {
+		x[slot] = px;
+		y[slot] = py;
+		z[slot] = pz;
+	}
+
+	/**
+	 * @param slot
+	 * @param target
+	 *            will be set to the position
+	 * @return the target
+	 */
+	public Vec getPosition(int slot, Vec target) {
+		target.x = x[slot];
+		target.y = y[slot];
+		target.z = z[slot];
+		return target;
+	}
+
+	/**
+	 * @param slot
+	 * @param angleX
+	 *            in degree, see {@link HasRotation#setRotation(Vec)}
+	 * @param angleY
+	 * @param angleZ
+	 */
+	public void setRotation(int slot, float angleX, float angleY, float angleZ) {
+		rx[slot] = angleX;
+		ry[slot] = angleY;
+		rz[slot] = angleZ;
+	}
+
+	public void setScale(int slot, float scaleX, float scaleY, float scaleZ) {
+		sx[slot] = scaleX;
+		sy[slot] = scaleY;
+		sz[slot] = scaleZ;
+	}
+
+	public void setColor(int slot, float r, float g, float b, float a) {
+		red[slot] = r;
+		green[slot] = g;
+		blue[slot] = b;
+		alpha[slot] = a;
+		flags[slot] |= FLAG_HAS_COLOR;
+	}
+
+	/**
+	 * @param slot
+	 * @param degreePerSecond
+	 *            how fast the object rotates around the z axis, see
+	 *            {@link #animate(float)}
+	 */
+	public void setSpin(int slot, float degreePerSecond) {
+		spin[slot] = degreePerSecond;
+	}
+
+	/**
+	 * @param slot
+	 * @return true if the slot is used and was not culled
+	 */
+	public boolean isVisible(int slot) {
+		final int f = flags[slot];
+		return (f & FLAG_USED) != 0 && (f & FLAG_VISIBLE) != 0;
+	}
+
+	/**
+	 * @param slot
+	 * @param matrix
+	 *            will contain the transformation of the object (like
+	 *            {@link gl.scenegraph.MeshComponent#getLocalMatrix()})
+	 */
+	public void getTransform(int slot, float[] matrix) {
+		Calculus.setTransformM(matrix, x[slot], y[slot], z[slot], sx[slot],
+				sy[slot], sz[slot], null, rx[slot], ry[slot], rz[slot]);
+	}
+
+	/**
+	 * @param slot
+	 * @param rgba
+	 *            will contain the color
+	 * @return false if the object has no own color
+	 */
+	public boolean getColor(int slot, float[] rgba) {
+		if ((flags[slot] & FLAG_HAS_COLOR) == 0) {
+			return false;
+		}
+		rgba[0] = red[slot];
+		rgba[1] = green[slot];
+		rgba[2] = blue[slot];
+		rgba[3] = alpha[slot];
+		return true;
+	}
+
+	public int getFlags(int slot) {
+		return flags[slot];
+	}
+
+	public void setFlag(int slot, int flag, boolean enabled) {
+		if (enabled) {
+			flags[slot] |= flag;
+		} else {
+			flags[slot] &= ~flag;
+		}
+	}
+
+	/**
+	 * Rotates all objects with a spin (like {@link gl.animations.AnimationRotate}
+	 * would do for each single mesh)
+	 *
+	 * @param timeDelta
+	 */
+	public void animate(float timeDelta) {
+		final int n = mySlotCount;
+		final float[] s = spin;
+		final float[] r = rz;
+		for (int i = 0; i < n; i++) {
+			if (s[i] != 0) {
+				r[i] = (r[i] + s[i] * timeDelta) % 360;
+			}
+		}
+	}
+
+	/**
+	 * Sets {@link #FLAG_VISIBLE} for all objects closer than maxDistance and
+	 * clears it for all others
+	 *
+	 * @return the number of visible objects
+	 */
+	public int cullByDistance(float camX, float camY, float camZ,
+			float maxDistance) {
+		final int n = mySlotCount;
+		final float maxSq = maxDistance * maxDistance;
+		final float[] px = x, py = y, pz = z;
+		final int[] f = flags;
+		int visible = 0;
+		for (int i = 0; i < n; i++) {
+			float dx = px[i] - camX;
+			float dy = py[i] - camY;
+			float dz = pz[i] - camZ;
+			if (dx * dx + dy * dy + dz * dz <= maxSq) {
+				f[i] |= FLAG_VISIBLE;
+				if ((f[i] & FLAG_USED) != 0) {
+					visible++;
+				}
+			} else {
+				f[i] &= ~FLAG_VISIBLE;
+			}
+		}
+		myVisibleCount = visible;
+		return visible;
+	}
+
+	/**
+	 * @param result
+	 *            will contain the distance of each slot to the camera, has to
+	 *            be at least {@link #getSlotCount()} long. Unused slots get -1
+	 * @return the result array
+	 */
+	public float[] calcDistances(float camX, float camY, float camZ,
+			float[] result) {
+		final int n = mySlotCount;
+		final float[] px = x, py = y, pz = z;
+		final int[] f = flags;
+		for (int i = 0; i < n; i++) {
+			if ((f[i] & FLAG_USED) == 0) {
+				result[i] = -1;
+				continue;
+			}
+			float dx = px[i] - camX;
+			float dy = py[i] - camY;
+			float dz = pz[i] - camZ;
+			result[i] = (float) Math.sqrt(dx * dx + dy * dy + dz * dz);
+		}
+		return result;
+	}
+
+	/**
+	 * @return the number of slots which have to be checked when iterating over
+	 *         all objects (including the released ones)
+	 */
+	public int getSlotCount() {
+		return mySlotCount;
+	}
+
+	public synchronized int getCount() {
+		return myCount;
+	}
+
+	/**
+	 * @return the number of visible objects after the last
+	 *         {@link #cullByDistance(float, float, float, float)}
+	 */
+	public int getVisibleCount() {
+		return myVisibleCount;
+	}
+
+	@Override
+	public void showDebugInformation() {
+		Log.i(LOG_TAG, "Debug infos about the TransformStore:");
+		Log.i(LOG_TAG, "   > objects=" + getCount() + ", slots=" + mySlotCount
+				+ ", capacity=" + flags.length + ", visible="
+				+ myVisibleCount);
+	}
+
+}
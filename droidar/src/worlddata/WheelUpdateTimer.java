@@ -0,0 +1,204 @@
+package worlddata;
+
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+
+import worlddata.TimerWheel.TimerListener;
+
+/**
+ * An alternative to the {@link UpdateTimer} for components which only have to
+ * do something every few seconds. The work is not done in the update method
+ * but the listener is called by the {@link TimerWheel} when it is due, so
+ * thousands of such components do not slow down each update cycle.
+ *
+ * The owner has to call {@link WheelUpdateTimer#keepAlive()} in its update
+ * method. The timer is started with the first call and stops automatically if
+ * the owner is not updated anymore (e.g. because it was removed from the
+ * world). It starts again when the owner is updated again.
+ *
+ * The {@link TimerWheel} is advanced by the {@link SystemUpdater}. If the
+ * owner is updated without it (e.g. a world which is updated manually), use
+ * {@link WheelUpdateTimer#keepAlive(float)}, then the listener is called from
+ * the update of the owner instead.
+ *
+ * @author Spobo
+ *
+ */
+public class WheelUpdateTimer implements TimerListener {
+
+	/**
+	 * The listener of a {@link PerParent} timer
+	 */
+	public interface ParentTimerListener {
+		/**
+		 * @param parent
+		 *            the parent the timer belongs to
+		 * @param passedTime
+		 * @return false to stop the timer of this parent
+		 */
+		public boolean onTimer(Updateable parent, float passedTime);
+	}
+
+	/**
+	 * One {@link WheelUpdateTimer} for each parent, for components which can
+	 * be added to several {@link Obj}s. Only use it on the update thread
+	 */
+	public static class PerParent {
+
+		private final float myInterval;
+		private final ParentTimerListener myListener;
+		private final IdentityHashMap<Updateable, WheelUpdateTimer> myTimers =
+				new IdentityHashMap<Updateable, WheelUpdateTimer>();
+
+		public PerParent(float intervalInSeconds, ParentTimerListener listener) {
+			myInterval = intervalInSeconds;
+			myListener = listener;
+		}
+
+		/**
+		 * Has to be called in each update of the component, see
+		 * {@link WheelUpdateTimer#keepAlive(float)}
+		 */
+		public void keepAlive(final Updateable parent, float timeDelta) {
+			WheelUpdateTimer t = myTimers.get(parent);
+			if (t == null) {
+				removeStoppedTimers();
+				t = new WheelUpdateTimer(myInterval, new TimerListener() {
+					@Override
+					public boolean onTimer(float passedTime) {
+						return myListener.onTimer(parent, passedTime);
+					}
+				});
+				myTimers.put(parent, t);
+			}
+			t.keepAlive(timeDelta);
+		}
+
+		/**
+		 * the timers of parents which are not updated anymore are removed
+		 * when a new parent is added
+		 */
+		private void removeStoppedTimers() {
+			Iterator<WheelUpdateTimer> i = myTimers.values().iterator();
+			while (i.hasNext()) {
+				if (!i.next().isRunning()) {
+					i.remove();
+				}
+			}
+		}
+
+		public int getParentCount() {
+			return myTimers.size();
+		}
+	}
+
+	private final TimerListener myListener;
+	private float myInterval;
+	private TimerWheel.Entry myEntry;
+	private volatile long myLastUpdateStep;
+	/**
+	 * the step of the {@link TimerWheel} in the last call of
+	 * {@link #keepAlive(float)}
+	 */
+	private long myLastKeepAliveStep = -1;
+	private float myTimeWithoutWheel;
+
+	/**
+	 * @param intervalInSeconds
+	 *            e.g. 0.5s
+	 * @param listener
+	 *            is called every intervalInSeconds on the update thread.
+	 *            Return false to stop the timer until
+	 *            {@link WheelUpdateTimer#restart()} is called
+	 */
+	public WheelUpdateTimer(float intervalInSeconds, TimerListener listener) {
+		myInterval = intervalInSeconds;
+		myListener = listener;
+	}
+
+	/**
+	 * Has to be called in each update of the owner
+	 */
+	public void keepAlive() {
+		TimerWheel w = TimerWheel.getInstance();
+		myLastUpdateStep = w.getStepCount();
+		// (re)start the timer if it was never started or the wheel was reset:
+		if (myEntry == null || myEntry.getWheel() != w) {
+			myEntry = w.schedule(myInterval, this);
+		}
+	}
+
+	/**
+	 * Like {@link WheelUpdateTimer#keepAlive()} but if the {@link TimerWheel}
+	 * was not advanced since the last call (because no {@link SystemUpdater}
+	 * is running) the listener is called from here when it is due
+	 *
+	 * @param timeDelta
+	 *            the time since the last update of the owner
+	 */
+	public void keepAlive(float timeDelta) {
+		long step = TimerWheel.getInstance().getStepCount();
+		boolean wheelStopped = step == myLastKeepAliveStep;
+		myLastKeepAliveStep = step;
+		keepAlive();
+		if (!wheelStopped) {
+			myTimeWithoutWheel = 0;
+			return;
+		}
+		if (!isRunning()) {
+			return;
+		}
+		myTimeWithoutWheel += timeDelta;
+		if (myTimeWithoutWheel >= myInterval) {
+			float passedTime = myTimeWithoutWheel;
+			myTimeWithoutWheel = 0;
+			if (!myListener.onTimer(passedTime)) {
+				stop();
+			}
+		}
+	}
+
+	/**
+	 * @return false if the timer was never started, the owner is not updated
+	 *         anymore or the listener returned false
+	 */
+	public boolean isRunning() {
+		TimerWheel.Entry e = myEntry;
+		return e != null && e.isActive();
+	}
+
+	@Override
+	public boolean onTimer(float passedTime) {
+		/*
+		 * the wheel is advanced after all objects were updated, so the owner
+		 * had to be updated in this or the last step:
+		 */
+		if (myLastUpdateStep < TimerWheel.getInstance().getStepCount() - 1) {
+			myEntry = null;
+			return false;
+		}
+		return myListener.onTimer(passedTime);
+	}
+
+	/**
+	 * starts the timer again after the listener returned false
+	 */
+	public void restart() {
+		stop();
+		myEntry = null;
+	}
+
+	public void stop() {
+		if (myEntry != null) {
+			myEntry.cancel();
+		}
+	}
+
+	public void setInterval(float intervalInSeconds) {
+		myInterval = intervalInSeconds;
+		if (myEntry != null) {
+			myEntry.setInterval(intervalInSeconds);
+		}
+	}
+
+}
@@ -1,8 +1,11 @@
 package worlddata;
 
+import geo.FloatingOrigin;
+import geo.GeoCalcer;
 import gl.CordinateAxis;
 import gl.GLCamera;
 import gl.Renderable;
+import gl.animations.TweenEngine;
 
 import javax.microedition.khronos.opengles.GL10;
 
@@ -35,8 +38,20 @@ public class World implements RenderableEntity, Container<RenderableEntity> {
 	private boolean wasBeenClearedAtLeastOnce;
 	private Updateable myParent;
 
+	private boolean myParallelUpdate;
+	private volatile boolean myDeferChanges;
+	private final DeferredChanges<RenderableEntity> myDeferredChanges = new DeferredChanges<RenderableEntity>();
+	private boolean[] myUpdateResults;
+	/**
+	 * the {@link FloatingOrigin#getVersion()} the objects were last moved to
+	 */
+	private int myOriginVersion;
+	private GeoCalcer myGeoCalcer;
+
 	public World(GLCamera glCamera) {
 		myCamera = glCamera;
+		// new objects calculate their virtual positions themselves:
+		myOriginVersion = FloatingOrigin.getInstance().getVersion();
 	}
 
 	@Override
@@ -44,6 +59,10 @@ public class World implements RenderableEntity, Container<RenderableEntity> {
 		if (x == null) {
 			return false;
 		}
+		if (myDeferChanges) {
+			myDeferredChanges.add(x);
+			return true;
+		}
 		if (container == null)
 			container = new EfficientList<RenderableEntity>();
 		/*
@@ -124,8 +143,18 @@ public class World implements RenderableEntity, Container<RenderableEntity> {
 	public boolean update(float timeDelta, Updateable parent) {
 		//ARLogger.debug(LOG_TAG, "onUpdate Called: " + System.nanoTime()/1000/1000);
 		setMyParent(parent);
-		myCamera.update(timeDelta, this);
-		if (container != null) {
+		/*
+		 * the origin and the camera are moved together while holding the
+		 * camera lock (see ActionCalcRelativePos), so the renderer gets the
+		 * new camera position and the re-based objects with the same tick:
+		 */
+		synchronized (myCamera) {
+			rebaseIfOriginMoved();
+			myCamera.update(timeDelta, this);
+		}
+		if (myParallelUpdate && container != null) {
+			updateParallel(timeDelta);
+		} else if (container != null) {
 			for (int i = 0; i < container.myLength; i++) {
 				if (!container.get(i).update(timeDelta, this)) {
 					Log.w(LOG_TAG, "Object " + container.get(i)
@@ -138,6 +167,65 @@ public class World implements RenderableEntity, Container<RenderableEntity> {
 		return true;
 	}
 
+	/**
+	 * Moves the virtual positions of all {@link geo.GeoObj}s of this world to
+	 * the current {@link FloatingOrigin} in one pass if it was moved since the
+	 * last update
+	 */
+	protected void rebaseIfOriginMoved() {
+		final int version = FloatingOrigin.getInstance().getVersion();
+		if (version == myOriginVersion) {
+			return;
+		}
+		myOriginVersion = version;
+		if (myGeoCalcer == null) {
+			myGeoCalcer = new GeoCalcer();
+		}
+		accept(myGeoCalcer);
+	}
+
+	private void updateParallel(float timeDelta) {
+		int length = container.myLength;
+		if (myUpdateResults == null || myUpdateResults.length < length) {
+			myUpdateResults = new boolean[length + length / 2];
+		}
+		myDeferChanges = true;
+		try {
+			ParallelUpdater.getInstance().update(container, timeDelta, this,
+					myUpdateResults);
+		} finally {
+			myDeferChanges = false;
+		}
+		// structural changes are done afterwards on this thread only:
+		for (int i = length - 1; i >= 0; i--) {
+			if (!myUpdateResults[i]) {
+				Log.w(LOG_TAG, "Object " + container.get(i)
+						+ " was removed from the world on "
+						+ "update (because it returned false)!");
+				remove(container.get(i));
+			}
+		}
+		myDeferredChanges.applyTo(this);
+	}
+
+	/**
+	 * If enabled the objects of the world are updated in parallel on all
+	 * cores via the {@link ParallelUpdater}. Only use this if the update
+	 * methods of the objects do not access other objects of the world. Objects
+	 * which do have to implement {@link SequentialUpdateable}. Objects which
+	 * are added or removed while the world is updated are added/removed after
+	 * the update is complete
+	 * 
+	 * @param parallelUpdate
+	 */
+	public void setParallelUpdate(boolean parallelUpdate) {
+		myParallelUpdate = parallelUpdate;
+	}
+
+	public boolean isParallelUpdate() {
+		return myParallelUpdate;
+	}
+
 	// private void showArrayPos(final Object[] array, int i) {
 	// try {
 	// Log.e(LTAG, array.toString() + "[" + i + "]=" + array[i]);
@@ -184,6 +272,11 @@ public class World implements RenderableEntity, Container<RenderableEntity> {
 
 	@Override
 	public boolean remove(RenderableEntity x) {
+		TweenEngine.getInstance().cancelAllOf(x);
+		if (myDeferChanges) {
+			myDeferredChanges.remove(x);
+			return container.contains(x) >= 0;
+		}
 		return container.remove(x);
 	}
 